@@ -0,0 +1,606 @@
+package com.sabihismail.DiscordLastFMScrobbler.connection;
+
+import com.sabihismail.DiscordLastFMScrobbler.discord.Discord;
+import com.sabihismail.DiscordLastFMScrobbler.discord.DiscordRichPresense;
+import com.sabihismail.DiscordLastFMScrobbler.discord.DiscordSocket;
+import com.sabihismail.DiscordLastFMScrobbler.discord.GatewaySupervisor;
+import com.sabihismail.DiscordLastFMScrobbler.lastFM.LastFM;
+import com.sabihismail.DiscordLastFMScrobbler.lastFM.LastFMManager;
+import com.sabihismail.DiscordLastFMScrobbler.listener.PluginManager;
+import com.sabihismail.DiscordLastFMScrobbler.presence.NowPlayingFileSink;
+import com.sabihismail.DiscordLastFMScrobbler.presence.PresenceBroadcaster;
+import com.sabihismail.DiscordLastFMScrobbler.tools.Backoff;
+import com.sabihismail.DiscordLastFMScrobbler.tools.ConsolePrompt;
+import com.sabihismail.DiscordLastFMScrobbler.tools.Constants;
+import com.sabihismail.DiscordLastFMScrobbler.tools.ExecutionLane;
+import com.sabihismail.DiscordLastFMScrobbler.tools.Logging;
+import com.sabihismail.DiscordLastFMScrobbler.tools.MetricsJMX;
+import com.sabihismail.DiscordLastFMScrobbler.tools.MetricsServer;
+import com.sabihismail.DiscordLastFMScrobbler.tools.Prompt;
+import com.sabihismail.DiscordLastFMScrobbler.tools.Settings;
+import com.sabihismail.DiscordLastFMScrobbler.tools.StartupTimer;
+import org.json.JSONException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Contains the objects {@link Discord} and {@link LastFMManager} which manage retrieving and sending information to
+ * Discord and LastFM. The {@link PluginManager} for active music identification is also contained in this class.
+ * {@link Settings} is the object which contains all information about bot preferences and user information.
+ * <p>
+ * Other classes frequently utilize these above classes which is why the classes are statically accessible.
+ * <p>
+ * This class is shared by the JavaFX program, {@link Main}, and the headless program, {@link HeadlessMain}. It never
+ * references JavaFX or AWT so that the headless program does not load either toolkit. Anything shown to the user goes
+ * through {@link #PROMPT}.
+ *
+ * @since 1.2
+ */
+public class Bot {
+    /**
+     * Time in seconds each {@link ExecutionLane} is given to drain its queued tasks on {@link #shutdown()}.
+     */
+    private static final int LANE_SHUTDOWN_TIMEOUT = 3;
+
+    /**
+     * Time in seconds to wait for the Discord token verification before verifying the token directly.
+     */
+    private static final int TOKEN_VERIFICATION_TIMEOUT = 10;
+
+    /**
+     * Attempts at a Last.FM session key that failed because Last.FM could not be reached or could not answer, after
+     * which the program gives up and exits.
+     */
+    private static final int SESSION_KEY_ATTEMPTS = 8;
+
+    /**
+     * Delays in milliseconds of the {@link Backoff} between session key attempts.
+     */
+    private static final int SESSION_KEY_RETRY_DELAY = 2000;
+    private static final int SESSION_KEY_MAX_RETRY_DELAY = 60 * 1000;
+
+    private static final AtomicBoolean SHUT_DOWN = new AtomicBoolean(false);
+
+    public static volatile boolean BOT_ENABLED = true;
+
+    public static volatile Prompt PROMPT = new ConsolePrompt();
+
+    public static Settings SETTINGS;
+    public static Discord DISCORD;
+    public static DiscordRichPresense DISCORD_RICH_PRESENSE;
+    public static PresenceBroadcaster PRESENCE_BROADCASTER;
+    public static PluginManager PLUGIN_MANAGER;
+    public static LastFMManager LAST_FM_MANAGER;
+    public static MetricsServer METRICS_SERVER;
+
+    /**
+     * Run at the end of {@link #shutdown()} to stop the program, for example by exiting the JavaFX application.
+     */
+    private static volatile Runnable exitAction = () -> {
+    };
+
+    /**
+     * Moves old data to the current data folder, loads the {@link Settings} and shows the first run message.
+     */
+    static void loadSettings() {
+        long phase = StartupTimer.begin();
+
+        moveOldFolderToNew();
+
+        SETTINGS = new Settings();
+
+        oneTimeConfiguration();
+
+        StartupTimer.end("settings", phase);
+    }
+
+    /**
+     * Verifies the account info located in the settings file, asking the user for anything that is missing or
+     * invalid, and stores the result.
+     */
+    static void verifyAccounts() {
+        long phase = StartupTimer.begin();
+
+        AccountInfo accountInfo = verificationOfExistingFiles(SETTINGS.getLastFMName(), SETTINGS.getLastFMPassword(),
+                SETTINGS.getSessionKey(), SETTINGS.getToken());
+
+        SETTINGS.setLastFMName(accountInfo.getLastFMName());
+        SETTINGS.setLastFMPassword(accountInfo.getLastFMPassword());
+        SETTINGS.setSessionKey(accountInfo.getLastFMSessionKey());
+        SETTINGS.setToken(accountInfo.getDiscordToken());
+        SETTINGS.saveSettings();
+
+        StartupTimer.end("credentials", phase);
+    }
+
+    /**
+     * Creates the {@link PresenceBroadcaster} with every enabled sink and the {@link LastFMManager}. Connections are
+     * opened in the background so this returns without waiting for Discord.
+     * <p>
+     * The metrics are published through JMX and, if a metrics port is set, served by a {@link MetricsServer}.
+     */
+    static void startComponents() {
+        long phase = StartupTimer.begin();
+
+        MetricsJMX.register();
+
+        if (SETTINGS.getMetricsPort() > 0) {
+            try {
+                METRICS_SERVER = new MetricsServer(SETTINGS.getMetricsPort());
+            } catch (IOException e) {
+                Logging.logError(new String[]{"Metrics port " + SETTINGS.getMetricsPort()}, e);
+            }
+        }
+
+        PRESENCE_BROADCASTER = new PresenceBroadcaster();
+
+        if (SETTINGS.isRichPresenseEnabled()) {
+            DISCORD_RICH_PRESENSE = new DiscordRichPresense();
+            PRESENCE_BROADCASTER.register(DISCORD_RICH_PRESENSE);
+        }
+
+        if (SETTINGS.isDiscordConnectionEnabled()) {
+            DISCORD = new Discord();
+            PRESENCE_BROADCASTER.register(DISCORD);
+
+            GatewaySupervisor supervisor = DISCORD.getSupervisor();
+            supervisor.addStateListener(state -> {
+                if (state == GatewaySupervisor.State.READY) {
+                    StartupTimer.milestone("discord_ready");
+                }
+            });
+
+            if (supervisor.getState() == GatewaySupervisor.State.READY) {
+                StartupTimer.milestone("discord_ready");
+            }
+        }
+
+        if (SETTINGS.isNowPlayingFileEnabled()) {
+            PRESENCE_BROADCASTER.register(new NowPlayingFileSink());
+        }
+
+        LAST_FM_MANAGER = new LastFMManager();
+
+        StartupTimer.end("components", phase);
+    }
+
+    /**
+     * Creates the {@link PluginManager} if scrobbling is enabled, which starts watching the active processes.
+     */
+    static void startPluginManager() {
+        if (SETTINGS.isScrobblingEnabled()) {
+            long phase = StartupTimer.begin();
+
+            PLUGIN_MANAGER = new PluginManager();
+
+            StartupTimer.end("plugins", phase);
+        }
+    }
+
+    /**
+     * @param exitAction Run at the end of {@link #shutdown()} to stop the program.
+     */
+    static void setExitAction(Runnable exitAction) {
+        Bot.exitAction = exitAction;
+    }
+
+    /**
+     * Configures program on first time run. Currently just displays dialog to user explaining that all sensitive data
+     * is encrypted before being stored.
+     */
+    private static void oneTimeConfiguration() {
+        if (!SETTINGS.hasViewedEncryptionMessage()) {
+            PROMPT.showMessage("When supplying information, please know that the Last.FM password, " +
+                    "Last.FM session key, and Discord token are encrypted in a salted AES-128 encrypted string.\n" +
+                    "The source can be viewed at '" + Constants.GITHUB + "'.");
+
+            SETTINGS.setViewedEncryptionMessage();
+            SETTINGS.saveSettings();
+        }
+    }
+
+    /**
+     * Verifies validity of LastFM credentials and Discord token. If the credentials are wrong, the user is asked until
+     * valid ones are inputted.
+     * <p>
+     * A Last.FM session key stored in the settings file is used immediately and is only validated in the background by
+     * {@link #validateSessionKeyInBackground(String, String, String)}. Otherwise the session key request and the
+     * Discord token verification do not depend on each other and are sent at the same time, so the startup only waits
+     * for the slower of the two.
+     * <p>
+     * The user is only asked for new Last.FM credentials if the username or password is missing or was rejected. If
+     * Last.FM cannot be reached or cannot answer, the request is retried with a {@link Backoff} and the program exits
+     * with 1 after {@link #SESSION_KEY_ATTEMPTS} attempts. No session key is requested while scrobbling is disabled.
+     *
+     * @param lastFMName     Inputted LastFM username. Can be set to default value in {@link Settings#lastFMName}.
+     * @param lastFMPassword The password for the aforementioned LastFM username.
+     * @param sessionKey     The LastFM session key stored in the settings file, which may be empty.
+     * @param token          The Discord user token.
+     * @return Returns a final data class containing information about the LastFM account and also the Discord token.
+     */
+    static AccountInfo verificationOfExistingFiles(String lastFMName, String lastFMPassword, String sessionKey,
+                                           String token) {
+        AccountInfo accountInfo = new AccountInfo();
+
+        token = cleanToken(token);
+
+        CompletableFuture<Boolean> tokenVerification = null;
+        if (SETTINGS.isDiscordConnectionEnabled() && token != null && !token.equalsIgnoreCase("SKIP")) {
+            String storedToken = token;
+
+            tokenVerification = CompletableFuture.supplyAsync(() -> Discord.validDiscordToken(storedToken),
+                    ExecutionLane.DISCORD_IO::execute);
+        }
+
+        boolean accountExists = false;
+        if (!SETTINGS.isScrobblingEnabled()) {
+            accountInfo.setLastFMName(lastFMName);
+            accountInfo.setLastFMPassword(lastFMPassword);
+            accountInfo.setLastFMSessionKey(sessionKey == null ? "" : sessionKey);
+
+            accountExists = true;
+        } else if (!lastFMName.isEmpty() && sessionKey != null && !sessionKey.isEmpty()) {
+            accountInfo.setLastFMName(lastFMName);
+            accountInfo.setLastFMPassword(lastFMPassword);
+            accountInfo.setLastFMSessionKey(sessionKey);
+
+            validateSessionKeyInBackground(lastFMName, lastFMPassword, sessionKey);
+
+            accountExists = true;
+        }
+
+        Backoff backoff = new Backoff(SESSION_KEY_RETRY_DELAY, SESSION_KEY_MAX_RETRY_DELAY);
+        CompletableFuture<String> sessionKeyRequest = accountExists || lastFMName.isEmpty() ||
+                lastFMPassword.isEmpty() ? null : requestSessionKey(lastFMName, lastFMPassword);
+        while (!accountExists) {
+            boolean rejected = lastFMName.isEmpty() || lastFMPassword.isEmpty();
+
+            if (!rejected) {
+                try {
+                    String newSessionKey = sessionKeyRequest != null ? awaitSessionKey(sessionKeyRequest) :
+                            LastFM.getSessionKey(lastFMName, lastFMPassword);
+
+                    accountInfo.setLastFMName(lastFMName);
+                    accountInfo.setLastFMPassword(lastFMPassword);
+                    accountInfo.setLastFMSessionKey(newSessionKey);
+
+                    accountExists = true;
+                } catch (LastFM.AuthenticationException e) {
+                    Logging.logError(new String[]{"Last.FM credentials were rejected.", lastFMName}, e);
+
+                    rejected = true;
+                } catch (JSONException | IOException e) {
+                    if (backoff.getAttempts() + 1 >= SESSION_KEY_ATTEMPTS) {
+                        PROMPT.showMessage("Last.FM could not be reached after " + SESSION_KEY_ATTEMPTS +
+                                " attempts (" + e.getMessage() + ").");
+
+                        close(1);
+                    }
+
+                    long delay = backoff.next();
+                    Logging.log("Last.FM session key could not be requested (" + e.getMessage() + "), retrying in " +
+                            TimeUnit.MILLISECONDS.toSeconds(delay) + " seconds.");
+
+                    try {
+                        Thread.sleep(delay);
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+
+                        close(1);
+                    }
+                }
+            }
+
+            if (rejected) {
+                lastFMName = PROMPT.showInput("Please enter a valid Last.FM username.");
+                lastFMPassword = PROMPT.showPasswordInput("Last.FM Password",
+                        "Please enter a valid Last.FM password.");
+
+                if (lastFMName == null || lastFMName.equals("") ||
+                        lastFMPassword == null || lastFMPassword.equals("")) {
+                    close(1);
+                }
+
+                backoff.reset();
+            }
+
+            sessionKeyRequest = null;
+        }
+
+        if (SETTINGS.isDiscordConnectionEnabled()) {
+            boolean loggedIn = false;
+            while (!loggedIn) {
+                token = cleanToken(token);
+
+                if (token == null || !token.equalsIgnoreCase("SKIP")) {
+                    boolean success = false;
+
+                    if (tokenVerification != null) {
+                        success = awaitTokenVerification(tokenVerification, token);
+                    } else if (token != null) {
+                        success = Discord.validDiscordToken(token);
+                    }
+
+                    tokenVerification = null;
+
+                    if (!success) {
+                        token = PROMPT.showInput("Your Discord token is not set!\n" +
+                                "Go to your Discord, click CTRL + SHIFT + I and click the double arrow on the same " +
+                                "row as 'Elements' and 'Console'.\n" +
+                                "Click 'Application'. Under the 'Storage' section, click the right facing arrow " +
+                                "pointing right beside 'Local Storage'.\n" +
+                                "Click 'https://discordapp.com' and find the key 'token'.\n" +
+                                "Double click corresponding value and copy it.\n" +
+                                "Paste that into the dialog box below the quotations.\n\n" +
+                                "Type 'SKIP' if you DO NOT want to set up the Discord connection at this time.\n" +
+                                "You can change your decision later on.");
+
+                        // the question was cancelled or could not be asked at all
+                        if (token == null) {
+                            token = "SKIP";
+                        }
+                    } else {
+                        accountInfo.setDiscordToken(token);
+
+                        loggedIn = true;
+                    }
+                } else if (token.equalsIgnoreCase("SKIP")) {
+                    SETTINGS.setDiscordConnectionEnabled(false);
+                    SETTINGS.setRichPresenseEnabled(false);
+                    SETTINGS.saveSettings();
+
+                    loggedIn = true;
+                }
+            }
+        }
+
+        return accountInfo;
+    }
+
+    /**
+     * Removes the spaces and surrounding quotes that are often copied along with the Discord token.
+     *
+     * @param token The Discord user token as inputted.
+     * @return Returns the cleaned token or null if the token is null.
+     */
+    private static String cleanToken(String token) {
+        if (token == null) {
+            return null;
+        }
+
+        token = token.replace(" ", "");
+
+        if (token.startsWith("\"")) {
+            token = token.substring(1);
+        }
+
+        if (token.endsWith("\"")) {
+            token = token.substring(0, token.length() - 1);
+        }
+
+        return token;
+    }
+
+    /**
+     * Requests a Last.FM session key on {@link ExecutionLane#LAST_FM_WRITE}.
+     *
+     * @param lastFMName     The Last.FM username.
+     * @param lastFMPassword The Last.FM password.
+     * @return Returns the pending session key, see {@link #awaitSessionKey(CompletableFuture)}.
+     */
+    private static CompletableFuture<String> requestSessionKey(String lastFMName, String lastFMPassword) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return LastFM.getSessionKey(lastFMName, lastFMPassword);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, ExecutionLane.LAST_FM_WRITE::execute);
+    }
+
+    /**
+     * Waits for the Discord token verification started on {@link ExecutionLane#DISCORD_IO}. That lane drops its oldest
+     * task when it is full, which would leave the verification pending forever, so after
+     * {@link #TOKEN_VERIFICATION_TIMEOUT} seconds the token is verified on the calling thread instead.
+     *
+     * @param verification The pending verification.
+     * @param token        The token being verified.
+     * @return Returns true if Discord accepted the token.
+     */
+    private static boolean awaitTokenVerification(CompletableFuture<Boolean> verification, String token) {
+        try {
+            return verification.get(TOKEN_VERIFICATION_TIMEOUT, TimeUnit.SECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            verification.cancel(false);
+
+            return Discord.validDiscordToken(token);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            return false;
+        }
+    }
+
+    /**
+     * Waits for a request made with {@link #requestSessionKey(String, String)} and rethrows its failure as the
+     * exception {@link LastFM#getSessionKey(String, String)} would have thrown.
+     *
+     * @param request The pending session key.
+     * @return Returns the session key.
+     * @throws JSONException Thrown if Last.FM rejected the credentials.
+     * @throws IOException   Thrown if Last.FM could not be reached.
+     */
+    private static String awaitSessionKey(CompletableFuture<String> request) throws JSONException, IOException {
+        try {
+            return request.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            } else if (e.getCause() instanceof JSONException) {
+                throw (JSONException) e.getCause();
+            }
+
+            throw e;
+        }
+    }
+
+    /**
+     * Requests a new session key for the stored credentials while the program is already running with the stored
+     * session key.
+     * <p>
+     * A different key replaces the stored one. Only if Last.FM answers that the username or password is wrong is the
+     * user asked for new ones. Any other failure, such as Last.FM being unreachable, rate limited or temporarily
+     * unavailable, keeps the stored key.
+     *
+     * @param lastFMName     The stored Last.FM username.
+     * @param lastFMPassword The stored Last.FM password.
+     * @param sessionKey     The stored session key.
+     */
+    private static void validateSessionKeyInBackground(String lastFMName, String lastFMPassword, String sessionKey) {
+        if (lastFMPassword.isEmpty()) {
+            return;
+        }
+
+        // handled on a pooled thread so that a credentials dialog never occupies the Last.FM lane
+        requestSessionKey(lastFMName, lastFMPassword).whenCompleteAsync((newSessionKey, e) -> {
+            Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+
+            if (cause == null) {
+                if (!newSessionKey.equals(sessionKey)) {
+                    SETTINGS.setSessionKey(newSessionKey);
+                    SETTINGS.saveSettings();
+
+                    Logging.log("Stored Last.FM session key was replaced.");
+                }
+            } else if (cause instanceof LastFM.AuthenticationException) {
+                Logging.logError(new String[]{"Stored Last.FM credentials were rejected.", lastFMName},
+                        (LastFM.AuthenticationException) cause);
+
+                if (!promptLastFMAccount()) {
+                    Logging.log("Last.FM credentials were not changed, Last.FM requests will fail until they are " +
+                            "changed in the settings.");
+                }
+            } else {
+                Logging.log("Stored Last.FM session key could not be validated (" + cause.getMessage() + ").");
+            }
+        });
+    }
+
+    /**
+     * Asks the user for Last.FM credentials until a session key is received and stores them. The program keeps running
+     * while the user is asked, so the questions are shown by {@link #PROMPT} on the UI thread and nothing is changed if
+     * the user leaves a field empty.
+     *
+     * @return Returns false if the user cancelled.
+     */
+    private static boolean promptLastFMAccount() {
+        while (true) {
+            String lastFMName = PROMPT.showInput("Please enter a valid Last.FM username.");
+            String lastFMPassword = PROMPT.showPasswordInput("Last.FM Password",
+                    "Please enter a valid Last.FM password.");
+
+            if (lastFMName == null || lastFMName.equals("") ||
+                    lastFMPassword == null || lastFMPassword.equals("")) {
+                return false;
+            }
+
+            try {
+                String sessionKey = LastFM.getSessionKey(lastFMName, lastFMPassword);
+
+                SETTINGS.setLastFMName(lastFMName);
+                SETTINGS.setLastFMPassword(lastFMPassword);
+                SETTINGS.setSessionKey(sessionKey);
+                SETTINGS.saveSettings();
+
+                return true;
+            } catch (JSONException | IOException ignored) {
+            }
+        }
+    }
+
+    /**
+     * Notifies user that the program will close.
+     *
+     * @param status The exit status, not 0 if the program could not run.
+     */
+    public static void close(int status) {
+        PROMPT.showMessage("The program will now close.");
+
+        if (SETTINGS != null) {
+            SETTINGS.flush();
+        }
+
+        System.exit(status);
+    }
+
+    /**
+     * Moves all old folder data to the latest data folder defined by {@link Constants#SETTINGS_FILE}.
+     */
+    private static void moveOldFolderToNew() {
+        File newDir = new File(Constants.SETTINGS_FILE);
+        newDir.getParentFile().mkdirs();
+
+        File oldDir = new File(Constants.SETTINGS_DIR_OLD);
+        if (oldDir.exists()) {
+            try {
+                Files.move(Paths.get(oldDir.toURI()), Paths.get(newDir.toURI()), StandardCopyOption.REPLACE_EXISTING);
+
+                oldDir.getParentFile().delete();
+                oldDir.getParentFile().getParentFile().delete();
+            } catch (IOException e) {
+                Logging.logError(new String[]{oldDir.getAbsolutePath(), newDir.getAbsolutePath()}, e);
+            }
+        }
+    }
+
+    /**
+     * Shutdowns all components of the program upon draining and stopping every {@link ExecutionLane}, disconnecting
+     * the websocket from {@link DiscordSocket} and writing any unsaved {@link Settings}. Only the first call has an
+     * effect.
+     */
+    public static void shutdown() {
+        if (!SHUT_DOWN.compareAndSet(false, true)) {
+            return;
+        }
+
+        if (PLUGIN_MANAGER != null) {
+            PLUGIN_MANAGER.shutdown();
+        }
+
+        ExecutionLane.shutdownAll(LANE_SHUTDOWN_TIMEOUT, TimeUnit.SECONDS);
+
+        if (PRESENCE_BROADCASTER != null) {
+            PRESENCE_BROADCASTER.shutdown();
+        }
+
+        if (DISCORD_RICH_PRESENSE != null) {
+            DISCORD_RICH_PRESENSE.shutdown();
+        }
+
+        if (DISCORD != null) {
+            DISCORD.shutdown();
+        }
+
+        if (METRICS_SERVER != null) {
+            METRICS_SERVER.shutdown();
+        }
+
+        if (SETTINGS != null) {
+            SETTINGS.flush();
+        }
+
+        Logging.close();
+
+        exitAction.run();
+    }
+}
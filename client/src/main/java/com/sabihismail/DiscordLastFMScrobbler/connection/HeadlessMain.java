@@ -0,0 +1,233 @@
+package com.sabihismail.DiscordLastFMScrobbler.connection;
+
+import com.sabihismail.DiscordLastFMScrobbler.tools.Constants;
+import com.sabihismail.DiscordLastFMScrobbler.tools.Logging;
+import com.sabihismail.DiscordLastFMScrobbler.tools.Settings;
+import com.sabihismail.DiscordLastFMScrobbler.tools.StartupTimer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Runs the process detection, scrobbling and presence updates without any GUI, for example as a service on an always
+ * on machine.
+ * <p>
+ * Neither JavaFX nor AWT is loaded. The program is configured from the {@link Settings} file, and the command line
+ * arguments listed in {@link #USAGE} override and store individual settings. Anything that has to be asked is asked
+ * on the terminal through {@link com.sabihismail.DiscordLastFMScrobbler.tools.ConsolePrompt}, or not at all when there
+ * is no terminal. If no Last.FM session key can be received, the program exits with 1 so that a service manager can
+ * restart it later.
+ * <p>
+ * The program runs until it is stopped, for example with CTRL + C, after which every component is shut down the same
+ * way as in {@link Main}.
+ *
+ * @since 1.2
+ */
+public class HeadlessMain {
+    /**
+     * Environment variable the Last.FM password is read from, so that it does not show up in the process list.
+     */
+    private static final String PASSWORD_VARIABLE = "DLFS_LASTFM_PASSWORD";
+
+    private static final String USAGE = "Usage: java -cp <jar> " + HeadlessMain.class.getName() + " [options]\n" +
+            "  --lastfm-user <name>            Last.FM username\n" +
+            "  --lastfm-password-file <path>   Read the Last.FM password from a file, '-' for stdin\n" +
+            "  --discord-token <token>         Discord token\n" +
+            "  --[no-]discord                  Discord Game status\n" +
+            "  --[no-]rich-presence            Discord Rich Presence\n" +
+            "  --[no-]scrobble                 Last.FM scrobbling\n" +
+            "  --[no-]now-playing-file         Write the song to '" + Constants.NOW_PLAYING_FILE + "'\n" +
+            "  --track-file <path>             Follow songs written to a file by a music player\n" +
+            "  --no-track-file\n" +
+            "  --track-port <port>             Accept songs sent to a port on 127.0.0.1\n" +
+            "  --no-track-port\n" +
+            "  --metrics-port <port>           Serve metrics for Prometheus on 127.0.0.1\n" +
+            "  --no-metrics-port\n" +
+            "  -h, --help                      Show this help and exit\n" +
+            "The Last.FM password can also be set in the " + PASSWORD_VARIABLE + " environment variable.\n" +
+            "Options are stored in the settings file and apply to later runs as well.";
+
+    /**
+     * Starts the program and waits until it is shut down. If help is asked for, only {@link #USAGE} is shown, without
+     * reading the settings file or asking for any account.
+     *
+     * @param args The options listed in {@link #USAGE}.
+     * @throws InterruptedException Thrown if the main thread is interrupted while waiting.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        for (String arg : args) {
+            if (arg.equals("-h") || arg.equals("--help")) {
+                System.out.println(USAGE);
+                System.exit(0);
+            }
+        }
+
+        System.setProperty("java.awt.headless", "true");
+
+        CountDownLatch stopped = new CountDownLatch(1);
+        Bot.setExitAction(stopped::countDown);
+
+        Runtime.getRuntime().addShutdownHook(new Thread(Bot::shutdown, "dlfs-shutdown"));
+
+        Bot.loadSettings();
+
+        if (!applyArguments(args)) {
+            System.err.println(USAGE);
+            System.exit(1);
+        }
+
+        Bot.verifyAccounts();
+        Bot.startComponents();
+        Bot.startPluginManager();
+
+        if (Bot.PLUGIN_MANAGER != null && !Bot.PLUGIN_MANAGER.hasPlugins()) {
+            Logging.log("No plugins detected in '" + Constants.PLUGIN_DIR + "', no songs can be scrobbled. " +
+                    "You can download plugins from '" + Constants.GITHUB + "'.");
+        }
+
+        StartupTimer.milestone("ready");
+        StartupTimer.footprint();
+
+        stopped.await();
+    }
+
+    /**
+     * Stores the settings given on the command line and the password given in {@link #PASSWORD_VARIABLE}. Changing the
+     * Last.FM account drops the stored session key so that a new one is requested.
+     * <p>
+     * The password is never accepted as an argument, as arguments can be read by every user of the machine.
+     *
+     * @param args The options listed in {@link #USAGE}.
+     * @return Returns false if an option is unknown or is missing its value, or the password file cannot be read.
+     */
+    private static boolean applyArguments(String[] args) {
+        Settings settings = Bot.SETTINGS;
+
+        String password = System.getenv(PASSWORD_VARIABLE);
+        if (password != null && !password.isEmpty()) {
+            setLastFMPassword(password);
+        }
+
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+
+            switch (arg) {
+                case "--lastfm-user":
+                case "--lastfm-password-file":
+                case "--discord-token":
+                case "--track-file":
+                case "--track-port":
+                case "--metrics-port":
+                    if (i + 1 == args.length) {
+                        return false;
+                    }
+
+                    String value = args[++i];
+
+                    if (arg.equals("--lastfm-user")) {
+                        if (!value.equals(settings.getLastFMName())) {
+                            settings.setLastFMName(value);
+                            settings.setSessionKey("");
+                        }
+                    } else if (arg.equals("--lastfm-password-file")) {
+                        String read = readPassword(value);
+
+                        if (read == null) {
+                            return false;
+                        }
+
+                        setLastFMPassword(read);
+                    } else if (arg.equals("--track-file")) {
+                        settings.setTrackSourceFile(value);
+                    } else if (arg.equals("--track-port") || arg.equals("--metrics-port")) {
+                        try {
+                            int port = Integer.parseInt(value);
+
+                            if (port < 1 || port > 65535) {
+                                return false;
+                            }
+
+                            if (arg.equals("--track-port")) {
+                                settings.setTrackSourcePort(port);
+                            } else {
+                                settings.setMetricsPort(port);
+                            }
+                        } catch (NumberFormatException e) {
+                            return false;
+                        }
+                    } else {
+                        settings.setToken(value);
+                    }
+                    break;
+                case "--no-track-file":
+                    settings.setTrackSourceFile("");
+                    break;
+                case "--no-track-port":
+                    settings.setTrackSourcePort(0);
+                    break;
+                case "--no-metrics-port":
+                    settings.setMetricsPort(0);
+                    break;
+                case "--discord":
+                case "--no-discord":
+                    settings.setDiscordConnectionEnabled(arg.equals("--discord"));
+                    break;
+                case "--rich-presence":
+                case "--no-rich-presence":
+                    settings.setRichPresenseEnabled(arg.equals("--rich-presence"));
+                    break;
+                case "--scrobble":
+                case "--no-scrobble":
+                    settings.setScrobblingEnabled(arg.equals("--scrobble"));
+                    break;
+                case "--now-playing-file":
+                case "--no-now-playing-file":
+                    settings.setNowPlayingFileEnabled(arg.equals("--now-playing-file"));
+                    break;
+                default:
+                    return false;
+            }
+        }
+
+        settings.saveSettings();
+
+        return true;
+    }
+
+    private static void setLastFMPassword(String password) {
+        if (!password.equals(Bot.SETTINGS.getLastFMPassword())) {
+            Bot.SETTINGS.setLastFMPassword(password);
+            Bot.SETTINGS.setSessionKey("");
+        }
+    }
+
+    /**
+     * Reads the first line of a file or of the standard input.
+     *
+     * @param path The path of the file, or '-' for the standard input.
+     * @return Returns the password, or null if it could not be read.
+     */
+    private static String readPassword(String path) {
+        try (BufferedReader r = path.equals("-") ?
+                new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8)) :
+                Files.newBufferedReader(Paths.get(path), StandardCharsets.UTF_8)) {
+            String password = r.readLine();
+
+            if (password == null || password.isEmpty()) {
+                System.err.println("No Last.FM password in '" + path + "'.");
+                return null;
+            }
+
+            return password;
+        } catch (IOException | InvalidPathException e) {
+            System.err.println("The Last.FM password could not be read from '" + path + "': " + e.getMessage());
+            return null;
+        }
+    }
+}
@@ -1,8 +1,12 @@
 package com.sabihismail.DiscordLastFMScrobbler.discord;
 
-import com.sabihismail.DiscordLastFMScrobbler.connection.Main;
+import com.sabihismail.DiscordLastFMScrobbler.connection.Bot;
+import com.sabihismail.DiscordLastFMScrobbler.presence.PresenceSink;
+import com.sabihismail.DiscordLastFMScrobbler.tools.CircuitBreaker;
 import com.sabihismail.DiscordLastFMScrobbler.tools.Constants;
 import com.sabihismail.DiscordLastFMScrobbler.tools.Logging;
+import com.sabihismail.DiscordLastFMScrobbler.tools.Settings;
+import com.sabihismail.DiscordLastFMScrobbler.tools.Tools;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpGet;
@@ -12,21 +16,21 @@ import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.io.IOException;
-import java.net.URI;
-import java.net.URISyntaxException;
 
 /**
  * This class manages the connection to Discord servers and verifies if the user's inputted token is valid.
  * <p>
- * The Discord API connection is done through the WebSocket {@link DiscordSocket}.
+ * The Discord API connection is done through the WebSocket {@link DiscordSocket}, whose lifecycle is owned by a
+ * {@link GatewaySupervisor}.
  *
  * @since 1.0
  */
-public class Discord {
+public class Discord implements PresenceSink {
     /**
-     * Discord API endpoint to send HTTP requests.
+     * Discord API endpoint to send HTTP requests. Can be replaced with the 'dlfs.discord.endpoint' system property to
+     * run against a local stand-in.
      */
-    private static final String API_ENDPOINT = "https://discordapp.com/api/";
+    private static final String API_ENDPOINT = System.getProperty("dlfs.discord.endpoint", "https://discordapp.com/api/");
 
     /**
      * Discord API endpoint to retrieve gateway url for websocket connection and token verification information.
@@ -39,10 +43,20 @@ public class Discord {
      */
     private static final String GATEWAY_VERSION = "6";
 
-    private DiscordSocket discordSocket;
+    /**
+     * One {@link CircuitBreaker} per Discord endpoint.
+     */
+    private static final CircuitBreaker GATEWAY_CIRCUIT = new CircuitBreaker("discord_gateway");
+    private static final CircuitBreaker TOKEN_VERIFICATION_CIRCUIT = new CircuitBreaker("discord_token_verification");
 
+    private final GatewaySupervisor supervisor;
+
+    /**
+     * Starts connecting to Discord in the background through a {@link GatewaySupervisor}.
+     */
     public Discord() {
-        createSocket();
+        supervisor = new GatewaySupervisor(Bot.SETTINGS.getToken(), Bot.SETTINGS.isPresenceOnlyGatewayEnabled());
+        supervisor.start();
     }
 
     /**
@@ -58,9 +72,17 @@ public class Discord {
 
         String response = "";
         try {
-            HttpResponse httpResponse = httpClient.execute(httpRequest);
-            response = EntityUtils.toString(httpResponse.getEntity(), "UTF-8");
-            EntityUtils.consume(httpResponse.getEntity());
+            response = GATEWAY_CIRCUIT.call(() -> {
+                HttpResponse httpResponse = httpClient.execute(httpRequest);
+                String body = EntityUtils.toString(httpResponse.getEntity(), "UTF-8");
+                EntityUtils.consume(httpResponse.getEntity());
+
+                Tools.checkServerError(GET_GATEWAY, httpResponse);
+
+                return body;
+            });
+        } catch (CircuitBreaker.OpenException e) {
+            Logging.log(e.getMessage());
         } catch (IOException e) {
             Logging.logError(new String[]{GET_GATEWAY, Constants.USER_AGENT}, e);
         }
@@ -73,14 +95,28 @@ public class Discord {
             Logging.logError(new String[]{GET_GATEWAY, response}, e);
         }
 
-        server += "?v=" + GATEWAY_VERSION + "&encoding=json";
+        return server + getGatewayQuery();
+    }
+
+    /**
+     * Builds the query of the gateway uri which selects the gateway version and encoding, and 'zlib-stream' transport
+     * compression if {@link Settings#isGatewayCompressionEnabled()} is true.
+     *
+     * @return {@link String} query starting with '?'.
+     */
+    static String getGatewayQuery() {
+        String query = "?v=" + GATEWAY_VERSION + "&encoding=json";
+
+        if (Bot.SETTINGS.isGatewayCompressionEnabled()) {
+            query += "&" + DiscordSocket.ZLIB_STREAM_QUERY;
+        }
 
-        return server;
+        return query;
     }
 
     /**
      * Query Discord and verify if token inputted by user is valid. Discord should return a 200 if token is valid and
-     * an error code 4XX if the token does not exist.
+     * an error code 4XX if the token does not exist. While Discord is unreachable, the token is treated as invalid.
      *
      * @param token User token inputted on request;
      * @return Whether the user token is a valid token.
@@ -95,37 +131,53 @@ public class Discord {
         httpRequest.setHeader("User-Agent", Constants.USER_AGENT);
 
         try {
-            HttpResponse httpResponse = httpClient.execute(httpRequest);
+            int status = TOKEN_VERIFICATION_CIRCUIT.call(() -> {
+                HttpResponse httpResponse = httpClient.execute(httpRequest);
+                EntityUtils.consume(httpResponse.getEntity());
+
+                Tools.checkServerError(url, httpResponse);
 
-            int status = httpResponse.getStatusLine().getStatusCode();
+                return httpResponse.getStatusLine().getStatusCode();
+            });
 
-            if (status == 200) {
-                return true;
-            }
+            return status == 200;
         } catch (IOException e) {
             return false;
         }
+    }
 
-        return false;
+    /**
+     * Stores the latest game status which is sent once the connection is READY, see
+     * {@link GatewaySupervisor#setGame(String)}. Never blocks.
+     *
+     * @param game Song title and name.
+     */
+    public void setGame(String game) {
+        supervisor.setGame(game);
+    }
+
+    @Override
+    public String getName() {
+        return "discord_gateway";
+    }
+
+    @Override
+    public void update(String song) {
+        setGame(song);
     }
 
     /**
-     * Creates a {@link DiscordSocket} connection using the server gateway endpoint retrieved from
-     * {@link #getGateway()}.
-     * <p>
-     * This method is blocking.
+     * Closes the connection normally and stops reconnecting.
      */
-    public void createSocket() {
-        try {
-            discordSocket = new DiscordSocket(new URI(getGateway()), Main.SETTINGS.getToken());
+    public void shutdown() {
+        supervisor.stop();
+    }
 
-            discordSocket.connectBlocking();
-        } catch (URISyntaxException | InterruptedException e) {
-            Logging.logError(new String[]{getGateway(), String.valueOf(validDiscordToken(Main.SETTINGS.getToken()))});
-        }
+    public GatewaySupervisor getSupervisor() {
+        return supervisor;
     }
 
     public DiscordSocket getDiscordSocket() {
-        return discordSocket;
+        return supervisor.getDiscordSocket();
     }
 }
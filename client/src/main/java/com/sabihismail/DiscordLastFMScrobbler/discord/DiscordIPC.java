@@ -0,0 +1,506 @@
+package com.sabihismail.DiscordLastFMScrobbler.discord;
+
+import com.sabihismail.DiscordLastFMScrobbler.tools.Backoff;
+import com.sabihismail.DiscordLastFMScrobbler.tools.Logging;
+import com.sabihismail.DiscordLastFMScrobbler.tools.Metrics;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationTargetException;
+import java.net.ProtocolFamily;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A client for the local Discord IPC which is used to set the Rich Presence activity.
+ * <p>
+ * The Discord client listens on 'discord-ipc-0' to 'discord-ipc-9', which is a Unix domain socket in the runtime
+ * directory on Linux and macOS and a named pipe on Windows. Every frame is a little endian opcode and payload length
+ * followed by the JSON payload. Frames are encoded and decoded into buffers that are reused for the lifetime of the
+ * client.
+ * <p>
+ * The connection is kept open and is reopened on the next {@link #setActivity(String, long)} after it was lost. An
+ * activity identical to the last one sent on the current connection is not sent again. Every command is answered by
+ * Discord, so replies and pings are read right after a command is written. This also avoids a dedicated reader thread,
+ * which would block writes on a Windows named pipe. A Discord client that stops answering without closing the
+ * connection is given {@link #REPLY_TIMEOUT} milliseconds, after which the connection is closed and reopened later.
+ * <p>
+ * The directory searched for the socket can be replaced with the 'dlfs.discord.ipc.dir' system property to run against
+ * a local stand-in.
+ *
+ * @since 1.2
+ */
+public class DiscordIPC {
+    private static final int OP_HANDSHAKE = 0;
+    private static final int OP_FRAME = 1;
+    private static final int OP_CLOSE = 2;
+    private static final int OP_PING = 3;
+    private static final int OP_PONG = 4;
+
+    private static final int HEADER_LENGTH = 8;
+    private static final int MAX_PIPE_INDEX = 10;
+
+    /**
+     * Time in milliseconds Discord has to answer a handshake or command before the connection is closed.
+     */
+    private static final int REPLY_TIMEOUT = 5000;
+
+    private static final String IPC_DIR = System.getProperty("dlfs.discord.ipc.dir");
+
+    /**
+     * Closes connections whose reply did not arrive in time, which ends the blocked read.
+     */
+    private static final ScheduledExecutorService WATCHDOG = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "dlfs-discord-ipc-watchdog");
+        thread.setDaemon(true);
+
+        return thread;
+    });
+
+    /**
+     * Subdirectories of the runtime directory used by sandboxed installs of Discord.
+     */
+    private static final String[] SANDBOX_DIRS = {"", "app/com.discordapp.Discord/", "snap.discord/"};
+
+    private final long clientId;
+    private final Backoff backoff = new Backoff(2000, 60 * 1000);
+    private long nextConnectTime = 0;
+
+    private ByteChannel channel;
+    private Reader reader;
+    private String activity;
+    private int nonce = 0;
+
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+    private ByteBuffer writeBuffer = ByteBuffer.allocate(1024).order(ByteOrder.LITTLE_ENDIAN);
+
+    /**
+     * @param clientId The id of the application created on the Discord website.
+     */
+    public DiscordIPC(long clientId) {
+        this.clientId = clientId;
+    }
+
+    /**
+     * Sets the Rich Presence activity, connecting first if there is no connection.
+     *
+     * @param details        The first line of the activity.
+     * @param startTimestamp The time in milliseconds the activity started at, shown as elapsed time.
+     * @return Returns true if the activity is shown, false if Discord could not be reached.
+     */
+    public synchronized boolean setActivity(String details, long startTimestamp) {
+        String next = new JSONObject()
+                .put("details", details)
+                .put("timestamps", new JSONObject().put("start", startTimestamp / 1000))
+                .toString();
+
+        if (next.equals(activity) && channel != null) {
+            Metrics.counter("discord_ipc_activity_skipped_total").increment();
+            return true;
+        }
+
+        if (channel == null && !connect()) {
+            return false;
+        }
+
+        String nonce = Integer.toString(++this.nonce);
+        String payload = "{\"cmd\":\"SET_ACTIVITY\",\"args\":{\"pid\":" + getPid() + ",\"activity\":" + next +
+                "},\"nonce\":\"" + nonce + "\"}";
+
+        try {
+            write(OP_FRAME, payload);
+
+            JSONObject reply = reader.readReply(nonce);
+            if ("ERROR".equals(reply.optString("evt"))) {
+                Logging.log("Discord IPC rejected the activity: " + reply.opt("data"));
+
+                return false;
+            }
+        } catch (IOException | JSONException e) {
+            Logging.log("Lost connection to Discord IPC: " + e.getMessage());
+
+            disconnect();
+            return false;
+        }
+
+        activity = next;
+
+        return true;
+    }
+
+    /**
+     * Connects to the first Discord IPC socket that accepts the handshake, unless the last attempt failed too recently.
+     *
+     * @return Returns true if connected.
+     */
+    private boolean connect() {
+        if (System.currentTimeMillis() < nextConnectTime) {
+            return false;
+        }
+
+        for (Path path : getCandidatePaths()) {
+            try {
+                channel = open(path);
+            } catch (IOException e) {
+                continue;
+            }
+
+            try {
+                reader = new Reader(channel);
+
+                write(OP_HANDSHAKE, "{\"v\":1,\"client_id\":\"" + clientId + "\"}");
+                reader.readHandshake();
+
+                Metrics.counter("discord_ipc_connects_total").increment();
+                Logging.log("Connected to Discord IPC at " + path + ".");
+
+                backoff.reset();
+                return true;
+            } catch (IOException | JSONException e) {
+                Logging.log("Discord IPC handshake failed at " + path + ": " + e.getMessage());
+
+                disconnect();
+            }
+        }
+
+        nextConnectTime = System.currentTimeMillis() + backoff.next();
+
+        return false;
+    }
+
+    /**
+     * Closes the connection. The next {@link #setActivity(String, long)} reconnects.
+     */
+    public synchronized void disconnect() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+            }
+        }
+
+        channel = null;
+        reader = null;
+        activity = null;
+    }
+
+    /**
+     * Closes the connection after letting Discord know. Discord clears the activity of a closed connection.
+     */
+    public synchronized void close() {
+        if (channel != null) {
+            try {
+                write(OP_CLOSE, "{}");
+            } catch (IOException ignored) {
+            }
+        }
+
+        disconnect();
+    }
+
+    /**
+     * Encodes a frame into {@link #writeBuffer} and writes it.
+     *
+     * @param opcode  The opcode of the frame.
+     * @param payload The JSON payload.
+     * @throws IOException Thrown if the frame could not be written.
+     */
+    private synchronized void write(int opcode, String payload) throws IOException {
+        if (channel == null) {
+            throw new IOException("Not connected.");
+        }
+
+        CharBuffer in = CharBuffer.wrap(payload);
+
+        encoder.reset();
+        writeBuffer.clear();
+        writeBuffer.position(HEADER_LENGTH);
+
+        while (true) {
+            CoderResult result = encoder.encode(in, writeBuffer, true);
+            if (result.isUnderflow()) {
+                result = encoder.flush(writeBuffer);
+            }
+
+            if (result.isUnderflow()) {
+                break;
+            } else if (result.isOverflow()) {
+                ByteBuffer larger = ByteBuffer.allocate(writeBuffer.capacity() * 2).order(ByteOrder.LITTLE_ENDIAN);
+                writeBuffer.flip();
+                larger.put(writeBuffer);
+                writeBuffer = larger;
+            } else {
+                result.throwException();
+            }
+        }
+
+        writeBuffer.putInt(0, opcode);
+        writeBuffer.putInt(4, writeBuffer.position() - HEADER_LENGTH);
+        writeBuffer.flip();
+
+        while (writeBuffer.hasRemaining()) {
+            channel.write(writeBuffer);
+        }
+
+        Metrics.counter("discord_ipc_frames_sent_total").increment();
+    }
+
+    /**
+     * Lists the sockets or pipes the Discord client may be listening on, in the order they should be tried.
+     *
+     * @return Returns the candidate paths.
+     */
+    private static List<Path> getCandidatePaths() {
+        List<Path> paths = new ArrayList<>();
+
+        if (isWindows() && IPC_DIR == null) {
+            for (int i = 0; i < MAX_PIPE_INDEX; i++) {
+                paths.add(Paths.get("\\\\.\\pipe\\discord-ipc-" + i));
+            }
+
+            return paths;
+        }
+
+        String dir = IPC_DIR;
+        for (String variable : new String[]{"XDG_RUNTIME_DIR", "TMPDIR", "TMP", "TEMP"}) {
+            if (dir == null) {
+                dir = System.getenv(variable);
+            }
+        }
+
+        if (dir == null) {
+            dir = "/tmp";
+        }
+
+        for (String sandbox : SANDBOX_DIRS) {
+            for (int i = 0; i < MAX_PIPE_INDEX; i++) {
+                Path path = Paths.get(dir, sandbox + "discord-ipc-" + i);
+
+                if (Files.exists(path)) {
+                    paths.add(path);
+                }
+            }
+        }
+
+        return paths;
+    }
+
+    /**
+     * Opens a named pipe on Windows or a Unix domain socket everywhere else.
+     * <p>
+     * Unix domain socket channels were added in Java 16 and are looked up reflectively so that the program still runs
+     * on Java 8, where only Windows is supported.
+     *
+     * @param path The path of the pipe or socket.
+     * @return Returns the open channel.
+     * @throws IOException Thrown if the channel could not be opened.
+     */
+    private static ByteChannel open(Path path) throws IOException {
+        if (isWindows() && IPC_DIR == null) {
+            return new RandomAccessFile(path.toString(), "rw").getChannel();
+        }
+
+        SocketChannel channel;
+        SocketAddress address;
+        try {
+            ProtocolFamily unix = Enum.valueOf(StandardProtocolFamily.class, "UNIX");
+            channel = (SocketChannel) SocketChannel.class.getMethod("open", ProtocolFamily.class).invoke(null, unix);
+
+            address = (SocketAddress) Class.forName("java.net.UnixDomainSocketAddress")
+                    .getMethod("of", Path.class).invoke(null, path);
+        } catch (InvocationTargetException e) {
+            throw new IOException(e.getCause());
+        } catch (ReflectiveOperationException | IllegalArgumentException e) {
+            throw new IOException("Unix domain sockets require Java 16 or newer.", e);
+        }
+
+        try {
+            channel.connect(address);
+        } catch (IOException e) {
+            channel.close();
+
+            throw e;
+        }
+
+        return channel;
+    }
+
+    private static boolean isWindows() {
+        return System.getProperty("os.name").toLowerCase().contains("win");
+    }
+
+    private static String getPid() {
+        String name = ManagementFactory.getRuntimeMXBean().getName();
+
+        return name.substring(0, Math.max(0, name.indexOf('@')));
+    }
+
+    /**
+     * Reads and decodes frames into buffers that are reused for the lifetime of the connection.
+     */
+    private class Reader {
+        private final ByteChannel channel;
+
+        private final ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+        private ByteBuffer payload = ByteBuffer.allocate(1024);
+        private CharBuffer text = CharBuffer.allocate(1024);
+        private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder();
+
+        private int opcode;
+
+        private Reader(ByteChannel channel) {
+            this.channel = channel;
+        }
+
+        /**
+         * Reads the reply to the handshake which must be the READY event.
+         *
+         * @throws IOException Thrown if Discord did not reply with READY.
+         */
+        private void readHandshake() throws IOException {
+            JSONObject reply = readFrame();
+
+            if (!"READY".equals(reply.optString("evt"))) {
+                throw new IOException("Unexpected handshake reply: " + reply);
+            }
+        }
+
+        /**
+         * Reads frames until the reply to the command with the given nonce arrives.
+         *
+         * @param nonce The nonce of the command.
+         * @return Returns the reply.
+         * @throws IOException Thrown if the connection ended before the reply arrived.
+         */
+        private JSONObject readReply(String nonce) throws IOException {
+            while (true) {
+                JSONObject reply = readFrame();
+
+                if (nonce.equals(reply.optString("nonce"))) {
+                    return reply;
+                }
+            }
+        }
+
+        /**
+         * Reads frames until a {@link #OP_FRAME} arrives, answering pings on the way. The connection is closed if the
+         * frame does not arrive within {@link #REPLY_TIMEOUT} milliseconds.
+         *
+         * @return Returns the payload of the frame.
+         * @throws IOException Thrown if the connection ended, Discord closed it or the frame did not arrive in time.
+         */
+        private JSONObject readFrame() throws IOException {
+            AtomicBoolean timedOut = new AtomicBoolean(false);
+            ScheduledFuture<?> timeout = WATCHDOG.schedule(() -> {
+                timedOut.set(true);
+
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                }
+            }, REPLY_TIMEOUT, TimeUnit.MILLISECONDS);
+
+            try {
+                return readFrameUntimed();
+            } catch (IOException e) {
+                if (timedOut.get()) {
+                    Metrics.counter("discord_ipc_timeouts_total").increment();
+
+                    throw new IOException("No reply within " + REPLY_TIMEOUT + "ms.", e);
+                }
+
+                throw e;
+            } finally {
+                timeout.cancel(false);
+            }
+        }
+
+        private JSONObject readFrameUntimed() throws IOException {
+            while (true) {
+                String frame = read();
+
+                if (opcode == OP_FRAME) {
+                    return new JSONObject(frame);
+                } else if (opcode == OP_PING) {
+                    write(OP_PONG, frame);
+                } else if (opcode == OP_CLOSE) {
+                    throw new IOException("Closed by Discord: " + frame);
+                }
+            }
+        }
+
+        /**
+         * Reads one frame.
+         *
+         * @return Returns the payload of the frame, the opcode is stored in {@link #opcode}.
+         * @throws IOException Thrown if the connection ended or the payload is not valid UTF-8.
+         */
+        private String read() throws IOException {
+            header.clear();
+            readFully(header);
+
+            opcode = header.getInt(0);
+            int length = header.getInt(4);
+
+            if (length < 0) {
+                throw new IOException("Invalid frame length " + length + ".");
+            }
+
+            if (payload.capacity() < length) {
+                payload = ByteBuffer.allocate(Math.max(length, payload.capacity() * 2));
+            }
+
+            payload.clear().limit(length);
+            readFully(payload);
+            payload.flip();
+
+            if (text.capacity() < length) {
+                text = CharBuffer.allocate(Math.max(length, text.capacity() * 2));
+            }
+
+            text.clear();
+            decoder.reset();
+
+            CoderResult result = decoder.decode(payload, text, true);
+            if (result.isError()) {
+                throw new CharacterCodingException();
+            }
+
+            decoder.flush(text);
+            text.flip();
+
+            return text.toString();
+        }
+
+        private void readFully(ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) == -1) {
+                    throw new IOException("Connection closed.");
+                }
+            }
+        }
+    }
+}
@@ -1,11 +1,6 @@
 package com.sabihismail.DiscordLastFMScrobbler.discord;
 
-import com.jagrosh.discordipc.IPCClient;
-import com.jagrosh.discordipc.entities.RichPresence;
-import com.jagrosh.discordipc.exceptions.NoDiscordClientException;
-import com.sabihismail.DiscordLastFMScrobbler.tools.Logging;
-
-import java.time.OffsetDateTime;
+import com.sabihismail.DiscordLastFMScrobbler.presence.PresenceSink;
 
 /**
  * This class creates a Rich Presence to allow for more in-depth details about the song to be displayed.
@@ -17,25 +12,25 @@ import java.time.OffsetDateTime;
  * @since 1.1
  */
 // TODO: rename class, presence is spelt wrong
-public class DiscordRichPresense {
+public class DiscordRichPresense implements PresenceSink {
 	private static final long APPLICATION_CLIENT_ID = 0L;
 	
-    private IPCClient client = null;
+    private final DiscordIPC client = new DiscordIPC(APPLICATION_CLIENT_ID);
 
-    private String game = "";
+    private String startedText;
+    private long startTimestamp;
 
     /**
-     * Creates the Rich Presence client using library (will be replaced with custom client soon).
+     * Discord allows 5 activity updates per 20 seconds over IPC.
      */
-    public DiscordRichPresense() {
-        client = new IPCClient(APPLICATION_CLIENT_ID);
+    private final PresenceDispatcher presence =
+            new PresenceDispatcher("discord_rich_presence", 5, 20 * 1000, this::sendPresence);
 
-        try {
-            client.connect();
-        } catch (NoDiscordClientException e) {
-            Logging.logError(null, e);
-            e.printStackTrace();
-        }
+    /**
+     * Creates the Rich Presence. The {@link DiscordIPC} connection is opened with the first update and reopened
+     * whenever it is lost.
+     */
+    public DiscordRichPresense() {
     }
 
     /**
@@ -45,14 +40,32 @@ public class DiscordRichPresense {
      * {@link com.sabihismail.DiscordLastFMScrobbler.lastFM.LastFM#TEXT_FORMAT}.
      */
     public void setGame(String text) {
-        RichPresence presence = new RichPresence.Builder()
-                .setDetails(text)
-                .setStartTimestamp(OffsetDateTime.now())
-                .build();
+        presence.submit(text);
+    }
+
+    @Override
+    public String getName() {
+        return "discord_rich_presence";
+    }
+
+    @Override
+    public void update(String song) {
+        setGame(song);
+    }
 
-        client.sendRichPresence(presence);
+    /**
+     * Sends the Rich Presence to the Discord client. The elapsed time only restarts when the text changes.
+     *
+     * @param text The details of the Rich Presence.
+     * @return Returns false if the Discord client could not be reached.
+     */
+    private boolean sendPresence(String text) {
+        if (!text.equals(startedText)) {
+            startedText = text;
+            startTimestamp = System.currentTimeMillis();
+        }
 
-        game = presence.toJson().getString("details");
+        return client.setActivity(text, startTimestamp);
     }
 
     /**
@@ -61,10 +74,13 @@ public class DiscordRichPresense {
      * @return Returns the current game string.
      */
     public String getGame() {
-        return game;
+        String game = presence.getSent();
+
+        return game == null ? "" : game;
     }
 
     public void shutdown() {
+        presence.close();
         client.close();
     }
 }
@@ -1,7 +1,10 @@
 package com.sabihismail.DiscordLastFMScrobbler.discord;
 
 import com.sabihismail.DiscordLastFMScrobbler.tools.Constants;
+import com.sabihismail.DiscordLastFMScrobbler.tools.Histogram;
 import com.sabihismail.DiscordLastFMScrobbler.tools.Logging;
+import com.sabihismail.DiscordLastFMScrobbler.tools.Metrics;
+import com.sabihismail.DiscordLastFMScrobbler.tools.RateMeter;
 import com.sabihismail.DiscordLastFMScrobbler.lastFM.LastFM;
 import org.java_websocket.client.WebSocketClient;
 import org.java_websocket.framing.CloseFrame;
@@ -11,8 +14,17 @@ import org.json.JSONObject;
 import javax.net.ssl.SSLSocketFactory;
 import java.io.IOException;
 import java.net.URI;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.DataFormatException;
 
 /**
  * This class is dedicated to establishing and managing the WebSocket Gateway connection to Discord's servers.
@@ -24,52 +36,135 @@ import java.util.TimerTask;
  * which allow for Discord to update the user's active Game status. This will display a status under the user's name
  * similar to 'Playing {{Active Music}}'. The format of music updates is currently set to
  * {@link LastFM#TEXT_FORMAT}.
+ * <p>
+ * The session id and the latest sequence number are kept in a {@link GatewaySession} which outlives the socket. A new
+ * socket for an existing session sends a RESUME (op 6) rather than a full IDENTIFY (op 2), which avoids both the cold
+ * start and the large READY payload.
+ * <p>
+ * If the gateway uri requests 'compress=zlib-stream', Discord sends every payload as a binary message which is decoded
+ * by a {@link ZlibStreamInflater} that lives as long as the connection.
+ * <p>
+ * Heartbeats and delayed gateway actions run on a scheduler thread shared by all sockets. Every heartbeat first checks
+ * that the previous one was acknowledged, so a zombie connection which still looks open is closed within one heartbeat
+ * interval. Readiness is signalled through a {@link CompletableFuture} which completes on READY, RESUMED or close.
  *
  * @since 1.0
  */
 public class DiscordSocket extends WebSocketClient {
     /**
-     * Time in seconds to wait after client sends heartbeat to timeout if heartbeat acknowledgement has not been
-     * received.
+     * Time in seconds to wait for the connection to open and for READY or RESUMED in {@link #connectBlocking()}.
      */
-    private static final int SESSION_TIMEOUT_SECONDS = 5;
+    private static final int READY_TIMEOUT_SECONDS = 30;
 
     /**
      * Max length of Game status update
      */
     private static final int MAX_STATUS_LENGTH = 128;
 
-    private String token;
+    /**
+     * Bounds of the random delay in milliseconds Discord asks for before identifying again after an Invalid Session
+     * (op 9).
+     */
+    private static final int MIN_INVALID_SESSION_DELAY = 1000;
+    private static final int MAX_INVALID_SESSION_DELAY = 5000;
+
+    /**
+     * Close code used when the connection is closed to reconnect. Any code other than 1000 and 1001 keeps the session
+     * resumable.
+     */
+    private static final int RECONNECT_CLOSE_CODE = 4000;
+
+    /**
+     * Gateway uri query parameter which enables transport compression.
+     */
+    public static final String ZLIB_STREAM_QUERY = "compress=zlib-stream";
+
+    /**
+     * Bytes received on the socket as sent by Discord and after decompression.
+     */
+    private static final RateMeter INBOUND_WIRE_BYTES = new RateMeter("discord_gateway_inbound_wire_bytes");
+    private static final RateMeter INBOUND_BYTES = new RateMeter("discord_gateway_inbound_bytes");
+
+    /**
+     * Payloads received from Discord, used to compare the event volume of a presence-only session with a full one.
+     */
+    private static final RateMeter INBOUND_EVENTS = new RateMeter("discord_gateway_inbound_events");
+
+    /**
+     * Totals of the bytes and payloads above since the start of the program.
+     */
+    private static final LongAdder INBOUND_WIRE_BYTES_TOTAL =
+            Metrics.counter("discord_gateway_inbound_wire_bytes_total");
+    private static final LongAdder INBOUND_BYTES_TOTAL = Metrics.counter("discord_gateway_inbound_bytes_total");
+    private static final LongAdder INBOUND_EVENTS_TOTAL = Metrics.counter("discord_gateway_inbound_events_total");
+
+    /**
+     * Runs the heartbeats of every socket. Unlike a {@link java.util.Timer}, cancelling the heartbeat of a closed
+     * socket leaves the scheduler usable for the next socket.
+     */
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "dlfs-discord-heartbeat");
+        thread.setDaemon(true);
+
+        return thread;
+    });
+
+    private static volatile long heartbeatLatencyMillis = 0;
+
+    /**
+     * Time in milliseconds between sending every heartbeat and Discord acknowledging it.
+     */
+    private static final Histogram HEARTBEAT_ROUND_TRIP = Metrics.histogram("discord_gateway_heartbeat_rtt_millis");
+
+    static {
+        Metrics.gauge("discord_gateway_heartbeat_latency_millis", () -> heartbeatLatencyMillis);
+    }
 
-    private Timer heartbeat = new Timer();
-    private int heartbeatInterval = 0;
-    private boolean heartbeatSent = false;
-    private long heartbeatSentTime = 0;
-    private boolean readyReceived = false;
+    private String token;
+    private GatewaySession session;
+    private boolean presenceOnly;
+    private ZlibStreamInflater inflater;
+    private final GatewayCodec codec = new GatewayCodec();
 
-    private boolean sentIdentify = false;
-    private boolean sRecieved = false;
-    private int lastS = 0;
+    private ScheduledFuture<?> heartbeat;
+    private volatile boolean heartbeatAcknowledged = true;
+    private volatile long heartbeatSentTime = 0;
+    private final CompletableFuture<Boolean> ready = new CompletableFuture<>();
+    private final CompletableFuture<Integer> closed = new CompletableFuture<>();
 
-    private String game;
-    private int lastRequestTime = 0;
-    private int requestCount = 0;
+    /**
+     * Discord allows 5 status updates per minute on the gateway.
+     */
+    private final PresenceDispatcher presence =
+            new PresenceDispatcher("discord_gateway", 5, 60 * 1000, this::sendPresence);
 
     /**
      * Establishes connection to Discord's servers.
      *
-     * @param serverUri Discord websocket gateway uri.
-     * @param token     User's Discord token.
+     * @param serverUri    Discord websocket gateway uri.
+     * @param token        User's Discord token.
+     * @param session      The {@link GatewaySession} to resume if it can be resumed, or to start otherwise.
+     * @param presenceOnly True to identify for a presence-only session, see
+     *                     {@link GatewayCodec#identify(String, String, String, boolean)}.
      */
-    public DiscordSocket(URI serverUri, String token) {
+    public DiscordSocket(URI serverUri, String token, GatewaySession session, boolean presenceOnly) {
         super(serverUri);
         this.token = token;
+        this.session = session;
+        this.presenceOnly = presenceOnly;
         this.setConnectionLostTimeout(10000);
 
-        try {
-            setSocket(SSLSocketFactory.getDefault().createSocket(serverUri.getHost(), 443));
-        } catch (IOException e) {
-            Logging.logError(new String[]{serverUri.getHost()}, e);
+        if (serverUri.getQuery() != null && serverUri.getQuery().contains(ZLIB_STREAM_QUERY)) {
+            inflater = new ZlibStreamInflater();
+        }
+
+        if ("wss".equals(serverUri.getScheme())) {
+            try {
+                setSocket(SSLSocketFactory.getDefault().createSocket(serverUri.getHost(),
+                        serverUri.getPort() == -1 ? 443 : serverUri.getPort()));
+            } catch (IOException e) {
+                Logging.logError(new String[]{serverUri.getHost()}, e);
+            }
         }
     }
 
@@ -94,11 +189,87 @@ public class DiscordSocket extends WebSocketClient {
      */
     @Override
     public void onMessage(String message) {
+        int length = utf8Length(message);
+        recordInbound(length, length);
+
         parseMessage(message);
     }
 
     /**
-     * States code and reason websocket closed.
+     * Binary messages sent by server when 'zlib-stream' compression is enabled. Once a message completes a payload,
+     * the decompressed payload is parsed the same way as a text message.
+     *
+     * @param bytes Compressed message received from server.
+     */
+    @Override
+    public void onMessage(ByteBuffer bytes) {
+        if (inflater == null) {
+            return;
+        }
+
+        int wireLength = bytes.remaining();
+
+        String message;
+        try {
+            message = inflater.decode(bytes);
+        } catch (DataFormatException e) {
+            Logging.logError(new String[]{"Corrupt zlib-stream from Discord."}, e);
+
+            closeConnection(CloseFrame.ABNORMAL_CLOSE, "Corrupt zlib-stream.");
+            return;
+        }
+
+        recordInbound(wireLength, message == null ? 0 : inflater.getDecodedLength());
+
+        if (message != null) {
+            parseMessage(message);
+        }
+    }
+
+    /**
+     * Records received bytes in {@link Metrics}.
+     *
+     * @param wireLength    Bytes as they were sent by Discord.
+     * @param decodedLength Bytes after decompression.
+     */
+    private static void recordInbound(int wireLength, int decodedLength) {
+        INBOUND_WIRE_BYTES_TOTAL.add(wireLength);
+        INBOUND_BYTES_TOTAL.add(decodedLength);
+
+        INBOUND_WIRE_BYTES.record(wireLength);
+        INBOUND_BYTES.record(decodedLength);
+    }
+
+    /**
+     * Counts the UTF-8 encoded length of a {@link String} without encoding it.
+     *
+     * @param text The text to measure.
+     * @return Returns the length in bytes.
+     */
+    private static int utf8Length(String text) {
+        int length = 0;
+
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c)) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+
+        return length;
+    }
+
+    /**
+     * States code and reason websocket closed. The {@link GatewaySession} is forgotten if the close code means that it
+     * can no longer be resumed.
      *
      * @param code   HTTP close code.
      * @param reason Reason supplied by server.
@@ -107,7 +278,46 @@ public class DiscordSocket extends WebSocketClient {
     @Override
     public void onClose(int code, String reason, boolean remote) {
         Logging.log("close: (Code = " + code + ") " + reason);
-        heartbeat.cancel();
+        stopHeartbeat();
+        presence.close();
+        ready.complete(false);
+        closed.complete(code);
+
+        if (inflater != null) {
+            inflater.end();
+        }
+
+        if (!isResumable(code)) {
+            session.invalidate();
+        }
+    }
+
+    /**
+     * Checks whether a session can still be resumed after the connection closed with the given code.
+     * <p>
+     * 1000 and 1001 end the session on Discord's side. 4004 (authentication failed), 4007 (invalid seq), 4009
+     * (session timed out) and 4010 to 4014 (invalid shard, sharding required, invalid version, invalid intents,
+     * disallowed intents) cannot be resumed either.
+     *
+     * @param code The close code.
+     * @return Returns true if a RESUME should be attempted.
+     */
+    private static boolean isResumable(int code) {
+        switch (code) {
+            case CloseFrame.NORMAL:
+            case CloseFrame.GOING_AWAY:
+            case 4004:
+            case 4007:
+            case 4009:
+            case 4010:
+            case 4011:
+            case 4012:
+            case 4013:
+            case 4014:
+                return false;
+            default:
+                return true;
+        }
     }
 
     /**
@@ -123,173 +333,285 @@ public class DiscordSocket extends WebSocketClient {
     /**
      * Parse the message sent from the server. Each message contains an op code. Each op code is defined below.
      * <p>
-     * op 0:    Other events pertaining to Discord's features (channel creation, etc). Only READY event is parsed.
-     * The rest are thrown as they do not affect the bot.
-     * op 10:   Hello event from discord supplying heartbeat interval. Interval is stored and timer begins to send
-     * KeepAlive events at that interval.
-     * op 11:   Heartbeat Accepted event sent from server when heartbeat from bot was received. Also sends client info
-     * if that info was not sent before.
+     * op 0:    Other events pertaining to Discord's features (channel creation, etc). Only READY and RESUMED events are
+     * parsed. The rest are thrown as they do not affect the bot.
+     * op 1:    Heartbeat request from discord. A heartbeat is sent immediately.
+     * op 7:    Reconnect request from discord. The connection is closed so that it can be resumed on a new one.
+     * op 9:    Invalid Session event. If the session can still be resumed, RESUME is retried. Otherwise the session
+     * is forgotten and IDENTIFY is sent.
+     * op 10:   Hello event from discord supplying heartbeat interval. KeepAlive events are scheduled at that interval.
+     * RESUME is then sent if the session can be resumed, IDENTIFY otherwise.
+     * op 11:   Heartbeat Accepted event sent from server when heartbeat from bot was received.
      * <p>
      * All other op codes are ignored as they are not relevant to the bot's features.
      * <p>
-     * The bot also observes whether the connection has timed out. If the heartbeat was not received, then it will
-     * disconnect and attempt to reconnect again.
+     * Only 'op', 's' and 't' are read by the {@link GatewayCodec}. The 'd' payload is only parsed for op 10 and the
+     * READY event, every other dispatch event is skipped without being parsed.
      *
-     * @param message The {@link JSONObject} sent by the client.
+     * @param message The JSON payload sent by the client.
      */
     private void parseMessage(String message) {
-        JSONObject obj = new JSONObject(message);
+        codec.read(message);
+
+        INBOUND_EVENTS.record(1);
+        INBOUND_EVENTS_TOTAL.increment();
 
-        int op = obj.getInt("op");
+        int op = codec.getOp();
 
         if (op == 0) {
-            int s = obj.getInt("s");
-            String t = obj.getString("t");
-
-            switch (t) {
-                case "READY":
-                    handleReady(obj);
-                    break;
-                default:
-                    break;
+            if (codec.isEvent("READY")) {
+                handleReady(codec.getData());
+            } else if (codec.isEvent("RESUMED")) {
+                handleResumed();
             }
 
-            sRecieved = true;
-            lastS = s;
+            if (codec.hasSequence()) {
+                session.setSequence(codec.getSequence());
+            }
+        } else if (op == 1) {
+            sendHeartbeat();
+        } else if (op == 7) {
+            Logging.log("Discord requested a reconnect.");
+
+            closeConnection(RECONNECT_CLOSE_CODE, "Reconnect requested by Discord.");
+        } else if (op == 9) {
+            handleInvalidSession(codec.getDataBoolean());
         } else if (op == 10) {
-            JSONObject d = obj.getJSONObject("d");
-
-            heartbeatInterval = d.getInt("heartbeat_interval");
+            JSONObject d = codec.getData();
 
-            startHeartbeat();
-        } else if (op == 11) {
-            heartbeatSent = false;
+            startHeartbeat(d.getInt("heartbeat_interval"));
 
-            if (!sentIdentify) {
+            if (session.canResume()) {
+                sendResume();
+            } else {
                 sendClientInfo();
-
-                sentIdentify = true;
-            }
-        }
-
-        if (heartbeatSent) {
-            int dif = (int) ((System.currentTimeMillis() - heartbeatSentTime) / 1000);
-
-            if (dif > SESSION_TIMEOUT_SECONDS) {
-                closeConnection(CloseFrame.ABNORMAL_CLOSE, "Discord did not respond with heartbeat!");
             }
+        } else if (op == 11) {
+            heartbeatAcknowledged = true;
+            heartbeatLatencyMillis = System.currentTimeMillis() - heartbeatSentTime;
+            HEARTBEAT_ROUND_TRIP.record(heartbeatLatencyMillis);
         }
     }
 
     /**
-     * Handle READY event sent by server.
+     * Handle READY event sent by server. The session id is stored so that later connections can resume.
      *
-     * @param obj The {@link JSONObject} sent by the client.
+     * @param d The 'd' payload of the event.
      */
-    private void handleReady(JSONObject obj) {
-        JSONObject user = obj.getJSONObject("d").getJSONObject("user");
+    private void handleReady(JSONObject d) {
+        JSONObject user = d.getJSONObject("user");
+
+        session.start(d.getString("session_id"), d.optString("resume_gateway_url", null));
 
         Logging.log("READY event received. Welcome " +
                 user.getString("username") + " (" + user.getString("id") + ")");
 
-        readyReceived = true;
+        ready.complete(true);
+    }
+
+    /**
+     * Handle RESUMED event sent by server once all missed events have been replayed.
+     */
+    private void handleResumed() {
+        Metrics.counter("discord_gateway_resumed_total").increment();
+
+        Logging.log("Discord session resumed.");
+
+        ready.complete(true);
+    }
+
+    /**
+     * Handle Invalid Session (op 9). Discord expects a random wait of 1 to 5 seconds before the next attempt.
+     *
+     * @param resumable The 'd' field of the event which states whether the session can still be resumed.
+     */
+    private void handleInvalidSession(boolean resumable) {
+        Metrics.counter("discord_gateway_invalid_session_total").increment();
+
+        if (!resumable) {
+            session.invalidate();
+        }
+
+        Logging.log("Discord invalidated the session (resumable = " + resumable + ").");
+
+        int delay = ThreadLocalRandom.current().nextInt(MIN_INVALID_SESSION_DELAY, MAX_INVALID_SESSION_DELAY + 1);
+        SCHEDULER.schedule(() -> {
+            if (!isOpen()) {
+                return;
+            }
+
+            if (session.canResume()) {
+                sendResume();
+            } else {
+                sendClientInfo();
+            }
+        }, delay, TimeUnit.MILLISECONDS);
     }
 
     /**
-     * Update user's game status when song changes. Also sends 'idle_since' variable set to {@link JSONObject#NULL}
-     * which lets Discord know that the client was never idle.
+     * Update user's game status when song changes. Updates beyond Discord's limit of 5 per minute are not dropped,
+     * instead only the latest one is kept and sent once the limit allows it through {@link PresenceDispatcher}.
      *
      * @param name Song title and name retrieved from {@link LastFM};
      */
     public void setGame(String name) {
-        JSONObject game = new JSONObject();
-        game.put("name", name.length() > MAX_STATUS_LENGTH ? name.substring(0, MAX_STATUS_LENGTH - 1) : name);
-        game.put("type", 1);
+        presence.submit(name.length() > MAX_STATUS_LENGTH ? name.substring(0, MAX_STATUS_LENGTH - 1) : name);
+    }
 
-        JSONObject d = new JSONObject();
-        d.put("game", game);
-        d.put("since", 0);
-        d.put("status", "online");
-        d.put("afk", false);
+    /**
+     * Sends a Status Update once the session is ready.
+     *
+     * @param game The name of the game.
+     * @return Returns false if the update could not be sent yet.
+     */
+    private boolean sendPresence(String game) {
+        if (!isReady() || !isOpen()) {
+            return false;
+        }
 
-        JSONObject obj = new JSONObject();
-        obj.put("op", 3);
-        obj.put("d", d);
+        send(GatewayCodec.presence(game));
 
-        int currentRequestTime = ((int) (System.currentTimeMillis() / (1000 * 60)));
-        if (currentRequestTime > lastRequestTime) {
-            requestCount = 0;
+        return true;
+    }
 
-            lastRequestTime = currentRequestTime;
-        }
+    /**
+     * Begin sending KeepAlive payloads to ensure the connection remains established. As asked by Discord, the first
+     * heartbeat is sent after a random fraction of the interval so that reconnecting clients do not all beat at once.
+     *
+     * @param interval The heartbeat interval in milliseconds supplied by Hello (op 10).
+     */
+    private synchronized void startHeartbeat(int interval) {
+        stopHeartbeat();
 
-        if (requestCount < 5) {
-            requestCount++;
+        heartbeatAcknowledged = true;
 
-            send(obj.toString());
+        long jitter = (long) (interval * ThreadLocalRandom.current().nextDouble());
+        heartbeat = SCHEDULER.scheduleAtFixedRate(this::beat, jitter, interval, TimeUnit.MILLISECONDS);
+    }
 
-            this.game = name;
+    private synchronized void stopHeartbeat() {
+        if (heartbeat != null) {
+            heartbeat.cancel(false);
+            heartbeat = null;
         }
     }
 
     /**
-     * Begin sending KeepAlive payloads to ensure the connection remains established.
+     * Sends the next heartbeat, or closes the connection if the previous heartbeat was never acknowledged which means
+     * that the connection is dead even though the socket still looks open.
      */
-    private void startHeartbeat() {
-        heartbeat.scheduleAtFixedRate(new TimerTask() {
-            @Override
-            public void run() {
-                JSONObject obj = new JSONObject();
-                obj.put("op", 1);
-                obj.put("d", sRecieved ? lastS : JSONObject.NULL);
+    private void beat() {
+        if (!heartbeatAcknowledged) {
+            Metrics.counter("discord_gateway_zombie_total").increment();
 
-                send(obj.toString());
+            stopHeartbeat();
+            closeConnection(CloseFrame.ABNORMAL_CLOSE, "Discord did not respond with heartbeat!");
+            return;
+        }
 
-                heartbeatSent = true;
-                heartbeatSentTime = System.currentTimeMillis();
-            }
-        }, 0, heartbeatInterval);
+        sendHeartbeat();
+    }
+
+    private void sendHeartbeat() {
+        if (!isOpen()) {
+            return;
+        }
+
+        heartbeatAcknowledged = false;
+        heartbeatSentTime = System.currentTimeMillis();
+
+        send(GatewayCodec.heartbeat(session));
     }
 
     /**
      * Send information about the bot such as the user's discord token. Also contains some metadata.
      */
     private void sendClientInfo() {
-        JSONObject properties = new JSONObject();
-        properties.put("$os", "windows");
-        properties.put("$browser", Constants.NAME);
-        properties.put("$device", Constants.NAME);
-        properties.put("$referrer", "");
-        properties.put("$referring_domain", "");
-
-        JSONObject d = new JSONObject();
-        d.put("token", token);
-        d.put("properties", properties);
-        d.put("compress", false);
-        d.put("large_threshold", 50);
-
-        JSONObject obj = new JSONObject();
-        obj.put("op", 2);
-        obj.put("d", d);
-
-        send(obj.toString());
+        Metrics.counter("discord_gateway_identify_total").increment();
+
+        send(GatewayCodec.identify(token, "windows", Constants.NAME, presenceOnly));
+    }
+
+    /**
+     * Resume the session stored in {@link GatewaySession} so that Discord replays missed events instead of starting a
+     * new session.
+     */
+    private void sendResume() {
+        Metrics.counter("discord_gateway_resume_total").increment();
+
+        send(GatewayCodec.resume(token, session));
     }
 
     /**
-     * Blocks thread until websocket connection is established and Discord returns READY event which ensures the user
-     * connection has been established as well.
+     * Blocks thread until websocket connection is established and Discord returns READY (or RESUMED) event which
+     * ensures the user connection has been established as well. Gives up after {@link #READY_TIMEOUT_SECONDS} and
+     * closes the connection.
      *
-     * @return Returns true when READY event was received.
+     * @return Returns true when READY or RESUMED event was received, false if the connection closed or timed out
+     * before that.
      * @throws InterruptedException Thrown when the thread get interrupted.
      */
+    @Override
     public boolean connectBlocking() throws InterruptedException {
-        super.connectBlocking();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(READY_TIMEOUT_SECONDS);
+
+        if (!super.connectBlocking(READY_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            close();
+            return false;
+        }
 
-        while (!readyReceived) {
-            Thread.sleep(200);
+        try {
+            return ready.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            Logging.log("Discord did not send READY within " + READY_TIMEOUT_SECONDS + " seconds.");
+
+            closeConnection(CloseFrame.ABNORMAL_CLOSE, "READY timed out.");
+            return false;
+        } catch (ExecutionException e) {
+            return false;
         }
+    }
+
+    /**
+     * Starts connecting without blocking. The connection is closed if READY or RESUMED is not received within
+     * {@link #READY_TIMEOUT_SECONDS}.
+     *
+     * @return Returns the readiness of this connection, see {@link #getReady()}.
+     */
+    public CompletableFuture<Boolean> connectAsync() {
+        connect();
+
+        SCHEDULER.schedule(() -> {
+            if (!ready.isDone()) {
+                Logging.log("Discord did not send READY within " + READY_TIMEOUT_SECONDS + " seconds.");
+
+                closeConnection(CloseFrame.ABNORMAL_CLOSE, "READY timed out.");
+            }
+        }, READY_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        return ready;
+    }
+
+    /**
+     * Completes with true once READY or RESUMED is received, or with false once the connection closes before that.
+     *
+     * @return Returns the readiness of this connection.
+     */
+    public CompletableFuture<Boolean> getReady() {
+        return ready;
+    }
+
+    /**
+     * Completes with the close code once the connection has closed.
+     *
+     * @return Returns the closing of this connection.
+     */
+    public CompletableFuture<Integer> getClosed() {
+        return closed;
+    }
 
-        return readyReceived;
+    public boolean isReady() {
+        return ready.getNow(false);
     }
 
     /**
@@ -299,7 +621,12 @@ public class DiscordSocket extends WebSocketClient {
         closeConnection(1000, "Close request executed by user.");
     }
 
+    /**
+     * Returns the game status last sent to Discord.
+     *
+     * @return Returns the game status last sent to Discord or null if none was sent on this connection.
+     */
     public String getGame() {
-        return game;
+        return presence.getSent();
     }
 }
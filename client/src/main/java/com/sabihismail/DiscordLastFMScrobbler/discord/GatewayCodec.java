@@ -0,0 +1,330 @@
+package com.sabihismail.DiscordLastFMScrobbler.discord;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Reads and writes Discord gateway payloads without building a full {@link JSONObject} tree for every frame.
+ * <p>
+ * Every gateway payload has the form '{"op": int, "d": any, "s": int|null, "t": string|null}' in any key order. The
+ * reader walks the top level object once, reads 'op', 's' and 't' in place and only records where 'd' starts and
+ * ends, skipping over it. The 'd' payload is parsed into a {@link JSONObject} only when {@link #getData()} is called,
+ * which {@link DiscordSocket} does for the few events it handles. Large guild, presence and message dispatches are
+ * therefore never parsed.
+ * <p>
+ * One instance is kept per connection and is reused for every frame, so it is not thread safe.
+ * <p>
+ * The static methods serialize the payloads the bot sends from fixed templates.
+ *
+ * @since 1.2
+ */
+public class GatewayCodec {
+    private static final String HEARTBEAT_PREFIX = "{\"op\":1,\"d\":";
+    private static final String IDENTIFY_PREFIX = "{\"op\":2,\"d\":{\"token\":";
+    private static final String PRESENCE_PREFIX = "{\"op\":3,\"d\":{\"since\":0,\"status\":\"online\",\"afk\":false," +
+            "\"game\":{\"type\":1,\"name\":";
+    private static final String RESUME_PREFIX = "{\"op\":6,\"d\":{\"token\":";
+
+    private String message;
+    private int position;
+
+    private int op;
+    private boolean sequenceReceived;
+    private int sequence;
+    private int eventStart;
+    private int eventEnd;
+    private int dataStart;
+    private int dataEnd;
+
+    /**
+     * Reads the top level fields of a payload. The previous payload is forgotten.
+     *
+     * @param message The payload received from Discord.
+     * @throws JSONException Thrown if the payload is not a JSON object or has no 'op' field.
+     */
+    public void read(String message) throws JSONException {
+        this.message = message;
+        this.position = 0;
+
+        op = -1;
+        sequenceReceived = false;
+        sequence = 0;
+        eventStart = eventEnd = -1;
+        dataStart = dataEnd = -1;
+
+        expect('{');
+
+        skipWhitespace();
+        if (peek() == '}') {
+            position++;
+        } else {
+            do {
+                readField();
+            } while (next() == ',');
+
+            position--;
+            expect('}');
+        }
+
+        if (op == -1) {
+            throw new JSONException("Gateway payload has no 'op' field.");
+        }
+    }
+
+    public int getOp() {
+        return op;
+    }
+
+    public boolean hasSequence() {
+        return sequenceReceived;
+    }
+
+    public int getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Checks the 't' field of a dispatch event without creating a {@link String} for it.
+     *
+     * @param name The event name, for example 'READY'.
+     * @return Returns true if the payload is the given event.
+     */
+    public boolean isEvent(String name) {
+        return eventStart != -1 && eventEnd - eventStart == name.length() &&
+                message.regionMatches(eventStart, name, 0, name.length());
+    }
+
+    /**
+     * Parses the 'd' field of the payload.
+     *
+     * @return Returns the 'd' field as a {@link JSONObject}.
+     * @throws JSONException Thrown if 'd' is missing or is not an object.
+     */
+    public JSONObject getData() throws JSONException {
+        if (dataStart == -1) {
+            throw new JSONException("Gateway payload has no 'd' field.");
+        }
+
+        return new JSONObject(message.substring(dataStart, dataEnd));
+    }
+
+    /**
+     * Reads the 'd' field of the payload as a boolean, which is the case for Invalid Session (op 9).
+     *
+     * @return Returns true only if 'd' is the literal true.
+     */
+    public boolean getDataBoolean() {
+        return dataStart != -1 && dataEnd - dataStart == 4 && message.startsWith("true", dataStart);
+    }
+
+    private void readField() {
+        skipWhitespace();
+        expect('"');
+
+        int keyStart = position;
+        skipStringBody();
+        int keyLength = position - 1 - keyStart;
+
+        expect(':');
+        skipWhitespace();
+
+        if (isKey(keyStart, keyLength, "op")) {
+            op = readInt();
+        } else if (isKey(keyStart, keyLength, "s")) {
+            if (peek() == 'n') {
+                skipValue();
+            } else {
+                sequence = readInt();
+                sequenceReceived = true;
+            }
+        } else if (isKey(keyStart, keyLength, "t")) {
+            if (peek() == '"') {
+                position++;
+                eventStart = position;
+                skipStringBody();
+                eventEnd = position - 1;
+            } else {
+                skipValue();
+            }
+        } else if (isKey(keyStart, keyLength, "d")) {
+            dataStart = position;
+            skipValue();
+            dataEnd = position;
+        } else {
+            skipValue();
+        }
+
+        skipWhitespace();
+    }
+
+    private boolean isKey(int keyStart, int keyLength, String key) {
+        return keyLength == key.length() && message.regionMatches(keyStart, key, 0, keyLength);
+    }
+
+    private int readInt() {
+        boolean negative = peek() == '-';
+        if (negative) {
+            position++;
+        }
+
+        int start = position;
+        int value = 0;
+        while (position < message.length() && Character.isDigit(message.charAt(position))) {
+            value = value * 10 + (message.charAt(position++) - '0');
+        }
+
+        if (position == start) {
+            throw error("number");
+        }
+
+        return negative ? -value : value;
+    }
+
+    /**
+     * Moves past any JSON value: string, object, array, number or literal.
+     */
+    private void skipValue() {
+        char c = peek();
+
+        if (c == '"') {
+            position++;
+            skipStringBody();
+        } else if (c == '{' || c == '[') {
+            int depth = 0;
+
+            while (position < message.length()) {
+                char current = message.charAt(position++);
+
+                if (current == '"') {
+                    skipStringBody();
+                } else if (current == '{' || current == '[') {
+                    depth++;
+                } else if (current == '}' || current == ']') {
+                    if (--depth == 0) {
+                        return;
+                    }
+                }
+            }
+
+            throw error("end of " + c);
+        } else {
+            while (position < message.length()) {
+                char current = message.charAt(position);
+
+                if (current == ',' || current == '}' || current == ']' || Character.isWhitespace(current)) {
+                    break;
+                }
+
+                position++;
+            }
+        }
+    }
+
+    /**
+     * Moves past the rest of a string whose opening quote has already been read, including the closing quote.
+     */
+    private void skipStringBody() {
+        while (position < message.length()) {
+            char c = message.charAt(position++);
+
+            if (c == '\\') {
+                position++;
+            } else if (c == '"') {
+                return;
+            }
+        }
+
+        throw error("end of string");
+    }
+
+    private void skipWhitespace() {
+        while (position < message.length() && Character.isWhitespace(message.charAt(position))) {
+            position++;
+        }
+    }
+
+    private char peek() {
+        if (position >= message.length()) {
+            throw error("value");
+        }
+
+        return message.charAt(position);
+    }
+
+    private char next() {
+        char c = peek();
+        position++;
+
+        return c;
+    }
+
+    private void expect(char c) {
+        skipWhitespace();
+
+        if (next() != c) {
+            throw error("'" + c + "'");
+        }
+    }
+
+    private JSONException error(String expected) {
+        return new JSONException("Expected " + expected + " at " + position + " of gateway payload.");
+    }
+
+    /**
+     * Serializes a Heartbeat (op 1).
+     *
+     * @param session The session whose latest sequence number is sent.
+     * @return Returns the payload.
+     */
+    public static String heartbeat(GatewaySession session) {
+        return HEARTBEAT_PREFIX + (session.hasSequence() ? Integer.toString(session.getSequence()) : "null") + "}";
+    }
+
+    /**
+     * Serializes an Identify (op 2).
+     * <p>
+     * A presence-only Identify subscribes to no gateway intents and turns guild subscriptions off, so that Discord
+     * sends no guild, presence or typing events after READY. The bot only ever sends Status Updates, so none of those
+     * events are needed.
+     *
+     * @param token        The user's Discord token.
+     * @param os           The '$os' connection property.
+     * @param name         The '$browser' and '$device' connection properties.
+     * @param presenceOnly True to ask Discord for the minimum amount of events.
+     * @return Returns the payload.
+     */
+    public static String identify(String token, String os, String name, boolean presenceOnly) {
+        String quotedName = JSONObject.quote(name);
+
+        return IDENTIFY_PREFIX + JSONObject.quote(token) +
+                ",\"properties\":{\"$os\":" + JSONObject.quote(os) +
+                ",\"$browser\":" + quotedName +
+                ",\"$device\":" + quotedName +
+                ",\"$referrer\":\"\",\"$referring_domain\":\"\"}" +
+                ",\"compress\":false,\"large_threshold\":50" +
+                (presenceOnly ? ",\"intents\":0,\"guild_subscriptions\":false" : "") + "}}";
+    }
+
+    /**
+     * Serializes a Status Update (op 3) which sets the user's Game status.
+     *
+     * @param game The name of the game.
+     * @return Returns the payload.
+     */
+    public static String presence(String game) {
+        return PRESENCE_PREFIX + JSONObject.quote(game) + "}}}";
+    }
+
+    /**
+     * Serializes a Resume (op 6).
+     *
+     * @param token   The user's Discord token.
+     * @param session The session to resume.
+     * @return Returns the payload.
+     */
+    public static String resume(String token, GatewaySession session) {
+        return RESUME_PREFIX + JSONObject.quote(token) +
+                ",\"session_id\":" + JSONObject.quote(session.getSessionId()) +
+                ",\"seq\":" + (session.hasSequence() ? Integer.toString(session.getSequence()) : "null") + "}}";
+    }
+}
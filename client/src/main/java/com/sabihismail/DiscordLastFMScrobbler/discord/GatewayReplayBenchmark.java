@@ -0,0 +1,240 @@
+package com.sabihismail.DiscordLastFMScrobbler.discord;
+
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays a stream of Discord gateway payloads through the {@link GatewayCodec} and through a full {@link JSONObject}
+ * tree per payload, which is how every payload was read before, and prints the throughput of both.
+ * <p>
+ * The stream is read from a file with one payload per line, for example recorded from a busy account. Without a file,
+ * a stream is generated that is dominated by the large guild, presence and message dispatches a busy account receives.
+ * The generated stream is the same on every run.
+ * <p>
+ * Like {@link DiscordSocket}, the codec only parses the 'd' payload of op 10 and the READY event.
+ *
+ * @since 1.2
+ */
+public class GatewayReplayBenchmark {
+    private static final String USAGE = "Usage: java -cp <jar> " + GatewayReplayBenchmark.class.getName() +
+            " [payloads.txt]\n" +
+            "  Replays a file with one gateway payload per line, or a generated stream of a busy account.";
+
+    /**
+     * Time in milliseconds the throughput is measured for, after one pass to warm up.
+     */
+    private static final long THROUGHPUT_TIME = 2000;
+
+    /**
+     * Amount of guilds and of dispatch events in the generated stream.
+     */
+    private static final int GUILDS = 50;
+    private static final int DISPATCHES = 5000;
+
+    /**
+     * Runs the benchmark on the payloads given in {@link #USAGE}.
+     *
+     * @param args The optional payload file.
+     */
+    public static void main(String[] args) {
+        List<String> payloads;
+
+        try {
+            if (args.length == 0) {
+                payloads = generate(new Random(0));
+            } else if (args.length == 1) {
+                payloads = new ArrayList<>();
+
+                for (String line : Files.readAllLines(Paths.get(args[0]), StandardCharsets.UTF_8)) {
+                    if (!line.trim().isEmpty()) {
+                        payloads.add(line);
+                    }
+                }
+            } else {
+                System.err.println(USAGE);
+                System.exit(1);
+                return;
+            }
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+            return;
+        }
+
+        long characters = 0;
+        for (String payload : payloads) {
+            characters += payload.length();
+        }
+
+        System.out.println("Replaying " + payloads.size() + " payloads of " + characters / 1024 + "KB" +
+                (args.length == 0 ? " (generated)" : " from '" + args[0] + "'") + ".");
+
+        GatewayCodec codec = new GatewayCodec();
+
+        report("JSONObject", payloads, characters, () -> {
+            int sum = 0;
+
+            for (String payload : payloads) {
+                sum += new JSONObject(payload).getInt("op");
+            }
+
+            return sum;
+        });
+        report("GatewayCodec", payloads, characters, () -> {
+            int sum = 0;
+
+            for (String payload : payloads) {
+                codec.read(payload);
+                sum += codec.getOp();
+
+                if (codec.getOp() == 10 || codec.getOp() == 0 && codec.isEvent("READY")) {
+                    sum += codec.getData().length();
+                }
+            }
+
+            return sum;
+        });
+    }
+
+    /**
+     * Runs one pass to warm up and then as many passes as fit into {@link #THROUGHPUT_TIME}.
+     *
+     * @param name       The name of the reader.
+     * @param payloads   The payloads.
+     * @param characters The length of all payloads together.
+     * @param pass       Reads every payload once and returns a value that depends on the payloads, so that the JIT
+     *                   cannot remove the reading.
+     */
+    private static void report(String name, List<String> payloads, long characters, Pass pass) {
+        long checksum = pass.run();
+
+        int passes = 0;
+        long start = System.nanoTime();
+        long end = start + TimeUnit.MILLISECONDS.toNanos(THROUGHPUT_TIME);
+
+        while (System.nanoTime() < end) {
+            checksum += pass.run();
+            passes++;
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("  %-14s %,12.0f payloads/s %10.1f MB/s %10.2f us/payload (checksum %d)%n", name,
+                passes * payloads.size() / seconds, passes * characters / seconds / (1024 * 1024),
+                seconds * 1e6 / (passes * (double) payloads.size()), checksum);
+    }
+
+    /**
+     * Generates the stream of a busy account: Hello, a large READY, a GUILD_CREATE per guild and then presence,
+     * message and typing dispatches with heartbeat acknowledgements in between.
+     */
+    private static List<String> generate(Random random) {
+        List<String> payloads = new ArrayList<>();
+        int sequence = 0;
+
+        payloads.add("{\"t\":null,\"s\":null,\"op\":10,\"d\":{\"heartbeat_interval\":41250,\"_trace\":[\"gateway\"]}}");
+
+        StringBuilder guilds = new StringBuilder();
+        for (int i = 0; i < GUILDS; i++) {
+            guilds.append(i == 0 ? "" : ",").append("{\"id\":\"").append(id(random)).append("\",\"unavailable\":true}");
+        }
+
+        payloads.add("{\"t\":\"READY\",\"s\":" + ++sequence + ",\"op\":0,\"d\":{\"v\":6,\"session_id\":\"" +
+                Long.toHexString(random.nextLong()) + "\",\"user\":" + user(random) + ",\"guilds\":[" + guilds +
+                "],\"private_channels\":[],\"relationships\":[],\"_trace\":[\"gateway\"]}}");
+
+        for (int i = 0; i < GUILDS; i++) {
+            StringBuilder members = new StringBuilder();
+            StringBuilder presences = new StringBuilder();
+
+            for (int j = 0; j < 100; j++) {
+                String user = user(random);
+
+                members.append(j == 0 ? "" : ",").append("{\"user\":").append(user)
+                        .append(",\"roles\":[\"").append(id(random)).append("\"],")
+                        .append("\"joined_at\":\"2017-01-01T00:00:00Z\",\"deaf\":false,\"mute\":false}");
+                presences.append(j == 0 ? "" : ",").append(presence(random, user));
+            }
+
+            payloads.add("{\"t\":\"GUILD_CREATE\",\"s\":" + ++sequence + ",\"op\":0,\"d\":{\"id\":\"" + id(random) +
+                    "\",\"name\":\"Guild " + i + "\",\"member_count\":100,\"members\":[" + members +
+                    "],\"presences\":[" + presences + "],\"channels\":[]}}");
+        }
+
+        for (int i = 0; i < DISPATCHES; i++) {
+            int kind = random.nextInt(10);
+            String d;
+            String t;
+
+            if (kind < 6) {
+                t = "PRESENCE_UPDATE";
+                d = presence(random, user(random));
+            } else if (kind < 9) {
+                t = "MESSAGE_CREATE";
+                d = "{\"id\":\"" + id(random) + "\",\"channel_id\":\"" + id(random) + "\",\"author\":" +
+                        user(random) + ",\"content\":\"" + text(random, 20 + random.nextInt(200)) +
+                        "\",\"embeds\":[],\"mentions\":[],\"timestamp\":\"2017-01-01T00:00:00Z\"}";
+            } else {
+                t = "TYPING_START";
+                d = "{\"user_id\":\"" + id(random) + "\",\"channel_id\":\"" + id(random) +
+                        "\",\"timestamp\":1483228800}";
+            }
+
+            payloads.add("{\"t\":\"" + t + "\",\"s\":" + ++sequence + ",\"op\":0,\"d\":" + d + "}");
+
+            if (i % 500 == 0) {
+                payloads.add("{\"t\":null,\"s\":null,\"op\":11,\"d\":null}");
+            }
+        }
+
+        return payloads;
+    }
+
+    private static String user(Random random) {
+        return "{\"id\":\"" + id(random) + "\",\"username\":\"" + text(random, 4 + random.nextInt(12)) +
+                "\",\"discriminator\":\"" + (1000 + random.nextInt(9000)) + "\",\"avatar\":\"" +
+                Long.toHexString(random.nextLong()) + "\"}";
+    }
+
+    private static String presence(Random random, String user) {
+        return "{\"user\":" + user + ",\"status\":\"online\",\"game\":{\"type\":0,\"name\":\"" +
+                text(random, 5 + random.nextInt(30)) + "\"},\"guild_id\":\"" + id(random) + "\"}";
+    }
+
+    private static String id(Random random) {
+        return String.valueOf(200000000000000000L + (random.nextLong() & 0xFFFFFFFFFFFFFFL));
+    }
+
+    /**
+     * Generates text with the spaces, quotes and braces that the codec has to skip inside strings.
+     */
+    private static String text(Random random, int length) {
+        String alphabet = "abcdefghijklmnopqrstuvwxyz      ABCDEF0123456789{}[],:";
+        StringBuilder text = new StringBuilder(length);
+
+        for (int i = 0; i < length; i++) {
+            if (random.nextInt(50) == 0) {
+                text.append("\\\"");
+            } else {
+                text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+        }
+
+        return text.toString();
+    }
+
+    /**
+     * Reads every payload once, see {@link #report(String, List, long, Pass)}.
+     */
+    private interface Pass {
+        long run();
+    }
+}
@@ -0,0 +1,74 @@
+package com.sabihismail.DiscordLastFMScrobbler.discord;
+
+/**
+ * Contains the state of a Discord gateway session that outlives a single {@link DiscordSocket}.
+ * <p>
+ * Discord assigns a session id in the READY event and numbers every dispatch event it sends. When a connection drops,
+ * a new connection can send a RESUME (op 6) with that session id and the last sequence number it received. Discord
+ * then replays only the events that were missed instead of sending a full READY payload again.
+ *
+ * @since 1.2
+ */
+public class GatewaySession {
+    private String sessionId;
+    private String resumeGatewayUrl;
+
+    private boolean sequenceReceived = false;
+    private int sequence = 0;
+
+    /**
+     * Stores the information from the READY event.
+     *
+     * @param sessionId        The id of the session.
+     * @param resumeGatewayUrl The gateway url to resume on, or null if Discord did not supply one.
+     */
+    public synchronized void start(String sessionId, String resumeGatewayUrl) {
+        this.sessionId = sessionId;
+        this.resumeGatewayUrl = resumeGatewayUrl;
+    }
+
+    /**
+     * Forgets the session so that the next connection has to identify again.
+     */
+    public synchronized void invalidate() {
+        sessionId = null;
+        resumeGatewayUrl = null;
+        sequenceReceived = false;
+        sequence = 0;
+    }
+
+    /**
+     * Checks if a session exists that can be resumed.
+     *
+     * @return Returns true if a session id has been received and not been invalidated since.
+     */
+    public synchronized boolean canResume() {
+        return sessionId != null;
+    }
+
+    /**
+     * Stores the sequence number of the latest dispatch event.
+     *
+     * @param sequence The 's' field of the dispatch event.
+     */
+    public synchronized void setSequence(int sequence) {
+        this.sequenceReceived = true;
+        this.sequence = sequence;
+    }
+
+    public synchronized boolean hasSequence() {
+        return sequenceReceived;
+    }
+
+    public synchronized int getSequence() {
+        return sequence;
+    }
+
+    public synchronized String getSessionId() {
+        return sessionId;
+    }
+
+    public synchronized String getResumeGatewayUrl() {
+        return resumeGatewayUrl;
+    }
+}
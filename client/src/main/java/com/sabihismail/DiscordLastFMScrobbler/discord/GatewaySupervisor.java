@@ -0,0 +1,249 @@
+package com.sabihismail.DiscordLastFMScrobbler.discord;
+
+import com.sabihismail.DiscordLastFMScrobbler.tools.Backoff;
+import com.sabihismail.DiscordLastFMScrobbler.tools.ExecutionLane;
+import com.sabihismail.DiscordLastFMScrobbler.tools.Logging;
+import com.sabihismail.DiscordLastFMScrobbler.tools.Metrics;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Owns the lifecycle of the {@link DiscordSocket}: connecting, waiting for READY, noticing that the connection closed
+ * and reconnecting with {@link Backoff}.
+ * <p>
+ * All blocking work (the REST gateway lookup and opening the socket) runs on {@link ExecutionLane#DISCORD_IO} and
+ * every wait is asynchronous, so callers never block on the connection. Presence producers hand their latest state to
+ * {@link #setGame(String)}, which is sent as soon as a connection is READY, including every connection after a
+ * reconnect.
+ * <p>
+ * The gateway url is looked up once and reused for every reconnect until a connection attempt to it fails. A session
+ * that can be resumed is reconnected to its resume gateway instead.
+ *
+ * @since 1.2
+ */
+public class GatewaySupervisor {
+    /**
+     * The states of the connection, reported to the listeners added with {@link #addStateListener(Consumer)}.
+     */
+    public enum State {
+        /**
+         * {@link #start()} was not called yet.
+         */
+        DISCONNECTED,
+        /**
+         * A connection is being opened or is waiting for READY.
+         */
+        CONNECTING,
+        /**
+         * The connection is READY and game updates are sent.
+         */
+        READY,
+        /**
+         * The last attempt failed or the connection closed, a reconnect is scheduled.
+         */
+        BACKING_OFF,
+        /**
+         * {@link #stop()} was called, no reconnect will be attempted.
+         */
+        STOPPED
+    }
+
+    private final String token;
+    private final boolean presenceOnly;
+    private final GatewaySession session = new GatewaySession();
+    private final Backoff backoff = new Backoff(1000, 60 * 1000);
+    private final List<Consumer<State>> listeners = new CopyOnWriteArrayList<>();
+
+    private volatile State state = State.DISCONNECTED;
+    private volatile DiscordSocket socket;
+    private volatile String game;
+    private String gateway;
+
+    private volatile long lastConnectMillis = 0;
+
+    /**
+     * @param token        The user's Discord token.
+     * @param presenceOnly True to identify for a presence-only session, see
+     *                     {@link GatewayCodec#identify(String, String, String, boolean)}.
+     */
+    public GatewaySupervisor(String token, boolean presenceOnly) {
+        this.token = token;
+        this.presenceOnly = presenceOnly;
+
+        Metrics.gauge("discord_gateway_state", () -> state.ordinal());
+        Metrics.gauge("discord_gateway_last_connect_millis", () -> lastConnectMillis);
+    }
+
+    /**
+     * Starts the first connection attempt. Returns immediately.
+     */
+    public void start() {
+        ExecutionLane.DISCORD_IO.execute(this::connect);
+    }
+
+    /**
+     * Closes the connection normally and stops reconnecting.
+     */
+    public void stop() {
+        setState(State.STOPPED);
+
+        DiscordSocket current = socket;
+        if (current != null && !current.isClosed()) {
+            current.closeWebsocket();
+        }
+    }
+
+    /**
+     * Stores the latest game status and passes it to the connection if it is READY. Never blocks.
+     *
+     * @param game The name of the game.
+     */
+    public void setGame(String game) {
+        this.game = game;
+
+        DiscordSocket current = socket;
+        if (state == State.READY && current != null) {
+            current.setGame(game);
+        }
+    }
+
+    /**
+     * Opens a new connection. Runs on {@link ExecutionLane#DISCORD_IO}.
+     */
+    private void connect() {
+        if (state == State.STOPPED) {
+            return;
+        }
+
+        setState(State.CONNECTING);
+        Metrics.counter("discord_gateway_connect_attempts_total").increment();
+
+        long start = System.currentTimeMillis();
+
+        boolean resuming = session.canResume() && session.getResumeGatewayUrl() != null;
+        String server = resuming ? session.getResumeGatewayUrl() + Discord.getGatewayQuery() : getCachedGateway();
+
+        DiscordSocket current;
+        try {
+            URI uri = new URI(server);
+            if (uri.getHost() == null) {
+                throw new URISyntaxException(server, "Gateway lookup failed");
+            }
+
+            current = new DiscordSocket(uri, token, session, presenceOnly);
+        } catch (URISyntaxException e) {
+            Logging.logError(new String[]{server}, e);
+
+            onConnectFailed(resuming);
+            return;
+        }
+
+        socket = current;
+
+        current.connectAsync().thenAccept(success -> {
+            if (!success) {
+                onConnectFailed(resuming);
+                return;
+            }
+
+            lastConnectMillis = System.currentTimeMillis() - start;
+            backoff.reset();
+
+            setState(State.READY);
+
+            if (game != null) {
+                current.setGame(game);
+            }
+
+            current.getClosed().thenAccept(code -> onClosed());
+        });
+    }
+
+    /**
+     * Forgets the cached gateway unless the attempt was made against the session's resume gateway, then schedules the
+     * next attempt.
+     *
+     * @param resuming True if the attempt used the resume gateway of the {@link GatewaySession}.
+     */
+    private void onConnectFailed(boolean resuming) {
+        Metrics.counter("discord_gateway_connect_failures_total").increment();
+
+        if (!resuming) {
+            synchronized (this) {
+                gateway = null;
+            }
+        }
+
+        scheduleReconnect();
+    }
+
+    private void onClosed() {
+        scheduleReconnect();
+    }
+
+    private void scheduleReconnect() {
+        if (state == State.STOPPED) {
+            return;
+        }
+
+        setState(State.BACKING_OFF);
+
+        long delay = backoff.next();
+        Logging.log("Reconnecting to Discord in " + delay + "ms.");
+
+        ExecutionLane.DISCORD_IO.schedule(this::connect, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns the gateway endpoint retrieved by {@link Discord#getGateway()} the last time a connection was
+     * successful, looking it up again if the last attempt failed.
+     *
+     * @return {@link String} gateway endpoint.
+     */
+    private synchronized String getCachedGateway() {
+        if (gateway == null) {
+            gateway = Discord.getGateway();
+        }
+
+        return gateway;
+    }
+
+    private void setState(State state) {
+        if (this.state == State.STOPPED || this.state == state) {
+            return;
+        }
+
+        this.state = state;
+
+        for (Consumer<State> listener : listeners) {
+            listener.accept(state);
+        }
+    }
+
+    /**
+     * Adds a listener which is called on every change of {@link State}.
+     *
+     * @param listener The listener.
+     */
+    public void addStateListener(Consumer<State> listener) {
+        listeners.add(listener);
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * Returns the current connection, which may be closed or not yet READY.
+     *
+     * @return Returns the current {@link DiscordSocket} or null if no attempt was made yet.
+     */
+    public DiscordSocket getDiscordSocket() {
+        return socket;
+    }
+}
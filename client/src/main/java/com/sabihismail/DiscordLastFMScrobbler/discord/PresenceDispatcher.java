@@ -0,0 +1,226 @@
+package com.sabihismail.DiscordLastFMScrobbler.discord;
+
+import com.sabihismail.DiscordLastFMScrobbler.tools.Logging;
+import com.sabihismail.DiscordLastFMScrobbler.tools.Metrics;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sends presence updates to Discord while respecting a rate limit of a number of updates per time window, for example
+ * the 5 status updates per minute allowed on the gateway.
+ * <p>
+ * Only the latest submitted state is kept. States submitted while waiting for a free slot replace each other, and a
+ * state identical to the one Discord already shows is not sent at all. The pending state is sent exactly when the
+ * oldest send in the window expires, so that the final state always reaches Discord as early as the limit allows
+ * instead of being dropped.
+ * <p>
+ * Sends happen on a scheduler thread of each dispatcher through a {@link Sender} supplied by the owner, such as
+ * {@link DiscordSocket} or {@link DiscordRichPresense}, so a Sender that blocks only delays its own states.
+ *
+ * @since 1.2
+ */
+public class PresenceDispatcher {
+    /**
+     * Time in milliseconds before retrying a state that the {@link Sender} could not deliver.
+     */
+    private static final int RETRY_DELAY = 1000;
+
+    private final ScheduledExecutorService scheduler;
+    private final Sender sender;
+    private final long windowMillis;
+    private final long[] sendTimes;
+    private int oldestSend = 0;
+
+    private String pending;
+    private long pendingSince;
+    private String sent;
+    private ScheduledFuture<?> scheduled;
+    private boolean closed = false;
+
+    private final LongAdder submitted;
+    private final LongAdder coalesced;
+    private final LongAdder suppressed;
+    private final LongAdder delivered;
+    private final LongAdder latencyMillis;
+    private volatile long lastLatencyMillis = 0;
+
+    /**
+     * @param name         The metric name prefix, for example 'discord_gateway'.
+     * @param limit        The amount of updates allowed per window.
+     * @param windowMillis The length of the window in milliseconds.
+     * @param sender       Delivers a state to Discord.
+     */
+    public PresenceDispatcher(String name, int limit, long windowMillis, Sender sender) {
+        this.sender = sender;
+        this.windowMillis = windowMillis;
+        this.sendTimes = new long[limit];
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "dlfs-presence-" + name);
+            thread.setDaemon(true);
+
+            return thread;
+        });
+
+        String prefix = "presence_" + name;
+        submitted = Metrics.counter(prefix + "_submitted_total");
+        coalesced = Metrics.counter(prefix + "_coalesced_total");
+        suppressed = Metrics.counter(prefix + "_suppressed_total");
+        delivered = Metrics.counter(prefix + "_sent_total");
+        latencyMillis = Metrics.counter(prefix + "_latency_millis_total");
+
+        Metrics.gauge(prefix + "_pending", () -> hasPending() ? 1 : 0);
+        Metrics.gauge(prefix + "_last_latency_millis", () -> lastLatencyMillis);
+    }
+
+    /**
+     * Submits the latest state. Returns immediately, the state is sent as soon as a slot is free.
+     *
+     * @param state The state to show on Discord.
+     */
+    public synchronized void submit(String state) {
+        if (closed || state.equals(pending)) {
+            return;
+        }
+
+        submitted.increment();
+
+        if (state.equals(sent)) {
+            if (pending != null) {
+                pending = null;
+                cancelScheduled();
+            }
+
+            suppressed.increment();
+            return;
+        }
+
+        if (pending != null) {
+            coalesced.increment();
+        }
+
+        pending = state;
+        pendingSince = System.currentTimeMillis();
+
+        if (scheduled == null) {
+            schedule(delayUntilFreeSlot());
+        }
+    }
+
+    /**
+     * Returns the state that was last delivered.
+     *
+     * @return Returns the last delivered state or null if nothing has been delivered yet.
+     */
+    public synchronized String getSent() {
+        return sent;
+    }
+
+    public synchronized boolean hasPending() {
+        return pending != null;
+    }
+
+    /**
+     * Drops the pending state, stops accepting new states and stops the scheduler thread once a running send returns.
+     */
+    public synchronized void close() {
+        closed = true;
+        pending = null;
+
+        cancelScheduled();
+        scheduler.shutdown();
+    }
+
+    /**
+     * Sends the pending state if a slot is free, otherwise waits for the next free slot.
+     */
+    private void flush() {
+        String state;
+        synchronized (this) {
+            scheduled = null;
+
+            if (closed || pending == null) {
+                return;
+            }
+
+            long delay = delayUntilFreeSlot();
+            if (delay > 0) {
+                schedule(delay);
+                return;
+            }
+
+            state = pending;
+        }
+
+        boolean success;
+        try {
+            success = sender.send(state);
+        } catch (RuntimeException e) {
+            Logging.logError(new String[]{state}, e);
+
+            success = false;
+        }
+
+        synchronized (this) {
+            if (!success) {
+                if (scheduled == null && pending != null) {
+                    schedule(RETRY_DELAY);
+                }
+
+                return;
+            }
+
+            long now = System.currentTimeMillis();
+
+            sendTimes[oldestSend] = now;
+            oldestSend = (oldestSend + 1) % sendTimes.length;
+
+            sent = state;
+            delivered.increment();
+
+            lastLatencyMillis = now - pendingSince;
+            latencyMillis.add(lastLatencyMillis);
+
+            if (state.equals(pending)) {
+                pending = null;
+            } else if (pending != null && scheduled == null) {
+                schedule(delayUntilFreeSlot());
+            }
+        }
+    }
+
+    /**
+     * Calculates when the oldest send in the window expires.
+     *
+     * @return Returns the delay in milliseconds until another state can be sent, 0 if it can be sent now.
+     */
+    private long delayUntilFreeSlot() {
+        return Math.max(0, sendTimes[oldestSend] + windowMillis - System.currentTimeMillis());
+    }
+
+    private void schedule(long delay) {
+        scheduled = scheduler.schedule(this::flush, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void cancelScheduled() {
+        if (scheduled != null) {
+            scheduled.cancel(false);
+            scheduled = null;
+        }
+    }
+
+    /**
+     * Delivers a state to Discord.
+     */
+    public interface Sender {
+        /**
+         * @param state The state to deliver.
+         * @return Returns false if the state could not be delivered and should be retried.
+         */
+        boolean send(String state);
+    }
+}
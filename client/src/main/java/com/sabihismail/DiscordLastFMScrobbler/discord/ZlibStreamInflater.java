@@ -0,0 +1,94 @@
+package com.sabihismail.DiscordLastFMScrobbler.discord;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Decodes the Discord gateway 'zlib-stream' transport compression.
+ * <p>
+ * With 'compress=zlib-stream', every binary message of a connection is part of one zlib stream that shares its
+ * compression context, so one {@link Inflater} has to be kept for the whole connection. A payload may be split across
+ * several binary messages and is complete once the received data ends with the {@link #ZLIB_SUFFIX} that
+ * Z_SYNC_FLUSH produces. The input and output buffers are reused between payloads and only grow when needed.
+ *
+ * @since 1.2
+ */
+public class ZlibStreamInflater {
+    /**
+     * The four bytes that mark the end of a Z_SYNC_FLUSH block.
+     */
+    private static final int ZLIB_SUFFIX = 0x0000FFFF;
+
+    private static final int INITIAL_INPUT_SIZE = 8 * 1024;
+    private static final int INITIAL_OUTPUT_SIZE = 32 * 1024;
+
+    private final Inflater inflater = new Inflater();
+
+    private byte[] input = new byte[INITIAL_INPUT_SIZE];
+    private int inputLength = 0;
+
+    private byte[] output = new byte[INITIAL_OUTPUT_SIZE];
+    private int outputLength = 0;
+
+    /**
+     * Adds a binary message to the stream.
+     *
+     * @param message The binary message received on the connection.
+     * @return Returns the decoded payload if the message completed one, or null if more messages are needed.
+     * @throws DataFormatException Thrown if the stream is corrupt.
+     */
+    public String decode(ByteBuffer message) throws DataFormatException {
+        int length = message.remaining();
+        if (inputLength + length > input.length) {
+            input = Arrays.copyOf(input, Math.max(input.length * 2, inputLength + length));
+        }
+
+        message.get(input, inputLength, length);
+        inputLength += length;
+
+        if (inputLength < 4 || readSuffix() != ZLIB_SUFFIX) {
+            return null;
+        }
+
+        inflater.setInput(input, 0, inputLength);
+
+        outputLength = 0;
+        do {
+            if (outputLength == output.length) {
+                output = Arrays.copyOf(output, output.length * 2);
+            }
+
+            outputLength += inflater.inflate(output, outputLength, output.length - outputLength);
+        } while (outputLength == output.length ||
+                !inflater.needsInput() && !inflater.finished() && !inflater.needsDictionary());
+
+        inputLength = 0;
+
+        return new String(output, 0, outputLength, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the size of the latest payload returned by {@link #decode(ByteBuffer)} before it was converted into a
+     * {@link String}.
+     *
+     * @return Returns the decompressed size in bytes.
+     */
+    public int getDecodedLength() {
+        return outputLength;
+    }
+
+    /**
+     * Releases the native resources of the {@link Inflater}. Must be called once the connection has closed.
+     */
+    public void end() {
+        inflater.end();
+    }
+
+    private int readSuffix() {
+        return (input[inputLength - 4] & 0xFF) << 24 | (input[inputLength - 3] & 0xFF) << 16 |
+                (input[inputLength - 2] & 0xFF) << 8 | (input[inputLength - 1] & 0xFF);
+    }
+}
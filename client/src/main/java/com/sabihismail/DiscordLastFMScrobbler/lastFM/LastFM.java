@@ -1,5 +1,6 @@
 package com.sabihismail.DiscordLastFMScrobbler.lastFM;
 
+import com.sabihismail.DiscordLastFMScrobbler.tools.CircuitBreaker;
 import com.sabihismail.DiscordLastFMScrobbler.tools.Logging;
 import com.sabihismail.DiscordLastFMScrobbler.tools.Tools;
 import org.apache.http.HttpResponse;
@@ -37,6 +38,9 @@ import java.util.regex.Pattern;
  * of its duration. Scrobbling this data means that the track information and the time when it was played will be stored
  * on their servers.
  * Now Playing - This is considered the active song that is currently being played.
+ * <p>
+ * Every endpoint is protected by its own {@link CircuitBreaker} so that while Last.FM is down, calls fail immediately
+ * instead of each waiting for a network timeout.
  *
  * @since 1.0
  */
@@ -44,8 +48,11 @@ public class LastFM {
     /**
      * Strings required to formulate api url to retrieve information about a specific user's Last.FM data and send
      * data to update the user's data.
+     * <p>
+     * The endpoint can be replaced with the 'dlfs.lastfm.endpoint' system property to run against a local stand-in.
      */
-    private static final String API_ENDPOINT = "https://ws.audioscrobbler.com/2.0/";
+    private static final String API_ENDPOINT =
+            System.getProperty("dlfs.lastfm.endpoint", "https://ws.audioscrobbler.com/2.0/");
     private static final String GET_TRACK_RECENT = API_ENDPOINT + "?method=user.getrecenttracks";
     private static final String GET_TRACK_INFO = API_ENDPOINT + "?method=track.getInfo";
     private static final String POST_AUTH_MOBILE_SESSION = API_ENDPOINT + "?method=auth.getMobileSession";
@@ -71,15 +78,38 @@ public class LastFM {
      */
     private static final String TEXT_FORMAT = "{artist} - {title}";
 
+    /**
+     * Error code of a Last.FM API response to a request with invalid parameters, which is also the answer for a track
+     * that Last.FM does not know.
+     */
+    private static final int ERROR_INVALID_PARAMETERS = 6;
+
+    /**
+     * Error code of a Last.FM API response to a request with a wrong username or password.
+     */
+    private static final int ERROR_AUTHENTICATION_FAILED = 4;
+
+    /**
+     * One {@link CircuitBreaker} per Last.FM endpoint.
+     */
+    private static final CircuitBreaker TRACK_INFO_CIRCUIT = new CircuitBreaker("lastfm_track_info");
+    private static final CircuitBreaker TRACK_RECENT_CIRCUIT = new CircuitBreaker("lastfm_track_recent");
+    private static final CircuitBreaker MOBILE_SESSION_CIRCUIT = new CircuitBreaker("lastfm_mobile_session");
+    private static final CircuitBreaker UPDATE_NOW_PLAYING_CIRCUIT = new CircuitBreaker("lastfm_update_now_playing");
+    private static final CircuitBreaker SCROBBLE_CIRCUIT = new CircuitBreaker("lastfm_scrobble");
+
     /**
      * Queries the Last.FM server for data about a particular song based on the artist name and the title of the track.
      *
      * @param artist The artist of the track.
      * @param title  The title of the track.
      * @return Returns data about a track. View the {@link Track} information for more information about the data
-     * contained in this class.
+     * contained in this class. Returns null if Last.FM answered that it does not know the track.
+     * @throws IOException Thrown if Last.FM could not be reached, its circuit breaker is open or it answered with an
+     *                     error other than {@link #ERROR_INVALID_PARAMETERS}, such as a rate limit. Asking again later
+     *                     may succeed.
      */
-    public static Track getTrackInformation(String artist, String title) {
+    public static Track getTrackInformation(String artist, String title) throws IOException {
         String fullURL = GET_TRACK_INFO + API_ARTIST_PREFIX + Tools.escapeURL(artist) + API_TRACK_PREFIX +
                 Tools.escapeURL(title) + API_KEY_PREFIX + LAST_FM_API_KEY + API_FORMAT;
 
@@ -88,33 +118,51 @@ public class LastFM {
             return null;
         }
 
-        String json = Tools.readURL(fullURL);
-        if (json.equals("")) {
-            return null;
+        String json = TRACK_INFO_CIRCUIT.call(() -> Tools.fetchURL(fullURL));
+
+        JSONObject response;
+        try {
+            response = new JSONObject(json);
+        } catch (JSONException e) {
+            throw new IOException("Last.FM sent an invalid response to " + GET_TRACK_INFO + ".", e);
         }
 
-        JSONObject obj = new JSONObject(json).getJSONObject("track");
+        if (response.has("error")) {
+            if (response.optInt("error") == ERROR_INVALID_PARAMETERS) {
+                return null;
+            }
 
-        artist = obj.getJSONObject("artist").getString("name");
-        title = obj.getString("name");
-        int length = obj.getInt("duration");
+            throw new IOException("Last.FM responded with error " + response.opt("error") + ": " +
+                    response.optString("message"));
+        }
 
-        String album = !obj.isNull("album") ? obj.getJSONObject("album").getString("title") : "";
-        List<String> tags = new ArrayList<>();
+        try {
+            JSONObject obj = response.getJSONObject("track");
 
-        JSONArray tagsJSON = obj.getJSONObject("toptags").getJSONArray("tag");
-        for (int i = 0; i < tagsJSON.length(); i++) {
-            tags.add(tagsJSON.getJSONObject(i).getString("name"));
-        }
+            artist = obj.getJSONObject("artist").getString("name");
+            title = obj.getString("name");
+            int length = obj.getInt("duration");
 
-        return new Track(artist, title, length, album, tags);
+            String album = !obj.isNull("album") ? obj.getJSONObject("album").getString("title") : "";
+            List<String> tags = new ArrayList<>();
+
+            JSONArray tagsJSON = obj.getJSONObject("toptags").getJSONArray("tag");
+            for (int i = 0; i < tagsJSON.length(); i++) {
+                tags.add(tagsJSON.getJSONObject(i).getString("name"));
+            }
+
+            return new Track(artist, title, length, album, tags);
+        } catch (JSONException e) {
+            return null;
+        }
     }
 
     /**
      * Retrieve information about a specific user's current listening information.
      *
      * @param username Last.FM username
-     * @return {@link Track} with data pertaining to the latest song being played on Last.FM.
+     * @return {@link Track} with data pertaining to the latest song being played on Last.FM. Returns null if Last.FM
+     * could not be reached.
      */
     public static Track getLatestTrackInformation(String username) throws JSONException {
         String fullURL = GET_TRACK_RECENT + API_USER_PREFIX + username + API_KEY_PREFIX + LAST_FM_API_KEY + API_FORMAT;
@@ -124,7 +172,12 @@ public class LastFM {
             return null;
         }
 
-        String json = Tools.readURL(fullURL);
+        String json;
+        try {
+            json = TRACK_RECENT_CIRCUIT.call(() -> Tools.fetchURL(fullURL));
+        } catch (IOException e) {
+            return null;
+        }
 
         JSONArray tracks = new JSONObject(json).getJSONObject("recenttracks").getJSONArray("track");
         JSONObject track = tracks.getJSONObject(0);
@@ -132,7 +185,11 @@ public class LastFM {
         String artist = track.getJSONObject("artist").getString("#text");
         String title = track.getString("name");
 
-        return getTrackInformation(artist, title);
+        try {
+            return getTrackInformation(artist, title);
+        } catch (IOException e) {
+            return null;
+        }
     }
 
     /**
@@ -235,9 +292,6 @@ public class LastFM {
         String signature = generateAPISignature(params);
         String md5Signature = md5(signature);
 
-        HttpClient httpClient = HttpClients.createMinimal();
-        HttpPost httpPost = new HttpPost(POST_AUTH_SCROBBLE);
-
         List<NameValuePair> nameValuePairs = new ArrayList<>();
         nameValuePairs.add(new BasicNameValuePair("artist", artist));
         nameValuePairs.add(new BasicNameValuePair("track", title));
@@ -247,12 +301,7 @@ public class LastFM {
         nameValuePairs.add(new BasicNameValuePair("api_sig", md5Signature));
         nameValuePairs.add(new BasicNameValuePair("sk", sessionKey));
 
-        httpPost.setEntity(new UrlEncodedFormEntity(nameValuePairs));
-
-        HttpResponse httpResponse = httpClient.execute(httpPost);
-
-        String responseXML = EntityUtils.toString(httpResponse.getEntity(), "UTF-8");
-        EntityUtils.consume(httpPost.getEntity());
+        String responseXML = post(SCROBBLE_CIRCUIT, POST_AUTH_SCROBBLE, nameValuePairs);
 
         JSONObject xmlToJSON = XML.toJSONObject(responseXML);
 
@@ -261,6 +310,16 @@ public class LastFM {
         return status.equals("ok");
     }
 
+    /**
+     * Checks whether {@link #scrobble(String, String, String, int, String)} would currently be attempted or whether it
+     * would fail immediately as its {@link CircuitBreaker} is open.
+     *
+     * @return Returns true if a scrobble request would be sent.
+     */
+    public static boolean isScrobbleAvailable() {
+        return SCROBBLE_CIRCUIT.allowsRequests();
+    }
+
     /**
      * Sends a request to the Last.FM server to update active song for the user with the specified session key.
      * <p>
@@ -283,9 +342,6 @@ public class LastFM {
         String signature = generateAPISignature(params);
         String md5Signature = md5(signature);
 
-        HttpClient httpClient = HttpClients.createMinimal();
-        HttpPost httpPost = new HttpPost(POST_AUTH_UPDATE_NOW_PLAYING);
-
         List<NameValuePair> nameValuePairs = new ArrayList<>();
         nameValuePairs.add(new BasicNameValuePair("artist", artist));
         nameValuePairs.add(new BasicNameValuePair("track", title));
@@ -295,12 +351,7 @@ public class LastFM {
 
         String responseXML;
         try {
-            httpPost.setEntity(new UrlEncodedFormEntity(nameValuePairs));
-
-            HttpResponse httpResponse = httpClient.execute(httpPost);
-
-            responseXML = EntityUtils.toString(httpResponse.getEntity(), "UTF-8");
-            EntityUtils.consume(httpPost.getEntity());
+            responseXML = post(UPDATE_NOW_PLAYING_CIRCUIT, POST_AUTH_UPDATE_NOW_PLAYING, nameValuePairs);
         } catch (IOException e) {
             return false;
         }
@@ -320,8 +371,10 @@ public class LastFM {
      * @param lastFMName     The user's Last.FM username.
      * @param lastFMPassword The user's Last.FM password.
      * @return Returns the session key corresponding to the
-     * @throws JSONException Throws any errors in JSON parsing.
-     * @throws IOException   Throws any errors relating to connecting or reading the URL.
+     * @throws AuthenticationException Thrown if Last.FM rejected the username or password.
+     * @throws JSONException           Throws any errors in JSON parsing.
+     * @throws IOException             Throws any errors relating to connecting or reading the URL, or if Last.FM could
+     *                                 not handle the request at the moment, for example because of a rate limit.
      */
     public static String getSessionKey(String lastFMName, String lastFMPassword) throws JSONException, IOException {
         Map<String, String> params = new HashMap<>();
@@ -333,25 +386,56 @@ public class LastFM {
         String signature = generateAPISignature(params);
         String md5Signature = md5(signature);
 
-        HttpClient httpClient = HttpClients.createMinimal();
-        HttpPost httpPost = new HttpPost(POST_AUTH_MOBILE_SESSION);
-
         List<NameValuePair> nameValuePairs = new ArrayList<>();
         nameValuePairs.add(new BasicNameValuePair("username", lastFMName));
         nameValuePairs.add(new BasicNameValuePair("password", lastFMPassword));
         nameValuePairs.add(new BasicNameValuePair("api_key", LAST_FM_API_KEY));
         nameValuePairs.add(new BasicNameValuePair("api_sig", md5Signature));
 
-        httpPost.setEntity(new UrlEncodedFormEntity(nameValuePairs));
+        String responseXML = post(MOBILE_SESSION_CIRCUIT, POST_AUTH_MOBILE_SESSION, nameValuePairs);
 
-        HttpResponse httpResponse = httpClient.execute(httpPost);
+        JSONObject lfm = XML.toJSONObject(responseXML).getJSONObject("lfm");
 
-        String responseXML = EntityUtils.toString(httpResponse.getEntity(), "UTF-8");
-        EntityUtils.consume(httpPost.getEntity());
+        if (!lfm.optString("status").equals("ok")) {
+            JSONObject error = lfm.optJSONObject("error");
+            int code = error != null ? error.optInt("code") : 0;
+            String message = error != null ? error.optString("content") : "";
 
-        JSONObject xmlToJSON = XML.toJSONObject(responseXML);
+            if (code == ERROR_AUTHENTICATION_FAILED) {
+                throw new AuthenticationException(message);
+            }
 
-        return xmlToJSON.getJSONObject("lfm").getJSONObject("session").getString("key");
+            throw new IOException("Last.FM responded with error " + code + ": " + message);
+        }
+
+        return lfm.getJSONObject("session").getString("key");
+    }
+
+    /**
+     * Sends a form encoded POST request to Last.FM through the {@link CircuitBreaker} of that endpoint.
+     *
+     * @param circuit        The {@link CircuitBreaker} of the endpoint.
+     * @param url            The endpoint url.
+     * @param nameValuePairs The form parameters.
+     * @return Returns the XML response of Last.FM.
+     * @throws IOException Throws any errors relating to connecting or reading the URL, or if the breaker is open.
+     */
+    private static String post(CircuitBreaker circuit, String url, List<NameValuePair> nameValuePairs)
+            throws IOException {
+        return circuit.call(() -> {
+            HttpClient httpClient = HttpClients.createMinimal();
+            HttpPost httpPost = new HttpPost(url);
+            httpPost.setEntity(new UrlEncodedFormEntity(nameValuePairs));
+
+            HttpResponse httpResponse = httpClient.execute(httpPost);
+
+            String responseXML = EntityUtils.toString(httpResponse.getEntity(), "UTF-8");
+            EntityUtils.consume(httpPost.getEntity());
+
+            Tools.checkServerError(url, httpResponse);
+
+            return responseXML;
+        });
     }
 
     /**
@@ -470,4 +554,18 @@ public class LastFM {
                     '}';
         }
     }
+
+    /**
+     * Thrown by {@link #getSessionKey(String, String)} if Last.FM rejected the username or password, as opposed to any
+     * other failure which asking again later might fix.
+     *
+     * @since 1.2
+     */
+    public static class AuthenticationException extends JSONException {
+        private static final long serialVersionUID = 1L;
+
+        public AuthenticationException(String message) {
+            super(message);
+        }
+    }
 }
@@ -1,22 +1,39 @@
 package com.sabihismail.DiscordLastFMScrobbler.lastFM;
 
-import com.sabihismail.DiscordLastFMScrobbler.connection.Main;
+import com.sabihismail.DiscordLastFMScrobbler.connection.Bot;
 import com.sabihismail.DiscordLastFMScrobbler.tools.Logging;
 import com.sabihismail.DiscordLastFMScrobbler.discord.Discord;
-import com.sabihismail.DiscordLastFMScrobbler.discord.DiscordSocket;
-import com.sabihismail.DiscordLastFMScrobbler.tools.Settings;
-import javafx.application.Platform;
-import javafx.beans.property.SimpleStringProperty;
-import javafx.beans.property.StringProperty;
+import com.sabihismail.DiscordLastFMScrobbler.tools.ExecutionLane;
+import com.sabihismail.DiscordLastFMScrobbler.tools.Metrics;
+import com.sabihismail.DiscordLastFMScrobbler.tools.StartupTimer;
+import org.json.JSONException;
 
 import java.io.IOException;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.time.Clock;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 
 /**
  * This class is dedicated to managing information being sent to Last.FM using the {@link LastFM} class. This class also
- * constantly updates the {@link Discord} Game status.
+ * constantly publishes the latest song, for example to the {@link Discord} Game status.
+ * <p>
+ * Track information is read on {@link ExecutionLane#LAST_FM_READ} and Now Playing updates and scrobbles are sent on
+ * {@link ExecutionLane#LAST_FM_WRITE}. The latest song is handed to {@link Bot#PRESENCE_BROADCASTER}, which updates
+ * the Discord Game status and every other sink on a thread of its own, so that none of them can delay the others.
+ * <p>
+ * Last.FM is reached through a {@link LastFMPort} and the time is read from a {@link Clock}, both of which are replaced
+ * together with the lanes by {@link ScrobbleSimulator} to run hours of listening in virtual time.
  *
  * @since 1.0
  */
@@ -26,40 +43,185 @@ public class LastFMManager {
      */
     private static final int MIN_SECONDS_TO_SCROBBLE = 30;
 
+    /**
+     * Time in seconds between two observations of the song that is playing, which is how often the process check runs.
+     */
+    private static final int TIME_BETWEEN_OBSERVATIONS = 1;
+
+    /**
+     * Longest time in seconds between two observations of a song that is counted as listening. A longer gap means that
+     * the song was paused in between, of which only {@link #TIME_BETWEEN_OBSERVATIONS} is counted.
+     */
+    private static final int MAX_OBSERVATION_GAP = 5;
+
     /**
      * Time in seconds to update Discord Game status.
      */
     private static final int TIME_TO_UPDATE_DISCORD = 1;
 
-    private ScheduledExecutorService executorService = Executors.newSingleThreadScheduledExecutor();
+    /**
+     * Maximum amount of {@link LastFM.Track} lookups kept in {@link #trackCache}.
+     */
+    private static final int TRACK_CACHE_SIZE = 64;
+
+    /**
+     * Time in milliseconds before a lookup that failed because Last.FM could not answer is tried again.
+     */
+    private static final long TRACK_LOOKUP_RETRY_DELAY = 60 * 1000;
+
+    /**
+     * Time in seconds between attempts to submit scrobbles that could not be sent while Last.FM was unreachable.
+     */
+    private static final int TIME_TO_RETRY_SCROBBLES = 30;
+
+    /**
+     * Time in seconds before a Now Playing update that failed is tried again while the song is still playing.
+     */
+    private static final int TIME_TO_RETRY_NOW_PLAYING = 30;
+
+    /**
+     * Maximum amount of scrobbles kept in {@link #scrobbleQueue}. The oldest scrobble is dropped beyond this.
+     */
+    private static final int MAX_QUEUED_SCROBBLES = 1000;
+
+    /**
+     * Marker stored in {@link #trackCache} for songs that Last.FM does not know about.
+     */
+    private static final LastFM.Track UNKNOWN_TRACK = new LastFM.Track("", "", 0, "", Collections.emptyList());
+
+    /**
+     * Scrobbles accepted by Last.FM, answered with an error status, and not answered at all, including those retried
+     * from {@link #scrobbleQueue}.
+     */
+    private static final LongAdder SCROBBLES_ACCEPTED = Metrics.counter("lastfm_scrobbles_accepted_total");
+    private static final LongAdder SCROBBLES_REJECTED = Metrics.counter("lastfm_scrobbles_rejected_total");
+    private static final LongAdder SCROBBLES_FAILED = Metrics.counter("lastfm_scrobbles_failed_total");
+
+    private final Map<String, LastFM.Track> trackCache = Collections.synchronizedMap(
+            new LinkedHashMap<String, LastFM.Track>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, LastFM.Track> eldest) {
+                    return size() > TRACK_CACHE_SIZE;
+                }
+            });
+    private final Set<String> pendingTrackLookups = ConcurrentHashMap.newKeySet();
+
+    /**
+     * The time from {@link #clock} after which a lookup that failed may be tried again, by song. Failed lookups are not
+     * stored in {@link #trackCache} as Last.FM may well know the song once it can be reached again.
+     */
+    private final Map<String, Long> trackLookupRetries = new ConcurrentHashMap<>();
+
+    private final LastFMPort lastFM;
+    private final Clock clock;
+    private final Executor writeLane;
+    private final Executor readLane;
+    private final Consumer<String> log;
+
+    private volatile Observation pendingObservation;
+    private final AtomicBoolean observationQueued = new AtomicBoolean(false);
+
+    private final Deque<QueuedScrobble> scrobbleQueue = new ConcurrentLinkedDeque<>();
 
     private String artist = "";
     private String title = "";
     private int length = 0;
     private int timeStart = 0;
+    private int timeLastSeen = 0;
+    private int timePlayed = 0;
     private boolean scrobbled;
+    private boolean nowPlayingUpdated;
+    private long nowPlayingRetryAt;
 
-    private StringProperty song = new SimpleStringProperty();
     private boolean songUpdatedAlready = false;
 
     public LastFMManager() {
+        this(LastFMPort.LIVE, Clock.systemUTC(), ExecutionLane.LAST_FM_WRITE::execute,
+                ExecutionLane.LAST_FM_READ::execute, Logging::log);
+
+        Metrics.gauge("lastfm_scrobble_queue_size", scrobbleQueue::size);
+
+        ExecutionLane.LAST_FM_WRITE.scheduleWithFixedDelay(this::submitQueuedScrobbles, TIME_TO_RETRY_SCROBBLES,
+                TIME_TO_RETRY_SCROBBLES, TimeUnit.SECONDS);
+
         enableNowPlayingUpdate();
     }
 
     /**
-     * Takes in information about the song that is currently being played. Primarily checks if song information does
-     * not match stored song information and if so, will update LastFM's Now Playing to match that information.
+     * Creates a manager that neither retries queued scrobbles nor updates the presence on its own, for
+     * {@link ScrobbleSimulator}. Queued scrobbles are retried by calling {@link #submitQueuedScrobbles()}.
+     *
+     * @param lastFM    The Last.FM API.
+     * @param clock     The clock the start and play time of songs are read from.
+     * @param writeLane Runs the processing of songs, see {@link ExecutionLane#LAST_FM_WRITE}.
+     * @param readLane  Runs the lookups of track information, see {@link ExecutionLane#LAST_FM_READ}.
+     * @param log       Receives the messages about scrobbles.
+     * @since 1.2
+     */
+    LastFMManager(LastFMPort lastFM, Clock clock, Executor writeLane, Executor readLane, Consumer<String> log) {
+        this.lastFM = lastFM;
+        this.clock = clock;
+        this.writeLane = writeLane;
+        this.readLane = readLane;
+        this.log = log;
+    }
+
+    /**
+     * Takes in information about the song that is currently being played and hands it over to
+     * {@link ExecutionLane#LAST_FM_WRITE}. Only the latest information is kept if the lane has not caught up yet, as
+     * every call supersedes the previous one.
+     *
+     * @param artist The artist of the song.
+     * @param title  The title of the song.
+     * @param length The length of the song in seconds (0 if unknown).
+     */
+    public void processInformation(String artist, String title, int length) {
+        pendingObservation = new Observation(artist, title, length);
+
+        if (observationQueued.compareAndSet(false, true)) {
+            try {
+                writeLane.execute(this::processPendingObservation);
+            } catch (RejectedExecutionException e) {
+                observationQueued.set(false);
+            }
+        }
+    }
+
+    /**
+     * Runs on {@link ExecutionLane#LAST_FM_WRITE} and processes the latest {@link Observation}.
+     */
+    private void processPendingObservation() {
+        observationQueued.set(false);
+
+        Observation observation = pendingObservation;
+        if (observation != null) {
+            processObservation(observation.artist, observation.title, observation.length);
+        }
+    }
+
+    /**
+     * Primarily checks if song information does not match stored song information and if so, takes up the new song and
+     * updates LastFM's Now Playing to match that information.
      * <p>
      * If the stored information is the same as what is supplied, the bot will then Scrobble this information to
      * LastFM. If the song does not exist on Last.FM's database and the length is unknown, after
-     * {@link #MIN_SECONDS_TO_SCROBBLE}, the song will automatically scrobble.
+     * {@link #MIN_SECONDS_TO_SCROBBLE}, the song will automatically scrobble. While Last.FM has not answered whether
+     * it knows the song, that decision waits for the answer, see {@link #queueUnverifiedScrobble()}.
+     * <p>
+     * The time a song was played for only counts the time it was seen, so that pauses do not count as listening. A song
+     * of known length that was played for its whole length and is still seen is being played again, and counts as a
+     * new play from then on.
+     * <p>
+     * The {@link LastFM.Track} information is taken from {@link #getCachedTrackInformation(String, String)} so this
+     * method never waits on a Last.FM read. If the length only becomes known after the song started, the stored length
+     * is updated rather than treating the song as a new one.
      *
      * @param artist The artist of the song.
      * @param title  The title of the song.
      * @param length The length of the song in seconds (0 if unknown).
      */
-    public void processInformation(String artist, String title, int length) {
-        LastFM.Track track = LastFM.getTrackInformation(artist, title);
+    private void processObservation(String artist, String title, int length) {
+        LastFM.Track track = getCachedTrackInformation(artist, title);
 
         if (length == 0) {
             if (track != null) {
@@ -67,83 +229,273 @@ public class LastFMManager {
             }
         }
 
-        if (this.artist.equals(artist) && this.title.equals(title) && this.length == length) {
-            int timeEnd = (int) (System.currentTimeMillis() / 1000);
+        int now = (int) (clock.millis() / 1000);
 
-            int difference = timeEnd - timeStart;
+        if (this.artist.equals(artist) && this.title.equals(title)) {
+            if (this.length == 0) {
+                this.length = length;
+            }
 
-            if (!scrobbled && difference > MIN_SECONDS_TO_SCROBBLE) {
-                if (length > 0 && difference < length / 2) {
-                    return;
-                }
+            int gap = now - timeLastSeen;
+            int elapsed = gap <= MAX_OBSERVATION_GAP ? gap : TIME_BETWEEN_OBSERVATIONS;
 
-                try {
-                    LastFM.scrobble(artist, title, track != null ? track.getAlbum() : "", timeStart, Main.SETTINGS.getSessionKey());
+            timePlayed += elapsed;
+            timeLastSeen = now;
 
-                    Logging.log(artist + " - " + title + " scrobbled.");
-                } catch (IOException e) {
-                    Logging.logError(new String[]{artist, title, Integer.toString(length)}, e);
-                }
+            if (length > 0 && timePlayed >= length) {
+                scrobbleIfPlayedLongEnough(timePlayed - elapsed, length, track);
 
-                scrobbled = true;
+                startPlay(now);
             }
+
+            scrobbleIfPlayedLongEnough(timePlayed, length, track);
         } else {
-            boolean nowPlayingUpdated = LastFM.updateNowPlaying(artist, title, Main.SETTINGS.getSessionKey());
+            queueUnverifiedScrobble();
 
-            if (nowPlayingUpdated) {
-                this.artist = artist;
-                this.title = title;
-                this.length = length;
+            this.artist = artist;
+            this.title = title;
+            this.length = length;
 
-                scrobbled = false;
+            startPlay(now);
+        }
 
-                timeStart = (int) (System.currentTimeMillis() / 1000);
-            }
+        if (!nowPlayingUpdated && clock.millis() >= nowPlayingRetryAt) {
+            updateNowPlaying();
         }
     }
 
     /**
-     * Queries latest song information from LastFM and sets Discord Game status to that song if
-     * {@link Settings#discordConnectionEnabled} is true.
+     * Scrobbles the current play once it was played for more than {@link #MIN_SECONDS_TO_SCROBBLE} and, if the length
+     * of the song is known, for at least half its length. A song of unknown length is only scrobbled once Last.FM
+     * answered that it does not know the song.
      *
-     * If {@link Settings#discordConnectionEnabled} is true, the song label
-     * GUI text is set to whatever is read from Discord. If it is not true, the song is set to the Last.FM formatted
-     * track.
+     * @param played The time in seconds the current play was played for.
+     * @param length The length of the song in seconds (0 if unknown).
+     * @param track  The {@link LastFM.Track} of the song, or null if it is unknown or not retrieved yet.
+     */
+    private void scrobbleIfPlayedLongEnough(int played, int length, LastFM.Track track) {
+        if (scrobbled || played <= MIN_SECONDS_TO_SCROBBLE ||
+                (length > 0 ? played < length / 2 : !isTrackLookupAnswered(artist, title))) {
+            return;
+        }
+
+        String album = track != null ? track.getAlbum() : "";
+
+        try {
+            countScrobble(lastFM.scrobble(artist, title, album, timeStart));
+
+            StartupTimer.milestone("first_scrobble");
+            log.accept(artist + " - " + title + " scrobbled.");
+        } catch (IOException e) {
+            SCROBBLES_FAILED.increment();
+            queueScrobble(new QueuedScrobble(artist, title, album, timeStart));
+
+            log.accept(artist + " - " + title + " queued as Last.FM could not be reached (" + e.getMessage() + ").");
+        } catch (JSONException e) {
+            SCROBBLES_FAILED.increment();
+            Logging.logError(new String[]{artist, title}, e);
+        }
+
+        scrobbled = true;
+    }
+
+    /**
+     * Starts a new play of the current song, either because a different song was seen or because the current song was
+     * played for its whole length and is being played again.
      *
-     * Also checks if the {@link DiscordSocket} has disconnected and
-     * initiates reconnection if it has.
+     * @param now The time since Unix epoch in seconds when the play started.
      */
-    private void enableNowPlayingUpdate() {
-        executorService.scheduleAtFixedRate(() -> {
-            String latestSong = LastFM.getFormattedTrack(Main.SETTINGS.getLastFMName());
-            if (latestSong == null) {
-                return;
-            }
+    private void startPlay(int now) {
+        scrobbled = false;
 
-            if (Main.SETTINGS.isDiscordConnectionEnabled()) {
-                if (Main.DISCORD.getDiscordSocket().isClosed()) {
-                    Main.DISCORD.createSocket();
-                }
+        timeStart = now;
+        timeLastSeen = now;
+        timePlayed = 0;
 
-                String currentSong = Main.DISCORD.getDiscordSocket().getGame();
+        updateNowPlaying();
+    }
+
+    /**
+     * Updates Last.FM's Now Playing to the current song. If it could not be updated, it is tried again after
+     * {@link #TIME_TO_RETRY_NOW_PLAYING} while the song is still playing. The song is taken up either way, so that it
+     * is scrobbled or queued with the time it started even while Last.FM cannot be reached.
+     */
+    private void updateNowPlaying() {
+        try {
+            nowPlayingUpdated = lastFM.updateNowPlaying(artist, title);
+        } catch (JSONException e) {
+            nowPlayingUpdated = false;
+            Logging.logError(new String[]{artist, title}, e);
+        }
+
+        if (nowPlayingUpdated) {
+            StartupTimer.milestone("first_now_playing");
+        } else {
+            nowPlayingRetryAt = clock.millis() + TimeUnit.SECONDS.toMillis(TIME_TO_RETRY_NOW_PLAYING);
+        }
+    }
+
+    /**
+     * Queues the song that is being left if it was played for more than {@link #MIN_SECONDS_TO_SCROBBLE} but not
+     * scrobbled because its length could not be looked up, as Last.FM could not be reached. Whether it was played for
+     * at least half its length is checked by {@link #submitQueuedScrobbles()} once Last.FM answers again.
+     */
+    private void queueUnverifiedScrobble() {
+        if (!scrobbled && !artist.isEmpty() && timePlayed > MIN_SECONDS_TO_SCROBBLE && length == 0 &&
+                !isTrackLookupAnswered(artist, title)) {
+            queueScrobble(new QueuedScrobble(artist, title, "", timeStart, timePlayed));
+
+            log.accept(artist + " - " + title + " queued until its length can be looked up on Last.FM.");
+        }
+    }
+
+    private static void countScrobble(boolean accepted) {
+        (accepted ? SCROBBLES_ACCEPTED : SCROBBLES_REJECTED).increment();
+    }
+
+    /**
+     * Keeps a scrobble that could not be sent so that it can be retried by {@link #submitQueuedScrobbles()}.
+     *
+     * @param scrobble The scrobble that could not be sent.
+     */
+    private void queueScrobble(QueuedScrobble scrobble) {
+        scrobbleQueue.addLast(scrobble);
+
+        while (scrobbleQueue.size() > MAX_QUEUED_SCROBBLES) {
+            QueuedScrobble dropped = scrobbleQueue.pollFirst();
 
-                if (currentSong == null || !currentSong.equals(latestSong)) {
-                    Main.DISCORD.getDiscordSocket().setGame(latestSong);
+            log.accept("Scrobble queue is full, dropping " + dropped.artist + " - " + dropped.title + ".");
+        }
+    }
+
+    /**
+     * Runs on {@link ExecutionLane#LAST_FM_WRITE} and submits queued scrobbles in the order they were played. Stops at
+     * the first failure, or immediately if the scrobble endpoint's circuit breaker is still open.
+     */
+    void submitQueuedScrobbles() {
+        while (!scrobbleQueue.isEmpty() && lastFM.isScrobbleAvailable()) {
+            QueuedScrobble scrobble = scrobbleQueue.peekFirst();
+
+            try {
+                String album = scrobble.album;
 
-                    Platform.runLater(() -> song.set(Main.DISCORD.getDiscordSocket().getGame()));
+                if (scrobble.unverifiedPlayTime > 0) {
+                    LastFM.Track track = lastFM.getTrackInformation(scrobble.artist, scrobble.title);
+                    int length = track != null ? (int) TimeUnit.MILLISECONDS.toSeconds(track.getLength()) : 0;
+
+                    if (scrobble.unverifiedPlayTime < length / 2) {
+                        log.accept(scrobble.artist + " - " + scrobble.title + " dropped from queue as it was " +
+                                "played for less than half its length.");
+
+                        scrobbleQueue.remove(scrobble);
+                        continue;
+                    }
+
+                    album = track != null ? track.getAlbum() : "";
                 }
-            } else {
-                Platform.runLater(() -> song.set(latestSong));
+
+                countScrobble(lastFM.scrobble(scrobble.artist, scrobble.title, album, scrobble.timeStart));
+
+                log.accept(scrobble.artist + " - " + scrobble.title + " scrobbled from queue.");
+            } catch (IOException e) {
+                SCROBBLES_FAILED.increment();
+                return;
+            } catch (JSONException e) {
+                SCROBBLES_FAILED.increment();
+                Logging.logError(new String[]{scrobble.artist, scrobble.title}, e);
             }
-        }, 0, TIME_TO_UPDATE_DISCORD, TimeUnit.SECONDS);
+
+            scrobbleQueue.remove(scrobble);
+        }
     }
 
-    public ScheduledExecutorService getExecutorService() {
-        return executorService;
+    /**
+     * Checks whether Last.FM has answered the lookup of a song, meaning that a song without a {@link LastFM.Track}
+     * from {@link #getCachedTrackInformation(String, String)} is really unknown rather than not looked up yet. Also
+     * read by {@link ScrobbleSimulator} to tell whether the manager can know the length of a song.
+     *
+     * @param artist The artist of the song.
+     * @param title  The title of the song.
+     * @return Returns true if the answer of Last.FM is in {@link #trackCache}.
+     */
+    boolean isTrackLookupAnswered(String artist, String title) {
+        return trackCache.containsKey(artist + '\0' + title);
     }
 
-    public StringProperty getSong() {
-        return song;
+    /**
+     * Returns the {@link LastFM.Track} information of a song if it has already been retrieved. Otherwise a lookup is
+     * queued on {@link ExecutionLane#LAST_FM_READ} and null is returned until the lookup has completed. A lookup the
+     * full lane drops is queued again on the next call.
+     * <p>
+     * A song Last.FM does not know is cached as {@link #UNKNOWN_TRACK}. A lookup that failed because Last.FM could not
+     * be reached or could not answer is not cached, but only tried again after {@link #TRACK_LOOKUP_RETRY_DELAY}.
+     *
+     * @param artist The artist of the song.
+     * @param title  The title of the song.
+     * @return Returns the {@link LastFM.Track} or null if it is unknown or not retrieved yet.
+     */
+    private LastFM.Track getCachedTrackInformation(String artist, String title) {
+        String key = artist + '\0' + title;
+
+        LastFM.Track track = trackCache.get(key);
+        if (track != null) {
+            return track == UNKNOWN_TRACK ? null : track;
+        }
+
+        Long retryAt = trackLookupRetries.get(key);
+        if (retryAt != null && clock.millis() < retryAt) {
+            return null;
+        }
+
+        if (pendingTrackLookups.add(key)) {
+            readLane.execute(new ExecutionLane.DroppableTask() {
+                @Override
+                public void run() {
+                    try {
+                        LastFM.Track retrieved = lastFM.getTrackInformation(artist, title);
+
+                        trackCache.put(key, retrieved == null ? UNKNOWN_TRACK : retrieved);
+                        trackLookupRetries.remove(key);
+                    } catch (IOException e) {
+                        if (trackLookupRetries.size() >= TRACK_CACHE_SIZE) {
+                            trackLookupRetries.clear();
+                        }
+
+                        trackLookupRetries.put(key, clock.millis() + TRACK_LOOKUP_RETRY_DELAY);
+                    } finally {
+                        pendingTrackLookups.remove(key);
+                    }
+                }
+
+                @Override
+                public void onDropped() {
+                    pendingTrackLookups.remove(key);
+                }
+            });
+        }
+
+        return null;
+    }
+
+    /**
+     * Queries latest song information from LastFM and publishes it to every
+     * {@link com.sabihismail.DiscordLastFMScrobbler.presence.PresenceSink} registered with
+     * {@link Bot#PRESENCE_BROADCASTER}, such as the {@link Discord} Game status.
+     *
+     * The song label of the JavaFX program is one of these sinks.
+     *
+     * The latest song is read on {@link ExecutionLane#LAST_FM_READ}. Publishing returns immediately as every sink is
+     * updated on its own thread, so a slow sink never holds up Last.FM reads or the other sinks.
+     */
+    private void enableNowPlayingUpdate() {
+        ExecutionLane.LAST_FM_READ.scheduleWithFixedDelay(() -> {
+            String latestSong = lastFM.getFormattedTrack();
+            if (latestSong == null) {
+                return;
+            }
+
+            Bot.PRESENCE_BROADCASTER.publish(latestSong);
+        }, 0, TIME_TO_UPDATE_DISCORD, TimeUnit.SECONDS);
     }
 
     public boolean isSongUpdatedAlready() {
@@ -153,4 +505,46 @@ public class LastFMManager {
     public void resetActiveProcess() {
         songUpdatedAlready = false;
     }
+
+    /**
+     * The song information most recently passed to {@link #processInformation(String, String, int)}.
+     */
+    private static class Observation {
+        private final String artist;
+        private final String title;
+        private final int length;
+
+        private Observation(String artist, String title, int length) {
+            this.artist = artist;
+            this.title = title;
+            this.length = length;
+        }
+    }
+
+    /**
+     * A scrobble that could not be sent when the song was played.
+     */
+    private static class QueuedScrobble {
+        private final String artist;
+        private final String title;
+        private final String album;
+        private final int timeStart;
+
+        /**
+         * The seconds the song was played for if it is not known yet whether that is at least half its length, or 0.
+         */
+        private final int unverifiedPlayTime;
+
+        private QueuedScrobble(String artist, String title, String album, int timeStart) {
+            this(artist, title, album, timeStart, 0);
+        }
+
+        private QueuedScrobble(String artist, String title, String album, int timeStart, int unverifiedPlayTime) {
+            this.artist = artist;
+            this.title = title;
+            this.album = album;
+            this.timeStart = timeStart;
+            this.unverifiedPlayTime = unverifiedPlayTime;
+        }
+    }
 }
@@ -0,0 +1,94 @@
+package com.sabihismail.DiscordLastFMScrobbler.lastFM;
+
+import com.sabihismail.DiscordLastFMScrobbler.connection.Bot;
+import org.json.JSONException;
+
+import java.io.IOException;
+
+/**
+ * The Last.FM requests made by {@link LastFMManager}, so that the manager can be run against a simulated Last.FM as in
+ * {@link ScrobbleSimulator} instead of the real API.
+ * <p>
+ * {@link #LIVE} sends every request through {@link LastFM} with the session key and username of {@link Bot#SETTINGS}.
+ *
+ * @since 1.2
+ */
+public interface LastFMPort {
+    /**
+     * The real Last.FM API.
+     */
+    LastFMPort LIVE = new LastFMPort() {
+        @Override
+        public LastFM.Track getTrackInformation(String artist, String title) throws IOException {
+            return LastFM.getTrackInformation(artist, title);
+        }
+
+        @Override
+        public boolean updateNowPlaying(String artist, String title) throws JSONException {
+            return LastFM.updateNowPlaying(artist, title, Bot.SETTINGS.getSessionKey());
+        }
+
+        @Override
+        public boolean scrobble(String artist, String title, String album, int timeStamp)
+                throws IOException, JSONException {
+            return LastFM.scrobble(artist, title, album, timeStamp, Bot.SETTINGS.getSessionKey());
+        }
+
+        @Override
+        public boolean isScrobbleAvailable() {
+            return LastFM.isScrobbleAvailable();
+        }
+
+        @Override
+        public String getFormattedTrack() {
+            return LastFM.getFormattedTrack(Bot.SETTINGS.getLastFMName());
+        }
+    };
+
+    /**
+     * See {@link LastFM#getTrackInformation(String, String)}.
+     *
+     * @param artist The artist of the song.
+     * @param title  The title of the song.
+     * @return Returns the song, or null if Last.FM does not know it.
+     * @throws IOException Thrown if Last.FM cannot be reached or could not answer.
+     */
+    LastFM.Track getTrackInformation(String artist, String title) throws IOException;
+
+    /**
+     * See {@link LastFM#updateNowPlaying(String, String, String)}.
+     *
+     * @param artist The artist of the song.
+     * @param title  The title of the song.
+     * @return Returns true if Now Playing was updated.
+     * @throws JSONException Thrown if the response cannot be parsed.
+     */
+    boolean updateNowPlaying(String artist, String title) throws JSONException;
+
+    /**
+     * See {@link LastFM#scrobble(String, String, String, int, String)}.
+     *
+     * @param artist    The artist of the song.
+     * @param title     The title of the song.
+     * @param album     The album of the song.
+     * @param timeStamp The time since Unix epoch in seconds when the song started.
+     * @return Returns true if the song was scrobbled.
+     * @throws IOException   Thrown if Last.FM cannot be reached.
+     * @throws JSONException Thrown if the response cannot be parsed.
+     */
+    boolean scrobble(String artist, String title, String album, int timeStamp) throws IOException, JSONException;
+
+    /**
+     * See {@link LastFM#isScrobbleAvailable()}.
+     *
+     * @return Returns true if a scrobble request would be sent.
+     */
+    boolean isScrobbleAvailable();
+
+    /**
+     * See {@link LastFM#getFormattedTrack(String)}.
+     *
+     * @return Returns the latest song of the user formatted for display, or null if it cannot be read.
+     */
+    String getFormattedTrack();
+}
@@ -0,0 +1,582 @@
+package com.sabihismail.DiscordLastFMScrobbler.lastFM;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs {@link LastFMManager} through hours of synthetic listening in virtual time and checks its scrobbles, so that
+ * changes to the scrobble rules can be tested without waiting for songs to play.
+ * <p>
+ * The simulation advances a virtual {@link Clock} one second at a time, like the process check, and reports the song
+ * of every music player that is playing in that second to the manager. A primary player plays through a random
+ * library, skipping songs early or midway, repeating songs and pausing, and a secondary player occasionally plays at
+ * the same time. Last.FM is simulated by a {@link LastFMPort} that does not know some songs and is unreachable for a
+ * while every few hours. Work handed to the Last.FM lanes is queued and run at the end of every second, so that only
+ * the latest song of a second is processed, as on the real lanes.
+ * <p>
+ * Every play is checked against the documented rules: the song of the first playing player is scrobbled once it was
+ * played, not counting pauses, for more than {@link #MIN_SECONDS_TO_SCROBBLE} and, if its length is known, for at least
+ * half its length, with the time it started. Where a window title cannot tell plays apart, such as a song that is
+ * started again right after it was paused, the play is counted as the manager can see it, see
+ * {@link #observe(Play)}. The report lists the amount of requests per hour of listening and every
+ * scrobble that was missed, unexpected or sent with the wrong time. The program exits with 1 if any scrobble was wrong.
+ * <p>
+ * Pauses, repeated songs, overlapping players and outages can each be turned off to find out which of them a wrong
+ * scrobble comes from.
+ *
+ * @since 1.2
+ */
+public class ScrobbleSimulator {
+    private static final String USAGE = "Usage: java -cp <jar> " + ScrobbleSimulator.class.getName() +
+            " [options]\n" +
+            "  --hours <hours>    Hours to simulate (default 24)\n" +
+            "  --seed <seed>      Seed of the random sessions (default 1)\n" +
+            "  --no-pauses        Never pause a song\n" +
+            "  --no-repeats       Never play a song twice in a row\n" +
+            "  --no-overlap       Never play on a second player at the same time\n" +
+            "  --no-outages       Never make Last.FM unreachable";
+
+    /**
+     * Same as in {@link LastFMManager}.
+     */
+    private static final int MIN_SECONDS_TO_SCROBBLE = 30;
+
+    /**
+     * Longest gap in seconds between two observations of a song that counts as listening, as in
+     * {@link LastFMManager}.
+     */
+    private static final int MAX_OBSERVATION_GAP = 5;
+
+    /**
+     * Time in seconds between retries of queued scrobbles, as in {@link LastFMManager}.
+     */
+    private static final int TIME_TO_RETRY_SCROBBLES = 30;
+
+    /**
+     * Last.FM is unreachable for the last {@link #OUTAGE_LENGTH} seconds of every {@link #OUTAGE_INTERVAL} seconds.
+     */
+    private static final int OUTAGE_INTERVAL = 5 * 3600;
+    private static final int OUTAGE_LENGTH = 600;
+
+    /**
+     * Time in seconds at the end of the simulation without an outage. A song that was played during an outage is only
+     * scrobbled once Last.FM tells its length, which a song cut off by the end of the simulation would never get to.
+     */
+    private static final int OUTAGE_SETTLE_TIME = 3600;
+
+    private static final int LIBRARY_SIZE = 500;
+    private static final int MAX_WRONG_SCROBBLES_PRINTED = 10;
+
+    private final Random random;
+    private final boolean pauses;
+    private final boolean repeats;
+    private final boolean overlap;
+    private final boolean outages;
+    private final List<Song> library = new ArrayList<>();
+
+    private final VirtualClock clock = new VirtualClock();
+    private final SimulatedLastFM lastFM = new SimulatedLastFM();
+    private final Queue<Runnable> writeLane = new ArrayDeque<>();
+    private final Queue<Runnable> readLane = new ArrayDeque<>();
+    private final LastFMManager manager;
+
+    private final List<Scrobble> expected = new ArrayList<>();
+    private Play current;
+    private int start;
+    private int lastSeen;
+    private int played;
+    private boolean playedLongEnough;
+    private long listeningSeconds = 0;
+
+    private ScrobbleSimulator(long seed, boolean pauses, boolean repeats, boolean overlap, boolean outages) {
+        this.random = new Random(seed);
+        this.pauses = pauses;
+        this.repeats = repeats;
+        this.overlap = overlap;
+        this.outages = outages;
+
+        manager = new LastFMManager(lastFM, clock, writeLane::add, readLane::add, message -> {});
+
+        for (int i = 0; i < LIBRARY_SIZE; i++) {
+            int length = random.nextInt(10) == 0 ? 15 + random.nextInt(40) : 90 + random.nextInt(330);
+
+            library.add(new Song("Artist " + i / 10, "Song " + i, length, random.nextInt(6) != 0,
+                    random.nextBoolean()));
+        }
+    }
+
+    /**
+     * Runs the simulation given in {@link #USAGE}.
+     *
+     * @param args The options listed in {@link #USAGE}.
+     */
+    public static void main(String[] args) {
+        long hours = 24;
+        long seed = 1;
+        List<String> disabled = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if (args[i].equals("--hours") && i + 1 < args.length) {
+                    hours = Long.parseLong(args[++i]);
+                } else if (args[i].equals("--seed") && i + 1 < args.length) {
+                    seed = Long.parseLong(args[++i]);
+                } else if (args[i].matches("--no-(pauses|repeats|overlap|outages)")) {
+                    disabled.add(args[i]);
+                } else {
+                    hours = 0;
+                }
+            }
+        } catch (NumberFormatException e) {
+            hours = 0;
+        }
+
+        if (hours <= 0) {
+            System.err.println(USAGE);
+            System.exit(1);
+        }
+
+        long start = System.nanoTime();
+
+        ScrobbleSimulator simulator = new ScrobbleSimulator(seed, !disabled.contains("--no-pauses"),
+                !disabled.contains("--no-repeats"), !disabled.contains("--no-overlap"),
+                !disabled.contains("--no-outages"));
+        simulator.run(TimeUnit.HOURS.toSeconds(hours));
+
+        boolean correct = simulator.report(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+        System.exit(correct ? 0 : 1);
+    }
+
+    /**
+     * Simulates the given amount of seconds.
+     *
+     * @param seconds The length of the simulation.
+     */
+    private void run(long seconds) {
+        Player primary = new Player(0.02, 1800, 0);
+        Player secondary = new Player(0.3, 3600, overlap ? 3600 : Integer.MAX_VALUE);
+
+        for (long second = 0; second < seconds; second++) {
+            clock.advance();
+            lastFM.outage = outages && second % OUTAGE_INTERVAL >= OUTAGE_INTERVAL - OUTAGE_LENGTH &&
+                    seconds - second > OUTAGE_SETTLE_TIME;
+
+            manager.resetActiveProcess();
+
+            Play first = null;
+            for (Player player : new Player[]{primary, secondary}) {
+                Play play = player.tick();
+
+                if (play != null && first == null) {
+                    manager.processInformation(play.song.artist, play.song.title, play.song.getReportedLength());
+
+                    first = play;
+                }
+            }
+
+            observe(first);
+
+            if (second % TIME_TO_RETRY_SCROBBLES == 0) {
+                writeLane.add(manager::submitQueuedScrobbles);
+            }
+
+            runLanes();
+        }
+
+        lastFM.outage = false;
+        manager.submitQueuedScrobbles();
+
+        observe(null);
+        end();
+    }
+
+    private void runLanes() {
+        while (!writeLane.isEmpty() || !readLane.isEmpty()) {
+            Runnable task = writeLane.isEmpty() ? readLane.poll() : writeLane.poll();
+            task.run();
+        }
+    }
+
+    /**
+     * Updates the play that should be scrobbled with the song of the first playing player.
+     * <p>
+     * A window title does not tell a song that was paused apart from the same song started again, so a play of the
+     * song that was shown last continues it, unless the song was already played for its whole length and that length
+     * is known, in which case it is played again. For the same reason a song of known length that is shown for longer
+     * than its length is counted as played again from then on. A length that only Last.FM knows is unknown for this
+     * while the manager has no answer to the lookup of the song, which may take until the end of an outage. A play that
+     * becomes the first again after another play was shown starts anew, as the manager only sees the song of the first
+     * player.
+     * <p>
+     * A song seen in n seconds in a row counts as played for n - 1 seconds, the time between the first and the last
+     * time it was seen, which is all that can be measured by checking once a second. Of a gap in which the song was not
+     * seen only a second is counted, unless it is at most {@link #MAX_OBSERVATION_GAP}, which the manager cannot tell
+     * apart from a late process check.
+     *
+     * @param play The play of the first playing player, or null if no player is playing.
+     */
+    private void observe(Play play) {
+        if (play == null) {
+            return;
+        }
+
+        int now = clock.seconds();
+        int length = play.song.getKnownLength();
+        int lengthSoFar = play.song.reported ||
+                manager.isTrackLookupAnswered(play.song.artist, play.song.title) ? length : 0;
+        int gap = now - lastSeen;
+        int elapsed = gap <= MAX_OBSERVATION_GAP ? gap : 1;
+
+        if (current == null || play.song != current.song || lengthSoFar > 0 && played + elapsed >= lengthSoFar) {
+            end();
+
+            start = now;
+            played = 0;
+        } else {
+            played += elapsed;
+        }
+
+        current = play;
+        lastSeen = now;
+
+        if (played > MIN_SECONDS_TO_SCROBBLE && (length == 0 || played >= length / 2)) {
+            playedLongEnough = true;
+        }
+
+        listeningSeconds++;
+    }
+
+    /**
+     * Ends the current play and adds it to the expected scrobbles if it was played long enough.
+     */
+    private void end() {
+        if (current != null && playedLongEnough) {
+            expected.add(new Scrobble(current.song.artist, current.song.title, start));
+        }
+
+        current = null;
+        playedLongEnough = false;
+    }
+
+    /**
+     * Prints the requests per hour of listening and compares the scrobbles with the expected ones.
+     *
+     * @param millis The real time the simulation took.
+     * @return Returns true if every scrobble was correct.
+     */
+    private boolean report(long millis) {
+        double hours = listeningSeconds / 3600.0;
+
+        System.out.println(String.format("Simulated %.1f hours of listening in %dms.", hours, millis));
+        System.out.println("Requests per hour of listening:");
+        for (Map.Entry<String, Long> entry : lastFM.calls.entrySet()) {
+            System.out.println(String.format("  %-24s %8.1f", entry.getKey(), entry.getValue() / hours));
+        }
+
+        List<Scrobble> missed = new ArrayList<>(expected);
+        List<Scrobble> unexpected = new ArrayList<>(lastFM.scrobbles);
+        List<Scrobble> wrongTime = new ArrayList<>();
+
+        for (boolean exact : new boolean[]{true, false}) {
+            for (Iterator<Scrobble> iterator = unexpected.iterator(); iterator.hasNext(); ) {
+                Scrobble scrobble = iterator.next();
+
+                for (Iterator<Scrobble> candidates = missed.iterator(); candidates.hasNext(); ) {
+                    Scrobble candidate = candidates.next();
+
+                    if (candidate.isSameSong(scrobble) && (!exact || candidate.timeStamp == scrobble.timeStamp)) {
+                        candidates.remove();
+                        iterator.remove();
+
+                        if (!exact) {
+                            wrongTime.add(scrobble);
+                        }
+
+                        break;
+                    }
+                }
+            }
+        }
+
+        int correct = lastFM.scrobbles.size() - unexpected.size() - wrongTime.size();
+
+        System.out.println("Scrobbles: " + expected.size() + " expected, " + lastFM.scrobbles.size() + " sent, " +
+                correct + " correct.");
+        print("Missed", missed);
+        print("Unexpected", unexpected);
+        print("Sent with the wrong start time", wrongTime);
+
+        return missed.isEmpty() && unexpected.isEmpty() && wrongTime.isEmpty();
+    }
+
+    private static void print(String name, List<Scrobble> scrobbles) {
+        if (scrobbles.isEmpty()) {
+            return;
+        }
+
+        System.out.println(name + ": " + scrobbles.size());
+        for (Scrobble scrobble : scrobbles.subList(0, Math.min(MAX_WRONG_SCROBBLES_PRINTED, scrobbles.size()))) {
+            System.out.println("  " + scrobble.artist + " - " + scrobble.title + " at " + scrobble.timeStamp + "s");
+        }
+    }
+
+    /**
+     * A music player that keeps playing random songs of the library.
+     */
+    private class Player {
+        private final double stopChance;
+        private final int maxIdle;
+
+        private Play play;
+        private Song last;
+        private int planned;
+        private int paused = 0;
+        private int idle;
+
+        /**
+         * @param stopChance The chance of stopping for a while after every song.
+         * @param maxIdle    The longest time in seconds the player stays stopped.
+         * @param startDelay The time in seconds until the player starts playing.
+         */
+        private Player(double stopChance, int maxIdle, int startDelay) {
+            this.stopChance = stopChance;
+            this.maxIdle = maxIdle;
+            this.idle = startDelay;
+        }
+
+        /**
+         * Advances the player by a second.
+         *
+         * @return Returns the play whose song is shown this second, or null if the player is stopped or paused.
+         */
+        private Play tick() {
+            if (idle > 0) {
+                idle--;
+                return null;
+            }
+
+            if (play == null) {
+                next(last == null ? library.get(random.nextInt(library.size())) :
+                        repeats && random.nextInt(20) == 0 ? last : other(last));
+            }
+
+            if (paused > 0) {
+                paused--;
+                return null;
+            }
+
+            if (pauses && random.nextInt(900) == 0) {
+                paused = 5 + random.nextInt(600);
+            }
+
+            Play shown = play;
+
+            if (++play.position >= planned) {
+                last = play.song;
+
+                if (random.nextDouble() < stopChance) {
+                    play = null;
+                    idle = 1 + random.nextInt(maxIdle);
+                } else {
+                    next(repeats && random.nextInt(20) == 0 ? last : other(last));
+                }
+            }
+
+            return shown;
+        }
+
+        /**
+         * Picks a random song other than the given one, so that songs are only repeated on purpose.
+         */
+        private Song other(Song song) {
+            Song other = library.get(random.nextInt(library.size() - 1));
+
+            return other == song ? library.get(library.size() - 1) : other;
+        }
+
+        /**
+         * Starts a song that is played to the end, skipped early or skipped midway.
+         */
+        private void next(Song song) {
+            play = new Play(song);
+
+            int choice = random.nextInt(10);
+            planned = choice < 7 ? song.length : choice < 9 ? 1 + random.nextInt(MIN_SECONDS_TO_SCROBBLE) :
+                    MIN_SECONDS_TO_SCROBBLE + random.nextInt(Math.max(1, song.length - MIN_SECONDS_TO_SCROBBLE));
+        }
+    }
+
+    /**
+     * A single play of a song by a player. Repeating a song is a new play.
+     */
+    private static class Play {
+        private final Song song;
+
+        private int position = 0;
+
+        private Play(Song song) {
+            this.song = song;
+        }
+    }
+
+    private static class Song {
+        private final String artist;
+        private final String title;
+        private final int length;
+        private final boolean known;
+        private final boolean reported;
+
+        /**
+         * @param length   The length in seconds.
+         * @param known    Whether the simulated Last.FM knows the song and its length.
+         * @param reported Whether the player shows the length of the song, as some players only do for local files.
+         */
+        private Song(String artist, String title, int length, boolean known, boolean reported) {
+            this.artist = artist;
+            this.title = title;
+            this.length = length;
+            this.known = known;
+            this.reported = reported;
+        }
+
+        private int getReportedLength() {
+            return reported ? length : 0;
+        }
+
+        /**
+         * Returns the length of the song as known to the manager once Last.FM answered: the length shown by the
+         * player, or else the length known to Last.FM.
+         */
+        private int getKnownLength() {
+            return reported || known ? length : 0;
+        }
+    }
+
+    private static class Scrobble {
+        private final String artist;
+        private final String title;
+        private final int timeStamp;
+
+        private Scrobble(String artist, String title, int timeStamp) {
+            this.artist = artist;
+            this.title = title;
+            this.timeStamp = timeStamp;
+        }
+
+        private boolean isSameSong(Scrobble scrobble) {
+            return artist.equals(scrobble.artist) && title.equals(scrobble.title);
+        }
+    }
+
+    /**
+     * A Last.FM that knows the songs of the library marked as known, counts every request and records every scrobble.
+     * While {@link #outage} is set every request fails.
+     */
+    private class SimulatedLastFM implements LastFMPort {
+        private final Map<String, Long> calls = new TreeMap<>();
+        private final List<Scrobble> scrobbles = new ArrayList<>();
+
+        private boolean outage = false;
+
+        private void count(String method) {
+            calls.merge(method, 1L, Long::sum);
+        }
+
+        @Override
+        public LastFM.Track getTrackInformation(String artist, String title) throws IOException {
+            count("track.getInfo");
+
+            if (outage) {
+                throw new IOException("Simulated outage.");
+            }
+
+            for (Song song : library) {
+                if (song.known && song.artist.equals(artist) && song.title.equals(title)) {
+                    return new LastFM.Track(artist, title, (int) TimeUnit.SECONDS.toMillis(song.length), "Album",
+                            Collections.emptyList());
+                }
+            }
+
+            return null;
+        }
+
+        @Override
+        public boolean updateNowPlaying(String artist, String title) {
+            count("track.updateNowPlaying");
+
+            return !outage;
+        }
+
+        @Override
+        public boolean scrobble(String artist, String title, String album, int timeStamp) throws IOException {
+            count("track.scrobble");
+
+            if (outage) {
+                throw new IOException("Simulated outage");
+            }
+
+            scrobbles.add(new Scrobble(artist, title, timeStamp));
+
+            return true;
+        }
+
+        @Override
+        public boolean isScrobbleAvailable() {
+            return !outage;
+        }
+
+        @Override
+        public String getFormattedTrack() {
+            return null;
+        }
+    }
+
+    /**
+     * A clock that only moves when {@link #advance()} is called, starting at the Unix epoch.
+     */
+    private static class VirtualClock extends Clock {
+        private long millis = 0;
+
+        private void advance() {
+            millis += 1000;
+        }
+
+        private int seconds() {
+            return (int) (millis / 1000);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.sabihismail.DiscordLastFMScrobbler.listener;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link CharSequence} that stops a regex match once it has run for longer than its time budget.
+ * <p>
+ * {@link java.util.regex.Matcher} cannot be interrupted, but it reads the input through {@link #charAt(int)} at every
+ * step, including every step of backtracking. The clock is checked every {@link #CHECK_INTERVAL} reads and a
+ * {@link BudgetExceededException} is thrown once the budget is used up, which aborts the match. This keeps a
+ * pathological plugin regex from stalling the process check.
+ * <p>
+ * The amount of reads is also counted, which {@link RegexAnalyzer} uses as a measure of work that, unlike time, does
+ * not depend on the machine or on the JIT, and can be limited as well.
+ *
+ * @since 1.2
+ */
+public class BudgetedCharSequence implements CharSequence {
+    /**
+     * Amount of {@link #charAt(int)} calls between two checks of the clock.
+     */
+    private static final int CHECK_INTERVAL = 1024;
+
+    private final String text;
+    private final long budget;
+    private final long deadline;
+    private final long maxReads;
+
+    private long reads = 0;
+
+    /**
+     * Starts the budget.
+     *
+     * @param text   The text to match.
+     * @param budget The time in milliseconds a single match may take.
+     */
+    public BudgetedCharSequence(String text, long budget) {
+        this(text, budget, Long.MAX_VALUE);
+    }
+
+    /**
+     * Starts the budget with an additional limit on the amount of reads.
+     *
+     * @param text     The text to match.
+     * @param budget   The time in milliseconds a single match may take.
+     * @param maxReads The amount of {@link #charAt(int)} calls a single match may make.
+     */
+    public BudgetedCharSequence(String text, long budget, long maxReads) {
+        this.text = text;
+        this.budget = budget;
+        this.deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(budget);
+        this.maxReads = maxReads;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (++reads % CHECK_INTERVAL == 0) {
+            if (System.nanoTime() - deadline > 0) {
+                throw new BudgetExceededException("Regex match exceeded its budget of " + budget + "ms on a text " +
+                        "of " + text.length() + " characters.");
+            }
+
+            if (reads > maxReads) {
+                throw new BudgetExceededException("Regex match exceeded " + maxReads + " reads on a text of " +
+                        text.length() + " characters.");
+            }
+        }
+
+        return text.charAt(index);
+    }
+
+    /**
+     * Returns the amount of {@link #charAt(int)} calls so far.
+     *
+     * @return Returns the amount of reads.
+     */
+    public long getReads() {
+        return reads;
+    }
+
+    @Override
+    public int length() {
+        return text.length();
+    }
+
+    /**
+     * Only used to read matched groups after the match, so the sub sequence is not budgeted.
+     */
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return text.subSequence(start, end);
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+
+    /**
+     * Thrown from {@link #charAt(int)} to abort a match that used up its budget.
+     */
+    public static class BudgetExceededException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        public BudgetExceededException(String message) {
+            super(message);
+        }
+    }
+}
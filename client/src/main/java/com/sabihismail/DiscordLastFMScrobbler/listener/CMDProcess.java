@@ -22,6 +22,18 @@ public class CMDProcess {
         windowTitle = split[split.length - 1].substring(1, split[split.length - 1].length() - 1);
     }
 
+    /**
+     * Stores a process that was found without the 'tasklist' command, see {@link X11ProcessList}.
+     *
+     * @param processName The name of the process.
+     * @param windowTitle The title of the process's window.
+     * @since 1.2
+     */
+    public CMDProcess(String processName, String windowTitle) {
+        this.processName = processName;
+        this.windowTitle = windowTitle;
+    }
+
     public String getProcessName() {
         return processName;
     }
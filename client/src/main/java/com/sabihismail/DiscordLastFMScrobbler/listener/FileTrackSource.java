@@ -0,0 +1,179 @@
+package com.sabihismail.DiscordLastFMScrobbler.listener;
+
+import com.sabihismail.DiscordLastFMScrobbler.tools.Logging;
+import com.sabihismail.DiscordLastFMScrobbler.tools.Metrics;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Arrays;
+
+/**
+ * A {@link TrackSource} that follows a file written by a music application, either a status file that is rewritten
+ * with the current song or a log that gets one event line appended per change.
+ * <p>
+ * The folder of the file is watched with a {@link WatchService}, so the file is only read when it changed. If the file
+ * grew and still starts the same way, only the appended lines are read; otherwise it was rewritten and is read from the
+ * start. Only the last line read is delivered, as it supersedes the lines before it. Deleting the file counts as
+ * stopped.
+ * <p>
+ * The time from the change of the file to the delivery of the event is recorded in the metric
+ * 'track_source_file_latency_millis'.
+ *
+ * @since 1.2
+ */
+public class FileTrackSource implements TrackSource {
+    /**
+     * Amount of bytes at the start of the file that are compared to find out whether the file was rewritten.
+     */
+    private static final int HEAD_SIZE = 64;
+
+    /**
+     * Most bytes read at once. If more were appended since the last read, only the end of the file is read.
+     */
+    private static final int MAX_READ = 64 * 1024;
+
+    private final Path file;
+
+    private WatchService watchService;
+    private long offset = 0;
+    private byte[] head = new byte[0];
+
+    /**
+     * @param file The file to follow, which does not have to exist yet.
+     */
+    public FileTrackSource(Path file) {
+        this.file = file.toAbsolutePath().normalize();
+    }
+
+    @Override
+    public String getName() {
+        return "file '" + file + "'";
+    }
+
+    @Override
+    public void start(Sink sink) throws IOException {
+        watchService = FileSystems.getDefault().newWatchService();
+        file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+
+        Thread thread = new Thread(() -> watch(sink), "dlfs-track-source-file");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Reads the file once and then every time it changed until {@link #close()} is called.
+     *
+     * @param sink The sink to pass the events to.
+     */
+    private void watch(Sink sink) {
+        read(sink);
+
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    changed |= event.kind() == StandardWatchEventKinds.OVERFLOW ||
+                            file.getFileName().equals(event.context());
+                }
+
+                key.reset();
+
+                if (changed) {
+                    read(sink);
+                }
+            }
+        } catch (ClosedWatchServiceException | InterruptedException ignored) {
+            // closed
+        }
+    }
+
+    /**
+     * Reads what changed since the last read and delivers the last complete line.
+     *
+     * @param sink The sink to pass the event to.
+     */
+    private void read(Sink sink) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long changed = Files.getLastModifiedTime(file).toMillis();
+            long size = channel.size();
+
+            if (size < offset || !Arrays.equals(head, readBytes(channel, 0, Math.min(head.length, size)))) {
+                offset = 0;
+            }
+
+            boolean rewritten = offset == 0;
+            head = readBytes(channel, 0, Math.min(HEAD_SIZE, size));
+
+            long start = Math.max(offset, size - MAX_READ);
+            String text = new String(readBytes(channel, start, size - start), StandardCharsets.UTF_8);
+
+            int end = rewritten ? text.length() : text.lastIndexOf('\n') + 1;
+            offset = start + text.substring(0, end).getBytes(StandardCharsets.UTF_8).length;
+
+            String line = lastLine(text.substring(0, end));
+            if (line != null) {
+                TrackSource.deliver(line, this, sink);
+
+                long latency = Math.max(0, System.currentTimeMillis() - changed);
+                Metrics.gauge("track_source_file_latency_millis", () -> latency);
+            }
+        } catch (NoSuchFileException e) {
+            offset = 0;
+            head = new byte[0];
+
+            sink.stopped(this);
+        } catch (IOException e) {
+            Logging.logError(new String[]{file.toString()}, e);
+        }
+    }
+
+    private static byte[] readBytes(FileChannel channel, long position, long length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) length);
+
+        while (buffer.hasRemaining() && channel.read(buffer, position + buffer.position()) != -1) {
+            // read until full or the end of the file
+        }
+
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    private static String lastLine(String text) {
+        String[] lines = text.split("\r?\n");
+
+        for (int i = lines.length - 1; i >= 0; i--) {
+            if (!lines[i].trim().isEmpty()) {
+                return lines[i];
+            }
+        }
+
+        return null;
+    }
+
+    @Override
+    public void close() {
+        if (watchService == null) {
+            return;
+        }
+
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            Logging.logError(new String[]{file.toString()}, e);
+        }
+    }
+}
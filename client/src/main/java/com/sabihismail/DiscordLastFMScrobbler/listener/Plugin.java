@@ -1,18 +1,19 @@
 package com.sabihismail.DiscordLastFMScrobbler.listener;
 
+import com.sabihismail.DiscordLastFMScrobbler.connection.Bot;
 import com.sabihismail.DiscordLastFMScrobbler.tools.Constants;
-import com.sabihismail.DiscordLastFMScrobbler.tools.GUITools;
 import com.sabihismail.DiscordLastFMScrobbler.tools.Tools;
-import javafx.beans.property.*;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import javax.swing.*;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
-import java.util.List;
+import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 /**
  * A {@link Plugin} is created to allow for the capturing of the artist and title from any active process's window
@@ -25,22 +26,30 @@ import java.util.List;
  * {@link CMDProcess#windowTitle}, and the regex group, {@link #titleGroup}, that corresponds to the regex group which
  * will capture the title from {@link CMDProcess#windowTitle}.
  * <p>
+ * Instead of a regex, a plugin can also wrap a compiled {@link TrackExtractor} loaded from a jar, in which case
+ * {@link #regex} is empty and both groups are 0. Either way, the song is read through
+ * {@link #extract(CharSequence, TrackExtractor.Track)}.
+ * <p>
  * This class also contains whether the process is currently active, {@link #active}, the latest processed title,
- * {@link #title}, and the latest processed artist, {@link #artist}.
+ * {@link #title}, and the latest processed artist, {@link #artist}. These are written by the process check of
+ * {@link PluginManager} and read by {@link PluginEditor}, so they are plain volatile fields rather than JavaFX
+ * properties which would tie the headless program to JavaFX.
  *
  * @since 1.0
  */
 public class Plugin {
     private File pluginFile;
 
-    private StringProperty processName = new SimpleStringProperty();
-    private StringProperty regex = new SimpleStringProperty();
-    private IntegerProperty artistGroup = new SimpleIntegerProperty();
-    private IntegerProperty titleGroup = new SimpleIntegerProperty();
+    private final String processName;
+    private final String regex;
+    private final int artistGroup;
+    private final int titleGroup;
+    private final Pattern pattern;
+    private final TrackExtractor extractor;
 
-    private BooleanProperty active = new SimpleBooleanProperty(false);
-    private StringProperty title = new SimpleStringProperty();
-    private StringProperty artist = new SimpleStringProperty();
+    private volatile boolean active = false;
+    private volatile String title = "";
+    private volatile String artist = "";
 
     /**
      * Reads a plugin file and processes the information.
@@ -48,73 +57,180 @@ public class Plugin {
      * @param pluginFile The file that is going to be read.
      * @throws IOException   Throws any exceptions caught when reading from the file.
      * @throws JSONException Throws any exceptions caught when parsing the JSON stored in that file.
+     * @throws PatternSyntaxException Thrown if the regex stored in that file is invalid.
      */
-    public Plugin(File pluginFile) throws IOException, JSONException {
-        this.pluginFile = pluginFile;
+    public Plugin(File pluginFile) throws IOException, JSONException, PatternSyntaxException {
+        this(pluginFile, new JSONObject(String.join("", Files.readAllLines(Paths.get(pluginFile.getAbsolutePath())))));
+    }
 
-        List<String> lines = Files.readAllLines(Paths.get(pluginFile.getAbsolutePath()));
+    /**
+     * Processes the information of a plugin that was already read, for example from a {@link PluginBundle}.
+     *
+     * @param pluginFile The file the plugin was read from.
+     * @param obj        The plugin in the same format as a plugin file, see {@link #toJSON()}.
+     * @throws JSONException          Thrown if a value is missing from the {@link JSONObject}.
+     * @throws PatternSyntaxException Thrown if the regex is invalid.
+     * @since 1.2
+     */
+    Plugin(File pluginFile, JSONObject obj) throws JSONException, PatternSyntaxException {
+        this.pluginFile = pluginFile;
 
-        JSONObject obj = new JSONObject(String.join("", lines));
         JSONObject regexObj = obj.getJSONObject("regex");
 
-        processName.set(obj.getString("process"));
-        regex.set(regexObj.getString("pattern"));
-        artistGroup.set(regexObj.getInt("artistGroup"));
-        titleGroup.set(regexObj.getInt("titleGroup"));
+        processName = obj.getString("process");
+        regex = regexObj.getString("pattern");
+        artistGroup = regexObj.getInt("artistGroup");
+        titleGroup = regexObj.getInt("titleGroup");
+
+        pattern = Pattern.compile(regex);
+        extractor = null;
     }
 
-    public void setActive(boolean active) {
-        this.active.set(active);
+    /**
+     * Wraps a {@link TrackExtractor}.
+     *
+     * @param jarFile   The jar the extractor was loaded from.
+     * @param extractor The extractor.
+     * @since 1.2
+     */
+    Plugin(File jarFile, TrackExtractor extractor) {
+        this.pluginFile = jarFile;
+        this.extractor = extractor;
+
+        processName = Objects.requireNonNull(extractor.getProcessName(), "process name");
+        regex = "";
+        artistGroup = 0;
+        titleGroup = 0;
+        pattern = null;
     }
 
-    public boolean isActive() {
-        return active.get();
+    /**
+     * Reads the song from a window title of {@link #processName}, either with {@link #regex} or with the wrapped
+     * {@link TrackExtractor}.
+     *
+     * @param windowTitle The window title.
+     * @param track       The track to fill in if a song was found.
+     * @return Returns true if a song was found.
+     * @since 1.2
+     */
+    public boolean extract(CharSequence windowTitle, TrackExtractor.Track track) {
+        if (extractor != null) {
+            return extractor.extract(processName, windowTitle, track);
+        }
+
+        Matcher matcher = pattern.matcher(windowTitle);
+        if (!matcher.find()) {
+            return false;
+        }
+
+        track.set(matcher.group(artistGroup), matcher.group(titleGroup), 0);
+
+        return true;
     }
 
-    public BooleanProperty activeProperty() {
+    public void setActive(boolean active) {
+        this.active = active;
+    }
+
+    public boolean isActive() {
         return active;
     }
 
     public int getTitleGroup() {
-        return titleGroup.get();
+        return titleGroup;
     }
 
-    public StringProperty titleProperty() {
+    public String getTitle() {
         return title;
     }
 
     public void setTitle(String title) {
-        this.title.set(title);
+        this.title = title;
     }
 
     public void setArtist(String artist) {
-        this.artist.set(artist);
+        this.artist = artist;
     }
 
-    public StringProperty artistProperty() {
+    public String getArtist() {
         return artist;
     }
 
     public int getArtistGroup() {
-        return artistGroup.get();
+        return artistGroup;
     }
 
     public String getProcessName() {
-        return processName.get();
-    }
-
-    public StringProperty processNameProperty() {
         return processName;
     }
 
     public String getRegex() {
-        return regex.get();
+        return regex;
+    }
+
+    /**
+     * Returns the {@link #regex} compiled once when the plugin file was read.
+     *
+     * @return Returns the compiled regex, or null if the plugin wraps a {@link TrackExtractor}.
+     */
+    public Pattern getPattern() {
+        return pattern;
+    }
+
+    /**
+     * Checks whether another plugin matches the same process in the same way, ignoring the current song.
+     *
+     * @param other The other plugin.
+     * @return Returns true if the process name, the regex, both regex groups and the extractor are equal.
+     */
+    public boolean hasSameDefinition(Plugin other) {
+        return processName.equals(other.processName) && regex.equals(other.regex) &&
+                artistGroup == other.artistGroup && titleGroup == other.titleGroup && extractor == other.extractor;
     }
 
     public File getPluginFile() {
         return pluginFile;
     }
 
+    /**
+     * Checks whether the plugin was read from a {@link PluginBundle} rather than its own plugin file.
+     *
+     * @return Returns true if {@link #pluginFile} is a bundle.
+     * @since 1.2
+     */
+    public boolean isBundled() {
+        return pluginFile.getName().endsWith(Constants.BUNDLE_EXTENSION);
+    }
+
+    /**
+     * Checks whether the plugin wraps a {@link TrackExtractor} rather than a regex.
+     *
+     * @return Returns true if {@link #pluginFile} is the jar of an extractor.
+     * @since 1.2
+     */
+    public boolean isCompiled() {
+        return extractor != null;
+    }
+
+    /**
+     * Returns the plugin in the format it is stored in a plugin file. Only regex plugins have this format.
+     *
+     * @return Returns the process name and the regex with both of its groups.
+     * @since 1.2
+     */
+    public JSONObject toJSON() {
+        JSONObject regexObj = new JSONObject();
+        regexObj.put("pattern", regex);
+        regexObj.put("artistGroup", artistGroup);
+        regexObj.put("titleGroup", titleGroup);
+
+        JSONObject fullObj = new JSONObject();
+        fullObj.put("process", processName);
+        fullObj.put("regex", regexObj);
+
+        return fullObj;
+    }
+
     /**
      * Creates a {@link Plugin} for the specified process.
      * <p>
@@ -142,10 +258,10 @@ public class Plugin {
         File pluginFile = new File(Constants.PLUGIN_DIR + Tools.escapeFile(processName) + Constants.FILE_EXTENSION);
 
         if (pluginFile.exists()) {
-            int overwrite = GUITools.showOnTopConfirmDialog("A plugin was already found for " + processName + ". " +
+            boolean overwrite = Bot.PROMPT.showConfirm("A plugin was already found for " + processName + ". " +
                     "Would you like to overwrite it?", "Overwrite " + pluginFile.getName() + "?");
 
-            if (overwrite == JOptionPane.YES_OPTION) {
+            if (overwrite) {
                 pluginFile.delete();
             }
         }
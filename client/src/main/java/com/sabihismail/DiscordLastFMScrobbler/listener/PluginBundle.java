@@ -0,0 +1,291 @@
+package com.sabihismail.DiscordLastFMScrobbler.listener;
+
+import com.sabihismail.DiscordLastFMScrobbler.tools.Constants;
+import com.sabihismail.DiscordLastFMScrobbler.tools.Logging;
+import com.sabihismail.DiscordLastFMScrobbler.tools.Metrics;
+import com.sabihismail.DiscordLastFMScrobbler.tools.Tools;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Many {@link Plugin}s packed into one file so that hundreds of plugins can be installed without reading hundreds of
+ * plugin files on startup.
+ * <p>
+ * The file starts with a header followed by a table with one entry per plugin, sorted by the
+ * {@link String#hashCode()} of the process name, and the plugins themselves in the same JSON format as a plugin file:
+ * <pre>
+ * 'DLFB' | version (int) | count (int) | count * (hash (int) | offset (int) | length (int)) | plugins (UTF-8 JSON)
+ * </pre>
+ * The file is memory mapped when it is opened and only the header and table are checked. A plugin is decoded the first
+ * time {@link #get(String)} is asked for its process, which in {@link PluginManager} only happens once that process is
+ * running, and is kept afterwards. Looking up a process that is not in the bundle only costs a binary search of the
+ * table. The amount of decoded plugins is counted in the metric 'plugin_bundle_decodes_total'.
+ * <p>
+ * The mapping stays open until the bundle is garbage collected, and Windows does not allow a mapped file to be
+ * replaced, so an updated bundle should be installed under a new name or while the program is closed.
+ * <p>
+ * Bundles are created from and converted back to plugin files with {@link #pack(List, Path)} and
+ * {@link #unpack(Path, Path)}, which {@link PluginBundleTool} runs from the command line.
+ *
+ * @since 1.2
+ */
+public class PluginBundle {
+    private static final int MAGIC = 0x444C4642;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 12;
+    private static final int ENTRY_SIZE = 12;
+
+    private final File file;
+    private final ByteBuffer buffer;
+    private final int count;
+
+    private final Map<String, Optional<Plugin>> decoded = new ConcurrentHashMap<>();
+
+    /**
+     * Maps a bundle and checks its header and table.
+     *
+     * @param file The bundle file.
+     * @throws IOException Thrown if the file cannot be read or is not a valid bundle.
+     */
+    public PluginBundle(Path file) throws IOException {
+        this.file = file.toFile();
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE || channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Invalid bundle size " + channel.size() + ".");
+            }
+
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Not a version " + VERSION + " plugin bundle.");
+        }
+
+        count = buffer.getInt(8);
+        if (count < 0 || HEADER_SIZE + (long) count * ENTRY_SIZE > buffer.limit()) {
+            throw new IOException("Invalid plugin count " + count + ".");
+        }
+
+        for (int i = 0; i < count; i++) {
+            int offset = offset(i);
+            int length = length(i);
+
+            if (offset < HEADER_SIZE + count * ENTRY_SIZE || length < 0 || (long) offset + length > buffer.limit()) {
+                throw new IOException("Invalid table entry " + i + ".");
+            }
+
+            if (i > 0 && hash(i - 1) > hash(i)) {
+                throw new IOException("Table is not sorted at entry " + i + ".");
+            }
+        }
+    }
+
+    /**
+     * Returns the plugin for a process, decoding it the first time it is asked for.
+     *
+     * @param processName The name of the process.
+     * @return Returns the plugin or null if the bundle has no valid plugin for the process.
+     */
+    public Plugin get(String processName) {
+        Optional<Plugin> plugin = decoded.get(processName);
+        if (plugin != null) {
+            return plugin.orElse(null);
+        }
+
+        int hash = processName.hashCode();
+        int index = find(hash);
+        if (index == -1) {
+            return null;
+        }
+
+        plugin = Optional.empty();
+        for (int i = index; i < count && hash(i) == hash; i++) {
+            Plugin candidate = decode(i);
+
+            if (candidate != null && candidate.getProcessName().equals(processName)) {
+                plugin = Optional.of(candidate);
+                break;
+            }
+        }
+
+        decoded.put(processName, plugin);
+
+        return plugin.orElse(null);
+    }
+
+    /**
+     * Decodes every plugin in the bundle.
+     *
+     * @return Returns all valid plugins in the order of the table.
+     */
+    public List<Plugin> getAll() {
+        List<Plugin> plugins = new ArrayList<>();
+
+        for (int i = 0; i < count; i++) {
+            Plugin plugin = decode(i);
+
+            if (plugin != null) {
+                plugins.add(plugin);
+            }
+        }
+
+        return plugins;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Returns the amount of plugins in the bundle without decoding any of them.
+     *
+     * @return Returns the amount of table entries.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Finds the first table entry with a hash by binary search.
+     *
+     * @param hash The {@link String#hashCode()} of a process name.
+     * @return Returns the index of the first entry with the hash or -1 if there is none.
+     */
+    private int find(int hash) {
+        int low = 0;
+        int high = count;
+
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+
+            if (hash(middle) < hash) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        return low < count && hash(low) == hash ? low : -1;
+    }
+
+    /**
+     * Decodes a single plugin.
+     *
+     * @param index The index of the table entry.
+     * @return Returns the plugin or null if it is invalid.
+     */
+    private Plugin decode(int index) {
+        ByteBuffer slice = buffer.duplicate();
+        slice.position(offset(index));
+        slice.limit(offset(index) + length(index));
+
+        Metrics.counter("plugin_bundle_decodes_total").increment();
+
+        try {
+            return new Plugin(file, new JSONObject(StandardCharsets.UTF_8.decode(slice).toString()));
+        } catch (JSONException | PatternSyntaxException e) {
+            Logging.logError(new String[]{file.getAbsolutePath(), Integer.toString(index)}, e);
+
+            return null;
+        }
+    }
+
+    private int hash(int index) {
+        return buffer.getInt(HEADER_SIZE + index * ENTRY_SIZE);
+    }
+
+    private int offset(int index) {
+        return buffer.getInt(HEADER_SIZE + index * ENTRY_SIZE + 4);
+    }
+
+    private int length(int index) {
+        return buffer.getInt(HEADER_SIZE + index * ENTRY_SIZE + 8);
+    }
+
+    /**
+     * Writes plugins into a new bundle. If more than one plugin is given for a process, only the first one is kept.
+     *
+     * @param plugins The plugins to pack.
+     * @param bundle  The bundle file to write, which is replaced if it exists.
+     * @return Returns the amount of plugins written.
+     * @throws IOException Thrown if the bundle cannot be written.
+     */
+    public static int pack(List<Plugin> plugins, Path bundle) throws IOException {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        for (Plugin plugin : plugins) {
+            if (entries.putIfAbsent(plugin.getProcessName(),
+                    plugin.toJSON().toString().getBytes(StandardCharsets.UTF_8)) != null) {
+                Logging.log("Skipped duplicate plugin for '" + plugin.getProcessName() + "' from '" +
+                        plugin.getPluginFile().getAbsolutePath() + "'.");
+            }
+        }
+
+        List<Map.Entry<String, byte[]>> sorted = new ArrayList<>(entries.entrySet());
+        sorted.sort(Comparator.comparingInt(entry -> entry.getKey().hashCode()));
+
+        ByteBuffer table = ByteBuffer.allocate(HEADER_SIZE + sorted.size() * ENTRY_SIZE);
+        table.putInt(MAGIC).putInt(VERSION).putInt(sorted.size());
+
+        int offset = table.capacity();
+        for (Map.Entry<String, byte[]> entry : sorted) {
+            table.putInt(entry.getKey().hashCode()).putInt(offset).putInt(entry.getValue().length);
+            offset += entry.getValue().length;
+        }
+
+        try (OutputStream out = Files.newOutputStream(bundle)) {
+            out.write(table.array());
+
+            for (Map.Entry<String, byte[]> entry : sorted) {
+                out.write(entry.getValue());
+            }
+        }
+
+        return sorted.size();
+    }
+
+    /**
+     * Writes every plugin of a bundle to its own plugin file. Existing plugin files are not replaced.
+     *
+     * @param bundle    The bundle to convert.
+     * @param directory The folder to write the plugin files to.
+     * @return Returns the amount of plugin files written.
+     * @throws IOException Thrown if the bundle cannot be read or a plugin file cannot be written.
+     */
+    public static int unpack(Path bundle, Path directory) throws IOException {
+        Files.createDirectories(directory);
+
+        int written = 0;
+        for (Plugin plugin : new PluginBundle(bundle).getAll()) {
+            Path pluginFile = directory.resolve(Tools.escapeFile(plugin.getProcessName()) + Constants.FILE_EXTENSION);
+
+            if (Files.exists(pluginFile)) {
+                Logging.log("Skipped '" + pluginFile + "' as it already exists.");
+                continue;
+            }
+
+            Files.write(pluginFile, plugin.toJSON().toString(6).getBytes(StandardCharsets.UTF_8));
+            written++;
+        }
+
+        return written;
+    }
+}
@@ -0,0 +1,86 @@
+package com.sabihismail.DiscordLastFMScrobbler.listener;
+
+import com.sabihismail.DiscordLastFMScrobbler.tools.Constants;
+import org.json.JSONException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Converts plugin files to a {@link PluginBundle} and back from the command line, for example to ship the community
+ * plugins as one file.
+ *
+ * @since 1.2
+ */
+public class PluginBundleTool {
+    private static final String USAGE = "Usage: java -cp <jar> " + PluginBundleTool.class.getName() + " <command>\n" +
+            "  pack <bundle" + Constants.BUNDLE_EXTENSION + "> <file" + Constants.FILE_EXTENSION + "|folder>...\n" +
+            "      Packs plugin files, or every plugin file in a folder, into a bundle.\n" +
+            "  unpack <bundle" + Constants.BUNDLE_EXTENSION + "> <folder>\n" +
+            "      Writes every plugin of a bundle to its own plugin file in the folder.";
+
+    /**
+     * Runs the command given in {@link #USAGE}.
+     *
+     * @param args The command and its arguments.
+     */
+    public static void main(String[] args) {
+        try {
+            if (args.length >= 3 && args[0].equals("pack")) {
+                List<Plugin> plugins = readPlugins(Arrays.asList(args).subList(2, args.length));
+                int packed = PluginBundle.pack(plugins, Paths.get(args[1]));
+
+                System.out.println("Packed " + packed + " plugins into '" + args[1] + "'.");
+            } else if (args.length == 3 && args[0].equals("unpack")) {
+                int unpacked = PluginBundle.unpack(Paths.get(args[1]), Paths.get(args[2]));
+
+                System.out.println("Unpacked " + unpacked + " plugins into '" + args[2] + "'.");
+            } else {
+                System.err.println(USAGE);
+                System.exit(1);
+            }
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Reads plugin files, expanding folders to the plugin files they contain.
+     *
+     * @param arguments Plugin files and folders.
+     * @return Returns every plugin that could be read.
+     * @throws IOException Thrown if a plugin file is invalid.
+     */
+    private static List<Plugin> readPlugins(List<String> arguments) throws IOException {
+        List<File> files = new ArrayList<>();
+        for (String argument : arguments) {
+            File file = new File(argument);
+
+            File[] children = file.listFiles((dir, name) -> name.endsWith(Constants.FILE_EXTENSION));
+            if (children != null) {
+                Arrays.sort(children);
+                files.addAll(Arrays.asList(children));
+            } else {
+                files.add(file);
+            }
+        }
+
+        List<Plugin> plugins = new ArrayList<>();
+        for (File file : files) {
+            try {
+                plugins.add(new Plugin(file));
+            } catch (JSONException | PatternSyntaxException e) {
+                throw new IOException("'" + file + "' is not a valid plugin file: " + e.getMessage(), e);
+            }
+        }
+
+        return plugins;
+    }
+}
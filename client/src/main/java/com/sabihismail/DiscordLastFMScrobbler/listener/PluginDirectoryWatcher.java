@@ -0,0 +1,133 @@
+package com.sabihismail.DiscordLastFMScrobbler.listener;
+
+import com.sabihismail.DiscordLastFMScrobbler.tools.Constants;
+import com.sabihismail.DiscordLastFMScrobbler.tools.Logging;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Watches the plugin folder, {@link Constants#PLUGIN_DIR}, with a {@link WatchService} and reports every plugin file,
+ * {@link PluginBundle} or jar of {@link TrackExtractor}s that was created, modified or deleted.
+ * <p>
+ * Saving a file usually produces several events in a row, so events are collected until none arrived for
+ * {@link #SETTLE_TIME} and every changed file is then reported once. If the operating system dropped events the whole
+ * folder is reported as changed instead.
+ * <p>
+ * The watcher runs on its own daemon thread as waiting for events blocks.
+ *
+ * @since 1.2
+ */
+class PluginDirectoryWatcher implements Closeable {
+    /**
+     * Time in milliseconds without new events after which the collected events are reported.
+     */
+    private static final int SETTLE_TIME = 50;
+
+    private final Path directory;
+    private final WatchService watchService;
+    private final Consumer<Path> onChanged;
+    private final Runnable onOverflow;
+
+    /**
+     * Starts watching the folder.
+     *
+     * @param directory  The plugin folder.
+     * @param onChanged  Called with the absolute path of every plugin file that was created, modified or deleted.
+     * @param onOverflow Called if events were lost and the whole folder has to be read again.
+     * @throws IOException Thrown if the folder cannot be watched.
+     */
+    PluginDirectoryWatcher(Path directory, Consumer<Path> onChanged, Runnable onOverflow) throws IOException {
+        this.directory = directory.toAbsolutePath().normalize();
+        this.onChanged = onChanged;
+        this.onOverflow = onOverflow;
+
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+
+        Thread thread = new Thread(this::watch, "dlfs-plugin-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Waits for events until {@link #close()} is called.
+     */
+    private void watch() {
+        try {
+            while (true) {
+                Set<Path> changed = new LinkedHashSet<>();
+
+                boolean overflow = collect(watchService.take(), changed);
+
+                WatchKey key;
+                while ((key = watchService.poll(SETTLE_TIME, TimeUnit.MILLISECONDS)) != null) {
+                    overflow |= collect(key, changed);
+                }
+
+                try {
+                    if (overflow) {
+                        onOverflow.run();
+                    } else {
+                        changed.forEach(onChanged);
+                    }
+                } catch (RuntimeException e) {
+                    Logging.logError(new String[]{directory.toString(), changed.toString()}, e);
+                }
+            }
+        } catch (ClosedWatchServiceException | InterruptedException ignored) {
+            // closed
+        }
+    }
+
+    /**
+     * Adds the plugin files of all events of a key and resets the key.
+     *
+     * @param key     The key with pending events.
+     * @param changed The set of changed plugin files.
+     * @return Returns true if events were lost.
+     */
+    private boolean collect(WatchKey key, Set<Path> changed) {
+        boolean overflow = false;
+
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                overflow = true;
+                continue;
+            }
+
+            Path file = directory.resolve((Path) event.context());
+            if (PluginManager.isPluginFile(file.getFileName().toString())) {
+                changed.add(file);
+            }
+        }
+
+        key.reset();
+
+        return overflow;
+    }
+
+    /**
+     * Stops watching the folder.
+     */
+    @Override
+    public void close() {
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            Logging.logError(new String[]{directory.toString()}, e);
+        }
+    }
+}
@@ -0,0 +1,506 @@
+package com.sabihismail.DiscordLastFMScrobbler.listener;
+
+import com.sabihismail.DiscordLastFMScrobbler.connection.Bot;
+import com.sabihismail.DiscordLastFMScrobbler.tools.Constants;
+import com.sabihismail.DiscordLastFMScrobbler.tools.Logging;
+import com.sabihismail.DiscordLastFMScrobbler.tools.Tools;
+import org.json.JSONException;
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.beans.property.ReadOnlyBooleanWrapper;
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.collections.FXCollections;
+import javafx.geometry.Pos;
+import javafx.scene.Scene;
+import javafx.scene.control.*;
+import javafx.scene.control.cell.CheckBoxTableCell;
+import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+import javafx.stage.FileChooser;
+import javafx.stage.Modality;
+import javafx.stage.Stage;
+import javafx.util.Duration;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * The JavaFX GUI of the {@link PluginManager} which allows for the addition/removal/editing/installing of plugins saved
+ * as an instance of {@link Plugin}.
+ * <p>
+ * Only the JavaFX program creates this class, which keeps JavaFX out of the headless program.
+ *
+ * @since 1.2
+ */
+public class PluginEditor {
+    /**
+     * Time in seconds between redraws of the enabled plugins table.
+     */
+    private static final int TIME_REFRESH_TABLE = 1;
+
+    private final PluginManager pluginManager;
+
+    private TableView<Plugin> tblEnabledPlugins;
+    private TableView<Plugin> tblDisabledPlugins;
+
+    /**
+     * @param pluginManager The {@link PluginManager} whose plugins are edited.
+     */
+    public PluginEditor(PluginManager pluginManager) {
+        this.pluginManager = pluginManager;
+    }
+
+    /**
+     * Creates a {@link Stage} which displays information about the current active and inactive plugins installed.
+     * <p>
+     * This {@link Stage} allows for the addition of custom new plugins through regex, the editing of an existing
+     * plugin also through regex, or the installation of a specific plugin with no regex.
+     * <p>
+     * Plugins can also be removed, disabled, and enabled from this menu.
+     */
+    public void viewAndEditPlugins() {
+        Stage stage = new Stage();
+        stage.setTitle("Plugin Setup");
+        stage.initModality(Modality.APPLICATION_MODAL);
+
+        createEnabledTable();
+        createDisabledTable();
+
+        // the process check updates the plugins on its own thread, so the table is redrawn while it is shown
+        Timeline refresh = new Timeline(new KeyFrame(Duration.seconds(TIME_REFRESH_TABLE),
+                e -> tblEnabledPlugins.refresh()));
+        refresh.setCycleCount(Animation.INDEFINITE);
+        refresh.play();
+        stage.setOnHidden(e -> refresh.stop());
+
+        Button btnExit = new Button("Exit");
+        btnExit.setOnAction(e -> stage.close());
+
+        Button btnAdd = new Button("Add");
+        btnAdd.setOnAction(e -> {
+            ButtonType btnInstallPlugin = new ButtonType("Install Plugin");
+            ButtonType btnCreatePlugin = new ButtonType("Create Plugin");
+            Alert alertAddType = new Alert(Alert.AlertType.CONFIRMATION,
+                    "Would you like to install a plugin or create your own?",
+                    btnInstallPlugin, btnCreatePlugin);
+
+            Optional<ButtonType> addSelection = alertAddType.showAndWait();
+            if (addSelection.isPresent()) {
+                ButtonType selected = addSelection.get();
+
+                if (selected == btnInstallPlugin) {
+                    showPluginInstaller(stage);
+                } else {
+                    showPluginCreator(null);
+                }
+            }
+        });
+
+        Button btnEdit = new Button("Edit");
+        btnEdit.setOnAction(e -> {
+            Plugin selectedPlugin = tblEnabledPlugins.getSelectionModel().getSelectedItem();
+
+            if (selectedPlugin != null) {
+                if (selectedPlugin.isActive()) {
+                    showPluginCreator(tblEnabledPlugins.getSelectionModel().getSelectedItem());
+                } else {
+                    Bot.PROMPT.showMessage("The process \"" + selectedPlugin.getProcessName() + "\" is not " +
+                            "currently on!");
+                }
+            }
+        });
+
+        Button btnRemove = new Button("Remove");
+        btnRemove.setOnAction(e -> {
+            Alert alert = new Alert(Alert.AlertType.CONFIRMATION);
+
+            Plugin selectedPlugin = tblEnabledPlugins.getSelectionModel().getSelectedItem();
+            if (selectedPlugin == null) {
+                selectedPlugin = tblDisabledPlugins.getSelectionModel().getSelectedItem();
+
+                if (selectedPlugin == null) {
+                    return;
+                }
+            }
+
+            alert.setContentText("Are you sure you want to delete '" + selectedPlugin.getProcessName() + "'?");
+
+            Optional<ButtonType> result = alert.showAndWait();
+            if (result.isPresent() && result.get() == ButtonType.OK) {
+                pluginManager.deletePlugin(selectedPlugin);
+
+                updateTables();
+            }
+        });
+
+        Button btnEnablePlugin = new Button("↑");
+        btnEnablePlugin.setOnAction(e -> {
+            Plugin selectedPlugin = tblDisabledPlugins.getSelectionModel().getSelectedItem();
+            if (selectedPlugin == null) {
+                return;
+            }
+
+            pluginManager.enablePlugin(selectedPlugin);
+
+            updateTables();
+        });
+
+        Button btnDisablePlugin = new Button("↓");
+        btnDisablePlugin.setOnAction(e -> {
+            Plugin selectedPlugin = tblEnabledPlugins.getSelectionModel().getSelectedItem();
+            if (selectedPlugin == null) {
+                return;
+            }
+
+            pluginManager.disablePlugin(selectedPlugin);
+
+            updateTables();
+        });
+
+        HBox buttonsCenter = new HBox();
+        buttonsCenter.setSpacing(80);
+        buttonsCenter.setAlignment(Pos.CENTER);
+        buttonsCenter.getChildren().addAll(btnEnablePlugin, btnDisablePlugin);
+
+        HBox buttonsBottomCenter = new HBox();
+        buttonsBottomCenter.setSpacing(80);
+        buttonsBottomCenter.setAlignment(Pos.CENTER);
+        buttonsBottomCenter.getChildren().addAll(btnEdit, btnRemove);
+
+        BorderPane buttonsBottom = new BorderPane();
+        buttonsBottom.setLeft(btnExit);
+        buttonsBottom.setCenter(buttonsBottomCenter);
+        buttonsBottom.setRight(btnAdd);
+
+        BorderPane tableButtonLayout = new BorderPane();
+        tableButtonLayout.setTop(tblEnabledPlugins);
+        tableButtonLayout.setCenter(buttonsCenter);
+        tableButtonLayout.setBottom(tblDisabledPlugins);
+
+        BorderPane all = new BorderPane();
+        all.setCenter(tableButtonLayout);
+        all.setBottom(buttonsBottom);
+
+        stage.setScene(new Scene(all, 700, -1));
+
+        stage.showAndWait();
+    }
+
+    /**
+     * Shows the current contents of both plugin lists of the {@link PluginManager}.
+     */
+    private void updateTables() {
+        tblEnabledPlugins.setItems(FXCollections.observableArrayList(pluginManager.getEnabledPlugins()));
+        tblDisabledPlugins.setItems(FXCollections.observableArrayList(pluginManager.getDisabledPlugins()));
+    }
+
+    /**
+     * Table for enabled plugins. Contains 4 columns, the first which is a checkbox which is enabled when the music
+     * application is active, the second for the music application's process name, the third for the title of the
+     * current track, and the fourth for the artist of the current track.
+     * <p>
+     * Horizontal scroll bar is slightly visible when using 0.1, 0.3, 0.3, and 0.3 so to prevent this, the 0.3
+     * values have been replaced with 0.299 to allow for no visible horizontal bar.
+     */
+    private void createEnabledTable() {
+        TableColumn<Plugin, Boolean> enabledColumnActive = new TableColumn<>("Active");
+        enabledColumnActive.setResizable(false);
+        enabledColumnActive.setCellValueFactory(e -> new ReadOnlyBooleanWrapper(e.getValue().isActive()));
+        enabledColumnActive.setCellFactory(e -> new CheckBoxTableCell<>());
+
+        TableColumn<Plugin, String> enabledColumnProcess = new TableColumn<>("Process Name");
+        enabledColumnProcess.setResizable(false);
+        enabledColumnProcess.setCellValueFactory(e -> new ReadOnlyStringWrapper(e.getValue().getProcessName()));
+
+        TableColumn<Plugin, String> enabledColumnTitle = new TableColumn<>("Title");
+        enabledColumnTitle.setResizable(false);
+        enabledColumnTitle.setCellValueFactory(e -> new ReadOnlyStringWrapper(e.getValue().getTitle()));
+
+        TableColumn<Plugin, String> enabledColumnArtist = new TableColumn<>("Artist");
+        enabledColumnArtist.setResizable(false);
+        enabledColumnArtist.setCellValueFactory(e -> new ReadOnlyStringWrapper(e.getValue().getArtist()));
+
+        tblEnabledPlugins = new TableView<>(FXCollections.observableArrayList(pluginManager.getEnabledPlugins()));
+        tblEnabledPlugins.getColumns().addAll(enabledColumnActive, enabledColumnProcess,
+                enabledColumnTitle, enabledColumnArtist);
+
+        enabledColumnActive.prefWidthProperty().bind(tblEnabledPlugins.widthProperty().multiply(0.1));
+        enabledColumnProcess.prefWidthProperty().bind(tblEnabledPlugins.widthProperty().multiply(0.299));
+        enabledColumnTitle.prefWidthProperty().bind(tblEnabledPlugins.widthProperty().multiply(0.299));
+        enabledColumnArtist.prefWidthProperty().bind(tblEnabledPlugins.widthProperty().multiply(0.299));
+    }
+
+    /**
+     * Designated table for disabled plugins. This table only contains the process name column.
+     */
+    private void createDisabledTable() {
+        TableColumn<Plugin, String> disabledColumnProcess = new TableColumn<>("Disabled Plugins");
+        disabledColumnProcess.setMinWidth(40);
+        disabledColumnProcess.setCellValueFactory(e -> new ReadOnlyStringWrapper(e.getValue().getProcessName()));
+
+        tblDisabledPlugins = new TableView<>(FXCollections.observableArrayList(pluginManager.getDisabledPlugins()));
+        tblDisabledPlugins.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY);
+        tblDisabledPlugins.getColumns().addAll(disabledColumnProcess);
+    }
+
+    /**
+     * Displays the {@link Plugin} creation/editing GUI.
+     * <p>
+     * All active processes with their window titles are displayed. Regex can be added and tested from this menu.
+     *
+     * @param selectedPlugin The plugin that is being edited. Is set to 'null' if there is no plugin being edited.
+     */
+    private void showPluginCreator(Plugin selectedPlugin) {
+        Stage stageAdd = new Stage();
+        stageAdd.setTitle("Add Plugin");
+        stageAdd.initModality(Modality.APPLICATION_MODAL);
+
+        TextField processName = new TextField();
+        processName.setPromptText("Process Name");
+        processName.setEditable(false);
+        TextField regex = new TextField();
+        regex.setPromptText("Regular Expression");
+
+        VBox textFields = new VBox();
+        textFields.setSpacing(4);
+        textFields.getChildren().addAll(processName, regex);
+
+        List<CMDProcess> cmdProcesses = pluginManager.getProcesses();
+
+        ComboBox<CMDProcess> comboBox = new ComboBox<>(FXCollections.observableArrayList(cmdProcesses));
+        comboBox.setCellFactory(param -> new ListCell<CMDProcess>() {
+            @Override
+            protected void updateItem(CMDProcess item, boolean empty) {
+                super.updateItem(item, empty);
+
+                setText(item == null ? "" : item.getWindowTitle() + " - " + item.getProcessName());
+            }
+        });
+        comboBox.setButtonCell(new ListCell<CMDProcess>() {
+            @Override
+            protected void updateItem(CMDProcess item, boolean empty) {
+                super.updateItem(item, empty);
+
+                setText(item == null ? "" : item.getWindowTitle());
+            }
+        });
+        comboBox.setPromptText("Choose Process");
+
+        comboBox.valueProperty().addListener((observableValue, oldValue, newValue) -> {
+            if (observableValue == null || observableValue.getValue() == null) {
+                return;
+            }
+
+            processName.setText(observableValue.getValue().getProcessName());
+        });
+
+        Button btnAddPlugin = new Button("Add Plugin");
+        btnAddPlugin.setOnAction(ex ->
+                showPluginSaver(stageAdd, comboBox.getButtonCell().getText(), processName.getText(), regex.getText()));
+
+        Button btnCancelPlugin = new Button("Cancel Plugin Add");
+        btnCancelPlugin.setOnAction(ex -> stageAdd.close());
+
+        Button btnRefreshProcesses = new Button("Refresh Processes");
+        btnRefreshProcesses.setOnAction(ex -> {
+            if (comboBox.getSelectionModel().getSelectedItem() == null) {
+                return;
+            }
+
+            String currentSelectedProcess = comboBox.getSelectionModel().getSelectedItem().getProcessName();
+
+            List<CMDProcess> updatedProcesses = pluginManager.getProcesses();
+
+            comboBox.setItems(FXCollections.observableArrayList(updatedProcesses));
+            Optional<CMDProcess> updatedCMDProcess = updatedProcesses.stream()
+                    .filter(updatedProcess -> updatedProcess.getProcessName().equals(currentSelectedProcess))
+                    .findFirst();
+
+            updatedCMDProcess.ifPresent(cmdProcess -> comboBox.getSelectionModel().select(cmdProcess));
+        });
+
+        BorderPane buttons = new BorderPane();
+        buttons.setRight(btnAddPlugin);
+        buttons.setCenter(btnRefreshProcesses);
+        buttons.setLeft(btnCancelPlugin);
+
+        BorderPane all = new BorderPane();
+        all.setTop(comboBox);
+        all.setCenter(textFields);
+        all.setBottom(buttons);
+
+        stageAdd.setScene(new Scene(all));
+        if (selectedPlugin != null) {
+            stageAdd.setOnShown(e -> {
+                Optional<CMDProcess> process = cmdProcesses.stream()
+                        .filter(ex -> ex.getProcessName().equals(selectedPlugin.getProcessName()))
+                        .findFirst();
+
+                process.ifPresent(cmdProcess -> {
+                    comboBox.getSelectionModel().select(cmdProcess);
+
+                    regex.setText(selectedPlugin.getRegex());
+                });
+            });
+        }
+        stageAdd.showAndWait();
+    }
+
+    /**
+     * Allows for user to select any plugin file with extension {@link Constants#FILE_EXTENSION} to install. This is the
+     * Discord LastFM Scrobbler file extension and is what all files from this program, including plugins, are saved as.
+     * <p>
+     * If the selected plugin is valid, it will be renamed and copied to the plugin folder, which is
+     * {@link Constants#PLUGIN_DIR}.
+     *
+     * @param stage The {@link Stage} for which the {@link FileChooser} requires to display.
+     */
+    private void showPluginInstaller(Stage stage) {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Open " + Constants.FILE_EXTENSION + " file");
+        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Discord LastFM Scrobbler files",
+                "*" + Constants.FILE_EXTENSION));
+
+        File file = fileChooser.showOpenDialog(stage);
+        if (file != null && file.exists()) {
+            File pluginFile;
+            try {
+                Plugin plugin = new Plugin(file);
+
+                pluginFile = new File(Constants.PLUGIN_DIR + Tools.escapeFile(plugin.getProcessName()) +
+                        Constants.FILE_EXTENSION);
+
+                Files.move(file.toPath(), pluginFile.toPath());
+            } catch (IOException | JSONException | PatternSyntaxException e) {
+                Logging.throwUserError("The file '" + file.getAbsolutePath() + "' is not a valid " +
+                        Constants.FILE_EXTENSION + "file as an error occured when reading the file. " +
+                        "Please fix the file or recreate the plugin using the plugin creator.");
+                return;
+            }
+
+            pluginManager.reloadPlugin(pluginFile.toPath());
+            updateTables();
+        }
+    }
+
+    /**
+     * Verifies whether the regex matches the process window title.
+     * <p>
+     * If it does not match or the {@link Matcher#groupCount()} does not equal 2, the method will exit with an error.
+     * Before that, the regex is checked for catastrophic backtracking with {@link #verifyRegexLatency(Pattern, String)}.
+     * <p>
+     * If it does match, a verification of which group is the artist and title will appear. Upon confirmation, the
+     * data will be saved as a {@link Plugin} and it will be added to the disabled plugins of the
+     * {@link PluginManager}.
+     *
+     * @param stage              The {@link Stage} that will be hidden upon successful {@link Plugin} creation.
+     * @param processWindowTitle The window title of the selected process.
+     * @param processName        The name of the process.
+     * @param regex              Regex to test against the processWindowTitle.
+     */
+    private void showPluginSaver(Stage stage, String processWindowTitle, String processName, String regex) {
+        if (processName.equals("") || regex.equals("")) {
+            Alert alert = new Alert(Alert.AlertType.ERROR);
+            alert.setContentText("You must include regex to capture the artist and the title of the process " +
+                    "window title!");
+
+            alert.showAndWait();
+        } else {
+            Pattern pattern = Pattern.compile(regex);
+            if (!verifyRegexLatency(pattern, processWindowTitle)) {
+                return;
+            }
+
+            Matcher matcher = pattern.matcher(processWindowTitle);
+
+            int artistGroup = 0;
+            int titleGroup = 0;
+
+            if (matcher.find() && matcher.groupCount() == 2) {
+                Alert alert = new Alert(Alert.AlertType.CONFIRMATION);
+                alert.setContentText("Is the artist: '" + matcher.group(1) + "' and the title: '" +
+                        matcher.group(2) + "'?");
+
+                ButtonType btnYes = new ButtonType("Yes");
+                ButtonType btnSwitched = new ButtonType("Other way around");
+                ButtonType btnNo = new ButtonType("No");
+
+                alert.getButtonTypes().setAll(btnYes, btnSwitched, btnNo);
+
+                Optional<ButtonType> result = alert.showAndWait();
+                if (result.isPresent()) {
+                    if (result.get() == btnYes) {
+                        artistGroup = 1;
+                        titleGroup = 2;
+                    } else if (result.get() == btnSwitched) {
+                        artistGroup = 2;
+                        titleGroup = 1;
+                    }
+                }
+            }
+
+            if (artistGroup != 0) {
+                try {
+                    Plugin plugin = Plugin.create(processName, regex, artistGroup, titleGroup);
+
+                    pluginManager.reloadPlugin(plugin.getPluginFile().toPath());
+                } catch (IOException e) {
+                    Logging.logError(new String[]{processName, regex, Integer.toString(artistGroup),
+                            Integer.toString(titleGroup)}, e);
+                }
+
+                updateTables();
+
+                stage.hide();
+            } else {
+                Alert alert = new Alert(Alert.AlertType.ERROR);
+                alert.setContentText("Unfortunately, your regex is invalid. Please use http://regexr.com/ to " +
+                        "test your regex.");
+
+                alert.showAndWait();
+            }
+        }
+    }
+
+    /**
+     * Runs the {@link RegexAnalyzer} on a regex and shows its worst case latency if the regex is slow. A regex that is
+     * rejected cannot be saved, a regex that is warned about is only saved if the user confirms.
+     *
+     * @param pattern            The compiled regex.
+     * @param processWindowTitle The window title of the selected process.
+     * @return Returns true if the plugin may be saved.
+     */
+    private boolean verifyRegexLatency(Pattern pattern, String processWindowTitle) {
+        RegexAnalyzer.Report report = RegexAnalyzer.analyze(pattern, processWindowTitle);
+
+        Logging.log("Regex '" + pattern.pattern() + "' analyzed as " + report.getVerdict() + ": " +
+                report.getMessage());
+
+        switch (report.getVerdict()) {
+            case REJECT:
+                Alert error = new Alert(Alert.AlertType.ERROR);
+                error.setContentText("Your regex backtracks too much to be used on window titles. " +
+                        report.getMessage() + " Try to replace '.*' with more specific patterns such as '[^-]*'.");
+
+                error.showAndWait();
+                return false;
+            case WARN:
+                Alert warning = new Alert(Alert.AlertType.CONFIRMATION);
+                warning.setContentText("Your regex may be slow on long window titles. " + report.getMessage() +
+                        " Would you like to use it anyway?");
+
+                Optional<ButtonType> result = warning.showAndWait();
+                return result.isPresent() && result.get() == ButtonType.OK;
+            default:
+                return true;
+        }
+    }
+}
@@ -1,48 +1,69 @@
 package com.sabihismail.DiscordLastFMScrobbler.listener;
 
-import com.sabihismail.DiscordLastFMScrobbler.connection.Main;
+import com.sabihismail.DiscordLastFMScrobbler.connection.Bot;
 import com.sabihismail.DiscordLastFMScrobbler.tools.Constants;
-import com.sabihismail.DiscordLastFMScrobbler.tools.GUITools;
+import com.sabihismail.DiscordLastFMScrobbler.tools.ExecutionLane;
+import com.sabihismail.DiscordLastFMScrobbler.tools.Histogram;
 import com.sabihismail.DiscordLastFMScrobbler.tools.Logging;
-import com.sabihismail.DiscordLastFMScrobbler.tools.Tools;
+import com.sabihismail.DiscordLastFMScrobbler.tools.Metrics;
 import com.sabihismail.DiscordLastFMScrobbler.tools.Settings;
-import javafx.collections.FXCollections;
-import javafx.geometry.Pos;
-import javafx.scene.Scene;
-import javafx.scene.control.*;
-import javafx.scene.control.cell.CheckBoxTableCell;
-import javafx.scene.layout.BorderPane;
-import javafx.scene.layout.HBox;
-import javafx.scene.layout.VBox;
-import javafx.stage.FileChooser;
-import javafx.stage.Modality;
-import javafx.stage.Stage;
-
-import javax.swing.*;
+import org.json.JSONException;
+
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.net.URL;
+import java.net.URLClassLoader;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Predicate;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 /**
  * Manages all installed {@link Plugin}s whether they are enabled or disabled.
  * <p>
  * Also constantly checks active processes using the method {@link #processCheck()} and identifies if any music players
- * are active based on the current list of {@link #enabledPlugins}.
+ * are active based on the enabled plugins of the current {@link Index}.
+ * <p>
+ * The addition/removal/editing/installing of plugins saved as an instance of {@link Plugin} is done through the
+ * methods of this class, which the JavaFX {@link PluginEditor} calls. This class itself never references JavaFX so
+ * that it can run in the headless program.
+ * <p>
+ * Plugin files can also be added, edited or deleted in {@link Constants#PLUGIN_DIR} while the program is running. The
+ * {@link PluginDirectoryWatcher} reports every changed file to {@link #reloadPlugin(Path)}, which reads and compiles
+ * only that file. Every change builds a new immutable {@link Index} which replaces the previous one in a single write,
+ * so the process check on {@link ExecutionLane#PROCESS_POLL} always sees either the old or the new set of plugins and
+ * never a half updated one.
  * <p>
- * The main GUI for this class allows for the addition/removal/editing/installing of plugins saved as an instance of
- * {@link Plugin}.
+ * Plugins can also be installed as a {@link PluginBundle}. Only the table of a bundle is read when it is loaded; a
+ * bundled plugin is decoded and added to the {@link Index} once its process shows up in the process list. A plugin
+ * file for the same process takes precedence over a bundled plugin.
+ * <p>
+ * Jars in the plugin folder are searched for {@link TrackExtractor}s with a {@link ServiceLoader}, each jar with its
+ * own {@link URLClassLoader} so that it can be replaced while the program runs. Every extractor becomes a
+ * {@link Plugin} that is enabled, disabled and matched exactly like a regex plugin. A plugin file for the same process
+ * takes precedence over an extractor, and an extractor over a bundled plugin.
+ * <p>
+ * Music applications can also push their songs through a {@link TrackSource} instead of being matched by a plugin.
+ * Every change of a source is passed on to Last.FM right away, and while a source is playing its song takes precedence
+ * over the songs read from window titles.
  *
  * @since 1.0
  */
@@ -58,591 +79,803 @@ public class PluginManager {
      */
     private static final int TIME_MUSIC_UPDATE = 1;
 
-    private List<Plugin> enabledPlugins = new ArrayList<>();
-    private List<Plugin> disabledPlugins = new ArrayList<>();
-    private List<CMDProcess> cmdProcesses = new ArrayList<>();
+    /**
+     * Time in milliseconds a plugin regex may take to match a window title before the match is aborted, see
+     * {@link BudgetedCharSequence}.
+     */
+    static final int TIME_MATCH_BUDGET = 50;
 
-    private TableView<Plugin> tblEnabledPlugins;
-    private TableView<Plugin> tblDisabledPlugins;
+    /**
+     * Time in microseconds every {@link #processCheck()} takes.
+     */
+    private static final Histogram POLL_CYCLE = Metrics.histogram("plugin_poll_cycle_micros");
 
-    private ScheduledExecutorService executorMusicUpdate = Executors.newSingleThreadScheduledExecutor();
-    private ScheduledExecutorService executorProcessesUpdate = Executors.newSingleThreadScheduledExecutor();
+    /**
+     * Matches that exceeded {@link #TIME_MATCH_BUDGET} and extractors that threw an exception, see
+     * {@link #match(Plugin, String)}.
+     */
+    private static final LongAdder MATCH_BUDGET_EXCEEDED = Metrics.counter("plugin_match_budget_exceeded_total");
+    private static final LongAdder MATCH_FAILURES = Metrics.counter("plugin_match_failures_total");
 
     /**
-     * Begins the timer to repeatedly check for active music applications and retrieve current song information from
-     * these applications. Also initiates Last.FM music update request based on the information retrieved from previous
-     * timer.
+     * Events received from every {@link TrackSource}.
      */
-    public PluginManager() {
-        executorMusicUpdate.scheduleWithFixedDelay(this::processCheck, 0, TIME_MUSIC_UPDATE, TimeUnit.SECONDS);
-        executorProcessesUpdate.scheduleWithFixedDelay(() ->
-                cmdProcesses = getProcessList(), 0, TIME_UPDATE_PROCESS, TimeUnit.SECONDS);
+    private static final LongAdder TRACK_SOURCE_EVENTS = Metrics.counter("track_source_events_total");
 
-        retrieveAllPlugins();
-    }
+    /**
+     * All installed plugins by the absolute path of their file. Guarded by this instance.
+     */
+    private final Map<Path, Plugin> plugins = new HashMap<>();
+
+    /**
+     * All installed bundles by the absolute path of their file. Guarded by this instance.
+     */
+    private final Map<Path, PluginBundle> bundles = new HashMap<>();
+
+    /**
+     * Bundled plugins that were decoded because their process was running, by process name. Guarded by this instance.
+     */
+    private final Map<String, Plugin> bundled = new HashMap<>();
+
+    /**
+     * The extractors of all jars and the class loaders they were loaded with, by the absolute path of the jar.
+     * Guarded by this instance.
+     */
+    private final Map<Path, List<Plugin>> compiled = new HashMap<>();
+    private final Map<Path, URLClassLoader> classLoaders = new HashMap<>();
+
+    private volatile Index index = new Index(Collections.emptyList(), Collections.emptyList(),
+            Collections.emptyList());
+    private volatile List<CMDProcess> cmdProcesses = new ArrayList<>();
+
+    /**
+     * Plugins whose regex exceeded {@link #TIME_MATCH_BUDGET} or whose extractor failed, so that each is only logged
+     * once.
+     */
+    private final Set<Plugin> failed = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Held for the whole of every {@link #processCheck()}. On X11 a check runs on every change of the process list as
+     * well as every second, so two checks could otherwise run at once on {@link ExecutionLane#PROCESS_POLL}.
+     */
+    private final Object checkLock = new Object();
+
+    /**
+     * Reused for every match, guarded by {@link #checkLock}.
+     */
+    private final TrackExtractor.Track track = new TrackExtractor.Track();
+
+    private PluginDirectoryWatcher watcher;
+    private X11ProcessList x11ProcessList;
+
+    /**
+     * All started {@link TrackSource}s and the song each of them is currently playing, if any.
+     */
+    private final List<TrackSource> sources = new CopyOnWriteArrayList<>();
+    private final Map<TrackSource, PushedTrack> pushed = new ConcurrentHashMap<>();
 
     /**
-     * Loads all enabled plugins from the folder designated by {@link Constants#PLUGIN_DIR}.
+     * Begins the timer to repeatedly check for active music applications and retrieve current song information from
+     * these applications. Also initiates Last.FM music update request based on the information retrieved from previous
+     * timer.
+     * <p>
+     * On an X11 desktop the process list is kept up to date by the events of an {@link X11ProcessList} instead of
+     * being polled.
      * <p>
-     * If no plugins exists, the user can decide whether to add a new {@link Plugin} or to disable Last.FM scrobbling
-     * functionality.
+     * Both run on {@link ExecutionLane#PROCESS_POLL}. The Last.FM requests themselves are handed off by
+     * {@link com.sabihismail.DiscordLastFMScrobbler.lastFM.LastFMManager} to their own lanes.
      * <p>
-     * If plugins exist, they will automatically be loaded into {@link #disabledPlugins} and all active plugins denoted
-     * by {@link Settings#enabledPlugins} will be added to
-     * {@link #enabledPlugins} (in the same order as that list) and removed from {@link #disabledPlugins}.
+     * The plugin folder is watched before it is read so that no change made in between is missed.
      */
-    private void retrieveAllPlugins() {
-        if (enabledPlugins.size() > 0) {
-            enabledPlugins.clear();
-        }
-        if (disabledPlugins.size() > 0) {
-            disabledPlugins.clear();
-        }
-
-        File pluginDir = new File(Constants.PLUGIN_DIR);
-        pluginDir.mkdirs();
+    public PluginManager() {
+        Path pluginDir = Paths.get(Constants.PLUGIN_DIR);
+        pluginDir.toFile().mkdirs();
 
-        File[] files = pluginDir.listFiles((dir, name) -> name.endsWith(Constants.FILE_EXTENSION));
+        Metrics.gauge("plugins_enabled", () -> index.enabled.size());
+        Metrics.gauge("plugins_disabled", () -> index.disabled.size());
 
-        if (files == null || files.length == 0) {
-            int result = GUITools.showOnTopConfirmDialog("No plugins detected in '" + Constants.PLUGIN_DIR + "'." +
-                            "\nWould you like to add one now? " +
-                            "\n(Clicking 'No' will disable Last.FM Scrobbling until you add a plugin AND re-enable " +
-                            "scrobbling in settings).\nYou can also download plugins from '" + Constants.GITHUB + "'.",
-                    "No Plugins Detected");
+        try {
+            watcher = new PluginDirectoryWatcher(pluginDir, this::reloadPlugin, this::retrieveAllPlugins);
+        } catch (IOException e) {
+            Logging.logError(new String[]{pluginDir.toString()}, e);
+        }
 
-            if (result == JOptionPane.YES_OPTION) {
-                viewAndEditPlugins();
-            } else {
-                Main.SETTINGS.setScrobblingEnabled(false);
-                Main.SETTINGS.saveSettings();
+        retrieveAllPlugins();
 
-                GUITools.showOnTopMessageDialog("Settings have been saved. Please restart the program for " +
-                        "changes to take effect.");
+        Settings settings = Bot.SETTINGS;
+        if (!settings.getTrackSourceFile().isEmpty()) {
+            addSource(new FileTrackSource(Paths.get(settings.getTrackSourceFile())));
+        }
 
-                Main.shutdown();
-            }
+        if (settings.getTrackSourcePort() > 0) {
+            addSource(new SocketTrackSource(settings.getTrackSourcePort()));
         }
 
-        Arrays.stream(files).forEach(file -> {
+        if (X11ProcessList.isSupported()) {
             try {
-                disabledPlugins.add(new Plugin(file));
+                x11ProcessList = new X11ProcessList(this::processesChanged);
+                cmdProcesses = x11ProcessList.getProcesses();
             } catch (IOException e) {
-                Logging.logError(new String[]{file.getAbsolutePath()}, e);
+                Logging.logError(new String[]{System.getenv("DISPLAY")}, e);
             }
-        });
+        }
+
+        ExecutionLane.PROCESS_POLL.scheduleWithFixedDelay(this::processCheck, 0, TIME_MUSIC_UPDATE, TimeUnit.SECONDS);
 
-        enabledPlugins = Main.SETTINGS.getEnabledPlugins(disabledPlugins);
-        disabledPlugins.removeAll(enabledPlugins);
+        if (x11ProcessList == null) {
+            ExecutionLane.PROCESS_POLL.scheduleWithFixedDelay(() ->
+                    cmdProcesses = getProcessList(), 0, TIME_UPDATE_PROCESS, TimeUnit.SECONDS);
+        }
     }
 
     /**
-     * Returns a list of {@link CMDProcess} with information about all current active processes with a window title.
-     * This is done through the 'tasklist' command using the command prompt.
+     * Replaces the process list with the one reported by the {@link X11ProcessList} and checks it right away, so that
+     * a new song in a window title reaches Last.FM without waiting for the next process check.
      *
-     * @return Returns list of current active processes.
+     * @param processes The current processes.
+     * @since 1.2
      */
-    private List<CMDProcess> getProcessList() {
-        String[] commands = {System.getenv("windir").replace("\\", "/") + "/system32/" + "tasklist.exe",
-                "/v", "/fo", "CSV", "/fi", "\"SESSIONNAME eq Console\"", "/fi", "\"STATUS eq RUNNING\""};
+    private void processesChanged(List<CMDProcess> processes) {
+        cmdProcesses = processes;
 
-        List<CMDProcess> processes = new ArrayList<>();
+        ExecutionLane.PROCESS_POLL.execute(this::processCheck);
+    }
 
-        try {
-            Process process = Runtime.getRuntime().exec(commands);
-            BufferedReader r = new BufferedReader(new InputStreamReader(process.getInputStream(), "Cp850"));
+    /**
+     * Starts a {@link TrackSource} and passes its songs on to Last.FM until {@link #shutdown()} is called.
+     * <p>
+     * A started song is sent to {@link com.sabihismail.DiscordLastFMScrobbler.lastFM.LastFMManager} as soon as the
+     * source reports it and again on every process check for as long as it plays, so it is scrobbled exactly like a
+     * song read from a window title. Every event is counted in the metric 'track_source_events_total'.
+     *
+     * @param source The source to start.
+     * @since 1.2
+     */
+    public void addSource(TrackSource source) {
+        TrackSource.Sink sink = new TrackSource.Sink() {
+            @Override
+            public void playing(TrackSource source, String artist, String title, int length) {
+                TRACK_SOURCE_EVENTS.increment();
 
-            String line;
-            while ((line = r.readLine()) != null) {
-                line = new String(line.getBytes(), "UTF-8");
+                PushedTrack track = new PushedTrack(artist, title, length);
+                PushedTrack previous = pushed.put(source, track);
 
-                if (!line.endsWith("\"N/A\"") && !line.endsWith("\"Window Title\"")) {
-                    CMDProcess cmdProcess = new CMDProcess(line);
+                if (previous == null || !previous.isSameSong(track)) {
+                    Logging.log("Now playing '" + artist + " - " + title + "' from " + source.getName() + ".");
+                }
 
-                    Predicate<CMDProcess> predicate = predicateProcess ->
-                            predicateProcess.getProcessName().equalsIgnoreCase(cmdProcess.getProcessName());
+                Bot.LAST_FM_MANAGER.processInformation(artist, title, length);
+            }
 
-                    if (processes.stream().anyMatch(predicate)) {
-                        continue;
-                    }
+            @Override
+            public void stopped(TrackSource source) {
+                TRACK_SOURCE_EVENTS.increment();
 
-                    processes.add(cmdProcess);
-                }
+                pushed.remove(source);
             }
-            r.close();
+        };
+
+        try {
+            source.start(sink);
+            sources.add(source);
+
+            Logging.log("Listening for songs from " + source.getName() + ".");
         } catch (IOException e) {
-            e.printStackTrace();
+            Logging.logError(new String[]{source.getName()}, e);
         }
-
-        return processes;
     }
 
     /**
-     * Checks if {@link #cmdProcesses} contains any active music applications that are saved in {@link #enabledPlugins}.
-     * <p>
-     * This method only updates Now Playing or only sends a Scrobble request for the first active music player in the
-     * order of the list {@link #enabledPlugins} to prevent Last.FM API abuse.
+     * Reads every plugin file, bundle and extractor jar in the folder designated by {@link Constants#PLUGIN_DIR} and
+     * forgets plugins whose file no longer exists.
      * <p>
-     * All {@link Plugin}s in {@link #enabledPlugins} have their {@link Plugin#title} and {@link Plugin#artist} updated
-     * automatically regardless of whether their data was sent to Last.FM servers.
+     * This is done once on startup and again whenever the {@link PluginDirectoryWatcher} lost events. All other
+     * changes only read the changed file through {@link #reloadPlugin(Path)}.
      */
-    private void processCheck() {
-        Main.LAST_FM_MANAGER.resetActiveProcess();
+    private void retrieveAllPlugins() {
+        File[] files = new File(Constants.PLUGIN_DIR).listFiles((dir, name) -> isPluginFile(name));
 
-        for (Plugin plugin : enabledPlugins) {
-            Optional<CMDProcess> cmdProcess = cmdProcesses.stream()
-                    .filter(process -> process.getProcessName().equals(plugin.getProcessName()))
-                    .findFirst();
+        List<Path> paths = new ArrayList<>();
+        if (files != null) {
+            for (File file : files) {
+                paths.add(file.toPath().toAbsolutePath().normalize());
+            }
+        }
 
-            if (cmdProcess.isPresent()) {
-                Pattern pattern = Pattern.compile(plugin.getRegex());
-                Matcher matcher = pattern.matcher(cmdProcess.get().getWindowTitle());
+        synchronized (this) {
+            for (Path path : paths) {
+                read(path);
+            }
 
-                if (matcher.find()) {
-                    plugin.setActive(true);
+            Set<Path> existing = new HashSet<>(paths);
+            plugins.keySet().retainAll(existing);
+            bundles.keySet().retainAll(existing);
+            new HashSet<>(compiled.keySet()).stream().filter(path -> !existing.contains(path))
+                    .forEach(this::removeExtractors);
+            bundled.values().removeIf(plugin -> !bundles.containsKey(plugin.getPluginFile().toPath()));
 
-                    String artist = matcher.group(plugin.getArtistGroup());
-                    String title = matcher.group(plugin.getTitleGroup());
-                    int length = 0;
+            publish();
+        }
+    }
 
-                    Main.LAST_FM_MANAGER.processInformation(artist, title, length);
+    /**
+     * Applies a change to a single plugin file. The file is read and its regex compiled again if it exists, or the
+     * plugin is removed if it was deleted. A file that cannot be read keeps the previously loaded plugin, if any. A
+     * changed bundle is mapped again and its plugins are decoded again once their processes are seen. A changed jar is
+     * loaded with a new class loader and the previous one is closed.
+     * <p>
+     * The time from the change of the file, or from this call if the file was deleted, until the new {@link Index} is
+     * published is recorded in the metrics 'plugin_reload_last_latency_millis' and
+     * 'plugin_reload_latency_millis_total'.
+     *
+     * @param file The plugin file that was created, modified or deleted.
+     */
+    void reloadPlugin(Path file) {
+        long changed = System.currentTimeMillis();
+        Path path = file.toAbsolutePath().normalize();
 
-                    plugin.setArtist(artist);
-                    plugin.setTitle(title);
-                } else {
-                    plugin.setActive(false);
+        synchronized (this) {
+            if (Files.exists(path)) {
+                try {
+                    changed = Files.getLastModifiedTime(path).toMillis();
+                } catch (IOException ignored) {
+                    // deleted again in the meantime, the time of this call is used
+                }
 
-                    plugin.setTitle("");
-                    plugin.setArtist("");
+                if (!read(path)) {
+                    return;
+                }
+            } else if (isJar(path)) {
+                if (!removeExtractors(path)) {
+                    return;
+                }
+            } else if (isBundle(path)) {
+                if (bundles.remove(path) == null) {
+                    return;
                 }
-            } else {
-                plugin.setActive(false);
 
-                plugin.setTitle("");
-                plugin.setArtist("");
+                bundled.values().removeIf(plugin -> plugin.getPluginFile().toPath().equals(path));
+            } else if (plugins.remove(path) == null) {
+                return;
             }
+
+            publish();
         }
+
+        long latency = Math.max(0, System.currentTimeMillis() - changed);
+
+        Metrics.counter("plugin_reloads_total").increment();
+        Metrics.counter("plugin_reload_latency_millis_total").add(latency);
+        Metrics.gauge("plugin_reload_last_latency_millis", () -> latency);
+
+        Logging.log("Reloaded plugin '" + path.getFileName() + "' " + latency + "ms after it was changed.");
     }
 
     /**
-     * Creates a {@link Stage} which displays information about the current active and inactive plugins installed.
-     * <p>
-     * This {@link Stage} allows for the addition of custom new plugins through regex, the editing of an existing
-     * plugin also through regex, or the installation of a specific plugin with no regex.
-     * <p>
-     * Plugins can also be removed, disabled, and enabled from this menu.
+     * Reads a plugin file, bundle or jar.
+     *
+     * @param path The absolute path of the file.
+     * @return Returns true if any plugin changed.
      */
-    public void viewAndEditPlugins() {
-        Stage stage = new Stage();
-        stage.setTitle("Plugin Setup");
-        stage.initModality(Modality.APPLICATION_MODAL);
-
-        createEnabledTable();
-        createDisabledTable();
+    private boolean read(Path path) {
+        if (isBundle(path)) {
+            return readBundle(path);
+        } else if (isJar(path)) {
+            return readExtractors(path);
+        } else {
+            return readPlugin(path);
+        }
+    }
 
-        Button btnExit = new Button("Exit");
-        btnExit.setOnAction(e -> stage.close());
+    /**
+     * Reads a plugin file into {@link #plugins}. If the plugin is unchanged the already loaded instance is kept, so
+     * its current song is not reset.
+     *
+     * @param path The absolute path of the plugin file.
+     * @return Returns true if {@link #plugins} changed.
+     */
+    private synchronized boolean readPlugin(Path path) {
+        Plugin plugin;
+        try {
+            plugin = new Plugin(path.toFile());
+        } catch (IOException | JSONException | PatternSyntaxException e) {
+            Metrics.counter("plugin_reload_failures_total").increment();
+            Logging.logError(new String[]{path.toString()}, e);
 
-        Button btnAdd = new Button("Add");
-        btnAdd.setOnAction(e -> {
-            ButtonType btnInstallPlugin = new ButtonType("Install Plugin");
-            ButtonType btnCreatePlugin = new ButtonType("Create Plugin");
-            Alert alertAddType = new Alert(Alert.AlertType.CONFIRMATION,
-                    "Would you like to install a plugin or create your own?",
-                    btnInstallPlugin, btnCreatePlugin);
+            return false;
+        }
 
-            Optional<ButtonType> addSelection = alertAddType.showAndWait();
-            if (addSelection.isPresent()) {
-                ButtonType selected = addSelection.get();
+        Plugin previous = plugins.get(path);
+        if (previous != null && previous.hasSameDefinition(plugin)) {
+            return false;
+        }
 
-                if (selected == btnInstallPlugin) {
-                    showPluginInstaller(stage);
-                } else {
-                    showPluginCreator(null);
-                }
-            }
-        });
+        plugins.put(path, plugin);
 
-        Button btnEdit = new Button("Edit");
-        btnEdit.setOnAction(e -> {
-            Plugin selectedPlugin = tblEnabledPlugins.getSelectionModel().getSelectedItem();
+        return true;
+    }
 
-            if (selectedPlugin != null) {
-                if (selectedPlugin.isActive()) {
-                    showPluginCreator(tblEnabledPlugins.getSelectionModel().getSelectedItem());
-                } else {
-                    GUITools.showOnTopMessageDialog("The process \"" + selectedPlugin.getProcessName() + "\" is not " +
-                            "currently on!");
-                }
-            }
-        });
+    /**
+     * Maps a bundle into {@link #bundles}. Plugins decoded from the previous version of the bundle are dropped.
+     *
+     * @param path The absolute path of the bundle.
+     * @return Returns true if the bundle could be read.
+     */
+    private synchronized boolean readBundle(Path path) {
+        PluginBundle bundle;
+        try {
+            bundle = new PluginBundle(path);
+        } catch (IOException e) {
+            Metrics.counter("plugin_reload_failures_total").increment();
+            Logging.logError(new String[]{path.toString()}, e);
 
-        Button btnRemove = new Button("Remove");
-        btnRemove.setOnAction(e -> {
-            Alert alert = new Alert(Alert.AlertType.CONFIRMATION);
+            return false;
+        }
 
-            int index = tblEnabledPlugins.getSelectionModel().getSelectedIndex();
-            if (index == -1) {
-                index = tblDisabledPlugins.getSelectionModel().getSelectedIndex();
+        bundles.put(path, bundle);
+        bundled.values().removeIf(plugin -> plugin.getPluginFile().toPath().equals(path));
 
-                if (index == -1) {
-                    return;
-                } else {
-                    Plugin selectedPlugin = disabledPlugins.get(index);
+        Logging.log("Loaded bundle '" + path.getFileName() + "' with " + bundle.size() + " plugins.");
 
-                    alert.setContentText("Are you sure you want to delete '" + selectedPlugin.getProcessName() + "'?");
+        return true;
+    }
 
-                    Optional<ButtonType> result = alert.showAndWait();
-                    if (result.isPresent() && result.get() == ButtonType.OK) {
-                        selectedPlugin.getPluginFile().delete();
+    /**
+     * Loads all {@link TrackExtractor}s of a jar into {@link #compiled} with a new class loader and closes the class
+     * loader of the previous version of the jar. Extractors found on the program's own class path are ignored.
+     *
+     * @param path The absolute path of the jar.
+     * @return Returns true if the jar could be read.
+     */
+    private synchronized boolean readExtractors(Path path) {
+        URLClassLoader classLoader;
+        try {
+            classLoader = new URLClassLoader(new URL[]{path.toUri().toURL()}, PluginManager.class.getClassLoader());
+        } catch (IOException e) {
+            Logging.logError(new String[]{path.toString()}, e);
 
-                        disabledPlugins.remove(index);
+            return false;
+        }
 
-                        tblDisabledPlugins.setItems(FXCollections.observableList(enabledPlugins));
-                    }
+        List<Plugin> extractors = new ArrayList<>();
+        try {
+            for (TrackExtractor extractor : ServiceLoader.load(TrackExtractor.class, classLoader)) {
+                if (extractor.getClass().getClassLoader() == classLoader) {
+                    extractors.add(new Plugin(path.toFile(), extractor));
                 }
             }
+        } catch (ServiceConfigurationError | LinkageError | RuntimeException e) {
+            Metrics.counter("plugin_reload_failures_total").increment();
+            Logging.logError(new String[]{path.toString()}, new IOException(e));
 
-            Plugin selectedPlugin = enabledPlugins.get(index);
+            try {
+                classLoader.close();
+            } catch (IOException ignored) {
+                // the jar could not be used anyway
+            }
 
-            alert.setContentText("Are you sure you want to delete '" + selectedPlugin.getProcessName() + "'?");
+            return false;
+        }
 
-            Optional<ButtonType> result = alert.showAndWait();
-            if (result.isPresent() && result.get() == ButtonType.OK) {
-                selectedPlugin.getPluginFile().delete();
+        removeExtractors(path);
 
-                enabledPlugins.remove(index);
+        compiled.put(path, extractors);
+        classLoaders.put(path, classLoader);
 
-                tblEnabledPlugins.setItems(FXCollections.observableList(enabledPlugins));
-            }
-        });
+        Logging.log("Loaded jar '" + path.getFileName() + "' with " + extractors.size() + " extractors.");
 
-        Button btnEnablePlugin = new Button("↑");
-        btnEnablePlugin.setOnAction(e -> {
-            Plugin selectedPlugin = tblDisabledPlugins.getSelectionModel().getSelectedItem();
-            if (selectedPlugin == null) {
-                return;
-            }
+        return true;
+    }
 
-            disabledPlugins.remove(selectedPlugin);
-            enabledPlugins.add(selectedPlugin);
+    /**
+     * Removes the extractors of a jar from {@link #compiled} and closes their class loader.
+     *
+     * @param path The absolute path of the jar.
+     * @return Returns true if the jar was loaded.
+     */
+    private synchronized boolean removeExtractors(Path path) {
+        URLClassLoader classLoader = classLoaders.remove(path);
+        if (classLoader == null) {
+            return false;
+        }
 
-            tblEnabledPlugins.setItems(FXCollections.observableList(enabledPlugins));
-            tblDisabledPlugins.setItems(FXCollections.observableList(disabledPlugins));
+        compiled.remove(path);
 
-            Main.SETTINGS.addPlugin(selectedPlugin);
-            Main.SETTINGS.saveSettings();
-        });
+        try {
+            classLoader.close();
+        } catch (IOException e) {
+            Logging.logError(new String[]{path.toString()}, e);
+        }
 
-        Button btnDisablePlugin = new Button("↓");
-        btnDisablePlugin.setOnAction(e -> {
-            Plugin selectedPlugin = tblEnabledPlugins.getSelectionModel().getSelectedItem();
-            if (selectedPlugin == null) {
-                return;
-            }
+        return true;
+    }
 
-            enabledPlugins.remove(selectedPlugin);
-            disabledPlugins.add(selectedPlugin);
+    /**
+     * Checks whether a file in {@link Constants#PLUGIN_DIR} is a plugin file, a {@link PluginBundle} or a jar with
+     * {@link TrackExtractor}s.
+     *
+     * @param name The name of the file.
+     * @return Returns true if the file contains plugins.
+     */
+    static boolean isPluginFile(String name) {
+        return name.endsWith(Constants.FILE_EXTENSION) || name.endsWith(Constants.BUNDLE_EXTENSION) ||
+                name.endsWith(Constants.EXTRACTOR_EXTENSION);
+    }
 
-            tblEnabledPlugins.setItems(FXCollections.observableList(enabledPlugins));
-            tblDisabledPlugins.setItems(FXCollections.observableList(disabledPlugins));
+    private static boolean isBundle(Path path) {
+        return path.getFileName().toString().endsWith(Constants.BUNDLE_EXTENSION);
+    }
 
-            Main.SETTINGS.removePlugin(selectedPlugin);
-            Main.SETTINGS.saveSettings();
-        });
+    private static boolean isJar(Path path) {
+        return path.getFileName().toString().endsWith(Constants.EXTRACTOR_EXTENSION);
+    }
 
-        HBox buttonsCenter = new HBox();
-        buttonsCenter.setSpacing(80);
-        buttonsCenter.setAlignment(Pos.CENTER);
-        buttonsCenter.getChildren().addAll(btnEnablePlugin, btnDisablePlugin);
+    /**
+     * Decodes the bundled plugins of all processes in the process list that no plugin is loaded for yet, and
+     * publishes a new {@link Index} if any were found.
+     *
+     * @param processes The current process list.
+     */
+    private void resolveBundled(List<CMDProcess> processes) {
+        Index current = index;
+        if (current.bundles.isEmpty()) {
+            return;
+        }
 
-        HBox buttonsBottomCenter = new HBox();
-        buttonsBottomCenter.setSpacing(80);
-        buttonsBottomCenter.setAlignment(Pos.CENTER);
-        buttonsBottomCenter.getChildren().addAll(btnEdit, btnRemove);
+        Map<Plugin, PluginBundle> found = new HashMap<>();
+        for (CMDProcess process : processes) {
+            String processName = process.getProcessName();
+            if (current.processNames.contains(processName)) {
+                continue;
+            }
 
-        BorderPane buttonsBottom = new BorderPane();
-        buttonsBottom.setLeft(btnExit);
-        buttonsBottom.setCenter(buttonsBottomCenter);
-        buttonsBottom.setRight(btnAdd);
+            for (PluginBundle bundle : current.bundles) {
+                Plugin plugin = bundle.get(processName);
 
-        BorderPane tableButtonLayout = new BorderPane();
-        tableButtonLayout.setTop(tblEnabledPlugins);
-        tableButtonLayout.setCenter(buttonsCenter);
-        tableButtonLayout.setBottom(tblDisabledPlugins);
+                if (plugin != null) {
+                    found.put(plugin, bundle);
+                    break;
+                }
+            }
+        }
 
-        BorderPane all = new BorderPane();
-        all.setCenter(tableButtonLayout);
-        all.setBottom(buttonsBottom);
+        if (found.isEmpty()) {
+            return;
+        }
 
-        stage.setScene(new Scene(all, 700, -1));
+        synchronized (this) {
+            found.forEach((plugin, bundle) -> {
+                if (bundles.get(plugin.getPluginFile().toPath()) == bundle) {
+                    bundled.putIfAbsent(plugin.getProcessName(), plugin);
+                }
+            });
 
-        stage.showAndWait();
+            publish();
+        }
     }
 
     /**
-     * Table for enabled plugins. Contains 4 columns, the first which is a checkbox which is enabled when the music
-     * application is active, the second for the music application's process name, the third for the title of the
-     * current track, and the fourth for the artist of the current track.
+     * Builds a new {@link Index} from {@link #plugins}, {@link #compiled}, {@link #bundled} and the enabled plugins of
+     * {@link Settings} and replaces the current one. Only the first plugin of these for each process is used.
      * <p>
-     * Horizontal scroll bar is slightly visible when using 0.1, 0.3, 0.3, and 0.3 so to prevent this, the 0.3
-     * values have been replaced with 0.299 to allow for no visible horizontal bar.
-     */
-    private void createEnabledTable() {
-        TableColumn<Plugin, Boolean> enabledColumnActive = new TableColumn<>("Active");
-        enabledColumnActive.setResizable(false);
-        enabledColumnActive.setCellValueFactory(e -> e.getValue().activeProperty());
-        enabledColumnActive.setCellFactory(e -> new CheckBoxTableCell<>());
-
-        TableColumn<Plugin, String> enabledColumnProcess = new TableColumn<>("Process Name");
-        enabledColumnProcess.setResizable(false);
-        enabledColumnProcess.setCellValueFactory(e -> e.getValue().processNameProperty());
-
-        TableColumn<Plugin, String> enabledColumnTitle = new TableColumn<>("Title");
-        enabledColumnTitle.setResizable(false);
-        enabledColumnTitle.setCellValueFactory(e -> e.getValue().titleProperty());
-
-        TableColumn<Plugin, String> enabledColumnArtist = new TableColumn<>("Artist");
-        enabledColumnArtist.setResizable(false);
-        enabledColumnArtist.setCellValueFactory(e -> e.getValue().artistProperty());
-
-        tblEnabledPlugins = new TableView<>(FXCollections.observableArrayList(enabledPlugins));
-        tblEnabledPlugins.getColumns().addAll(enabledColumnActive, enabledColumnProcess,
-                enabledColumnTitle, enabledColumnArtist);
-
-        enabledColumnActive.prefWidthProperty().bind(tblEnabledPlugins.widthProperty().multiply(0.1));
-        enabledColumnProcess.prefWidthProperty().bind(tblEnabledPlugins.widthProperty().multiply(0.299));
-        enabledColumnTitle.prefWidthProperty().bind(tblEnabledPlugins.widthProperty().multiply(0.299));
-        enabledColumnArtist.prefWidthProperty().bind(tblEnabledPlugins.widthProperty().multiply(0.299));
+     * Enabled plugins are kept in the same order as {@link Settings#enabledPlugins}, disabled plugins are sorted by
+     * their process name.
+     */
+    private synchronized void publish() {
+        List<Plugin> all = new ArrayList<>(plugins.values());
+
+        Set<String> processNames = new HashSet<>();
+        all.forEach(plugin -> processNames.add(plugin.getProcessName()));
+
+        List<Plugin> fallbacks = new ArrayList<>();
+        compiled.values().forEach(fallbacks::addAll);
+        fallbacks.addAll(bundled.values());
+
+        for (Plugin plugin : fallbacks) {
+            if (processNames.add(plugin.getProcessName())) {
+                all.add(plugin);
+            }
+        }
+
+        all.sort(Comparator.comparing(Plugin::getProcessName));
+
+        List<Plugin> enabled = Bot.SETTINGS.getEnabledPlugins(all);
+        all.removeAll(enabled);
+
+        index = new Index(enabled, all, new ArrayList<>(bundles.values()));
     }
 
     /**
-     * Designated table for disabled plugins. This table only contains the process name column.
+     * Checks whether any plugin, enabled or disabled, is installed or any {@link TrackSource} was started.
+     *
+     * @return Returns true if at least one plugin or non empty bundle was found in {@link Constants#PLUGIN_DIR} or
+     * songs can be received from a {@link TrackSource}.
      */
-    private void createDisabledTable() {
-        TableColumn<Plugin, String> disabledColumnProcess = new TableColumn<>("Disabled Plugins");
-        disabledColumnProcess.setMinWidth(40);
-        disabledColumnProcess.setCellValueFactory(e -> e.getValue().processNameProperty());
+    public boolean hasPlugins() {
+        Index current = index;
 
-        tblDisabledPlugins = new TableView<>(FXCollections.observableArrayList(disabledPlugins));
-        tblDisabledPlugins.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY);
-        tblDisabledPlugins.getColumns().addAll(disabledColumnProcess);
+        return !sources.isEmpty() || !current.enabled.isEmpty() || !current.disabled.isEmpty() ||
+                current.bundles.stream().anyMatch(bundle -> bundle.size() > 0);
     }
 
     /**
-     * Displays the {@link Plugin} creation/editing GUI.
-     * <p>
-     * All active processes with their window titles are displayed. Regex can be added and tested from this menu.
+     * Moves a disabled plugin to the end of the enabled plugins and saves the change to {@link Settings}.
      *
-     * @param selectedPlugin The plugin that is being edited. Is set to 'null' if there is no plugin being edited.
+     * @param plugin The plugin to enable.
      */
-    private void showPluginCreator(Plugin selectedPlugin) {
-        Stage stageAdd = new Stage();
-        stageAdd.setTitle("Add Plugin");
-        stageAdd.initModality(Modality.APPLICATION_MODAL);
-
-        TextField processName = new TextField();
-        processName.setPromptText("Process Name");
-        processName.setEditable(false);
-        TextField regex = new TextField();
-        regex.setPromptText("Regular Expression");
-
-        VBox textFields = new VBox();
-        textFields.setSpacing(4);
-        textFields.getChildren().addAll(processName, regex);
-
-        ComboBox<CMDProcess> comboBox = new ComboBox<>(FXCollections.observableArrayList(cmdProcesses));
-        comboBox.setCellFactory(param -> new ListCell<CMDProcess>() {
-            @Override
-            protected void updateItem(CMDProcess item, boolean empty) {
-                super.updateItem(item, empty);
-
-                setText(item == null ? "" : item.getWindowTitle() + " - " + item.getProcessName());
-            }
-        });
-        comboBox.setButtonCell(new ListCell<CMDProcess>() {
-            @Override
-            protected void updateItem(CMDProcess item, boolean empty) {
-                super.updateItem(item, empty);
+    void enablePlugin(Plugin plugin) {
+        Bot.SETTINGS.addPlugin(plugin);
+        Bot.SETTINGS.saveSettings();
 
-                setText(item == null ? "" : item.getWindowTitle());
-            }
-        });
-        comboBox.setPromptText("Choose Process");
+        publish();
+    }
 
-        comboBox.valueProperty().addListener((observableValue, oldValue, newValue) -> {
-            if (observableValue == null || observableValue.getValue() == null) {
-                return;
-            }
+    /**
+     * Moves an enabled plugin to the disabled plugins and saves the change to {@link Settings}.
+     *
+     * @param plugin The plugin to disable.
+     */
+    void disablePlugin(Plugin plugin) {
+        Bot.SETTINGS.removePlugin(plugin);
+        Bot.SETTINGS.saveSettings();
 
-            processName.setText(observableValue.getValue().getProcessName());
-        });
+        publish();
+    }
 
-        Button btnAddPlugin = new Button("Add Plugin");
-        btnAddPlugin.setOnAction(ex ->
-                showPluginSaver(stageAdd, comboBox.getButtonCell().getText(), processName.getText(), regex.getText()));
+    /**
+     * Deletes the file of a plugin and removes it from both lists.
+     *
+     * @param plugin The plugin to delete.
+     */
+    void deletePlugin(Plugin plugin) {
+        File file = plugin.getPluginFile();
+
+        if (plugin.isBundled()) {
+            Bot.PROMPT.showMessage("The plugin for '" + plugin.getProcessName() + "' is part of the bundle '" +
+                    file.getName() + "' and cannot be deleted on its own. Disable it instead, or unpack the bundle " +
+                    "with " + PluginBundleTool.class.getSimpleName() + ".");
+            return;
+        } else if (plugin.isCompiled()) {
+            Bot.PROMPT.showMessage("The plugin for '" + plugin.getProcessName() + "' is compiled into '" +
+                    file.getName() + "'. Disable it instead, or remove the jar from '" + Constants.PLUGIN_DIR + "'.");
+            return;
+        }
 
-        Button btnCancelPlugin = new Button("Cancel Plugin Add");
-        btnCancelPlugin.setOnAction(ex -> stageAdd.close());
+        file.delete();
 
-        Button btnRefreshProcesses = new Button("Refresh Processes");
-        btnRefreshProcesses.setOnAction(ex -> {
-            if (comboBox.getSelectionModel().getSelectedItem() == null) {
-                return;
-            }
+        synchronized (this) {
+            plugins.remove(file.toPath().toAbsolutePath().normalize());
 
-            String currentSelectedProcess = comboBox.getSelectionModel().getSelectedItem().getProcessName();
+            publish();
+        }
+    }
 
-            comboBox.setItems(FXCollections.observableArrayList(cmdProcesses));
-            Optional<CMDProcess> updatedCMDProcess = cmdProcesses.stream()
-                    .filter(updatedProcess -> updatedProcess.getProcessName().equals(currentSelectedProcess))
-                    .findFirst();
+    List<Plugin> getEnabledPlugins() {
+        return index.enabled;
+    }
 
-            updatedCMDProcess.ifPresent(cmdProcess -> comboBox.getSelectionModel().select(cmdProcess));
-        });
+    List<Plugin> getDisabledPlugins() {
+        return index.disabled;
+    }
 
-        BorderPane buttons = new BorderPane();
-        buttons.setRight(btnAddPlugin);
-        buttons.setCenter(btnRefreshProcesses);
-        buttons.setLeft(btnCancelPlugin);
+    /**
+     * Returns the processes found by the last process list update.
+     *
+     * @return Returns all current active processes with a window title.
+     */
+    List<CMDProcess> getProcesses() {
+        return cmdProcesses;
+    }
 
-        BorderPane all = new BorderPane();
-        all.setTop(comboBox);
-        all.setCenter(textFields);
-        all.setBottom(buttons);
+    /**
+     * Stops watching {@link Constants#PLUGIN_DIR} for changes, closes the class loaders of all extractor jars, the
+     * connection to the X server and stops all {@link TrackSource}s.
+     *
+     * @since 1.2
+     */
+    public void shutdown() {
+        if (watcher != null) {
+            watcher.close();
+        }
 
-        stageAdd.setScene(new Scene(all));
-        if (selectedPlugin != null) {
-            stageAdd.setOnShown(e -> {
-                Optional<CMDProcess> process = cmdProcesses.stream()
-                        .filter(ex -> ex.getProcessName().equals(selectedPlugin.getProcessName()))
-                        .findFirst();
+        if (x11ProcessList != null) {
+            x11ProcessList.close();
+        }
 
-                process.ifPresent(cmdProcess -> {
-                    comboBox.getSelectionModel().select(cmdProcess);
+        sources.forEach(TrackSource::close);
+        sources.clear();
+        pushed.clear();
 
-                    regex.setText(selectedPlugin.getRegex());
-                });
-            });
+        synchronized (this) {
+            new HashSet<>(classLoaders.keySet()).forEach(this::removeExtractors);
         }
-        stageAdd.showAndWait();
     }
 
     /**
-     * Allows for user to select any plugin file with extension {@link Constants#FILE_EXTENSION} to install. This is the
-     * Discord LastFM Scrobbler file extension and is what all files from this program, including plugins, are saved as.
-     * <p>
-     * If the selected plugin is valid, it will be renamed and copied to the plugin folder, which is
-     * {@link Constants#PLUGIN_DIR}.
+     * Returns a list of {@link CMDProcess} with information about all current active processes with a window title.
+     * This is done through the 'tasklist' command using the command prompt.
      *
-     * @param stage The {@link Stage} for which the {@link FileChooser} requires to display.
+     * @return Returns list of current active processes, which is empty if the system is not Windows.
      */
-    private void showPluginInstaller(Stage stage) {
-        FileChooser fileChooser = new FileChooser();
-        fileChooser.setTitle("Open " + Constants.FILE_EXTENSION + " file");
-        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Discord LastFM Scrobbler files",
-                "*" + Constants.FILE_EXTENSION));
+    static List<CMDProcess> getProcessList() {
+        if (System.getenv("windir") == null) {
+            return new ArrayList<>();
+        }
 
-        File file = fileChooser.showOpenDialog(stage);
-        if (file != null && file.exists()) {
-            Plugin plugin;
-            try {
-                plugin = new Plugin(file);
+        String[] commands = {System.getenv("windir").replace("\\", "/") + "/system32/" + "tasklist.exe",
+                "/v", "/fo", "CSV", "/fi", "\"SESSIONNAME eq Console\"", "/fi", "\"STATUS eq RUNNING\""};
 
-                File pluginFile = new File(Constants.PLUGIN_DIR + Tools.escapeFile(plugin.getProcessName()) +
-                        Constants.FILE_EXTENSION);
+        List<CMDProcess> processes = new ArrayList<>();
 
-                Files.move(file.toPath(), pluginFile.toPath());
-            } catch (IOException e) {
-                Logging.throwUserError("The file '" + file.getAbsolutePath() + "' is not a valid " +
-                        Constants.FILE_EXTENSION + "file as an error occured when reading the file. " +
-                        "Please fix the file or recreate the plugin using the plugin creator.");
-                return;
-            }
+        try {
+            Process process = Runtime.getRuntime().exec(commands);
+            BufferedReader r = new BufferedReader(new InputStreamReader(process.getInputStream(), "Cp850"));
+
+            String line;
+            while ((line = r.readLine()) != null) {
+                line = new String(line.getBytes(), "UTF-8");
 
-            disabledPlugins.add(plugin);
-            tblDisabledPlugins.setItems(FXCollections.observableList(disabledPlugins));
+                if (!line.endsWith("\"N/A\"") && !line.endsWith("\"Window Title\"")) {
+                    CMDProcess cmdProcess = new CMDProcess(line);
+
+                    Predicate<CMDProcess> predicate = predicateProcess ->
+                            predicateProcess.getProcessName().equalsIgnoreCase(cmdProcess.getProcessName());
+
+                    if (processes.stream().anyMatch(predicate)) {
+                        continue;
+                    }
+
+                    processes.add(cmdProcess);
+                }
+            }
+            r.close();
+        } catch (IOException e) {
+            e.printStackTrace();
         }
+
+        return processes;
     }
 
     /**
-     * Verifies whether the regex matches the process window title.
+     * Checks if {@link #cmdProcesses} contains any active music applications that are enabled in the current
+     * {@link Index}.
      * <p>
-     * If it does not match or the {@link Matcher#groupCount()} does not equal 2, the method will exit with an error.
+     * This method only updates Now Playing or only sends a Scrobble request for the first active music player in the
+     * order of the enabled plugins to prevent Last.FM API abuse. Later players are still matched but their songs are
+     * not passed to {@link com.sabihismail.DiscordLastFMScrobbler.lastFM.LastFMManager}, which would otherwise keep
+     * the song of the last one.
      * <p>
-     * If it does match, a verification of which group is the artist and title will appear. Upon confirmation, the
-     * data will be saved as a {@link Plugin} and it will be added to {@link #disabledPlugins}.
-     *
-     * @param stage              The {@link Stage} that will be hidden upon successful {@link Plugin} creation.
-     * @param processWindowTitle The window title of the selected process.
-     * @param processName        The name of the process.
-     * @param regex              Regex to test against the processWindowTitle.
-     */
-    private void showPluginSaver(Stage stage, String processWindowTitle, String processName, String regex) {
-        if (processName.equals("") || regex.equals("")) {
-            Alert alert = new Alert(Alert.AlertType.ERROR);
-            alert.setContentText("You must include regex to capture the artist and the title of the process " +
-                    "window title!");
-
-            alert.showAndWait();
-        } else {
-            Pattern pattern = Pattern.compile(regex);
-            Matcher matcher = pattern.matcher(processWindowTitle);
-
-            int artistGroup = 0;
-            int titleGroup = 0;
-
-            if (matcher.find() && matcher.groupCount() == 2) {
-                Alert alert = new Alert(Alert.AlertType.CONFIRMATION);
-                alert.setContentText("Is the artist: '" + matcher.group(1) + "' and the title: '" +
-                        matcher.group(2) + "'?");
-
-                ButtonType btnYes = new ButtonType("Yes");
-                ButtonType btnSwitched = new ButtonType("Other way around");
-                ButtonType btnNo = new ButtonType("No");
-
-                alert.getButtonTypes().setAll(btnYes, btnSwitched, btnNo);
-
-                Optional<ButtonType> result = alert.showAndWait();
-                if (result.isPresent()) {
-                    if (result.get() == btnYes) {
-                        artistGroup = 1;
-                        titleGroup = 2;
-                    } else if (result.get() == btnSwitched) {
-                        artistGroup = 2;
-                        titleGroup = 1;
+     * All enabled {@link Plugin}s have their {@link Plugin#title} and {@link Plugin#artist} updated
+     * automatically regardless of whether their data was sent to Last.FM servers.
+     * <p>
+     * Every match is limited to {@link #TIME_MATCH_BUDGET} so that a single regex that backtracks badly on a long
+     * window title cannot stall the check.
+     * <p>
+     * If a {@link TrackSource} is playing, its song is sent instead, so that it keeps counting towards its scrobble.
+     * Plugins are still matched so that the {@link PluginEditor} shows their current song.
+     * <p>
+     * Checks run one at a time, see {@link #checkLock}.
+     */
+    private void processCheck() {
+        synchronized (checkLock) {
+            long start = System.nanoTime();
+
+            Bot.LAST_FM_MANAGER.resetActiveProcess();
+
+            List<CMDProcess> cmdProcesses = this.cmdProcesses;
+            resolveBundled(cmdProcesses);
+
+            Optional<PushedTrack> pushedTrack = pushed.values().stream()
+                    .max(Comparator.comparingLong(track -> track.time));
+
+            boolean sent = pushedTrack.isPresent();
+
+            for (Plugin plugin : index.enabled) {
+                Optional<CMDProcess> cmdProcess = cmdProcesses.stream()
+                        .filter(process -> process.getProcessName().equals(plugin.getProcessName()))
+                        .findFirst();
+
+                if (cmdProcess.isPresent()) {
+                    if (match(plugin, cmdProcess.get().getWindowTitle())) {
+                        plugin.setActive(true);
+
+                        String artist = track.getArtist();
+                        String title = track.getTitle();
+
+                        if (!sent) {
+                            Bot.LAST_FM_MANAGER.processInformation(artist, title, track.getLength());
+                            sent = true;
+                        }
+
+                        plugin.setArtist(artist);
+                        plugin.setTitle(title);
+                    } else {
+                        plugin.setActive(false);
+
+                        plugin.setTitle("");
+                        plugin.setArtist("");
                     }
+                } else {
+                    plugin.setActive(false);
+
+                    plugin.setTitle("");
+                    plugin.setArtist("");
                 }
             }
 
-            if (artistGroup != 0) {
-                try {
-                    Plugin.create(processName, regex, artistGroup, titleGroup);
-                } catch (IOException e) {
-                    Logging.logError(new String[]{processName, regex, Integer.toString(artistGroup),
-                            Integer.toString(titleGroup)}, e);
-                }
+            pushedTrack.ifPresent(track -> Bot.LAST_FM_MANAGER.processInformation(track.artist, track.title,
+                    track.length));
 
-                retrieveAllPlugins();
-                tblEnabledPlugins.setItems(FXCollections.observableArrayList(enabledPlugins));
-                tblDisabledPlugins.setItems(FXCollections.observableArrayList(disabledPlugins));
+            POLL_CYCLE.recordMicrosSince(start);
+        }
+    }
 
-                stage.hide();
-            } else {
-                Alert alert = new Alert(Alert.AlertType.ERROR);
-                alert.setContentText("Unfortunately, your regex is invalid. Please use http://regexr.com/ to " +
-                        "test your regex.");
+    /**
+     * Reads the song from a window title into {@link #track} with the regex or extractor of a plugin, within
+     * {@link #TIME_MATCH_BUDGET}. A match that exceeds the budget counts as no match and is counted in the metric
+     * 'plugin_match_budget_exceeded_total', an extractor that throws an exception in 'plugin_match_failures_total'.
+     *
+     * @param plugin      The plugin whose regex or extractor is used.
+     * @param windowTitle The window title of the plugin's process.
+     * @return Returns true if a song was found.
+     */
+    private boolean match(Plugin plugin, String windowTitle) {
+        try {
+            return plugin.extract(new BudgetedCharSequence(windowTitle, TIME_MATCH_BUDGET), track);
+        } catch (RuntimeException e) {
+            (e instanceof BudgetedCharSequence.BudgetExceededException ? MATCH_BUDGET_EXCEEDED : MATCH_FAILURES)
+                    .increment();
 
-                alert.showAndWait();
+            if (failed.add(plugin)) {
+                Logging.logError(new String[]{plugin.getProcessName(), plugin.getRegex(), windowTitle}, e);
             }
+
+            return false;
         }
     }
 
-    public ScheduledExecutorService getExecutorMusicUpdate() {
-        return executorMusicUpdate;
+    /**
+     * The song a {@link TrackSource} is currently playing. Of all sources, the song of the most recent event is sent
+     * to Last.FM.
+     *
+     * @since 1.2
+     */
+    private static class PushedTrack {
+        private final String artist;
+        private final String title;
+        private final int length;
+        private final long time = System.nanoTime();
+
+        private PushedTrack(String artist, String title, int length) {
+            this.artist = artist;
+            this.title = title;
+            this.length = length;
+        }
+
+        private boolean isSameSong(PushedTrack track) {
+            return artist.equals(track.artist) && title.equals(track.title);
+        }
     }
 
-    public ScheduledExecutorService getExecutorProcessesUpdate() {
-        return executorProcessesUpdate;
+    /**
+     * An immutable snapshot of the enabled and disabled plugins and the installed bundles. A new snapshot is published
+     * whenever a plugin changes.
+     *
+     * @since 1.2
+     */
+    private static class Index {
+        private final List<Plugin> enabled;
+        private final List<Plugin> disabled;
+        private final List<PluginBundle> bundles;
+        private final Set<String> processNames = new HashSet<>();
+
+        private Index(List<Plugin> enabled, List<Plugin> disabled, List<PluginBundle> bundles) {
+            this.enabled = Collections.unmodifiableList(enabled);
+            this.disabled = Collections.unmodifiableList(disabled);
+            this.bundles = Collections.unmodifiableList(bundles);
+
+            enabled.forEach(plugin -> processNames.add(plugin.getProcessName()));
+            disabled.forEach(plugin -> processNames.add(plugin.getProcessName()));
+        }
     }
 }
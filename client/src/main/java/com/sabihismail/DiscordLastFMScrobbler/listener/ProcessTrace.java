@@ -0,0 +1,262 @@
+package com.sabihismail.DiscordLastFMScrobbler.listener;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A recording of the process lists seen over time, used by {@link ProcessTraceTool} to test plugins against real
+ * window titles without playing any music.
+ * <p>
+ * A trace file is gzip compressed and starts with the magic number 'DLFT', a version byte and the time the recording
+ * started. Each snapshot follows as the milliseconds since the previous snapshot, the amount of processes and the
+ * process name and window title of each process. Every distinct string is written once and later referenced by its
+ * index, and a snapshot is only written if it differs from the previous one, so hours of recording stay small. The
+ * file is flushed after every snapshot, so a recording that was killed can still be read up to its last snapshot.
+ *
+ * @since 1.2
+ */
+public class ProcessTrace {
+    private static final int MAGIC = 0x444C4654;
+    private static final int VERSION = 1;
+
+    /**
+     * Longest window title stored, as titles are written with {@link DataOutputStream#writeUTF(String)}.
+     */
+    private static final int MAX_STRING_LENGTH = 16384;
+
+    private final List<Snapshot> snapshots;
+
+    private ProcessTrace(List<Snapshot> snapshots) {
+        this.snapshots = Collections.unmodifiableList(snapshots);
+    }
+
+    /**
+     * Reads a trace file. A file that ends in the middle of a snapshot, because the recording was killed, is read up to
+     * the last complete snapshot.
+     *
+     * @param file The trace file.
+     * @return Returns the trace.
+     * @throws IOException Thrown if the file cannot be read or is not a trace.
+     */
+    public static ProcessTrace read(Path file) throws IOException {
+        List<Snapshot> snapshots = new ArrayList<>();
+
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(file))))) {
+            if (input.readInt() != MAGIC || input.readUnsignedByte() != VERSION) {
+                throw new IOException("'" + file + "' is not a process trace.");
+            }
+
+            List<String> strings = new ArrayList<>();
+            long time = input.readLong();
+
+            try {
+                while (true) {
+                    time += readVarInt(input);
+
+                    int count = readVarInt(input);
+                    List<CMDProcess> processes = new ArrayList<>(count);
+                    for (int i = 0; i < count; i++) {
+                        processes.add(new CMDProcess(readString(input, strings), readString(input, strings)));
+                    }
+
+                    snapshots.add(new Snapshot(time, processes));
+                }
+            } catch (EOFException e) {
+                // end of the trace
+            }
+        }
+
+        return new ProcessTrace(snapshots);
+    }
+
+    public List<Snapshot> getSnapshots() {
+        return snapshots;
+    }
+
+    /**
+     * Returns the time between the first and the last snapshot.
+     *
+     * @return Returns the duration in milliseconds.
+     */
+    public long getDuration() {
+        return snapshots.isEmpty() ? 0 : snapshots.get(snapshots.size() - 1).time - snapshots.get(0).time;
+    }
+
+    private static String readString(DataInputStream input, List<String> strings) throws IOException {
+        int index = readVarInt(input);
+
+        if (index == strings.size()) {
+            strings.add(input.readUTF());
+        } else if (index > strings.size()) {
+            throw new IOException("Invalid string reference " + index + " in process trace.");
+        }
+
+        return strings.get(index);
+    }
+
+    private static int readVarInt(DataInputStream input) throws IOException {
+        int value = 0;
+
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = input.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+
+        throw new IOException("Invalid number in process trace.");
+    }
+
+    private static void writeVarInt(DataOutputStream output, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            output.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+
+        output.writeByte(value);
+    }
+
+    /**
+     * The processes seen at one point in time.
+     */
+    public static class Snapshot {
+        private final long time;
+        private final List<CMDProcess> processes;
+
+        private Snapshot(long time, List<CMDProcess> processes) {
+            this.time = time;
+            this.processes = Collections.unmodifiableList(processes);
+        }
+
+        public long getTime() {
+            return time;
+        }
+
+        public List<CMDProcess> getProcesses() {
+            return processes;
+        }
+    }
+
+    /**
+     * Appends snapshots to a new trace file.
+     */
+    public static class Writer implements Closeable {
+        private final DataOutputStream output;
+        private final Map<String, Integer> strings = new HashMap<>();
+
+        private List<CMDProcess> previous = null;
+        private long previousTime;
+        private int written = 0;
+        private boolean closed = false;
+
+        /**
+         * Creates the trace file, replacing an existing file.
+         *
+         * @param file The trace file.
+         * @throws IOException Thrown if the file cannot be created.
+         */
+        public Writer(Path file) throws IOException {
+            output = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(file),
+                    true)));
+
+            previousTime = System.currentTimeMillis();
+
+            output.writeInt(MAGIC);
+            output.writeByte(VERSION);
+            output.writeLong(previousTime);
+            output.flush();
+        }
+
+        /**
+         * Writes a snapshot unless it is the same as the previous one or the writer was closed.
+         *
+         * @param time      The time of the snapshot in milliseconds.
+         * @param processes The processes of the snapshot.
+         * @return Returns true if the snapshot was written.
+         * @throws IOException Thrown if the file cannot be written.
+         */
+        public synchronized boolean write(long time, List<CMDProcess> processes) throws IOException {
+            if (closed || previous != null && isSame(previous, processes)) {
+                return false;
+            }
+
+            writeVarInt(output, (int) Math.max(0, time - previousTime));
+            writeVarInt(output, processes.size());
+            for (CMDProcess process : processes) {
+                writeString(process.getProcessName());
+                writeString(process.getWindowTitle());
+            }
+
+            output.flush();
+
+            previous = new ArrayList<>(processes);
+            previousTime = time;
+            written++;
+
+            return true;
+        }
+
+        /**
+         * Returns the amount of snapshots written so far.
+         *
+         * @return Returns the amount of snapshots.
+         */
+        public synchronized int getWritten() {
+            return written;
+        }
+
+        private void writeString(String string) throws IOException {
+            if (string.length() > MAX_STRING_LENGTH) {
+                string = string.substring(0, MAX_STRING_LENGTH);
+            }
+
+            Integer index = strings.get(string);
+            if (index != null) {
+                writeVarInt(output, index);
+            } else {
+                writeVarInt(output, strings.size());
+                output.writeUTF(string);
+
+                strings.put(string, strings.size());
+            }
+        }
+
+        private static boolean isSame(List<CMDProcess> previous, List<CMDProcess> processes) {
+            if (previous.size() != processes.size()) {
+                return false;
+            }
+
+            for (int i = 0; i < processes.size(); i++) {
+                if (!previous.get(i).getProcessName().equals(processes.get(i).getProcessName()) ||
+                        !previous.get(i).getWindowTitle().equals(processes.get(i).getWindowTitle())) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            closed = true;
+            output.close();
+        }
+    }
+}
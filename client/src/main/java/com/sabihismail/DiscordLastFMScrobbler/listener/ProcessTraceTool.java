@@ -0,0 +1,329 @@
+package com.sabihismail.DiscordLastFMScrobbler.listener;
+
+import com.sabihismail.DiscordLastFMScrobbler.tools.Constants;
+import org.json.JSONException;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Records the process lists of this machine into a {@link ProcessTrace} and replays traces against plugins from the
+ * command line, so that plugins can be tested without playing music through {@link PluginEditor}.
+ * <p>
+ * Replaying matches every window title of the trace whose process has a plugin, the same way
+ * {@link PluginManager#processCheck()} does, and reports the match rate and the throughput in titles per second of
+ * every process. Given a second set of plugins, for example the next version of a plugin, every title whose artist or
+ * title is extracted differently by the two sets is listed as well.
+ *
+ * @since 1.2
+ */
+public class ProcessTraceTool {
+    private static final String USAGE = "Usage: java -cp <jar> " + ProcessTraceTool.class.getName() + " <command>\n" +
+            "  record <trace" + Constants.TRACE_EXTENSION + "> [seconds]\n" +
+            "      Records the process list until stopped with CTRL + C or for the given amount of seconds.\n" +
+            "  replay <trace" + Constants.TRACE_EXTENSION + "> <plugins> [<plugins>]\n" +
+            "      Matches every window title of a trace against a set of plugins and compares it to a second set.\n" +
+            "      A set of plugins is a plugin file, bundle, jar or a folder of those, separated by ','.";
+
+    /**
+     * Time in milliseconds the throughput is measured for, after one pass to warm up.
+     */
+    private static final long THROUGHPUT_TIME = 500;
+
+    /**
+     * Most differences between two sets of plugins that are printed.
+     */
+    private static final int MAX_DIFFERENCES = 20;
+
+    /**
+     * Runs the command given in {@link #USAGE}.
+     *
+     * @param args The command and its arguments.
+     */
+    public static void main(String[] args) {
+        try {
+            if ((args.length == 2 || args.length == 3) && args[0].equals("record")) {
+                record(Paths.get(args[1]), args.length == 3 ? Long.parseLong(args[2]) : 0);
+            } else if ((args.length == 3 || args.length == 4) && args[0].equals("replay")) {
+                ProcessTrace trace = ProcessTrace.read(Paths.get(args[1]));
+
+                System.out.println("Trace '" + args[1] + "': " + trace.getSnapshots().size() + " snapshots over " +
+                        TimeUnit.MILLISECONDS.toSeconds(trace.getDuration()) + "s.");
+
+                Map<String, Plugin> first = readPlugins(args[2]);
+                Map<String, Result> firstResults = replay(trace, args[2], first);
+
+                if (args.length == 4) {
+                    Map<String, Plugin> second = readPlugins(args[3]);
+                    Map<String, Result> secondResults = replay(trace, args[3], second);
+
+                    compare(firstResults, secondResults, args[2], args[3]);
+                }
+            } else {
+                System.err.println(USAGE);
+                System.exit(1);
+            }
+        } catch (IOException | InterruptedException | NumberFormatException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Writes every changed process list to a trace. On an X11 desktop the changes are reported by the
+     * {@link X11ProcessList}, elsewhere the process list is read every second.
+     *
+     * @param file    The trace file.
+     * @param seconds The time to record for, or 0 to record until the program is stopped.
+     */
+    private static void record(Path file, long seconds) throws IOException, InterruptedException {
+        ProcessTrace.Writer writer = new ProcessTrace.Writer(file);
+        CountDownLatch stopped = new CountDownLatch(1);
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            stopped.countDown();
+
+            try {
+                writer.close();
+            } catch (IOException e) {
+                System.err.println(e.getMessage());
+            }
+
+            System.out.println("Recorded " + writer.getWritten() + " snapshots into '" + file + "'.");
+        }, "dlfs-shutdown"));
+
+        System.out.println("Recording into '" + file + "'" + (seconds > 0 ? " for " + seconds + "s" : "") + ".");
+
+        X11ProcessList x11ProcessList = null;
+        if (X11ProcessList.isSupported()) {
+            x11ProcessList = new X11ProcessList(processes -> write(writer, processes));
+            write(writer, x11ProcessList.getProcesses());
+        }
+
+        long end = seconds > 0 ? System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(seconds) : Long.MAX_VALUE;
+
+        while (System.currentTimeMillis() < end) {
+            if (x11ProcessList == null) {
+                write(writer, PluginManager.getProcessList());
+            }
+
+            if (stopped.await(Math.min(1000, end - System.currentTimeMillis()), TimeUnit.MILLISECONDS)) {
+                return;
+            }
+        }
+
+        if (x11ProcessList != null) {
+            x11ProcessList.close();
+        }
+
+        System.exit(0);
+    }
+
+    private static void write(ProcessTrace.Writer writer, List<CMDProcess> processes) {
+        try {
+            writer.write(System.currentTimeMillis(), processes);
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+        }
+    }
+
+    /**
+     * Reads a set of plugins. Only the first plugin of every process is kept, as in {@link PluginManager}.
+     *
+     * @param arguments Plugin files, bundles, jars and folders separated by ','.
+     * @return Returns the plugins by process name.
+     * @throws IOException Thrown if a plugin cannot be read.
+     */
+    private static Map<String, Plugin> readPlugins(String arguments) throws IOException {
+        List<File> files = new ArrayList<>();
+        for (String argument : arguments.split(",")) {
+            File file = new File(argument);
+
+            File[] children = file.listFiles((dir, name) -> PluginManager.isPluginFile(name));
+            if (children != null) {
+                Arrays.sort(children);
+                files.addAll(Arrays.asList(children));
+            } else {
+                files.add(file);
+            }
+        }
+
+        List<Plugin> plugins = new ArrayList<>();
+        for (File file : files) {
+            String name = file.getName();
+
+            try {
+                if (name.endsWith(Constants.BUNDLE_EXTENSION)) {
+                    plugins.addAll(new PluginBundle(file.toPath()).getAll());
+                } else if (name.endsWith(Constants.EXTRACTOR_EXTENSION)) {
+                    URLClassLoader classLoader = new URLClassLoader(new URL[]{file.toURI().toURL()},
+                            ProcessTraceTool.class.getClassLoader());
+
+                    for (TrackExtractor extractor : ServiceLoader.load(TrackExtractor.class, classLoader)) {
+                        plugins.add(new Plugin(file, extractor));
+                    }
+                } else {
+                    plugins.add(new Plugin(file));
+                }
+            } catch (JSONException | PatternSyntaxException | ServiceConfigurationError e) {
+                throw new IOException("'" + file + "' is not a valid plugin: " + e.getMessage(), e);
+            }
+        }
+
+        Map<String, Plugin> byProcess = new LinkedHashMap<>();
+        plugins.forEach(plugin -> byProcess.putIfAbsent(plugin.getProcessName(), plugin));
+
+        return byProcess;
+    }
+
+    /**
+     * Matches every window title of the trace whose process has a plugin and prints the match rate and throughput.
+     *
+     * @param trace   The trace.
+     * @param name    The name of the set of plugins, used in the output.
+     * @param plugins The plugins by process name.
+     * @return Returns the result of every distinct window title, by process name and window title.
+     */
+    private static Map<String, Result> replay(ProcessTrace trace, String name, Map<String, Plugin> plugins) {
+        List<CMDProcess> titles = new ArrayList<>();
+        for (ProcessTrace.Snapshot snapshot : trace.getSnapshots()) {
+            for (CMDProcess process : snapshot.getProcesses()) {
+                if (plugins.containsKey(process.getProcessName())) {
+                    titles.add(process);
+                }
+            }
+        }
+
+        Map<String, Result> results = new LinkedHashMap<>();
+        Map<String, int[]> counts = new TreeMap<>();
+        TrackExtractor.Track track = new TrackExtractor.Track();
+
+        for (CMDProcess process : titles) {
+            Result result = match(plugins.get(process.getProcessName()), process.getWindowTitle(), track);
+            results.putIfAbsent(process.getProcessName() + "\n" + process.getWindowTitle(), result);
+
+            int[] count = counts.computeIfAbsent(process.getProcessName(), key -> new int[3]);
+            count[0]++;
+            count[1] += result.matched ? 1 : 0;
+            count[2] += result.aborted ? 1 : 0;
+        }
+
+        long matches = 0;
+        long start = System.nanoTime();
+        long end = start + TimeUnit.MILLISECONDS.toNanos(THROUGHPUT_TIME);
+
+        while (!titles.isEmpty() && System.nanoTime() < end) {
+            for (CMDProcess process : titles) {
+                match(plugins.get(process.getProcessName()), process.getWindowTitle(), track);
+            }
+
+            matches += titles.size();
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.println();
+        System.out.println("Plugins '" + name + "': " + plugins.size() + " plugins, " + counts.size() +
+                " of them seen in the trace.");
+        System.out.println(String.format("  %-24s %8s %8s %8s %8s", "process", "titles", "matched", "rate",
+                "aborted"));
+
+        int[] total = new int[3];
+        for (Map.Entry<String, int[]> entry : counts.entrySet()) {
+            int[] count = entry.getValue();
+            printCounts(entry.getKey(), count);
+
+            for (int i = 0; i < total.length; i++) {
+                total[i] += count[i];
+            }
+        }
+
+        printCounts("total", total);
+        System.out.println(String.format("  %.0f titles per second", titles.isEmpty() ? 0 : matches / seconds));
+
+        return results;
+    }
+
+    private static void printCounts(String process, int[] count) {
+        System.out.println(String.format("  %-24s %8d %8d %7.1f%% %8d", process, count[0], count[1],
+                count[0] == 0 ? 0 : 100.0 * count[1] / count[0], count[2]));
+    }
+
+    /**
+     * Matches a window title within {@link PluginManager#TIME_MATCH_BUDGET}.
+     */
+    private static Result match(Plugin plugin, String windowTitle, TrackExtractor.Track track) {
+        try {
+            if (plugin.extract(new BudgetedCharSequence(windowTitle, PluginManager.TIME_MATCH_BUDGET), track)) {
+                return new Result(true, false, track.getArtist() + " - " + track.getTitle());
+            }
+
+            return new Result(false, false, "no match");
+        } catch (BudgetedCharSequence.BudgetExceededException e) {
+            return new Result(false, true, "aborted after " + PluginManager.TIME_MATCH_BUDGET + "ms");
+        } catch (RuntimeException e) {
+            return new Result(false, true, "failed with " + e);
+        }
+    }
+
+    /**
+     * Prints every window title that both sets of plugins matched against, but extracted differently.
+     */
+    private static void compare(Map<String, Result> first, Map<String, Result> second, String firstName,
+                                String secondName) {
+        List<String> differences = new ArrayList<>();
+        for (Map.Entry<String, Result> entry : first.entrySet()) {
+            Result other = second.get(entry.getKey());
+
+            if (other != null && !other.song.equals(entry.getValue().song)) {
+                differences.add(entry.getKey());
+            }
+        }
+
+        System.out.println();
+        System.out.println(differences.size() + " window titles are extracted differently by '" + firstName +
+                "' and '" + secondName + "'" + (differences.isEmpty() ? "." : ":"));
+
+        for (String key : differences.subList(0, Math.min(MAX_DIFFERENCES, differences.size()))) {
+            String[] process = key.split("\n", 2);
+
+            System.out.println("  " + process[0] + ": '" + process[1] + "'");
+            System.out.println("    " + first.get(key).song);
+            System.out.println("    " + second.get(key).song);
+        }
+
+        if (differences.size() > MAX_DIFFERENCES) {
+            System.out.println("  and " + (differences.size() - MAX_DIFFERENCES) + " more.");
+        }
+    }
+
+    /**
+     * The outcome of matching a single window title.
+     */
+    private static class Result {
+        private final boolean matched;
+        private final boolean aborted;
+        private final String song;
+
+        private Result(boolean matched, boolean aborted, String song) {
+            this.matched = matched;
+            this.aborted = aborted;
+            this.song = song;
+        }
+    }
+}
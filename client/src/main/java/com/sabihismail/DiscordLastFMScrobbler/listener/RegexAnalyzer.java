@@ -0,0 +1,305 @@
+package com.sabihismail.DiscordLastFMScrobbler.listener;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Finds plugin regexes that backtrack catastrophically before they are saved.
+ * <p>
+ * The regex is matched against generated window titles that are known to be hard for backtracking regexes: the sample
+ * title repeated, long runs of single characters or of the literal parts of the regex such as ' - ', and random titles
+ * made of those literals, each also with its last character replaced so that the match fails at the very end. Every
+ * title is generated in {@link #LENGTHS}.
+ * <p>
+ * A regex is rejected if a match on a title of realistic length, {@link #REALISTIC_LENGTH} characters or less, reads
+ * more than {@link #REJECT_READS} characters, as it would then regularly exceed {@link PluginManager#TIME_MATCH_BUDGET}
+ * and fail to match while playing music.
+ * <p>
+ * A regex is warned about if it grows faster than quadratically with the length of the title. Even a simple regex such
+ * as '(.*?) - (.*)' reads each character about n times on a title of n characters that it does not match, but a regex
+ * like '(.*?) - (.*) +(?:\[.*\])' reads each character about n * n times.
+ * <p>
+ * Both verdicts are based on counting the reads through {@link BudgetedCharSequence} rather than on time, so the result
+ * does not depend on the machine, on other programs using the CPU or on whether the JIT has compiled the regex engine
+ * yet. The time of each match is only measured to show it to the user.
+ *
+ * @since 1.2
+ */
+public class RegexAnalyzer {
+    /**
+     * Lengths of the generated titles.
+     */
+    private static final int[] LENGTHS = {64, 256, 1024};
+
+    /**
+     * Longest title length that window titles of music players realistically reach.
+     */
+    private static final int REALISTIC_LENGTH = 256;
+
+    /**
+     * Amount of characters a match of a title of realistic length may read. A compiled regex engine reads about this
+     * many characters in {@link PluginManager#TIME_MATCH_BUDGET} on a typical machine. Quadratic regexes read less than
+     * 150,000 characters on a title of {@link #REALISTIC_LENGTH} characters and '(.*?) - (.*) +(?:\[.*\])' less than
+     * 5,000,000.
+     */
+    private static final long REJECT_READS = 10 * 1000 * 1000;
+
+    /**
+     * A match of a title of n characters that reads more than this many times n * n characters grows faster than
+     * quadratically. Quadratic regexes stay at about 2.
+     */
+    private static final int QUADRATIC_READS = 8;
+
+    /**
+     * Time in milliseconds after which a match is aborted even if it has not read too many characters yet. The read
+     * limits end every match well before this on any machine, so this only keeps the editor from freezing.
+     */
+    private static final long SAFETY_BUDGET = 10 * 1000;
+
+    /**
+     * Amount of random titles generated per length. The random titles are the same on every run.
+     */
+    private static final int RANDOM_TITLES = 8;
+
+    public enum Verdict {
+        OK, WARN, REJECT
+    }
+
+    /**
+     * Matches a regex against all generated titles, stopping early once the {@link Verdict} cannot change anymore.
+     *
+     * @param pattern     The compiled plugin regex.
+     * @param sampleTitle A real window title of the process, used as a base for some of the generated titles.
+     * @return Returns the slowest match and the resulting {@link Verdict}.
+     */
+    public static Report analyze(Pattern pattern, String sampleTitle) {
+        Report report = new Report();
+        List<String> literals = literals(pattern.pattern());
+        Random random = new Random(pattern.pattern().hashCode());
+
+        for (int length : LENGTHS) {
+            for (String title : titles(sampleTitle, literals, random, length)) {
+                String failing = title.substring(0, length - 1) + "\u0000";
+
+                for (String candidate : new String[]{title, failing}) {
+                    measure(pattern, candidate, report);
+
+                    if (report.verdict == Verdict.REJECT ||
+                            report.verdict == Verdict.WARN && length > REALISTIC_LENGTH) {
+                        return report;
+                    }
+                }
+            }
+        }
+
+        return report;
+    }
+
+    /**
+     * Measures a match and adds it to the report.
+     * <p>
+     * A title of realistic length is matched within {@link #REJECT_READS}, longer titles within
+     * {@link #QUADRATIC_READS}. A match that is not aborted is run twice and the faster time is shown, so that the time
+     * shown is not that of a single slow first run before the regex engine was compiled by the JIT.
+     *
+     * @param pattern The regex.
+     * @param title   The title to match.
+     * @param report  The report to add the result to.
+     */
+    private static void measure(Pattern pattern, String title, Report report) {
+        int length = title.length();
+        boolean realistic = length <= REALISTIC_LENGTH;
+        long maxReads = realistic ? REJECT_READS : (long) QUADRATIC_READS * length * length;
+        Verdict exceeded = realistic ? Verdict.REJECT : Verdict.WARN;
+
+        long fastest = Long.MAX_VALUE;
+        long reads = 0;
+
+        for (int run = 0; run < 2; run++) {
+            BudgetedCharSequence sequence = new BudgetedCharSequence(title, SAFETY_BUDGET, maxReads);
+            long start = System.nanoTime();
+
+            try {
+                pattern.matcher(sequence).find();
+            } catch (BudgetedCharSequence.BudgetExceededException e) {
+                report.add(title, exceeded, sequence.getReads(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() -
+                        start), true);
+                return;
+            }
+
+            fastest = Math.min(fastest, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            reads = sequence.getReads();
+        }
+
+        report.add(title, reads > maxReads ? exceeded : Verdict.OK, reads, fastest, false);
+    }
+
+    /**
+     * Generates the titles of a single length.
+     *
+     * @param sampleTitle A real window title.
+     * @param literals    The literal parts of the regex.
+     * @param random      The source of the random titles.
+     * @param length      The length of every title.
+     * @return Returns the generated titles.
+     */
+    private static List<String> titles(String sampleTitle, List<String> literals, Random random, int length) {
+        List<String> titles = new ArrayList<>();
+
+        if (!sampleTitle.isEmpty()) {
+            titles.add(repeat(sampleTitle, length));
+        }
+
+        for (String literal : literals) {
+            titles.add(repeat(literal, length));
+            titles.add(repeat("a" + literal, length));
+        }
+
+        StringBuilder alphabet = new StringBuilder("aA0 ");
+        for (int i = 0; i < alphabet.length(); i++) {
+            titles.add(repeat(String.valueOf(alphabet.charAt(i)), length));
+        }
+
+        literals.forEach(alphabet::append);
+
+        for (int i = 0; i < RANDOM_TITLES; i++) {
+            StringBuilder title = new StringBuilder(length);
+
+            while (title.length() < length) {
+                if (!literals.isEmpty() && random.nextInt(4) == 0) {
+                    title.append(literals.get(random.nextInt(literals.size())));
+                } else {
+                    title.append(alphabet.charAt(random.nextInt(alphabet.length())));
+                }
+            }
+
+            title.setLength(length);
+            titles.add(title.toString());
+        }
+
+        return titles;
+    }
+
+    /**
+     * Extracts the literal parts of a regex, for example ' - ' and '[' from '(.*?) - (.*) +(?:\[.*\])', together with
+     * each of their characters.
+     *
+     * @param regex The regex.
+     * @return Returns the literal parts without duplicates.
+     */
+    private static List<String> literals(String regex) {
+        Set<String> literals = new LinkedHashSet<>();
+        StringBuilder current = new StringBuilder();
+
+        for (int i = 0; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+
+            if (c == '\\' && i + 1 < regex.length()) {
+                char escaped = regex.charAt(++i);
+
+                if (!Character.isLetterOrDigit(escaped)) {
+                    current.append(escaped);
+                    continue;
+                }
+            } else if ("()[]{}*+?.|^$".indexOf(c) == -1) {
+                current.append(c);
+                continue;
+            }
+
+            addLiteral(literals, current);
+        }
+
+        addLiteral(literals, current);
+
+        return new ArrayList<>(literals);
+    }
+
+    private static void addLiteral(Set<String> literals, StringBuilder literal) {
+        if (literal.length() > 0) {
+            literals.add(literal.toString());
+
+            for (int i = 0; i < literal.length(); i++) {
+                literals.add(String.valueOf(literal.charAt(i)));
+            }
+
+            literal.setLength(0);
+        }
+    }
+
+    private static String repeat(String text, int length) {
+        StringBuilder builder = new StringBuilder(length + text.length());
+
+        while (builder.length() < length) {
+            builder.append(text);
+        }
+
+        builder.setLength(length);
+
+        return builder.toString();
+    }
+
+    /**
+     * The match that read the most characters found by {@link #analyze(Pattern, String)} among those with the worst
+     * {@link Verdict} of all matches.
+     */
+    public static class Report {
+        private Verdict verdict = Verdict.OK;
+        private long worstReads = -1;
+        private long worstMillis = -1;
+        private String worstTitle = "";
+        private boolean worstAborted = false;
+
+        private void add(String title, Verdict result, long reads, long millis, boolean aborted) {
+            if (result.compareTo(verdict) > 0 || result == verdict && reads > worstReads) {
+                worstReads = reads;
+                worstMillis = millis;
+                worstTitle = title;
+                worstAborted = aborted;
+            }
+
+            if (result.compareTo(verdict) > 0) {
+                verdict = result;
+            }
+        }
+
+        public Verdict getVerdict() {
+            return verdict;
+        }
+
+        public long getWorstMillis() {
+            return worstMillis;
+        }
+
+        public long getWorstReads() {
+            return worstReads;
+        }
+
+        /**
+         * Describes the worst match for the user in terms of the {@link Verdict}.
+         *
+         * @return Returns how much the worst match read or how long it took and the start of the title it occurred on.
+         */
+        public String getMessage() {
+            String preview = worstTitle.length() > 40 ? worstTitle.substring(0, 40) + "..." : worstTitle;
+            String on = " on a window title of " + worstTitle.length() + " characters ('" +
+                    preview.replace("\u0000", "") + "')";
+            String read = (worstAborted ? "more than " : "") + String.format("%,d", worstReads) + " characters";
+
+            switch (verdict) {
+                case REJECT:
+                    return "The worst match read " + read + on + ", more than a match can read in the " +
+                            PluginManager.TIME_MATCH_BUDGET + "ms after which matches of window titles are aborted.";
+                case WARN:
+                    return "The worst match read " + read + on + " and grows faster than quadratically with longer " +
+                            "titles.";
+                default:
+                    return "The worst match read " + read + " in " + worstMillis + "ms" + on + ".";
+            }
+        }
+    }
+}
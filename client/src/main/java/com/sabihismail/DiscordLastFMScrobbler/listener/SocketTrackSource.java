@@ -0,0 +1,203 @@
+package com.sabihismail.DiscordLastFMScrobbler.listener;
+
+import com.sabihismail.DiscordLastFMScrobbler.tools.Logging;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A {@link TrackSource} that accepts newline delimited event lines from music applications or scripts connecting to a
+ * port on the loopback address, for example:
+ * <pre>
+ * echo '{"artist": "Artist", "title": "Title", "length": 215}' | nc 127.0.0.1 7777
+ * echo '{"state": "stopped"}' | nc 127.0.0.1 7777
+ * </pre>
+ * Every connection may send any amount of events and keeps its own song, so a stopped event on one connection does not
+ * stop the song of another. Of all songs playing, the most recently reported one is passed on.
+ * <p>
+ * Closing a connection does not stop its song, so that a script can report a song and disconnect as above. The song of
+ * a closed connection keeps playing until another song is reported or a stopped event is sent on any connection.
+ * <p>
+ * Only connections from the same machine are accepted.
+ *
+ * @since 1.2
+ */
+public class SocketTrackSource implements TrackSource {
+    /**
+     * Longest event line accepted. Longer lines are skipped.
+     */
+    private static final int MAX_LINE_LENGTH = 8192;
+
+    /**
+     * Key in {@link #songs} of the song left playing by connections that were closed.
+     */
+    private static final Object CLOSED = new Object();
+
+    private final int port;
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+
+    /**
+     * The song of every connection that is playing one, by connection. Guarded by this instance.
+     */
+    private final Map<Object, Song> songs = new HashMap<>();
+    private long sequence = 0;
+
+    private ServerSocket serverSocket;
+
+    /**
+     * @param port The port to listen on.
+     */
+    public SocketTrackSource(int port) {
+        this.port = port;
+    }
+
+    @Override
+    public String getName() {
+        return "socket '127.0.0.1:" + port + "'";
+    }
+
+    @Override
+    public void start(Sink sink) throws IOException {
+        serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+
+        Thread thread = new Thread(() -> accept(sink), "dlfs-track-source-socket");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Accepts connections until {@link #close()} is called.
+     *
+     * @param sink The sink to pass the events to.
+     */
+    private void accept(Sink sink) {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                connections.add(socket);
+
+                Thread thread = new Thread(() -> read(socket, sink), "dlfs-track-source-connection");
+                thread.setDaemon(true);
+                thread.start();
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    Logging.logError(new String[]{getName()}, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Delivers every line of a connection until it is closed.
+     *
+     * @param socket The connection.
+     * @param sink   The sink to pass the events to.
+     */
+    private void read(Socket socket, Sink sink) {
+        Object connection = new Object();
+
+        Sink connectionSink = new Sink() {
+            @Override
+            public void playing(TrackSource source, String artist, String title, int length) {
+                synchronized (SocketTrackSource.this) {
+                    songs.remove(CLOSED);
+                    songs.put(connection, new Song(artist, title, length, sequence++));
+
+                    sink.playing(SocketTrackSource.this, artist, title, length);
+                }
+            }
+
+            @Override
+            public void stopped(TrackSource source) {
+                synchronized (SocketTrackSource.this) {
+                    boolean wasPlaying = songs.remove(connection) != null;
+                    wasPlaying |= songs.remove(CLOSED) != null;
+
+                    if (!wasPlaying) {
+                        return;
+                    }
+
+                    Optional<Song> latest = songs.values().stream()
+                            .max(Comparator.comparingLong(song -> song.sequence));
+
+                    if (latest.isPresent()) {
+                        Song song = latest.get();
+                        sink.playing(SocketTrackSource.this, song.artist, song.title, song.length);
+                    } else {
+                        sink.stopped(SocketTrackSource.this);
+                    }
+                }
+            }
+        };
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.length() <= MAX_LINE_LENGTH) {
+                    TrackSource.deliver(line, this, connectionSink);
+                }
+            }
+        } catch (IOException e) {
+            if (!serverSocket.isClosed()) {
+                Logging.logError(new String[]{getName()}, e);
+            }
+        } finally {
+            connections.remove(socket);
+
+            synchronized (this) {
+                Song song = songs.remove(connection);
+                Song closed = songs.get(CLOSED);
+
+                if (song != null && (closed == null || closed.sequence < song.sequence)) {
+                    songs.put(CLOSED, song);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        if (serverSocket == null) {
+            return;
+        }
+
+        try {
+            serverSocket.close();
+
+            for (Socket socket : connections) {
+                socket.close();
+            }
+        } catch (IOException e) {
+            Logging.logError(new String[]{getName()}, e);
+        }
+    }
+
+    /**
+     * A song reported by a connection. The sequence tells which song was reported last.
+     */
+    private static class Song {
+        private final String artist;
+        private final String title;
+        private final int length;
+        private final long sequence;
+
+        private Song(String artist, String title, int length, long sequence) {
+            this.artist = artist;
+            this.title = title;
+            this.length = length;
+            this.sequence = sequence;
+        }
+    }
+}
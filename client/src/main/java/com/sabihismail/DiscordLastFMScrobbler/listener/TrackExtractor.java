@@ -0,0 +1,73 @@
+package com.sabihismail.DiscordLastFMScrobbler.listener;
+
+import com.sabihismail.DiscordLastFMScrobbler.tools.Constants;
+
+/**
+ * A compiled alternative to the regex of a {@link Plugin} plugin file, for music applications whose window titles are
+ * too varied for a single regex, such as browsers with many tab formats.
+ * <p>
+ * Implementations are packaged in a jar in {@link Constants#PLUGIN_DIR} and registered in the jar's
+ * 'META-INF/services/com.sabihismail.DiscordLastFMScrobbler.listener.TrackExtractor' file, from which they are
+ * discovered by {@link java.util.ServiceLoader}. Every implementation needs a public no argument constructor and
+ * becomes a {@link Plugin} for the process returned by {@link #getProcessName()} that can be enabled and disabled like
+ * any other.
+ * <p>
+ * {@link #extract(CharSequence, CharSequence, Track)} is called by the process check about once a second for as long
+ * as the process is running, so it should not allocate anything when the window title does not contain a song. The
+ * window title is a {@link BudgetedCharSequence} and an extraction that takes longer than
+ * {@link PluginManager#TIME_MATCH_BUDGET} is aborted like a slow regex.
+ *
+ * @since 1.2
+ */
+public interface TrackExtractor {
+    /**
+     * Returns the name of the process this extractor reads, for example 'chrome.exe'.
+     *
+     * @return Returns the process name.
+     */
+    String getProcessName();
+
+    /**
+     * Reads the song from a window title of the process.
+     *
+     * @param processName The name of the process.
+     * @param windowTitle The current window title of the process.
+     * @param track       The track to fill in if a song was found, which is reused between calls.
+     * @return Returns true if a song was found and {@link Track#set(String, String, int)} was called.
+     */
+    boolean extract(CharSequence processName, CharSequence windowTitle, Track track);
+
+    /**
+     * The song found by {@link #extract(CharSequence, CharSequence, Track)}.
+     */
+    final class Track {
+        private String artist = "";
+        private String title = "";
+        private int length = 0;
+
+        /**
+         * Stores the song.
+         *
+         * @param artist The artist of the song.
+         * @param title  The title of the song.
+         * @param length The length of the song in seconds (0 if unknown).
+         */
+        public void set(String artist, String title, int length) {
+            this.artist = artist;
+            this.title = title;
+            this.length = length;
+        }
+
+        public String getArtist() {
+            return artist;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        public int getLength() {
+            return length;
+        }
+    }
+}
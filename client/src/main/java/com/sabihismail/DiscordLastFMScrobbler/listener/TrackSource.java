@@ -0,0 +1,105 @@
+package com.sabihismail.DiscordLastFMScrobbler.listener;
+
+import com.sabihismail.DiscordLastFMScrobbler.tools.Logging;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A source of now playing events that are pushed by the music application instead of being read from its window title
+ * by {@link PluginManager#processCheck()}.
+ * <p>
+ * A source reports a change as soon as it happens and costs nothing while nothing changes. {@link PluginManager} hands
+ * every change to {@link com.sabihismail.DiscordLastFMScrobbler.lastFM.LastFMManager} right away and repeats the
+ * current song of a playing source on every process check, so that songs from a source are scrobbled exactly like
+ * songs read from window titles.
+ * <p>
+ * Events are single lines, either JSON such as {"artist": "Artist", "title": "Title", "length": 215} with an optional
+ * "state" of "playing", "paused" or "stopped", or plain text such as 'Artist - Title'. See
+ * {@link #deliver(String, TrackSource, Sink)}.
+ *
+ * @since 1.2
+ */
+public interface TrackSource extends Closeable {
+    /**
+     * Returns a name for the source, used in logs.
+     *
+     * @return Returns the name of the source.
+     */
+    String getName();
+
+    /**
+     * Starts listening for events on a thread of the source.
+     *
+     * @param sink Receives every event until {@link #close()} is called.
+     * @throws IOException Thrown if the source cannot be opened.
+     */
+    void start(Sink sink) throws IOException;
+
+    /**
+     * Stops listening for events.
+     */
+    @Override
+    void close();
+
+    /**
+     * Receives the events of a {@link TrackSource}.
+     */
+    interface Sink {
+        /**
+         * Called when the source starts playing a song.
+         *
+         * @param source The source.
+         * @param artist The artist of the song.
+         * @param title  The title of the song.
+         * @param length The length of the song in seconds (0 if unknown).
+         */
+        void playing(TrackSource source, String artist, String title, int length);
+
+        /**
+         * Called when the source stopped or paused playing.
+         *
+         * @param source The source.
+         */
+        void stopped(TrackSource source);
+    }
+
+    /**
+     * Parses a single event line and passes it on to a {@link Sink}.
+     * <p>
+     * A JSON event with a "state" other than "playing", or without an artist or title, counts as stopped. A plain
+     * text line is split at the first ' - ' into artist and title and is ignored if it does not contain one.
+     *
+     * @param line   The event line.
+     * @param source The source the line was read from.
+     * @param sink   The sink to pass the event to.
+     */
+    static void deliver(String line, TrackSource source, Sink sink) {
+        line = line.trim();
+
+        if (line.startsWith("{")) {
+            try {
+                JSONObject json = new JSONObject(line);
+
+                String artist = json.optString("artist", "");
+                String title = json.optString("title", "");
+
+                if (json.optString("state", "playing").equals("playing") && !artist.isEmpty() && !title.isEmpty()) {
+                    sink.playing(source, artist, title, json.optInt("length", 0));
+                } else {
+                    sink.stopped(source);
+                }
+            } catch (JSONException e) {
+                Logging.logError(new String[]{source.getName(), line}, e);
+            }
+        } else {
+            int separator = line.indexOf(" - ");
+
+            if (separator > 0 && separator + 3 < line.length()) {
+                sink.playing(source, line.substring(0, separator), line.substring(separator + 3), 0);
+            }
+        }
+    }
+}
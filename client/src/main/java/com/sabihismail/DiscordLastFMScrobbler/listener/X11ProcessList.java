@@ -0,0 +1,611 @@
+package com.sabihismail.DiscordLastFMScrobbler.listener;
+
+import com.sabihismail.DiscordLastFMScrobbler.tools.Logging;
+import com.sabihismail.DiscordLastFMScrobbler.tools.Metrics;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.net.ProtocolFamily;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Lists the windows of an X11 desktop as {@link CMDProcess}es, the Linux counterpart of the 'tasklist' command used on
+ * Windows.
+ * <p>
+ * Instead of starting a program such as 'xprop' for every process list, a single connection to the X server is kept
+ * open for as long as the program runs and the X11 protocol is spoken directly. The windows are read from the
+ * '_NET_CLIENT_LIST' property of the root window, their titles from '_NET_WM_NAME' or 'WM_NAME' and their process from
+ * '_NET_WM_PID'. The X server then sends a 'PropertyNotify' event whenever a window opens or closes or a title changes,
+ * so the process list is kept up to date by events and nothing is polled. Every change is reported to the listener
+ * given to the constructor.
+ * <p>
+ * The process name of a window is the file name of the executable of its process, for example 'spotify', read from
+ * '/proc'. Like the 'tasklist' list, only the first window with a title of every process is listed.
+ * <p>
+ * The X server is reached through its Unix socket, which requires Java 16 or newer, or through TCP if the display
+ * names a host or the Unix socket cannot be used. The 'MIT-MAGIC-COOKIE-1' of the display is read from the Xauthority
+ * file if there is one.
+ *
+ * @since 1.2
+ */
+class X11ProcessList implements Closeable {
+    private static final int OPCODE_CHANGE_WINDOW_ATTRIBUTES = 2;
+    private static final int OPCODE_INTERN_ATOM = 16;
+    private static final int OPCODE_GET_PROPERTY = 20;
+
+    private static final int REPLY = 1;
+    private static final int ERROR = 0;
+    private static final int GENERIC_EVENT = 35;
+    private static final int PROPERTY_NOTIFY = 28;
+
+    private static final int CW_EVENT_MASK = 0x800;
+    private static final int PROPERTY_CHANGE_MASK = 0x400000;
+
+    private static final int ATOM_ANY = 0;
+    private static final int ATOM_CARDINAL = 6;
+    private static final int ATOM_STRING = 31;
+    private static final int ATOM_WINDOW = 33;
+    private static final int ATOM_WM_NAME = 39;
+    private static final int ATOM_WM_CLASS = 67;
+
+    private static final String AUTH_NAME = "MIT-MAGIC-COOKIE-1";
+
+    /**
+     * Most windows and longest titles read, in units of 4 bytes.
+     */
+    private static final int MAX_CLIENTS = 4096;
+    private static final int MAX_TITLE = 1024;
+
+    private static final LongAdder EVENTS = Metrics.counter("x11_events_total");
+
+    private final String display;
+    private final Consumer<List<CMDProcess>> onChanged;
+
+    private final Closeable connection;
+    private final DataInputStream in;
+    private final OutputStream out;
+
+    private final int root;
+    private final int netClientList;
+    private final int netWmName;
+    private final int netWmPid;
+    private final int utf8String;
+
+    /**
+     * Events read while waiting for a reply, which are handled once the reply arrived.
+     */
+    private final Deque<byte[]> pending = new ArrayDeque<>();
+
+    private Map<Integer, Window> windows = new LinkedHashMap<>();
+    private int sequence = 0;
+
+    private volatile List<CMDProcess> processes = Collections.emptyList();
+    private volatile boolean closed = false;
+
+    /**
+     * Connects to the X server of the display in the 'DISPLAY' environment variable, reads all windows and starts
+     * listening for changes.
+     *
+     * @param onChanged Called with the new process list whenever a window opened, closed or changed its title.
+     * @throws IOException Thrown if the X server cannot be reached or refuses the connection.
+     */
+    X11ProcessList(Consumer<List<CMDProcess>> onChanged) throws IOException {
+        this(System.getenv("DISPLAY"), onChanged);
+    }
+
+    /**
+     * Connects to the X server of a display, reads all windows and starts listening for changes.
+     *
+     * @param display   The display, for example ':0' or '127.0.0.1:1'.
+     * @param onChanged Called with the new process list whenever a window opened, closed or changed its title.
+     * @throws IOException Thrown if the X server cannot be reached or refuses the connection.
+     */
+    X11ProcessList(String display, Consumer<List<CMDProcess>> onChanged) throws IOException {
+        this.display = display;
+        this.onChanged = onChanged;
+
+        if (display == null || display.lastIndexOf(':') == -1) {
+            throw new IOException("No X11 display is set.");
+        }
+
+        String host = display.substring(0, display.lastIndexOf(':'));
+        String[] numbers = display.substring(display.lastIndexOf(':') + 1).split("\\.");
+        int displayNumber;
+        int screenNumber;
+        try {
+            displayNumber = Integer.parseInt(numbers[0]);
+            screenNumber = numbers.length > 1 ? Integer.parseInt(numbers[1]) : 0;
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid X11 display '" + display + "'.", e);
+        }
+
+        if (host.isEmpty() || host.equals("unix")) {
+            Closeable connection;
+            InputStream input;
+            OutputStream output;
+
+            try {
+                SocketChannel channel = openUnixSocket("/tmp/.X11-unix/X" + displayNumber);
+
+                connection = channel;
+                input = Channels.newInputStream(channel);
+                output = Channels.newOutputStream(channel);
+            } catch (IOException e) {
+                Socket socket = new Socket("localhost", 6000 + displayNumber);
+
+                connection = socket;
+                input = socket.getInputStream();
+                output = socket.getOutputStream();
+            }
+
+            this.connection = connection;
+            this.in = new DataInputStream(input);
+            this.out = output;
+        } else {
+            Socket socket = new Socket(host, 6000 + displayNumber);
+
+            this.connection = socket;
+            this.in = new DataInputStream(socket.getInputStream());
+            this.out = socket.getOutputStream();
+        }
+
+        try {
+            root = setup(String.valueOf(displayNumber), screenNumber);
+
+            netClientList = internAtom("_NET_CLIENT_LIST");
+            netWmName = internAtom("_NET_WM_NAME");
+            netWmPid = internAtom("_NET_WM_PID");
+            utf8String = internAtom("UTF8_STRING");
+
+            selectPropertyChanges(root);
+            readClients();
+        } catch (IOException e) {
+            connection.close();
+            throw e;
+        }
+
+        Thread thread = new Thread(this::listen, "dlfs-x11-events");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Checks whether window titles can be read from an X server, which is the case on every system other than Windows
+     * with a 'DISPLAY'.
+     *
+     * @return Returns true if an X11 display is set.
+     */
+    static boolean isSupported() {
+        return !System.getProperty("os.name").startsWith("Windows") && System.getenv("DISPLAY") != null;
+    }
+
+    /**
+     * Returns the processes as of the last change.
+     *
+     * @return Returns the first window with a title of every process.
+     */
+    List<CMDProcess> getProcesses() {
+        return processes;
+    }
+
+    /**
+     * Handles events until the connection is closed.
+     */
+    private void listen() {
+        try {
+            while (true) {
+                handleEvent(pending.isEmpty() ? readPacket() : pending.poll());
+            }
+        } catch (IOException e) {
+            if (!closed) {
+                Logging.logError(new String[]{display}, e);
+
+                processes = Collections.emptyList();
+                onChanged.accept(processes);
+            }
+        }
+    }
+
+    private void handleEvent(byte[] event) throws IOException {
+        if ((event[0] & 0x7F) != PROPERTY_NOTIFY) {
+            return;
+        }
+
+        EVENTS.increment();
+
+        int window = readInt(event, 4);
+        int atom = readInt(event, 8);
+
+        if (window == root && atom == netClientList) {
+            readClients();
+        } else if (atom == netWmName || atom == ATOM_WM_NAME) {
+            Window changed = windows.get(window);
+
+            if (changed != null) {
+                changed.title = readTitle(window);
+
+                publish();
+            }
+        }
+    }
+
+    /**
+     * Reads the windows of the root window's '_NET_CLIENT_LIST' and the title and process name of every window that
+     * was not known yet. New windows report their title changes from then on.
+     */
+    private void readClients() throws IOException {
+        byte[] value = getProperty(root, netClientList, ATOM_WINDOW, MAX_CLIENTS);
+
+        Map<Integer, Window> current = new LinkedHashMap<>();
+        if (value != null) {
+            for (int i = 0; i + 4 <= value.length; i += 4) {
+                int id = readInt(value, i);
+                Window window = windows.get(id);
+
+                if (window == null) {
+                    selectPropertyChanges(id);
+
+                    window = new Window(readProcessName(id), readTitle(id));
+                }
+
+                current.put(id, window);
+            }
+        }
+
+        windows = current;
+
+        publish();
+    }
+
+    /**
+     * Replaces {@link #processes} with the current windows and reports it if anything changed.
+     */
+    private void publish() {
+        Map<String, CMDProcess> byName = new LinkedHashMap<>();
+        for (Window window : windows.values()) {
+            if (!window.processName.isEmpty() && !window.title.isEmpty()) {
+                byName.putIfAbsent(window.processName, new CMDProcess(window.processName, window.title));
+            }
+        }
+
+        List<CMDProcess> current = Collections.unmodifiableList(new ArrayList<>(byName.values()));
+        List<CMDProcess> previous = processes;
+
+        boolean changed = current.size() != previous.size();
+        for (int i = 0; !changed && i < current.size(); i++) {
+            changed = !current.get(i).getProcessName().equals(previous.get(i).getProcessName()) ||
+                    !current.get(i).getWindowTitle().equals(previous.get(i).getWindowTitle());
+        }
+
+        if (changed) {
+            processes = current;
+            onChanged.accept(current);
+        }
+    }
+
+    private String readTitle(int window) throws IOException {
+        byte[] title = getProperty(window, netWmName, utf8String, MAX_TITLE);
+        if (title != null && title.length > 0) {
+            return new String(title, StandardCharsets.UTF_8);
+        }
+
+        title = getProperty(window, ATOM_WM_NAME, ATOM_ANY, MAX_TITLE);
+        return title == null ? "" : new String(title, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Reads the name of the executable of the window's process from '/proc', or the instance name of its 'WM_CLASS'
+     * if the process is unknown.
+     */
+    private String readProcessName(int window) throws IOException {
+        byte[] pid = getProperty(window, netWmPid, ATOM_CARDINAL, 1);
+
+        if (pid != null && pid.length == 4) {
+            Path process = Paths.get("/proc", String.valueOf(readInt(pid, 0)));
+
+            try {
+                return Files.readSymbolicLink(process.resolve("exe")).getFileName().toString();
+            } catch (IOException | UnsupportedOperationException e) {
+                try {
+                    return new String(Files.readAllBytes(process.resolve("comm")), StandardCharsets.UTF_8).trim();
+                } catch (IOException ignored) {
+                    // no such process or no '/proc', the window class is used
+                }
+            }
+        }
+
+        byte[] windowClass = getProperty(window, ATOM_WM_CLASS, ATOM_STRING, MAX_TITLE);
+        if (windowClass == null) {
+            return "";
+        }
+
+        String instance = new String(windowClass, StandardCharsets.ISO_8859_1);
+        return instance.indexOf('\0') == -1 ? instance : instance.substring(0, instance.indexOf('\0'));
+    }
+
+    /**
+     * Sends the connection setup and reads the root window of the screen.
+     *
+     * @param displayNumber The number of the display, used to find its authorization.
+     * @param screenNumber  The screen whose root window is returned.
+     * @return Returns the root window.
+     */
+    private int setup(String displayNumber, int screenNumber) throws IOException {
+        byte[] cookie = readCookie(displayNumber);
+        byte[] name = cookie.length > 0 ? AUTH_NAME.getBytes(StandardCharsets.US_ASCII) : new byte[0];
+
+        ByteBuffer request = ByteBuffer.allocate(12 + padded(name.length) + padded(cookie.length))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        request.put((byte) 'l').put((byte) 0).putShort((short) 11).putShort((short) 0)
+                .putShort((short) name.length).putShort((short) cookie.length).putShort((short) 0);
+        request.put(name).position(12 + padded(name.length));
+        request.put(cookie).position(request.capacity());
+
+        out.write(request.array());
+        out.flush();
+
+        byte[] header = new byte[8];
+        in.readFully(header);
+
+        byte[] data = new byte[readShort(header, 6) * 4];
+        in.readFully(data);
+
+        if (header[0] != 1) {
+            int length = header[0] == 0 ? Math.min(header[1] & 0xFF, data.length) : data.length;
+
+            throw new IOException("The X server refused the connection: " +
+                    new String(data, 0, length, StandardCharsets.ISO_8859_1).trim());
+        }
+
+        int screens = data[20] & 0xFF;
+        if (screenNumber >= screens) {
+            throw new IOException("The X server has no screen " + screenNumber + ".");
+        }
+
+        int offset = 32 + padded(readShort(data, 16)) + 8 * (data[21] & 0xFF);
+        for (int i = 0; i < screenNumber; i++) {
+            int depths = data[offset + 39] & 0xFF;
+
+            offset += 40;
+            for (int j = 0; j < depths; j++) {
+                offset += 8 + 24 * readShort(data, offset + 2);
+            }
+        }
+
+        return readInt(data, offset);
+    }
+
+    /**
+     * Reads the 'MIT-MAGIC-COOKIE-1' of a local display from the Xauthority file.
+     *
+     * @param displayNumber The number of the display.
+     * @return Returns the cookie, or an empty array if there is none.
+     */
+    private static byte[] readCookie(String displayNumber) {
+        String file = System.getenv("XAUTHORITY");
+        File authority = file != null ? new File(file) : new File(System.getProperty("user.home"), ".Xauthority");
+
+        String hostname;
+        try {
+            hostname = new String(Files.readAllBytes(Paths.get("/proc/sys/kernel/hostname")),
+                    StandardCharsets.US_ASCII).trim();
+        } catch (IOException e) {
+            hostname = "";
+        }
+
+        try (DataInputStream input = new DataInputStream(Files.newInputStream(authority.toPath()))) {
+            while (input.available() > 0) {
+                int family = input.readUnsignedShort();
+                String address = new String(readCounted(input), StandardCharsets.ISO_8859_1);
+                String number = new String(readCounted(input), StandardCharsets.ISO_8859_1);
+                String name = new String(readCounted(input), StandardCharsets.ISO_8859_1);
+                byte[] data = readCounted(input);
+
+                boolean local = family == 0xFFFF || family == 256 && address.equals(hostname);
+
+                if (local && (number.isEmpty() || number.equals(displayNumber)) && name.equals(AUTH_NAME)) {
+                    return data;
+                }
+            }
+        } catch (IOException ignored) {
+            // no Xauthority file, the X server may not require one
+        }
+
+        return new byte[0];
+    }
+
+    private static byte[] readCounted(DataInputStream input) throws IOException {
+        byte[] bytes = new byte[input.readUnsignedShort()];
+        input.readFully(bytes);
+
+        return bytes;
+    }
+
+    private int internAtom(String name) throws IOException {
+        byte[] bytes = name.getBytes(StandardCharsets.US_ASCII);
+
+        ByteBuffer request = request(OPCODE_INTERN_ATOM, 0, 2 + padded(bytes.length) / 4);
+        request.putShort((short) bytes.length).putShort((short) 0).put(bytes);
+
+        byte[] reply = awaitReply(send(request));
+        if (reply == null) {
+            throw new IOException("The X server could not intern the atom '" + name + "'.");
+        }
+
+        return readInt(reply, 8);
+    }
+
+    /**
+     * Reads a property of a window.
+     *
+     * @return Returns the value, or null if the window no longer exists.
+     */
+    private byte[] getProperty(int window, int property, int type, int maxLength) throws IOException {
+        ByteBuffer request = request(OPCODE_GET_PROPERTY, 0, 6);
+        request.putInt(window).putInt(property).putInt(type).putInt(0).putInt(maxLength);
+
+        byte[] reply = awaitReply(send(request));
+        if (reply == null) {
+            return null;
+        }
+
+        int length = readInt(reply, 16) * ((reply[1] & 0xFF) / 8);
+        byte[] value = new byte[Math.max(0, Math.min(length, reply.length - 32))];
+        System.arraycopy(reply, 32, value, 0, value.length);
+
+        return value;
+    }
+
+    /**
+     * Asks the X server to send 'PropertyNotify' events for a window. A window that no longer exists causes an error
+     * which is ignored.
+     */
+    private void selectPropertyChanges(int window) throws IOException {
+        ByteBuffer request = request(OPCODE_CHANGE_WINDOW_ATTRIBUTES, 0, 4);
+        request.putInt(window).putInt(CW_EVENT_MASK).putInt(PROPERTY_CHANGE_MASK);
+
+        send(request);
+    }
+
+    private static ByteBuffer request(int opcode, int data, int length) {
+        ByteBuffer request = ByteBuffer.allocate(length * 4).order(ByteOrder.LITTLE_ENDIAN);
+        request.put((byte) opcode).put((byte) data).putShort((short) length);
+
+        return request;
+    }
+
+    /**
+     * Sends a request.
+     *
+     * @return Returns the sequence number of the request.
+     */
+    private int send(ByteBuffer request) throws IOException {
+        out.write(request.array());
+        out.flush();
+
+        sequence = (sequence + 1) & 0xFFFF;
+        return sequence;
+    }
+
+    /**
+     * Reads until the reply to a request arrived. Events read in the meantime are kept in {@link #pending}.
+     *
+     * @param sequence The sequence number of the request.
+     * @return Returns the reply, or null if the request failed.
+     */
+    private byte[] awaitReply(int sequence) throws IOException {
+        while (true) {
+            byte[] packet = readPacket();
+            boolean matches = readShort(packet, 2) == sequence;
+
+            if (packet[0] == REPLY || packet[0] == ERROR) {
+                if (matches) {
+                    return packet[0] == REPLY ? packet : null;
+                }
+            } else {
+                pending.add(packet);
+            }
+        }
+    }
+
+    private byte[] readPacket() throws IOException {
+        byte[] header = new byte[32];
+        in.readFully(header);
+
+        if (header[0] != REPLY && (header[0] & 0x7F) != GENERIC_EVENT) {
+            return header;
+        }
+
+        byte[] packet = new byte[32 + readInt(header, 4) * 4];
+        System.arraycopy(header, 0, packet, 0, 32);
+        in.readFully(packet, 32, packet.length - 32);
+
+        return packet;
+    }
+
+    /**
+     * Opens a Unix domain socket through the API added in Java 16, as this program is built for Java 8.
+     */
+    private static SocketChannel openUnixSocket(String path) throws IOException {
+        try {
+            SocketAddress address = (SocketAddress) Class.forName("java.net.UnixDomainSocketAddress")
+                    .getMethod("of", String.class).invoke(null, path);
+            ProtocolFamily unix = StandardProtocolFamily.valueOf("UNIX");
+
+            SocketChannel channel = (SocketChannel) SocketChannel.class.getMethod("open", ProtocolFamily.class)
+                    .invoke(null, unix);
+            try {
+                channel.connect(address);
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+
+            return channel;
+        } catch (InvocationTargetException e) {
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+        } catch (ReflectiveOperationException | IllegalArgumentException e) {
+            throw new IOException("Unix domain sockets require Java 16 or newer.", e);
+        }
+    }
+
+    private static int padded(int length) {
+        return (length + 3) & ~3;
+    }
+
+    private static int readShort(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xFF) | (bytes[offset + 1] & 0xFF) << 8;
+    }
+
+    private static int readInt(byte[] bytes, int offset) {
+        return readShort(bytes, offset) | readShort(bytes, offset + 2) << 16;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+
+        try {
+            connection.close();
+        } catch (IOException e) {
+            Logging.logError(new String[]{display}, e);
+        }
+    }
+
+    /**
+     * A top level window and what is known about it.
+     */
+    private static class Window {
+        private final String processName;
+        private String title;
+
+        private Window(String processName, String title) {
+            this.processName = processName;
+            this.title = title;
+        }
+    }
+}
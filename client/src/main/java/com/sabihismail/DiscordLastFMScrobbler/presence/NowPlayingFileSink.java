@@ -0,0 +1,53 @@
+package com.sabihismail.DiscordLastFMScrobbler.presence;
+
+import com.sabihismail.DiscordLastFMScrobbler.tools.Constants;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Writes the now playing song to {@link Constants#NOW_PLAYING_FILE} so that it can be shown by a stream overlay, for
+ * example an OBS text source reading from a file.
+ * <p>
+ * The song is written to a temporary file which then replaces the file, so the overlay never reads a half written
+ * song.
+ *
+ * @since 1.2
+ */
+public class NowPlayingFileSink implements PresenceSink {
+    private final Path file;
+
+    public NowPlayingFileSink() {
+        this(Paths.get(Constants.NOW_PLAYING_FILE));
+    }
+
+    /**
+     * @param file The file to write the song to.
+     */
+    public NowPlayingFileSink(Path file) {
+        this.file = file;
+    }
+
+    @Override
+    public String getName() {
+        return "now_playing_file";
+    }
+
+    @Override
+    public void update(String song) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Files.write(temp, song.getBytes(StandardCharsets.UTF_8));
+
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
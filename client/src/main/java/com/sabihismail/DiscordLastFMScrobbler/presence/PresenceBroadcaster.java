@@ -0,0 +1,209 @@
+package com.sabihismail.DiscordLastFMScrobbler.presence;
+
+import com.sabihismail.DiscordLastFMScrobbler.tools.Logging;
+import com.sabihismail.DiscordLastFMScrobbler.tools.Metrics;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Delivers every change of the now playing song to all registered {@link PresenceSink} in parallel.
+ * <p>
+ * Every sink has its own thread and a queue that holds only the latest undelivered song, so a sink that is slow or
+ * broken falls behind on its own while the other sinks keep up. An update that takes longer than the timeout is
+ * interrupted and counted, and a failed update is retried with the next publish.
+ *
+ * @since 1.2
+ */
+public class PresenceBroadcaster {
+    /**
+     * Time in milliseconds a sink may spend on one update before it is interrupted.
+     */
+    private static final long DEFAULT_TIMEOUT_MILLIS = 10 * 1000;
+
+    private static final ScheduledExecutorService WATCHDOG = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "dlfs-presence-watchdog");
+        thread.setDaemon(true);
+
+        return thread;
+    });
+
+    private final List<SinkWorker> workers = new CopyOnWriteArrayList<>();
+    private final long timeoutMillis;
+    private volatile String lastPublished;
+
+    public PresenceBroadcaster() {
+        this(DEFAULT_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * @param timeoutMillis Time in milliseconds a sink may spend on one update before it is interrupted.
+     */
+    public PresenceBroadcaster(long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Adds a sink which receives the song published last, if any, and every song published from now on.
+     *
+     * @param sink The sink.
+     */
+    public void register(PresenceSink sink) {
+        SinkWorker worker = new SinkWorker(sink);
+        workers.add(worker);
+
+        String song = lastPublished;
+        if (song != null) {
+            worker.offer(song);
+        }
+    }
+
+    /**
+     * Hands the song to every sink and returns immediately. Publishing the song a sink already received does nothing.
+     *
+     * @param song The formatted song.
+     */
+    public void publish(String song) {
+        lastPublished = song;
+
+        for (SinkWorker worker : workers) {
+            worker.offer(song);
+        }
+    }
+
+    /**
+     * Stops the threads of all sinks, interrupting updates that are still running.
+     */
+    public void shutdown() {
+        for (SinkWorker worker : workers) {
+            worker.executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Owns the thread, the single slot queue and the metrics of one sink.
+     */
+    private class SinkWorker {
+        private final PresenceSink sink;
+        private final ExecutorService executor;
+
+        private final AtomicReference<String> pending = new AtomicReference<>();
+        private volatile long pendingSince;
+        private volatile String lastOffered;
+        private long inFlight = 0;
+        private long updates = 0;
+
+        private final LongAdder delivered;
+        private final LongAdder failed;
+        private final LongAdder timeouts;
+        private final LongAdder coalesced;
+        private final LongAdder latencyMillis;
+        private volatile long lastLatencyMillis = 0;
+
+        private SinkWorker(PresenceSink sink) {
+            this.sink = sink;
+            this.executor = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "dlfs-sink-" + sink.getName());
+                thread.setDaemon(true);
+
+                return thread;
+            });
+
+            String prefix = "sink_" + sink.getName();
+            delivered = Metrics.counter(prefix + "_delivered_total");
+            failed = Metrics.counter(prefix + "_failed_total");
+            timeouts = Metrics.counter(prefix + "_timeouts_total");
+            coalesced = Metrics.counter(prefix + "_coalesced_total");
+            latencyMillis = Metrics.counter(prefix + "_latency_millis_total");
+
+            Metrics.gauge(prefix + "_last_latency_millis", () -> lastLatencyMillis);
+            Metrics.gauge(prefix + "_pending", () -> pending.get() == null ? 0 : 1);
+        }
+
+        /**
+         * Queues the song unless it was the last song offered. A queued song that was not picked up yet is replaced.
+         *
+         * @param song The formatted song.
+         */
+        private void offer(String song) {
+            if (song.equals(lastOffered)) {
+                return;
+            }
+
+            lastOffered = song;
+            pendingSince = System.nanoTime();
+
+            if (pending.getAndSet(song) != null) {
+                coalesced.increment();
+                return;
+            }
+
+            try {
+                executor.execute(this::deliver);
+            } catch (RejectedExecutionException ignored) {
+                // shut down
+            }
+        }
+
+        /**
+         * Runs on the sink's thread and delivers the latest queued song.
+         */
+        private void deliver() {
+            long since = pendingSince;
+            String song = pending.getAndSet(null);
+            if (song == null) {
+                return;
+            }
+
+            long id;
+            synchronized (this) {
+                id = ++updates;
+                inFlight = id;
+            }
+
+            Thread thread = Thread.currentThread();
+            ScheduledFuture<?> watchdog = WATCHDOG.schedule(() -> {
+                synchronized (this) {
+                    if (inFlight == id) {
+                        timeouts.increment();
+
+                        thread.interrupt();
+                    }
+                }
+            }, timeoutMillis, TimeUnit.MILLISECONDS);
+
+            try {
+                sink.update(song);
+
+                delivered.increment();
+            } catch (IOException | RuntimeException e) {
+                failed.increment();
+
+                // forget the song so that the next publish retries it
+                lastOffered = null;
+
+                Logging.logError(new String[]{"Presence sink '" + sink.getName() + "' failed.", song}, e);
+            } finally {
+                watchdog.cancel(false);
+
+                synchronized (this) {
+                    inFlight = 0;
+
+                    Thread.interrupted();
+                }
+
+                lastLatencyMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - since);
+                latencyMillis.add(lastLatencyMillis);
+            }
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.sabihismail.DiscordLastFMScrobbler.presence;
+
+import java.io.IOException;
+
+/**
+ * A destination for the now playing song, for example the Discord Game status, the Discord Rich Presence or a file
+ * read by an OBS overlay.
+ * <p>
+ * Sinks are registered with a {@link PresenceBroadcaster} which calls {@link #update(String)} on a thread dedicated to
+ * the sink, so an implementation may block without delaying any other sink.
+ *
+ * @since 1.2
+ */
+public interface PresenceSink {
+    /**
+     * Returns the name used for the metrics and log messages of this sink, for example 'discord_gateway'.
+     *
+     * @return Returns the name of the sink.
+     */
+    String getName();
+
+    /**
+     * Shows the song. Only the latest song is delivered, songs published while an update is running replace each
+     * other.
+     *
+     * @param song The formatted song, see {@link com.sabihismail.DiscordLastFMScrobbler.lastFM.LastFM#TEXT_FORMAT}.
+     * @throws IOException Thrown if the song could not be shown.
+     */
+    void update(String song) throws IOException;
+}
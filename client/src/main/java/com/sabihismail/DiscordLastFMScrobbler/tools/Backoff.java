@@ -0,0 +1,55 @@
+package com.sabihismail.DiscordLastFMScrobbler.tools;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Exponential backoff with jitter. Every call to {@link #next()} doubles the ceiling of the delay, starting at the
+ * initial delay and capped at the maximum delay. The returned delay is a random value between half of the ceiling
+ * and the ceiling so that many clients failing at the same time do not retry at the same time.
+ *
+ * @since 1.2
+ */
+public class Backoff {
+    private final long initialMillis;
+    private final long maxMillis;
+
+    private int attempts = 0;
+
+    /**
+     * @param initialMillis The ceiling of the first delay in milliseconds.
+     * @param maxMillis     The highest the ceiling can grow to in milliseconds.
+     */
+    public Backoff(long initialMillis, long maxMillis) {
+        this.initialMillis = initialMillis;
+        this.maxMillis = maxMillis;
+    }
+
+    /**
+     * Returns the next delay and increases the ceiling of the delay after it.
+     *
+     * @return Returns the delay in milliseconds.
+     */
+    public synchronized long next() {
+        long ceiling = Math.min(maxMillis, initialMillis << Math.min(attempts, 30));
+        if (ceiling <= 0) {
+            ceiling = maxMillis;
+        }
+
+        attempts++;
+
+        long half = ceiling / 2;
+
+        return half + ThreadLocalRandom.current().nextLong(ceiling - half + 1);
+    }
+
+    /**
+     * Resets the ceiling of the next delay to the initial delay.
+     */
+    public synchronized void reset() {
+        attempts = 0;
+    }
+
+    public synchronized int getAttempts() {
+        return attempts;
+    }
+}
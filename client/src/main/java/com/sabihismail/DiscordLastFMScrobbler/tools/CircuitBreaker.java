@@ -0,0 +1,214 @@
+package com.sabihismail.DiscordLastFMScrobbler.tools;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Protects a single remote endpoint from being called over and over again while it is down.
+ * <p>
+ * The breaker starts {@link State#CLOSED} and lets every call through. After {@link #failureThreshold} consecutive
+ * {@link IOException}s it becomes {@link State#OPEN} and fails every call immediately with an {@link OpenException}
+ * instead of waiting for a network timeout. Once the delay given by its {@link Backoff} has passed, it becomes
+ * {@link State#HALF_OPEN} and lets exactly one trial call through. A successful trial closes the breaker again while a
+ * failed trial opens it for a longer delay.
+ * <p>
+ * The state of every breaker is available through {@link Metrics} as 'circuit_{name}_state' where 0 is closed, 1 is
+ * open and 2 is half open, and the duration of every call that was let through as the histogram
+ * 'circuit_{name}_call_millis'.
+ *
+ * @since 1.2
+ */
+public class CircuitBreaker {
+    /**
+     * Consecutive failures after which the breaker opens.
+     */
+    private static final int DEFAULT_FAILURE_THRESHOLD = 3;
+
+    /**
+     * Bounds of the time in milliseconds the breaker stays open before allowing a trial call.
+     */
+    private static final long DEFAULT_INITIAL_OPEN_MILLIS = 2000;
+    private static final long DEFAULT_MAX_OPEN_MILLIS = 5 * 60 * 1000;
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final String name;
+    private final int failureThreshold;
+    private final Backoff backoff;
+
+    /**
+     * Time in milliseconds of every call that was let through, whether it succeeded or not.
+     */
+    private final Histogram latency;
+
+    private final LongAdder rejected;
+    private final LongAdder failures;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures = 0;
+    private long openUntil = 0;
+    private boolean trialInProgress = false;
+
+    /**
+     * Creates a breaker with the default threshold and backoff.
+     *
+     * @param name The name of the protected endpoint, used for logging and {@link Metrics}.
+     */
+    public CircuitBreaker(String name) {
+        this(name, DEFAULT_FAILURE_THRESHOLD, new Backoff(DEFAULT_INITIAL_OPEN_MILLIS, DEFAULT_MAX_OPEN_MILLIS));
+    }
+
+    /**
+     * @param name             The name of the protected endpoint, used for logging and {@link Metrics}.
+     * @param failureThreshold Consecutive failures after which the breaker opens.
+     * @param backoff          Decides how long the breaker stays open each time it opens.
+     */
+    public CircuitBreaker(String name, int failureThreshold, Backoff backoff) {
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.backoff = backoff;
+
+        Metrics.gauge("circuit_" + name + "_state", () -> getState().ordinal());
+        latency = Metrics.histogram("circuit_" + name + "_call_millis");
+        rejected = Metrics.counter("circuit_" + name + "_rejected_total");
+        failures = Metrics.counter("circuit_" + name + "_failures_total");
+    }
+
+    /**
+     * Runs the call if the breaker allows it and records whether it succeeded. Only {@link IOException}s count as
+     * failures, meaning that a response which cannot be parsed does not open the breaker.
+     *
+     * @param call The call to the remote endpoint.
+     * @param <T>  The type returned by the call.
+     * @return Returns the value returned by the call.
+     * @throws OpenException Thrown without running the call if the breaker is open.
+     * @throws IOException   Thrown if the call itself failed.
+     */
+    public <T> T call(IOCall<T> call) throws IOException {
+        acquire();
+
+        long start = System.nanoTime();
+
+        boolean recorded = false;
+        try {
+            T result = call.call();
+
+            recorded = true;
+            onSuccess();
+
+            return result;
+        } catch (IOException e) {
+            recorded = true;
+            onFailure();
+
+            throw e;
+        } finally {
+            latency.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+            if (!recorded) {
+                release();
+            }
+        }
+    }
+
+    /**
+     * Checks whether a call made now would be let through, without counting as a trial call.
+     *
+     * @return Returns false if the breaker is open and the open delay has not passed yet.
+     */
+    public synchronized boolean allowsRequests() {
+        switch (state) {
+            case OPEN:
+                return System.currentTimeMillis() >= openUntil;
+            case HALF_OPEN:
+                return !trialInProgress;
+            default:
+                return true;
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    private synchronized void acquire() throws OpenException {
+        if (state == State.OPEN) {
+            if (System.currentTimeMillis() < openUntil) {
+                rejected.increment();
+
+                throw new OpenException(name);
+            }
+
+            state = State.HALF_OPEN;
+            trialInProgress = false;
+        }
+
+        if (state == State.HALF_OPEN) {
+            if (trialInProgress) {
+                rejected.increment();
+
+                throw new OpenException(name);
+            }
+
+            trialInProgress = true;
+        }
+    }
+
+    private synchronized void release() {
+        trialInProgress = false;
+    }
+
+    private synchronized void onSuccess() {
+        if (state != State.CLOSED) {
+            Logging.log("Circuit '" + name + "' closed.");
+        }
+
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        trialInProgress = false;
+
+        backoff.reset();
+    }
+
+    private synchronized void onFailure() {
+        failures.increment();
+
+        consecutiveFailures++;
+        trialInProgress = false;
+
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            long delay = backoff.next();
+
+            state = State.OPEN;
+            openUntil = System.currentTimeMillis() + delay;
+
+            Logging.log("Circuit '" + name + "' opened for " + delay + "ms after " + consecutiveFailures +
+                    " consecutive failures.");
+        }
+    }
+
+    /**
+     * A call to a remote endpoint that may throw an {@link IOException}.
+     *
+     * @param <T> The type returned by the call.
+     */
+    public interface IOCall<T> {
+        T call() throws IOException;
+    }
+
+    /**
+     * Thrown instead of calling the remote endpoint while the breaker is open.
+     */
+    public static class OpenException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        public OpenException(String name) {
+            super("Circuit '" + name + "' is open.");
+        }
+    }
+}
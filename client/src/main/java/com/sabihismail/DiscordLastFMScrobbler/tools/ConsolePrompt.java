@@ -0,0 +1,55 @@
+package com.sabihismail.DiscordLastFMScrobbler.tools;
+
+import java.io.Console;
+
+/**
+ * Asks questions on the terminal the program was started from. Messages are also written to the log.
+ * <p>
+ * When there is no terminal, for example when the program runs as a service, messages are only logged and every
+ * question is answered as if the user cancelled it, so the program never waits for input that cannot arrive.
+ *
+ * @since 1.2
+ */
+public class ConsolePrompt implements Prompt {
+    @Override
+    public void showMessage(String text) {
+        Logging.log(text);
+    }
+
+    @Override
+    public String showInput(String text) {
+        Console console = System.console();
+        if (console == null) {
+            Logging.log("Cannot ask for input without a terminal: " + text);
+            return null;
+        }
+
+        return console.readLine("%s%n> ", text);
+    }
+
+    @Override
+    public String showPasswordInput(String title, String text) {
+        Console console = System.console();
+        if (console == null) {
+            Logging.log("Cannot ask for input without a terminal: " + text);
+            return null;
+        }
+
+        char[] password = console.readPassword("%s%n%s> ", text, title);
+
+        return password == null ? null : new String(password);
+    }
+
+    @Override
+    public boolean showConfirm(String text, String title) {
+        Console console = System.console();
+        if (console == null) {
+            Logging.log("Cannot ask for input without a terminal: " + text);
+            return false;
+        }
+
+        String answer = console.readLine("%s%n%s [y/N]> ", text, title);
+
+        return answer != null && answer.trim().toLowerCase().startsWith("y");
+    }
+}
@@ -1,6 +1,6 @@
 package com.sabihismail.DiscordLastFMScrobbler.tools;
 
-import com.sabihismail.DiscordLastFMScrobbler.connection.Main;
+import com.sabihismail.DiscordLastFMScrobbler.connection.Bot;
 
 /**
  * General program constants that are accessed from multiple classes, for example the name of the program and the
@@ -20,7 +20,7 @@ public class Constants {
     /**
      * Old save directory. On startup, will copy from this directory to the new directory automatically.
      *
-     * Please view {@link Main#moveOldFolderToNew()} to view the code for this directory moving.
+     * Please view {@link Bot#moveOldFolderToNew()} to view the code for this directory moving.
      */
     public static final String SETTINGS_DIR_OLD = HOME_DIR + "/AppData/Local/ArkaZeen/DiscordLastFMScrobbler/";
 
@@ -29,6 +29,24 @@ public class Constants {
      */
     public static final String FILE_EXTENSION = ".dlfs";
 
+    /**
+     * The file extension of plugin bundles, which hold many plugins in one file. Bundles are read from
+     * {@link #PLUGIN_DIR} like single plugins.
+     */
+    public static final String BUNDLE_EXTENSION = ".dlfsb";
+
+    /**
+     * The file extension of jars with compiled track extractors, which are read from {@link #PLUGIN_DIR} like single
+     * plugins.
+     */
+    public static final String EXTRACTOR_EXTENSION = ".jar";
+
+    /**
+     * The file extension of process traces recorded by the
+     * {@link com.sabihismail.DiscordLastFMScrobbler.listener.ProcessTraceTool}.
+     */
+    public static final String TRACE_EXTENSION = ".dlft";
+
     /**
      * The save file for the settings file used by {@link Settings}.
      */
@@ -39,6 +57,11 @@ public class Constants {
      */
     public static final String PLUGIN_DIR = PROJECT_HOME_DIR + "plugins/";
 
+    /**
+     * The file the now playing song is written to for stream overlays such as OBS text sources.
+     */
+    public static final String NOW_PLAYING_FILE = PROJECT_HOME_DIR + "nowplaying.txt";
+
     /**
      * General bot and creator information.
      */
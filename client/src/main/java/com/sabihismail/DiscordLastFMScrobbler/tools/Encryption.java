@@ -19,16 +19,25 @@ import javax.crypto.spec.PBEKeySpec;
 import javax.crypto.spec.SecretKeySpec;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
 import java.security.AlgorithmParameters;
 import java.security.GeneralSecurityException;
 import java.security.NoSuchAlgorithmException;
 import java.security.spec.InvalidKeySpecException;
 import java.util.Base64;
+import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * This class manages the encryption and decryption of all sensitive data including the Last.FM password, Last.FM
  * session key, and the Discord token.
+ * <p>
+ * Deriving a key is deliberately slow, so every key is derived once per salt and cached for the lifetime of the
+ * process. {@link #prewarmSecretKey(byte[])} starts the derivation in the background as soon as the salt is known.
+ * Ciphers are reused per thread.
  *
  * @since 1.0
  */
@@ -38,6 +47,22 @@ public class Encryption {
     private static int iterationCount = 4000;
     private static int keyLength = 128;
 
+    private static final Map<ByteBuffer, CompletableFuture<SecretKeySpec>> KEYS = new ConcurrentHashMap<>();
+
+    private static final ThreadLocal<Cipher> CIPHER = ThreadLocal.withInitial(() -> {
+        try {
+            return Cipher.getInstance("AES/CBC/PKCS5Padding");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private static volatile long lastDerivationMillis = 0;
+
+    static {
+        Metrics.gauge("encryption_key_derivation_millis", () -> lastDerivationMillis);
+    }
+
     /**
      * Generates a random salt composed of numbers entirely.
      *
@@ -53,7 +78,77 @@ public class Encryption {
         return salt.toString().getBytes();
     }
 
-    public static SecretKeySpec createSecretKey(byte[] salt) throws NoSuchAlgorithmException, InvalidKeySpecException {
+    /**
+     * Starts deriving the key for the salt on a background thread unless it is already cached, so that a later
+     * {@link #getSecretKey(byte[])} does not have to wait for the whole derivation.
+     *
+     * @param salt The salt of the key.
+     */
+    public static void prewarmSecretKey(byte[] salt) {
+        KEYS.computeIfAbsent(ByteBuffer.wrap(salt.clone()), k -> CompletableFuture.supplyAsync(() -> derive(salt)));
+    }
+
+    /**
+     * Returns the key for the salt, deriving it only the first time the salt is used.
+     *
+     * @param salt The salt of the key.
+     * @return Returns the key.
+     * @throws GeneralSecurityException Thrown if the key could not be derived.
+     */
+    public static SecretKeySpec getSecretKey(byte[] salt) throws GeneralSecurityException {
+        ByteBuffer cacheKey = ByteBuffer.wrap(salt.clone());
+
+        CompletableFuture<SecretKeySpec> key = KEYS.get(cacheKey);
+        if (key == null) {
+            CompletableFuture<SecretKeySpec> derived = new CompletableFuture<>();
+
+            key = KEYS.putIfAbsent(cacheKey, derived);
+            if (key == null) {
+                key = derived;
+
+                try {
+                    derived.complete(derive(salt));
+                } catch (CompletionException e) {
+                    derived.completeExceptionally(e.getCause());
+                }
+            }
+        }
+
+        try {
+            return key.join();
+        } catch (CompletionException e) {
+            KEYS.remove(cacheKey, key);
+
+            if (e.getCause() instanceof GeneralSecurityException) {
+                throw (GeneralSecurityException) e.getCause();
+            }
+
+            throw e;
+        }
+    }
+
+    /**
+     * Derives the key and records how long the derivation took.
+     *
+     * @param salt The salt of the key.
+     * @return Returns the key.
+     * @throws CompletionException Wraps the {@link GeneralSecurityException} if the key could not be derived.
+     */
+    private static SecretKeySpec derive(byte[] salt) {
+        long start = System.nanoTime();
+
+        try {
+            return createSecretKey(salt);
+        } catch (GeneralSecurityException e) {
+            throw new CompletionException(e);
+        } finally {
+            lastDerivationMillis = (System.nanoTime() - start) / 1000000;
+
+            Logging.log("Encryption key derived in " + lastDerivationMillis + "ms.");
+        }
+    }
+
+    private static SecretKeySpec createSecretKey(byte[] salt) throws NoSuchAlgorithmException, InvalidKeySpecException {
         SecretKeyFactory secretKeyFactory = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA512");
         PBEKeySpec keySpec = new PBEKeySpec(password.toCharArray(), salt, iterationCount, keyLength);
         SecretKey secretKey = secretKeyFactory.generateSecret(keySpec);
@@ -62,7 +157,7 @@ public class Encryption {
     }
 
     public static String encrypt(String property, SecretKeySpec key) throws GeneralSecurityException, UnsupportedEncodingException {
-        Cipher pbeCipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+        Cipher pbeCipher = CIPHER.get();
         pbeCipher.init(Cipher.ENCRYPT_MODE, key);
         AlgorithmParameters parameters = pbeCipher.getParameters();
         IvParameterSpec ivParameterSpec = parameters.getParameterSpec(IvParameterSpec.class);
@@ -74,7 +169,7 @@ public class Encryption {
     public static String decrypt(String string, SecretKeySpec key) throws GeneralSecurityException, IOException {
         String iv = string.split(":")[0];
         String property = string.split(":")[1];
-        Cipher pbeCipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+        Cipher pbeCipher = CIPHER.get();
         pbeCipher.init(Cipher.DECRYPT_MODE, key, new IvParameterSpec(base64Decode(iv)));
         return new String(pbeCipher.doFinal(base64Decode(property)), "UTF-8");
     }
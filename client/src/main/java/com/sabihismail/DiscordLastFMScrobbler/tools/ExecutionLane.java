@@ -0,0 +1,331 @@
+package com.sabihismail.DiscordLastFMScrobbler.tools;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded pool of threads dedicated to one kind of work. Every lane has its own queue limit, its own
+ * {@link Policy} for when that limit is reached, and its own {@link Metrics}, so that a slow Last.FM read or a Discord
+ * reconnect can never delay a scrobble submission or a process snapshot.
+ * <p>
+ * Periodic work is triggered by a single shared ticker thread which only hands the work over to the lane, meaning
+ * that the ticker itself never runs any blocking code.
+ *
+ * @since 1.2
+ */
+public class ExecutionLane {
+    /**
+     * Last.FM queries such as 'track.getInfo' and 'user.getRecentTracks'. Stale reads are worthless so the oldest
+     * queued read is dropped when the lane is full.
+     */
+    public static final ExecutionLane LAST_FM_READ = new ExecutionLane("lastfm_read", 1, 16, Policy.DISCARD_OLDEST);
+
+    /**
+     * Last.FM Now Playing updates and scrobbles. Nothing submitted here may be silently dropped.
+     */
+    public static final ExecutionLane LAST_FM_WRITE = new ExecutionLane("lastfm_write", 1, 32, Policy.ABORT);
+
+    /**
+     * Discord gateway connects, reconnects and status updates.
+     */
+    public static final ExecutionLane DISCORD_IO = new ExecutionLane("discord_io", 1, 8, Policy.DISCARD_OLDEST);
+
+    /**
+     * Active process snapshots and {@link com.sabihismail.DiscordLastFMScrobbler.listener.Plugin} matching. A tick
+     * that arrives while the lane is full is skipped as the next tick will produce a fresher snapshot anyway.
+     */
+    public static final ExecutionLane PROCESS_POLL = new ExecutionLane("process_poll", 2, 4, Policy.DISCARD_NEWEST);
+
+    /**
+     * The order in which lanes are drained in {@link #shutdownAll(long, TimeUnit)}. Producers are stopped first so
+     * that the write lane is drained last.
+     */
+    private static final List<ExecutionLane> SHUTDOWN_ORDER =
+            Arrays.asList(PROCESS_POLL, LAST_FM_READ, DISCORD_IO, LAST_FM_WRITE);
+
+    private static final ScheduledExecutorService TICKER =
+            Executors.newSingleThreadScheduledExecutor(new LaneThreadFactory("ticker"));
+
+    /**
+     * The action taken when a task is submitted to a lane whose queue is full.
+     */
+    public enum Policy {
+        /**
+         * Drop the oldest queued task and queue the new one.
+         */
+        DISCARD_OLDEST,
+        /**
+         * Drop the task that was just submitted.
+         */
+        DISCARD_NEWEST,
+        /**
+         * Throw a {@link RejectedExecutionException} to the submitter.
+         */
+        ABORT
+    }
+
+    private final String name;
+    private final Policy policy;
+    private final ThreadPoolExecutor executor;
+
+    private final LongAdder submitted;
+    private final LongAdder completed;
+    private final LongAdder rejected;
+
+    private ExecutionLane(String name, int threads, int queueLimit, Policy policy) {
+        this.name = name;
+        this.policy = policy;
+
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueLimit), new LaneThreadFactory(name), this::reject);
+
+        String prefix = "lane_" + name;
+        this.submitted = Metrics.counter(prefix + "_submitted_total");
+        this.completed = Metrics.counter(prefix + "_completed_total");
+        this.rejected = Metrics.counter(prefix + "_rejected_total");
+
+        Metrics.gauge(prefix + "_queue_depth", () -> executor.getQueue().size());
+        Metrics.gauge(prefix + "_active_threads", executor::getActiveCount);
+    }
+
+    /**
+     * Queues a task on this lane.
+     *
+     * @param task The task to run.
+     * @throws RejectedExecutionException Thrown if the lane is full and its {@link Policy} is {@link Policy#ABORT}.
+     */
+    public void execute(Runnable task) {
+        submitted.increment();
+
+        executor.execute(new Task(task));
+    }
+
+    /**
+     * Runs a task on this lane repeatedly with the given delay between the end of one run and the start of the next,
+     * similar to {@link ScheduledExecutorService#scheduleWithFixedDelay(Runnable, long, long, TimeUnit)}.
+     * <p>
+     * A run that throws is logged and does not cancel later runs. A run that is dropped because the lane is full is
+     * simply skipped.
+     *
+     * @param task         The task to run.
+     * @param initialDelay The delay before the first run.
+     * @param delay        The delay between runs.
+     * @param unit         The unit of both delays.
+     */
+    public void scheduleWithFixedDelay(Runnable task, long initialDelay, long delay, TimeUnit unit) {
+        new PeriodicTask(task, delay, unit).scheduleNext(initialDelay);
+    }
+
+    /**
+     * Runs a task on this lane once after the given delay, similar to
+     * {@link ScheduledExecutorService#schedule(Runnable, long, TimeUnit)}. The task is handed over to the lane by the
+     * ticker so nothing blocks the ticker.
+     *
+     * @param task  The task to run.
+     * @param delay The delay before the run.
+     * @param unit  The unit of the delay.
+     */
+    public void schedule(Runnable task, long delay, TimeUnit unit) {
+        try {
+            TICKER.schedule(() -> {
+                try {
+                    execute(task);
+                } catch (RejectedExecutionException ignored) {
+                }
+            }, delay, unit);
+        } catch (RejectedExecutionException ignored) {
+            // the ticker has been shut down
+        }
+    }
+
+    /**
+     * Handles a task that did not fit in the queue according to {@link #policy}.
+     *
+     * @param task     The rejected task.
+     * @param executor The executor of this lane.
+     */
+    private void reject(Runnable task, ThreadPoolExecutor executor) {
+        rejected.increment();
+
+        if (executor.isShutdown()) {
+            dropped(task);
+
+            throw new RejectedExecutionException("Lane '" + name + "' has been shut down.");
+        }
+
+        switch (policy) {
+            case DISCARD_OLDEST:
+                dropped(executor.getQueue().poll());
+
+                executor.execute(task);
+                break;
+            case DISCARD_NEWEST:
+                dropped(task);
+                break;
+            case ABORT:
+                dropped(task);
+
+                throw new RejectedExecutionException("Lane '" + name + "' is full.");
+        }
+    }
+
+    /**
+     * Lets a dropped {@link DroppableTask} know that it will not run, for example so that a periodic task can schedule
+     * its next run.
+     *
+     * @param task The task that was dropped. May be null.
+     */
+    private void dropped(Runnable task) {
+        if (task instanceof Task && ((Task) task).task instanceof DroppableTask) {
+            ((DroppableTask) ((Task) task).task).onDropped();
+        }
+    }
+
+    /**
+     * Stops all lanes. Queued tasks are given until the timeout to complete, after which the remaining threads are
+     * interrupted.
+     *
+     * @param timeout The maximum time to wait for each lane.
+     * @param unit    The unit of the timeout.
+     */
+    public static void shutdownAll(long timeout, TimeUnit unit) {
+        TICKER.shutdownNow();
+
+        for (ExecutionLane lane : SHUTDOWN_ORDER) {
+            lane.executor.shutdown();
+        }
+
+        for (ExecutionLane lane : SHUTDOWN_ORDER) {
+            try {
+                if (!lane.executor.awaitTermination(timeout, unit)) {
+                    List<Runnable> remaining = lane.executor.shutdownNow();
+
+                    Logging.log("Lane '" + lane.name + "' did not drain in time, " + remaining.size() +
+                            " tasks dropped.");
+                }
+            } catch (InterruptedException e) {
+                lane.executor.shutdownNow();
+
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * A task that has to know when a full lane drops it instead of running it, for example to release state it holds
+     * while it is queued.
+     */
+    public interface DroppableTask extends Runnable {
+        /**
+         * Called instead of {@link #run()} when the task is dropped because its lane is full.
+         */
+        void onDropped();
+    }
+
+    /**
+     * Wraps every task run on the lane to count completions and to log failures.
+     */
+    private class Task implements Runnable {
+        private final Runnable task;
+
+        private Task(Runnable task) {
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                Logging.logError(new String[]{"Task failed on lane '" + name + "'."}, e);
+            } finally {
+                completed.increment();
+            }
+        }
+    }
+
+    /**
+     * A task that is handed over to the lane by {@link #TICKER} and which schedules its next run once the current run
+     * has completed or has been dropped.
+     */
+    private class PeriodicTask implements DroppableTask {
+        private final Runnable task;
+        private final long delay;
+        private final TimeUnit unit;
+
+        private final AtomicBoolean queued = new AtomicBoolean(false);
+
+        private PeriodicTask(Runnable task, long delay, TimeUnit unit) {
+            this.task = task;
+            this.delay = delay;
+            this.unit = unit;
+        }
+
+        @Override
+        public void run() {
+            try {
+                task.run();
+            } finally {
+                queued.set(false);
+
+                scheduleNext(delay);
+            }
+        }
+
+        @Override
+        public void onDropped() {
+            queued.set(false);
+
+            scheduleNext(delay);
+        }
+
+        private void scheduleNext(long nextDelay) {
+            if (TICKER.isShutdown() || executor.isShutdown()) {
+                return;
+            }
+
+            try {
+                TICKER.schedule(() -> {
+                    if (queued.compareAndSet(false, true)) {
+                        try {
+                            execute(this);
+                        } catch (RejectedExecutionException ignored) {
+                        }
+                    }
+                }, nextDelay, unit);
+            } catch (RejectedExecutionException ignored) {
+                // the ticker was shut down between the check above and this call
+            }
+        }
+    }
+
+    /**
+     * Creates named daemon threads so that lanes never keep the program alive on their own.
+     */
+    private static class LaneThreadFactory implements ThreadFactory {
+        private final String name;
+        private final AtomicInteger count = new AtomicInteger(0);
+
+        private LaneThreadFactory(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "dlfs-" + name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+
+            return thread;
+        }
+    }
+}
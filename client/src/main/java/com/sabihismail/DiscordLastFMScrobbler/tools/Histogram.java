@@ -0,0 +1,151 @@
+package com.sabihismail.DiscordLastFMScrobbler.tools;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts how often values of each size were recorded, for example the latency of a request, so that percentiles can be
+ * read instead of just an average.
+ * <p>
+ * Like an HDR histogram, values are counted in buckets whose width grows with the value: every power of two is split
+ * into {@link #SUB_BUCKETS} buckets of equal width, so every value is known within 12.5% from 0 up to
+ * {@link Long#MAX_VALUE} with a fixed amount of buckets. Recording a value never allocates or locks.
+ *
+ * @since 1.2
+ */
+public class Histogram {
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * Values below {@link #SUB_BUCKETS} each have their own bucket, every power of two above that has
+     * {@link #SUB_BUCKETS} buckets.
+     */
+    private static final int BUCKETS = SUB_BUCKETS + (63 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a value. Negative values are recorded as 0.
+     *
+     * @param value The value, in the unit named by the metric.
+     */
+    public void record(long value) {
+        value = Math.max(0, value);
+
+        counts.incrementAndGet(bucket(value));
+        sum.add(value);
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    /**
+     * Records the time passed since a {@link System#nanoTime()} in microseconds.
+     *
+     * @param startNanos The {@link System#nanoTime()} at the start.
+     */
+    public void recordMicrosSince(long startNanos) {
+        record((System.nanoTime() - startNanos) / 1000);
+    }
+
+    /**
+     * Returns the amount of values recorded.
+     *
+     * @return Returns the amount of values.
+     */
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            count += counts.get(i);
+        }
+
+        return count;
+    }
+
+    public long getSum() {
+        return sum.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Returns the value which the given share of all values is smaller than or equal to.
+     *
+     * @param percentile The share between 0 and 100.
+     * @return Returns the largest value of the bucket the percentile falls into, or 0 if nothing was recorded.
+     */
+    public long getPercentile(double percentile) {
+        long count = getCount();
+        if (count == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(count * Math.min(100, percentile) / 100));
+
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+
+            if (seen >= rank) {
+                return Math.min(upperBound(i), getMax());
+            }
+        }
+
+        return getMax();
+    }
+
+    /**
+     * Passes every bucket that has values to the visitor, in ascending order.
+     *
+     * @param visitor Receives the largest value of each bucket and the amount of values in that bucket.
+     */
+    void forEachBucket(BucketVisitor visitor) {
+        for (int i = 0; i < BUCKETS; i++) {
+            long count = counts.get(i);
+
+            if (count > 0) {
+                visitor.visit(upperBound(i), count);
+            }
+        }
+    }
+
+    private static int bucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+
+        return SUB_BUCKETS + shift * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Returns the largest value counted in a bucket.
+     */
+    private static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+
+        int shift = (bucket - SUB_BUCKETS) / SUB_BUCKETS;
+        long subBucket = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+
+        long lowerBound = (SUB_BUCKETS + subBucket) << shift;
+        long upperBound = lowerBound + (1L << shift) - 1;
+
+        return upperBound < 0 ? Long.MAX_VALUE : upperBound;
+    }
+
+    /**
+     * Receives the buckets of {@link #forEachBucket(BucketVisitor)}.
+     */
+    interface BucketVisitor {
+        void visit(long upperBound, long count);
+    }
+}
@@ -0,0 +1,415 @@
+package com.sabihismail.DiscordLastFMScrobbler.tools;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Writes the messages of {@link Logging} on a background thread, so that logging never waits for the disk.
+ * <p>
+ * Messages are handed over through a lock-free ring buffer of {@link #CAPACITY} entries. Logging a message only claims
+ * a slot of the buffer and wakes the writer if it is idle. Only if the writer falls so far behind that the buffer is full
+ * does the caller write the queued messages itself, so that no message is ever lost.
+ * <p>
+ * The writer keeps the log file open and writes everything that is queued at once. The log file is rotated once it
+ * grows beyond {@link #MAX_FILE_SIZE} or the day changes, keeping {@link #MAX_BACKUPS} old files named 'log.1.txt',
+ * 'log.2.txt' and so on, with 'log.1.txt' being the most recent.
+ *
+ * @since 1.2
+ */
+class LogWriter {
+    /**
+     * Amount of messages that can be queued, must be a power of two.
+     */
+    private static final int CAPACITY = 8192;
+
+    /**
+     * Size in bytes after which the log file is rotated.
+     */
+    private static final long MAX_FILE_SIZE = 5 * 1024 * 1024;
+
+    /**
+     * Amount of rotated log files that are kept.
+     */
+    private static final int MAX_BACKUPS = 5;
+
+    /**
+     * Size in characters of the text collected before it is written to the log file.
+     */
+    private static final int BATCH_SIZE = 64 * 1024;
+
+    /**
+     * Time in milliseconds {@link #close()} waits for the queued messages to be written.
+     */
+    private static final long CLOSE_TIMEOUT = 2000;
+
+    private final Path file;
+    private final Thread thread;
+
+    private final AtomicReferenceArray<Entry> entries = new AtomicReferenceArray<>(CAPACITY);
+    private final AtomicLongArray sequences = new AtomicLongArray(CAPACITY);
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head = 0;
+
+    private volatile boolean waiting = false;
+    private volatile boolean closed = false;
+
+    private final LongAdder written = Metrics.counter("log_messages_total");
+    private final LongAdder full = Metrics.counter("log_queue_full_total");
+
+    /**
+     * Only used while holding the lock of this writer.
+     */
+    private final StringBuilder batch = new StringBuilder();
+    private final StringBuilder console = new StringBuilder();
+    private FileChannel channel;
+    private long size;
+    private long rotateAt;
+
+    /**
+     * Starts the writer thread.
+     *
+     * @param file The log file, which is appended to if it exists.
+     */
+    LogWriter(Path file) {
+        this.file = file;
+
+        for (int i = 0; i < CAPACITY; i++) {
+            sequences.set(i, i);
+        }
+
+        Metrics.gauge("log_queue_size", () -> tail.get() - head);
+
+        thread = new Thread(this::run, "dlfs-log-writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Queues a message for the log file and the console. Once the writer was closed the message is written right away.
+     *
+     * @param entry The message.
+     */
+    void append(Entry entry) {
+        while (!offer(entry)) {
+            full.increment();
+            drain();
+        }
+
+        if (closed) {
+            drain();
+        } else if (waiting) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * Writes every queued message and closes the log file. Waits at most {@link #CLOSE_TIMEOUT} milliseconds.
+     */
+    void close() {
+        closed = true;
+        LockSupport.unpark(thread);
+
+        try {
+            thread.join(CLOSE_TIMEOUT);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Claims the next slot of the ring buffer for the entry.
+     *
+     * @return Returns false if the ring buffer is full.
+     */
+    private boolean offer(Entry entry) {
+        long position = tail.get();
+
+        while (true) {
+            int index = (int) (position & (CAPACITY - 1));
+            long difference = sequences.get(index) - position;
+
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    entries.lazySet(index, entry);
+                    sequences.lazySet(index, position + 1);
+
+                    return true;
+                }
+
+                position = tail.get();
+            } else if (difference < 0) {
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Takes the oldest entry out of the ring buffer. Must only be called while holding the lock of this writer.
+     *
+     * @return Returns the entry, or null if the ring buffer is empty.
+     */
+    private Entry poll() {
+        long position = head;
+        int index = (int) (position & (CAPACITY - 1));
+
+        if (sequences.get(index) != position + 1) {
+            return null;
+        }
+
+        Entry entry = entries.get(index);
+        entries.lazySet(index, null);
+        sequences.lazySet(index, position + CAPACITY);
+        head = position + 1;
+
+        return entry;
+    }
+
+    private void run() {
+        while (true) {
+            drain();
+
+            if (closed) {
+                break;
+            }
+
+            waiting = true;
+            if (tail.get() == head) {
+                LockSupport.parkNanos(this, TimeUnit.SECONDS.toNanos(1));
+            }
+            waiting = false;
+        }
+
+        drain();
+
+        synchronized (this) {
+            closeChannel();
+        }
+    }
+
+    /**
+     * Writes every queued entry to the console and the log file.
+     */
+    private synchronized void drain() {
+        Entry entry;
+        while ((entry = poll()) != null) {
+            String text = entry.format();
+
+            if (entry.isError()) {
+                System.out.print(console);
+                console.setLength(0);
+
+                System.err.print(text);
+            } else {
+                console.append(text);
+            }
+
+            batch.append(text);
+            written.increment();
+
+            if (batch.length() >= BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        flush();
+    }
+
+    /**
+     * Writes the collected text to the console and the log file.
+     */
+    private void flush() {
+        if (console.length() > 0) {
+            System.out.print(console);
+            console.setLength(0);
+        }
+
+        if (batch.length() == 0) {
+            return;
+        }
+
+        String text = batch.toString();
+        batch.setLength(0);
+
+        ByteBuffer buffer = ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+
+        try {
+            if (channel == null) {
+                open();
+            } else if (size >= MAX_FILE_SIZE || System.currentTimeMillis() >= rotateAt) {
+                rotate();
+            }
+
+            while (buffer.hasRemaining()) {
+                size += channel.write(buffer);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+
+            closeChannel();
+        }
+    }
+
+    /**
+     * Opens the log file, rotating it first if it was last written to on an earlier day or is already too large.
+     */
+    private void open() throws IOException {
+        if (Files.exists(file)) {
+            long modified = Files.getLastModifiedTime(file).toMillis();
+
+            if (Files.size(file) >= MAX_FILE_SIZE || nextDay(modified) <= System.currentTimeMillis()) {
+                rotate();
+                return;
+            }
+        }
+
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        size = channel.size();
+        rotateAt = nextDay(System.currentTimeMillis());
+    }
+
+    private void rotate() throws IOException {
+        closeChannel();
+
+        Path oldest = backup(MAX_BACKUPS);
+        Files.deleteIfExists(oldest);
+
+        for (int i = MAX_BACKUPS - 1; i >= 1; i--) {
+            Path backup = backup(i);
+
+            if (Files.exists(backup)) {
+                Files.move(backup, backup(i + 1), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+
+        if (Files.exists(file)) {
+            Files.move(file, backup(1), StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        size = 0;
+        rotateAt = nextDay(System.currentTimeMillis());
+    }
+
+    private void closeChannel() {
+        if (channel == null) {
+            return;
+        }
+
+        try {
+            channel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+
+        channel = null;
+    }
+
+    /**
+     * Returns the name of a rotated log file, for example 'log.1.txt' for 'log.txt'.
+     */
+    private Path backup(int number) {
+        String name = file.getFileName().toString();
+        int extension = name.lastIndexOf('.');
+
+        String backup = extension == -1 ? name + "." + number :
+                name.substring(0, extension) + "." + number + name.substring(extension);
+
+        return file.resolveSibling(backup);
+    }
+
+    /**
+     * Returns the start of the day after the given time.
+     */
+    private static long nextDay(long time) {
+        ZoneId zone = ZoneId.systemDefault();
+
+        return Instant.ofEpochMilli(time).atZone(zone).toLocalDate().plusDays(1).atStartOfDay(zone).toInstant()
+                .toEpochMilli();
+    }
+
+    /**
+     * A message to be logged. The text is only formatted by the writer thread.
+     */
+    static class Entry {
+        private final long time;
+        private final String message;
+        private final String[] relevantInformation;
+        private final Throwable error;
+
+        /**
+         * @param time    The time the message was logged in milliseconds.
+         * @param message The message.
+         */
+        Entry(long time, String message) {
+            this(time, message, null, null);
+        }
+
+        /**
+         * @param time                The time the error occurred in milliseconds.
+         * @param relevantInformation The information relevant to when the error occurred.
+         * @param error               The exception, or null if there is none.
+         */
+        Entry(long time, String[] relevantInformation, Throwable error) {
+            this(time, null, relevantInformation, error);
+        }
+
+        private Entry(long time, String message, String[] relevantInformation, Throwable error) {
+            this.time = time;
+            this.message = message;
+            this.relevantInformation = relevantInformation;
+            this.error = error;
+        }
+
+        private boolean isError() {
+            return message == null;
+        }
+
+        private String format() {
+            StringBuilder text = new StringBuilder(Tools.getFormattedTime(time));
+
+            if (!isError()) {
+                text.append(message);
+
+                if (!message.endsWith("\n")) {
+                    text.append("\n");
+                }
+
+                return text.toString();
+            }
+
+            text.append("New Information\n");
+            for (String info : relevantInformation) {
+                text.append(info).append("\n");
+            }
+
+            if (error != null) {
+                StringWriter stackTrace = new StringWriter();
+                error.printStackTrace(new PrintWriter(stackTrace));
+
+                text.append(stackTrace);
+            }
+
+            return text.toString();
+        }
+    }
+}
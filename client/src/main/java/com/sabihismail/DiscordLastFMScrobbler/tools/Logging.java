@@ -1,15 +1,15 @@
 package com.sabihismail.DiscordLastFMScrobbler.tools;
 
-import java.io.File;
-import java.io.IOException;
-import java.io.PrintStream;
-import java.nio.file.Files;
+import com.sabihismail.DiscordLastFMScrobbler.connection.Bot;
+
 import java.nio.file.Paths;
-import java.nio.file.StandardOpenOption;
 
 /**
  * This class is dedicated to the general logging of the class, whether that be visible to a user, a general log file,
  * or a log containing errors with information relating to that error.
+ * <p>
+ * Logging never waits for the log file. Messages are handed to a {@link LogWriter} which writes them on a background
+ * thread and rotates the log file once it grows too large or the day changes.
  *
  * @since 1.0
  */
@@ -19,38 +19,21 @@ public class Logging {
      */
     public static final String LOGGING_FILE_NAME = "log.txt";
 
+    private static final LogWriter WRITER = new LogWriter(Paths.get(LOGGING_FILE_NAME));
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(WRITER::close, "dlfs-log-flush"));
+    }
+
     /**
-     * Catches any error and prints a logfile that contains the specified printStackTrace().
+     * Catches any error and appends the specified printStackTrace() to the logfile.
      * Tells user where to locate logfile and what email address/Discord username to send this file to.
      *
      * @param relevantInformation The information relevant to when the error occurred.
      * @param e                   Any given exception to be converted to log file.
      */
     public static void logError(String[] relevantInformation, Exception e) {
-        try {
-            File f = new File(LOGGING_FILE_NAME);
-            if (!f.exists())
-                f.createNewFile();
-
-            if (e != null) {
-                PrintStream ps = new PrintStream(f);
-                e.printStackTrace(ps);
-                ps.close();
-                e.printStackTrace();
-            }
-
-            StringBuilder stringBuilder = new StringBuilder();
-            stringBuilder.append("\n").append(Tools.getFormattedTime()).append("\n");
-
-            stringBuilder.append("New Information");
-            for (String info : relevantInformation) {
-                stringBuilder.append(info).append("\n");
-            }
-
-            Files.write(Paths.get(f.getAbsolutePath()), stringBuilder.toString().getBytes(), StandardOpenOption.APPEND);
-        } catch (IOException e1) {
-            e1.printStackTrace();
-        }
+        WRITER.append(new LogWriter.Entry(System.currentTimeMillis(), relevantInformation, e));
     }
 
     /**
@@ -64,25 +47,22 @@ public class Logging {
 
     /**
      * Logs a message to the console and also prints the text into a log file {@link #LOGGING_FILE_NAME}.
+     * <p>
+     * The message is only queued here and written by a background thread, see {@link LogWriter}.
      *
      * @param msg The text that is to be logged.
      */
     public static void log(String msg) {
-        msg = Tools.getFormattedTime() + msg;
-
-        try {
-            File f = new File(LOGGING_FILE_NAME);
-            if (!f.exists())
-                f.createNewFile();
-
-            if (!msg.endsWith("\n"))
-                msg += "\n";
+        WRITER.append(new LogWriter.Entry(System.currentTimeMillis(), msg));
+    }
 
-            System.out.print(msg);
-            Files.write(Paths.get(f.getAbsolutePath()), msg.getBytes(), StandardOpenOption.APPEND);
-        } catch (IOException e1) {
-            e1.printStackTrace();
-        }
+    /**
+     * Writes every queued message and closes the log file. Messages logged afterwards are written right away.
+     *
+     * @since 1.2
+     */
+    public static void close() {
+        WRITER.close();
     }
 
     /**
@@ -91,7 +71,7 @@ public class Logging {
      * @param error The error message.
      */
     public static void throwUserError(String error) {
-        GUITools.showOnTopMessageDialog(error);
+        Bot.PROMPT.showMessage(error);
 
         System.exit(0);
     }
@@ -0,0 +1,179 @@
+package com.sabihismail.DiscordLastFMScrobbler.tools;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * A process wide registry of named counters and gauges which allows for the different components of the program to
+ * report how they are behaving.
+ * <p>
+ * Counters are monotonically increasing values (for example the number of tasks rejected by an
+ * {@link ExecutionLane}) whereas gauges are read on demand from the component that owns the value (for example the
+ * current queue depth of that same {@link ExecutionLane}). {@link Histogram}s count how often values of each size were
+ * recorded, for example the latency of every request to an endpoint.
+ * <p>
+ * All metrics can be read in the Prometheus text format through {@link #toPrometheus()}, which {@link MetricsServer}
+ * serves on a local port, and through JMX as registered by {@link MetricsJMX}.
+ *
+ * @since 1.2
+ */
+public class Metrics {
+    private static final Map<String, LongAdder> COUNTERS = new ConcurrentHashMap<>();
+    private static final Map<String, Supplier<Number>> GAUGES = new ConcurrentHashMap<>();
+    private static final Map<String, Histogram> HISTOGRAMS = new ConcurrentHashMap<>();
+
+    /**
+     * Percentiles of every histogram included in {@link #snapshot()}.
+     */
+    private static final double[] PERCENTILES = {50, 90, 99};
+
+    /**
+     * Returns the counter registered under the given name, creating it if it does not exist yet.
+     *
+     * @param name The name of the counter.
+     * @return Returns the {@link LongAdder} backing the counter.
+     */
+    public static LongAdder counter(String name) {
+        return COUNTERS.computeIfAbsent(name, k -> new LongAdder());
+    }
+
+    /**
+     * Registers a gauge which will be read every time a {@link #snapshot()} is taken. Registering a gauge under a name
+     * that already exists replaces the previous gauge.
+     *
+     * @param name     The name of the gauge.
+     * @param supplier The supplier of the current value.
+     */
+    public static void gauge(String name, Supplier<Number> supplier) {
+        GAUGES.put(name, supplier);
+    }
+
+    /**
+     * Returns the histogram registered under the given name, creating it if it does not exist yet.
+     *
+     * @param name The name of the histogram, ending in the unit of its values, for example '_millis'.
+     * @return Returns the {@link Histogram}.
+     * @since 1.2
+     */
+    public static Histogram histogram(String name) {
+        return HISTOGRAMS.computeIfAbsent(name, k -> new Histogram());
+    }
+
+    /**
+     * Reads all counters and gauges. Every histogram is summarized as '{name}_count', '{name}_sum', '{name}_max' and
+     * its percentiles such as '{name}_p99'.
+     *
+     * @return Returns all metric names mapped to their current value sorted by name.
+     */
+    public static Map<String, Number> snapshot() {
+        Map<String, Number> snapshot = new TreeMap<>();
+
+        COUNTERS.forEach((name, counter) -> snapshot.put(name, counter.sum()));
+        GAUGES.forEach((name, gauge) -> {
+            Number value = read(gauge);
+
+            if (value != null) {
+                snapshot.put(name, value);
+            }
+        });
+        HISTOGRAMS.forEach((name, histogram) -> {
+            snapshot.put(name + "_count", histogram.getCount());
+            snapshot.put(name + "_sum", histogram.getSum());
+            snapshot.put(name + "_max", histogram.getMax());
+
+            for (double percentile : PERCENTILES) {
+                snapshot.put(name + "_p" + (int) percentile, histogram.getPercentile(percentile));
+            }
+        });
+
+        return snapshot;
+    }
+
+    /**
+     * Writes all metrics in the Prometheus text exposition format. Histograms list a cumulative bucket for every
+     * bucket that has values.
+     *
+     * @return Returns the text of all metrics sorted by name.
+     * @since 1.2
+     */
+    public static String toPrometheus() {
+        StringBuilder text = new StringBuilder();
+
+        new TreeMap<>(COUNTERS).forEach((name, counter) -> {
+            appendType(text, name, "counter");
+            appendSample(text, sanitize(name), "", counter.sum());
+        });
+
+        new TreeMap<>(GAUGES).forEach((name, gauge) -> {
+            Number value = read(gauge);
+
+            if (value != null) {
+                appendType(text, name, "gauge");
+                appendSample(text, sanitize(name), "", value);
+            }
+        });
+
+        new TreeMap<>(HISTOGRAMS).forEach((name, histogram) -> {
+            String metric = sanitize(name);
+            long[] count = {0};
+
+            appendType(text, name, "histogram");
+            histogram.forEachBucket((upperBound, bucketCount) -> {
+                count[0] += bucketCount;
+                appendSample(text, metric + "_bucket", "{le=\"" + upperBound + "\"}", count[0]);
+            });
+            appendSample(text, metric + "_bucket", "{le=\"+Inf\"}", count[0]);
+            appendSample(text, metric + "_sum", "", histogram.getSum());
+            appendSample(text, metric + "_count", "", count[0]);
+        });
+
+        return text.toString();
+    }
+
+    private static Number read(Supplier<Number> gauge) {
+        try {
+            return gauge.get();
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static void appendType(StringBuilder text, String name, String type) {
+        text.append("# TYPE ").append(sanitize(name)).append(' ').append(type).append('\n');
+    }
+
+    private static void appendSample(StringBuilder text, String name, String labels, Number value) {
+        text.append(name).append(labels).append(' ');
+
+        if (value instanceof Double || value instanceof Float) {
+            double doubleValue = value.doubleValue();
+
+            text.append(Double.isNaN(doubleValue) ? "NaN" : Double.isInfinite(doubleValue) ?
+                    (doubleValue > 0 ? "+Inf" : "-Inf") : Double.toString(doubleValue));
+        } else {
+            text.append(value.longValue());
+        }
+
+        text.append('\n');
+    }
+
+    /**
+     * Replaces every character Prometheus does not allow in a metric name with '_'.
+     */
+    private static String sanitize(String name) {
+        StringBuilder sanitized = new StringBuilder(name.length());
+
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            boolean allowed = c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c == '_' || c == ':' ||
+                    c >= '0' && c <= '9' && i > 0;
+
+            sanitized.append(allowed ? c : '_');
+        }
+
+        return sanitized.toString();
+    }
+}
@@ -0,0 +1,102 @@
+package com.sabihismail.DiscordLastFMScrobbler.tools;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanNotificationInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+/**
+ * Publishes every metric of {@link Metrics#snapshot()} as a read-only attribute of the MBean
+ * 'com.sabihismail.DiscordLastFMScrobbler:type=Metrics', so that they can be watched with JConsole or VisualVM.
+ * <p>
+ * Metrics are registered lazily by the components that own them, so the attributes are read from a new snapshot every
+ * time they are listed.
+ *
+ * @since 1.2
+ */
+public class MetricsJMX implements DynamicMBean {
+    private static final String OBJECT_NAME = "com.sabihismail.DiscordLastFMScrobbler:type=Metrics";
+
+    private MetricsJMX() {
+    }
+
+    /**
+     * Registers the MBean with the platform MBean server unless it is registered already.
+     */
+    public static void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+
+            if (!server.isRegistered(name)) {
+                server.registerMBean(new MetricsJMX(), name);
+            }
+        } catch (JMException e) {
+            Logging.logError(new String[]{OBJECT_NAME}, e);
+        }
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        Number value = Metrics.snapshot().get(attribute);
+        if (value == null) {
+            throw new AttributeNotFoundException(attribute);
+        }
+
+        return value;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException(attribute.getName() + " is read-only.");
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+        Map<String, Number> snapshot = Metrics.snapshot();
+
+        AttributeList list = new AttributeList();
+        for (String attribute : attributes) {
+            Number value = snapshot.get(attribute);
+
+            if (value != null) {
+                list.add(new Attribute(attribute, value));
+            }
+        }
+
+        return list;
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+        throw new ReflectionException(new NoSuchMethodException(actionName));
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        Map<String, Number> snapshot = Metrics.snapshot();
+
+        MBeanAttributeInfo[] attributes = snapshot.entrySet().stream()
+                .map(entry -> new MBeanAttributeInfo(entry.getKey(), entry.getValue().getClass().getName(),
+                        entry.getKey(), true, false, false))
+                .toArray(MBeanAttributeInfo[]::new);
+
+        return new MBeanInfo(MetricsJMX.class.getName(), "Metrics of the scrobbler.", attributes, null,
+                new MBeanOperationInfo[0], new MBeanNotificationInfo[0]);
+    }
+}
@@ -0,0 +1,94 @@
+package com.sabihismail.DiscordLastFMScrobbler.tools;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Serves {@link Metrics#toPrometheus()} at 'http://127.0.0.1:{port}/metrics' for Prometheus or any other scraper.
+ * <p>
+ * The server only listens on the loopback address, so the metrics cannot be read from another machine. Requests are
+ * answered one at a time on a single daemon thread.
+ *
+ * @since 1.2
+ */
+public class MetricsServer {
+    private static final String PATH = "/metrics";
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * Starts the server.
+     *
+     * @param port The port on 127.0.0.1.
+     * @throws IOException Thrown if the port cannot be bound, for example because it is in use.
+     */
+    public MetricsServer(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        executor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "dlfs-metrics-server");
+            thread.setDaemon(true);
+
+            return thread;
+        });
+
+        server.createContext(PATH, this::handle);
+        server.setExecutor(executor);
+        server.start();
+
+        Logging.log("Serving metrics at 'http://127.0.0.1:" + getPort() + PATH + "'.");
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!exchange.getRequestMethod().equals("GET") && !exchange.getRequestMethod().equals("HEAD")) {
+                exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            if (!exchange.getRequestURI().getPath().equals(PATH)) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+
+            byte[] body = Metrics.toPrometheus().getBytes(StandardCharsets.UTF_8);
+
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+
+            if (exchange.getRequestMethod().equals("HEAD")) {
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+
+            exchange.sendResponseHeaders(200, body.length);
+
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Stops the server without waiting for a request in progress.
+     */
+    public void shutdown() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
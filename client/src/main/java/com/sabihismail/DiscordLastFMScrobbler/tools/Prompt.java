@@ -0,0 +1,45 @@
+package com.sabihismail.DiscordLastFMScrobbler.tools;
+
+/**
+ * Asks the user for input or shows them a message, independent of how the program is run.
+ * <p>
+ * The JavaFX program shows Swing dialogs through {@link SwingPrompt} whereas the headless program uses
+ * {@link ConsolePrompt} so that no AWT classes are ever loaded. The active implementation is
+ * {@link com.sabihismail.DiscordLastFMScrobbler.connection.Bot#PROMPT}.
+ *
+ * @since 1.2
+ */
+public interface Prompt {
+    /**
+     * Shows a message and waits until the user has seen it.
+     *
+     * @param text The message.
+     */
+    void showMessage(String text);
+
+    /**
+     * Asks the user for a line of text.
+     *
+     * @param text The question.
+     * @return Returns the answer or null if the user cancelled or cannot be asked.
+     */
+    String showInput(String text);
+
+    /**
+     * Asks the user for a password without showing what is typed.
+     *
+     * @param title The title of the question.
+     * @param text  The question.
+     * @return Returns the password or null if the user cancelled or cannot be asked.
+     */
+    String showPasswordInput(String title, String text);
+
+    /**
+     * Asks the user a yes or no question.
+     *
+     * @param text  The question.
+     * @param title The title of the question.
+     * @return Returns true only if the user answered yes.
+     */
+    boolean showConfirm(String text, String title);
+}
@@ -0,0 +1,75 @@
+package com.sabihismail.DiscordLastFMScrobbler.tools;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Measures how much of something happens per second or per minute, for example bytes received on a socket, over a
+ * sliding window of the last {@link #WINDOW_SECONDS} seconds.
+ * <p>
+ * Amounts are added to one bucket per second. A bucket is cleared the first time it is reused for a new second.
+ *
+ * @since 1.2
+ */
+public class RateMeter {
+    private static final int WINDOW_SECONDS = 60;
+
+    private final AtomicLongArray amounts = new AtomicLongArray(WINDOW_SECONDS);
+    private final AtomicLongArray seconds = new AtomicLongArray(WINDOW_SECONDS);
+
+    /**
+     * Creates a meter and registers its per second and per minute rates with {@link Metrics}.
+     *
+     * @param name The metric name prefix. The gauges are registered as '{name}_per_second' and '{name}_per_minute'.
+     */
+    public RateMeter(String name) {
+        Metrics.gauge(name + "_per_second", this::perSecond);
+        Metrics.gauge(name + "_per_minute", this::perMinute);
+    }
+
+    /**
+     * Records an amount for the current second.
+     *
+     * @param amount The amount to record.
+     */
+    public void record(long amount) {
+        long second = System.currentTimeMillis() / 1000;
+        int index = (int) (second % WINDOW_SECONDS);
+
+        long bucketSecond = seconds.get(index);
+        if (bucketSecond != second && seconds.compareAndSet(index, bucketSecond, second)) {
+            amounts.set(index, 0);
+        }
+
+        amounts.addAndGet(index, amount);
+    }
+
+    /**
+     * Returns the total recorded over the last {@link #WINDOW_SECONDS} seconds, excluding the current second which is
+     * still incomplete.
+     *
+     * @return Returns the amount per minute.
+     */
+    public long perMinute() {
+        long now = System.currentTimeMillis() / 1000;
+
+        long total = 0;
+        for (int i = 0; i < WINDOW_SECONDS; i++) {
+            long second = seconds.get(i);
+
+            if (second < now && second >= now - WINDOW_SECONDS) {
+                total += amounts.get(i);
+            }
+        }
+
+        return total;
+    }
+
+    /**
+     * Returns the average per second over the last {@link #WINDOW_SECONDS} seconds.
+     *
+     * @return Returns the amount per second.
+     */
+    public double perSecond() {
+        return perMinute() / (double) WINDOW_SECONDS;
+    }
+}
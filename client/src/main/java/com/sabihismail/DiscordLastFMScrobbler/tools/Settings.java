@@ -1,5 +1,6 @@
 package com.sabihismail.DiscordLastFMScrobbler.tools;
 
+import com.sabihismail.DiscordLastFMScrobbler.connection.Bot;
 import com.sabihismail.DiscordLastFMScrobbler.listener.Plugin;
 import org.json.JSONArray;
 import org.json.JSONException;
@@ -7,21 +8,62 @@ import org.json.JSONObject;
 
 import javax.crypto.spec.SecretKeySpec;
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.security.GeneralSecurityException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Contains all settings data relevant to the usage of the main functions of the program.
  * <p>
  * All settings data saves to {@link Constants#SETTINGS_FILE} which by default is named "settings" and is saved with the
  * extension {@link Constants#FILE_EXTENSION}.
+ * <p>
+ * The sensitive values are only decrypted the first time one of them is used. Until then the encryption key is derived
+ * in the background and saving writes the values back as they were read, so neither loading nor saving has to wait for
+ * the key. A value is only encrypted again once it changes. Values that cannot be decrypted are kept in the file as
+ * they were read until new ones are entered, so a wrong key never erases the stored credentials.
+ * <p>
+ * {@link #saveSettings()} only marks the settings as changed. The file is written on a background thread once no
+ * further change was made for {@link #SAVE_DELAY} milliseconds, or right away by {@link #flush()}. The file is
+ * written to a temporary file first which then replaces the settings file, so a crash can never leave a half written
+ * settings file behind.
  *
  * @since 1.0
  */
 public class Settings {
+    /**
+     * Time in milliseconds changes are collected before the settings file is written.
+     */
+    private static final int SAVE_DELAY = 500;
+
+    private static final ScheduledExecutorService WRITER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "dlfs-settings-writer");
+        thread.setDaemon(true);
+
+        return thread;
+    });
+
     private boolean discordConnectionEnabled = true;
+    private boolean richPresenseEnabled = false;
+    private boolean gatewayCompressionEnabled = true;
+    private boolean presenceOnlyGatewayEnabled = true;
     private boolean scrobblingEnabled = true;
+    private boolean nowPlayingFileEnabled = false;
+    private String trackSourceFile = "";
+    private int trackSourcePort = 0;
+    private int metricsPort = 0;
 
     private String salt;
 
@@ -31,8 +73,21 @@ public class Settings {
     private String token = "";
     private List<String> enabledPlugins = new ArrayList<>();
 
+    /**
+     * The encrypted 'token', 'lastFMPassword' and 'sessionKey'. A value that changed since it was last encrypted is
+     * missing and is encrypted again by {@link #flush()}.
+     */
+    private JSONObject encryptedSecrets = new JSONObject();
+    private boolean secretsDecrypted = true;
+
     private boolean encryptionMessage = false;
 
+    private boolean dirty = false;
+    private boolean writeScheduled = false;
+    private String lastWritten;
+
+    private volatile long lastSaveMillis = 0;
+
     /**
      * Checks if settings data file already exists. If the file does exist, the default values will be replaced by the
      * data contained in the file.
@@ -40,6 +95,8 @@ public class Settings {
      * If the file does not exist then a file will be created storing the default values.
      */
     public Settings() {
+        long start = System.nanoTime();
+
         File settingsFile = new File(Constants.SETTINGS_FILE);
 
         StringBuilder stringBuilder = new StringBuilder();
@@ -49,8 +106,10 @@ public class Settings {
                 settingsFile.createNewFile();
 
                 salt = new String(Encryption.generateRandomSalt());
+                Encryption.prewarmSecretKey(salt.getBytes());
 
                 saveSettings();
+                flush();
             } else {
                 BufferedReader r = new BufferedReader(new FileReader(settingsFile));
                 String s;
@@ -63,19 +122,34 @@ public class Settings {
 
                     salt = json.getString("salt");
 
-                    SecretKeySpec key = Encryption.createSecretKey(salt.getBytes());
+                    Encryption.prewarmSecretKey(salt.getBytes());
 
                     encryptionMessage = !json.isNull("encryptionMessage") && json.getBoolean("encryptionMessage");
+                    nowPlayingFileEnabled = json.optBoolean("nowPlayingFileEnabled", false);
+
+                    JSONObject trackSources = json.optJSONObject("trackSources");
+                    if (trackSources != null) {
+                        trackSourceFile = trackSources.optString("file", "");
+                        trackSourcePort = trackSources.optInt("port", 0);
+                    }
+
+                    metricsPort = json.optInt("metricsPort", 0);
 
                     JSONObject discord = json.getJSONObject("discord");
                     discordConnectionEnabled = discord.getBoolean("discordConnectionEnabled");
-                    token = Encryption.decrypt(discord.getString("token"), key);
+                    richPresenseEnabled = discord.optBoolean("richPresenseEnabled", false);
+                    gatewayCompressionEnabled = discord.optBoolean("gatewayCompressionEnabled", true);
+                    presenceOnlyGatewayEnabled = discord.optBoolean("presenceOnlyGatewayEnabled", true);
 
                     JSONObject lastFM = json.getJSONObject("lastFM");
                     scrobblingEnabled = lastFM.getBoolean("scrobblingEnabled");
                     lastFMName = lastFM.getString("lastFMName");
-                    lastFMPassword = Encryption.decrypt(lastFM.getString("lastFMPassword"), key);
-                    sessionKey = Encryption.decrypt(lastFM.getString("sessionKey"), key);
+
+                    encryptedSecrets = new JSONObject()
+                            .put("token", discord.getString("token"))
+                            .put("lastFMPassword", lastFM.getString("lastFMPassword"))
+                            .put("sessionKey", lastFM.getString("sessionKey"));
+                    secretsDecrypted = false;
 
                     JSONArray acceptedPluginJSONArray = !json.isNull("enabledPlugins") ?
                             json.getJSONArray("enabledPlugins") : null;
@@ -85,63 +159,196 @@ public class Settings {
                         }
                     }
                 } catch (JSONException ex) {
-                    GUITools.showOnTopMessageDialog("Your settings were corrupt and uneditable. " +
+                    Bot.PROMPT.showMessage("Your settings were corrupt and uneditable. " +
                             "All settings will be reset.");
 
                     salt = new String(Encryption.generateRandomSalt());
+                    Encryption.prewarmSecretKey(salt.getBytes());
 
                     discordConnectionEnabled = true;
+                    richPresenseEnabled = false;
+                    gatewayCompressionEnabled = true;
+                    presenceOnlyGatewayEnabled = true;
                     scrobblingEnabled = true;
+                    nowPlayingFileEnabled = false;
+                    trackSourceFile = "";
+                    trackSourcePort = 0;
+                    metricsPort = 0;
                     lastFMName = "";
                     lastFMPassword = "";
                     token = "";
                     sessionKey = "";
+                    encryptedSecrets = new JSONObject();
+                    secretsDecrypted = true;
                     enabledPlugins = new ArrayList<>();
 
                     encryptionMessage = false;
                 }
             }
-        } catch (IOException | GeneralSecurityException e) {
+        } catch (IOException e) {
             Logging.logError(new String[]{stringBuilder.toString()}, e);
         }
+
+        long loadMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        Metrics.gauge("settings_load_millis", () -> loadMillis);
+        Metrics.gauge("settings_last_save_millis", () -> lastSaveMillis);
+    }
+
+    /**
+     * Marks the settings as changed. The settings file is written on a background thread once no further change was
+     * made for {@link #SAVE_DELAY} milliseconds, see {@link #flush()}.
+     */
+    public synchronized void saveSettings() {
+        Metrics.counter("settings_saves_requested_total").increment();
+
+        dirty = true;
+
+        if (!writeScheduled) {
+            writeScheduled = true;
+
+            WRITER.schedule(this::flush, SAVE_DELAY, TimeUnit.MILLISECONDS);
+        }
     }
 
     /**
      * This method will create a {@link JSONObject} that contains all data in an easy to read format. The data will then
-     * be saved to the file designated by {@link Constants#SETTINGS_FILE}.
+     * be saved to the file designated by {@link Constants#SETTINGS_FILE} if anything changed since
+     * {@link #saveSettings()} was last called.
+     * <p>
+     * All sensitive data will then be encrypted using the {@link Encryption} class, unless it did not change since it
+     * was last encrypted or could not be decrypted, in which case the previous encryption is reused.
      * <p>
-     * All sensitive data will then be encrypted using the {@link Encryption} class.
+     * Nothing is written if the content is identical to what was last written. If writing fails the settings stay
+     * marked as changed, so the next save or flush tries again.
      */
-    public void saveSettings() {
+    public synchronized void flush() {
+        writeScheduled = false;
+
+        if (!dirty) {
+            return;
+        }
+
+        long start = System.nanoTime();
+
         JSONObject json = new JSONObject();
 
         try {
-            SecretKeySpec key = Encryption.createSecretKey(salt.getBytes());
+            encryptIfChanged("token", token);
+            encryptIfChanged("lastFMPassword", lastFMPassword);
+            encryptIfChanged("sessionKey", sessionKey);
 
             json.put("salt", salt);
             json.put("encryptionMessage", encryptionMessage);
+            json.put("nowPlayingFileEnabled", nowPlayingFileEnabled);
             json.put("enabledPlugins", new JSONArray(enabledPlugins));
+            json.put("trackSources", new JSONObject()
+                    .put("file", trackSourceFile)
+                    .put("port", trackSourcePort));
+            json.put("metricsPort", metricsPort);
 
             JSONObject discord = new JSONObject();
             discord.put("discordConnectionEnabled", discordConnectionEnabled);
-            discord.put("token", Encryption.encrypt(token, key));
+            discord.put("richPresenseEnabled", richPresenseEnabled);
+            discord.put("gatewayCompressionEnabled", gatewayCompressionEnabled);
+            discord.put("presenceOnlyGatewayEnabled", presenceOnlyGatewayEnabled);
+            discord.put("token", encryptedSecrets.getString("token"));
 
             JSONObject lastFM = new JSONObject();
             lastFM.put("scrobblingEnabled", scrobblingEnabled);
             lastFM.put("lastFMName", lastFMName);
-            lastFM.put("lastFMPassword", Encryption.encrypt(lastFMPassword, key));
-            lastFM.put("sessionKey", Encryption.encrypt(sessionKey, key));
+            lastFM.put("lastFMPassword", encryptedSecrets.getString("lastFMPassword"));
+            lastFM.put("sessionKey", encryptedSecrets.getString("sessionKey"));
 
             json.put("discord", discord);
             json.put("lastFM", lastFM);
 
-            BufferedWriter w = new BufferedWriter(new FileWriter(Constants.SETTINGS_FILE));
-            w.write(json.toString(4));
-            w.newLine();
-            w.close();
+            String content = json.toString(4) + System.lineSeparator();
+            if (content.equals(lastWritten)) {
+                Metrics.counter("settings_writes_skipped_total").increment();
+
+                dirty = false;
+                return;
+            }
+
+            write(content);
+            lastWritten = content;
+            dirty = false;
+
+            Metrics.counter("settings_writes_total").increment();
         } catch (IOException | GeneralSecurityException e) {
             Logging.logError(new String[]{enabledPlugins.toString()}, e);
         }
+
+        lastSaveMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    /**
+     * Writes the content to a temporary file next to {@link Constants#SETTINGS_FILE} and then moves it over the
+     * settings file, atomically where the file system supports it. The temporary file is forced to the disk before the
+     * move, so a power loss cannot replace the settings file with an empty one.
+     *
+     * @param content The content of the settings file.
+     * @throws IOException Thrown if the file could not be written.
+     */
+    private static void write(String content) throws IOException {
+        Path file = Paths.get(Constants.SETTINGS_FILE);
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+
+            channel.force(true);
+        }
+
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Encrypts a sensitive value into {@link #encryptedSecrets} unless its previous encryption is still there.
+     *
+     * @param name  The name of the value in {@link #encryptedSecrets}.
+     * @param value The value to encrypt.
+     */
+    private void encryptIfChanged(String name, String value) throws IOException, GeneralSecurityException {
+        if (!encryptedSecrets.has(name)) {
+            encryptedSecrets.put(name, Encryption.encrypt(value, Encryption.getSecretKey(salt.getBytes())));
+        }
+    }
+
+    /**
+     * Decrypts the sensitive values read from the file, waiting for the key if it is still being derived.
+     * <p>
+     * If a value cannot be decrypted, the user is told and its encryption is kept so that the next save writes it back
+     * unchanged. The value reads as empty until a new one is set.
+     */
+    private synchronized void decryptSecrets() {
+        if (secretsDecrypted) {
+            return;
+        }
+
+        secretsDecrypted = true;
+
+        try {
+            SecretKeySpec key = Encryption.getSecretKey(salt.getBytes());
+
+            token = Encryption.decrypt(encryptedSecrets.getString("token"), key);
+            lastFMPassword = Encryption.decrypt(encryptedSecrets.getString("lastFMPassword"), key);
+            sessionKey = Encryption.decrypt(encryptedSecrets.getString("sessionKey"), key);
+        } catch (IOException | GeneralSecurityException | RuntimeException e) {
+            Logging.logError(new String[]{"Stored credentials could not be decrypted."}, e);
+            Metrics.counter("settings_decryption_failures_total").increment();
+
+            Bot.PROMPT.showMessage("Your stored credentials could not be decrypted. They are kept in the settings " +
+                    "file until you enter them again.");
+        }
     }
 
     /**
@@ -152,7 +359,7 @@ public class Settings {
      *                 {@link Constants#PLUGIN_DIR}.
      * @return Returns a {@link List<Plugin>} that match the list of plugins designated by {@link #enabledPlugins}.
      */
-    public List<Plugin> getEnabledPlugins(List<Plugin> disabled) {
+    public synchronized List<Plugin> getEnabledPlugins(List<Plugin> disabled) {
         List<Plugin> enabled = new ArrayList<>();
 
         outer:
@@ -177,6 +384,14 @@ public class Settings {
         return encryptionMessage;
     }
 
+    public boolean isRichPresenseEnabled() {
+        return richPresenseEnabled;
+    }
+
+    public void setRichPresenseEnabled(boolean richPresenseEnabled) {
+        this.richPresenseEnabled = richPresenseEnabled;
+    }
+
     public boolean isDiscordConnectionEnabled() {
         return discordConnectionEnabled;
     }
@@ -185,6 +400,72 @@ public class Settings {
         this.discordConnectionEnabled = discordConnectionEnabled;
     }
 
+    public boolean isGatewayCompressionEnabled() {
+        return gatewayCompressionEnabled;
+    }
+
+    public void setGatewayCompressionEnabled(boolean gatewayCompressionEnabled) {
+        this.gatewayCompressionEnabled = gatewayCompressionEnabled;
+    }
+
+    public boolean isNowPlayingFileEnabled() {
+        return nowPlayingFileEnabled;
+    }
+
+    public void setNowPlayingFileEnabled(boolean nowPlayingFileEnabled) {
+        this.nowPlayingFileEnabled = nowPlayingFileEnabled;
+    }
+
+    /**
+     * Returns the file followed by a {@link com.sabihismail.DiscordLastFMScrobbler.listener.FileTrackSource}.
+     *
+     * @return Returns the path of the file, or an empty string if no file is followed.
+     * @since 1.2
+     */
+    public String getTrackSourceFile() {
+        return trackSourceFile;
+    }
+
+    public void setTrackSourceFile(String trackSourceFile) {
+        this.trackSourceFile = trackSourceFile;
+    }
+
+    /**
+     * Returns the port of the {@link com.sabihismail.DiscordLastFMScrobbler.listener.SocketTrackSource}.
+     *
+     * @return Returns the port, or 0 if no port is listened on.
+     * @since 1.2
+     */
+    public int getTrackSourcePort() {
+        return trackSourcePort;
+    }
+
+    public void setTrackSourcePort(int trackSourcePort) {
+        this.trackSourcePort = trackSourcePort;
+    }
+
+    /**
+     * Returns the port of the {@link MetricsServer}.
+     *
+     * @return Returns the port, or 0 if the metrics are not served.
+     * @since 1.2
+     */
+    public int getMetricsPort() {
+        return metricsPort;
+    }
+
+    public void setMetricsPort(int metricsPort) {
+        this.metricsPort = metricsPort;
+    }
+
+    public boolean isPresenceOnlyGatewayEnabled() {
+        return presenceOnlyGatewayEnabled;
+    }
+
+    public void setPresenceOnlyGatewayEnabled(boolean presenceOnlyGatewayEnabled) {
+        this.presenceOnlyGatewayEnabled = presenceOnlyGatewayEnabled;
+    }
+
     public boolean isScrobblingEnabled() {
         return scrobblingEnabled;
     }
@@ -193,12 +474,20 @@ public class Settings {
         this.scrobblingEnabled = scrobblingEnabled;
     }
 
-    public String getToken() {
+    public synchronized String getToken() {
+        decryptSecrets();
+
         return token;
     }
 
-    public void setToken(String token) {
-        this.token = token;
+    public synchronized void setToken(String token) {
+        decryptSecrets();
+
+        if (!this.token.equals(token)) {
+            this.token = token;
+
+            encryptedSecrets.remove("token");
+        }
     }
 
     public String getLastFMName() {
@@ -209,27 +498,43 @@ public class Settings {
         this.lastFMName = lastFMName;
     }
 
-    public String getLastFMPassword() {
+    public synchronized String getLastFMPassword() {
+        decryptSecrets();
+
         return lastFMPassword;
     }
 
-    public void setLastFMPassword(String lastFMPassword) {
-        this.lastFMPassword = lastFMPassword;
+    public synchronized void setLastFMPassword(String lastFMPassword) {
+        decryptSecrets();
+
+        if (!this.lastFMPassword.equals(lastFMPassword)) {
+            this.lastFMPassword = lastFMPassword;
+
+            encryptedSecrets.remove("lastFMPassword");
+        }
     }
 
-    public String getSessionKey() {
+    public synchronized String getSessionKey() {
+        decryptSecrets();
+
         return sessionKey;
     }
 
-    public void setSessionKey(String sessionKey) {
-        this.sessionKey = sessionKey;
+    public synchronized void setSessionKey(String sessionKey) {
+        decryptSecrets();
+
+        if (!this.sessionKey.equals(sessionKey)) {
+            this.sessionKey = sessionKey;
+
+            encryptedSecrets.remove("sessionKey");
+        }
     }
 
-    public void addPlugin(Plugin plugin) {
+    public synchronized void addPlugin(Plugin plugin) {
         enabledPlugins.add(plugin.getProcessName());
     }
 
-    public void removePlugin(Plugin plugin) {
+    public synchronized void removePlugin(Plugin plugin) {
         enabledPlugins.remove(plugin.getProcessName());
     }
 }
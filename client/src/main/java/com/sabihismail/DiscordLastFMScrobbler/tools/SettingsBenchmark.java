@@ -0,0 +1,203 @@
+package com.sabihismail.DiscordLastFMScrobbler.tools;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Measures how long {@link Settings} delays the startup of the program, from the command line.
+ * <p>
+ * Every round starts a new JVM, so that the key of {@link Encryption} is not cached yet, and runs the settings part of
+ * the startup there: loading the settings file, the saves made while starting and the first read of a stored secret,
+ * which has to wait for the key. The settings file is created in a temporary home folder, so the settings of the user
+ * are never touched.
+ * <p>
+ * For comparison, the time of a single key derivation is printed as well, which every load and every save took before
+ * the key was cached.
+ *
+ * @since 1.2
+ */
+public class SettingsBenchmark {
+    private static final String USAGE = "Usage: java -cp <jar> " + SettingsBenchmark.class.getName() + " [rounds]\n" +
+            "  Starts a new JVM for every round, 10 by default, and measures loading and saving the settings.";
+
+    /**
+     * Arguments that make the started JVM create the settings file or run a single round.
+     */
+    private static final String CREATE = "--create";
+    private static final String ROUND = "--round";
+
+    /**
+     * Start of the line on which the started JVM prints its values.
+     */
+    private static final String RESULT = "result ";
+
+    private static final int DEFAULT_ROUNDS = 10;
+
+    /**
+     * Amount of saves made while the program starts, before any secret is read.
+     */
+    private static final int STARTUP_SAVES = 3;
+
+    /**
+     * Runs the benchmark, or a single round in a JVM started by the benchmark.
+     *
+     * @param args The amount of rounds given in {@link #USAGE}.
+     */
+    public static void main(String[] args) {
+        try {
+            if (args.length == 1 && args[0].equals(CREATE)) {
+                create();
+                return;
+            } else if (args.length == 1 && args[0].equals(ROUND)) {
+                round();
+                return;
+            }
+
+            int rounds = args.length == 0 ? DEFAULT_ROUNDS : Integer.parseInt(args[0]);
+
+            if (args.length > 1 || rounds < 1) {
+                System.err.println(USAGE);
+                System.exit(1);
+            }
+
+            benchmark(rounds);
+        } catch (IOException | InterruptedException | GeneralSecurityException | NumberFormatException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private static void benchmark(int rounds) throws IOException, InterruptedException, GeneralSecurityException {
+        Path home = Files.createTempDirectory("dlfs-settings-benchmark");
+
+        try {
+            if (run(home, CREATE) == null) {
+                throw new IOException("The settings file could not be created.");
+            }
+
+            List<double[]> results = new ArrayList<>();
+            for (int i = 0; i < rounds; i++) {
+                String[] result = run(home, ROUND);
+
+                if (result == null) {
+                    throw new IOException("Round " + (i + 1) + " did not report its result.");
+                }
+
+                results.add(Arrays.stream(result).mapToDouble(Double::parseDouble).toArray());
+            }
+
+            long start = System.nanoTime();
+            Encryption.getSecretKey(Encryption.generateRandomSalt());
+            double derivation = (System.nanoTime() - start) / 1e6;
+
+            System.out.println("Settings startup over " + rounds + " new JVMs, in milliseconds:");
+            System.out.println("                         median        max");
+            print("load", results, 0);
+            print(STARTUP_SAVES + " saves", results, 1);
+            print("first secret read", results, 2);
+            print("total", results, 3);
+            System.out.printf("A single key derivation, formerly made by every load and save, took %.1fms.%n",
+                    derivation);
+        } finally {
+            try (Stream<Path> files = Files.walk(home)) {
+                files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+    }
+
+    /**
+     * Starts a JVM with the temporary home folder and returns the values it printed, ignoring what it logged.
+     */
+    private static String[] run(Path home, String argument) throws IOException, InterruptedException {
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+
+        Process process = new ProcessBuilder(java, "-Duser.home=" + home, "-cp",
+                System.getProperty("java.class.path"), SettingsBenchmark.class.getName(), argument)
+                .directory(home.toFile())
+                .redirectErrorStream(true)
+                .start();
+
+        StringBuilder output = new StringBuilder();
+        String result = null;
+
+        try (BufferedReader r = new BufferedReader(new InputStreamReader(process.getInputStream(),
+                StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = r.readLine()) != null) {
+                if (line.startsWith(RESULT)) {
+                    result = line.substring(RESULT.length());
+                } else {
+                    output.append(line).append("\n");
+                }
+            }
+        }
+
+        if (process.waitFor() != 0 || result == null) {
+            System.err.print(output);
+            return null;
+        }
+
+        return result.split(" ");
+    }
+
+    /**
+     * Runs the settings part of the startup and prints the time of each step.
+     */
+    private static void round() {
+        long start = System.nanoTime();
+
+        Settings settings = new Settings();
+        long loaded = System.nanoTime();
+
+        for (int i = 0; i < STARTUP_SAVES; i++) {
+            settings.saveSettings();
+            settings.flush();
+        }
+        long saved = System.nanoTime();
+
+        String secrets = settings.getToken() + settings.getLastFMPassword() + settings.getSessionKey();
+        long read = System.nanoTime();
+
+        if (secrets.isEmpty()) {
+            System.out.println("The settings file has no secrets.");
+            System.exit(1);
+        }
+
+        System.out.printf(RESULT + "%.3f %.3f %.3f %.3f%n", (loaded - start) / 1e6, (saved - loaded) / 1e6,
+                (read - saved) / 1e6, (read - start) / 1e6);
+    }
+
+    /**
+     * Creates the settings file of the temporary home folder with a secret of every kind.
+     */
+    private static void create() {
+        Settings settings = new Settings();
+
+        settings.setLastFMName("benchmark");
+        settings.setLastFMPassword("password");
+        settings.setSessionKey("session key");
+        settings.setToken("token");
+        settings.saveSettings();
+        settings.flush();
+
+        System.out.println(RESULT + "0");
+    }
+
+    private static void print(String name, List<double[]> results, int index) {
+        double[] values = results.stream().mapToDouble(result -> result[index]).sorted().toArray();
+
+        System.out.printf("  %-20s %10.2f %10.2f%n", name, values[values.length / 2], values[values.length - 1]);
+    }
+}
@@ -0,0 +1,83 @@
+package com.sabihismail.DiscordLastFMScrobbler.tools;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long the program takes to start so that changes to the startup sequence can be compared.
+ * <p>
+ * A phase is one step of the startup, such as loading the {@link Settings}, and is timed from its beginning to its
+ * end. A milestone, such as the first scrobble, is timed from the moment the JVM was started and is only recorded the
+ * first time it is reached. Both are logged and reported as {@link Metrics} gauges named
+ * 'startup_phase_&lt;name&gt;_millis' and 'startup_&lt;name&gt;_millis'.
+ * <p>
+ * Both the JavaFX and the headless program call {@link #footprint()} once they are up, so the memory and class loading
+ * cost of the two can be compared.
+ *
+ * @since 1.2
+ */
+public class StartupTimer {
+    private static final long PROCESS_START = ManagementFactory.getRuntimeMXBean().getStartTime();
+
+    private static final Set<String> MILESTONES = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Starts timing a phase.
+     *
+     * @return Returns the value to pass to {@link #end(String, long)}.
+     */
+    public static long begin() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Records the duration of a phase.
+     *
+     * @param phase The name of the phase.
+     * @param begin The value returned by {@link #begin()} when the phase started.
+     */
+    public static void end(String phase, long begin) {
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+
+        Metrics.gauge("startup_phase_" + phase + "_millis", () -> millis);
+        Logging.log("Startup phase '" + phase + "' took " + millis + "ms.");
+    }
+
+    /**
+     * Records the time since the JVM was started the first time a milestone is reached. Later calls do nothing.
+     *
+     * @param milestone The name of the milestone.
+     */
+    public static void milestone(String milestone) {
+        if (!MILESTONES.add(milestone)) {
+            return;
+        }
+
+        long millis = System.currentTimeMillis() - PROCESS_START;
+
+        Metrics.gauge("startup_" + milestone + "_millis", () -> millis);
+        Logging.log("Startup milestone '" + milestone + "' reached after " + millis + "ms.");
+    }
+
+    /**
+     * Records the heap and non heap memory in use and the amount of loaded classes as the gauges
+     * 'startup_heap_used_bytes', 'startup_non_heap_used_bytes' and 'startup_loaded_classes'.
+     */
+    public static void footprint() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+
+        long heap = memory.getHeapMemoryUsage().getUsed();
+        long nonHeap = memory.getNonHeapMemoryUsage().getUsed();
+        int classes = ManagementFactory.getClassLoadingMXBean().getLoadedClassCount();
+
+        Metrics.gauge("startup_heap_used_bytes", () -> heap);
+        Metrics.gauge("startup_non_heap_used_bytes", () -> nonHeap);
+        Metrics.gauge("startup_loaded_classes", () -> classes);
+
+        Logging.log("Startup footprint: " + (heap >> 20) + "MB heap, " + (nonHeap >> 20) + "MB non heap, " +
+                classes + " classes loaded.");
+    }
+}
@@ -0,0 +1,72 @@
+package com.sabihismail.DiscordLastFMScrobbler.tools;
+
+import javax.swing.*;
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Shows every {@link Prompt} as one of the {@link GUITools} dialogs.
+ * <p>
+ * Dialogs are always shown on the Swing event dispatch thread. A prompt made from any other thread, for example when
+ * stored credentials are rejected in the background, waits there until the dialog is closed.
+ *
+ * @since 1.2
+ */
+public class SwingPrompt implements Prompt {
+    @Override
+    public void showMessage(String text) {
+        onEventThread(() -> {
+            GUITools.showOnTopMessageDialog(text);
+
+            return null;
+        });
+    }
+
+    @Override
+    public String showInput(String text) {
+        return onEventThread(() -> GUITools.showOnTopInputDialog(text));
+    }
+
+    @Override
+    public String showPasswordInput(String title, String text) {
+        return onEventThread(() -> GUITools.showPasswordInputDialog(title, text));
+    }
+
+    @Override
+    public boolean showConfirm(String text, String title) {
+        Integer answer = onEventThread(() -> GUITools.showOnTopConfirmDialog(text, title));
+
+        return answer != null && answer == JOptionPane.YES_OPTION;
+    }
+
+    /**
+     * Shows a dialog on the event dispatch thread and waits for its answer.
+     *
+     * @param dialog Shows the dialog and returns its answer.
+     * @return Returns the answer, or null if the waiting thread was interrupted.
+     */
+    private static <T> T onEventThread(Supplier<T> dialog) {
+        if (SwingUtilities.isEventDispatchThread()) {
+            return dialog.get();
+        }
+
+        AtomicReference<T> answer = new AtomicReference<>();
+
+        try {
+            SwingUtilities.invokeAndWait(() -> answer.set(dialog.get()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            return null;
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+
+            throw new IllegalStateException(e.getCause());
+        }
+
+        return answer.get();
+    }
+}
@@ -12,7 +12,10 @@ import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
-import java.util.Calendar;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
 
 /**
  * General tools that are used by multiple classes.
@@ -21,31 +24,65 @@ import java.util.Calendar;
  */
 public class Tools {
     /**
-     * The {@link UrlValidator} that is used by {@link #checkIfURLIsUp(String)}.
+     * The {@link UrlValidator} that is used by {@link #checkIfURLIsUp(String)}. Local urls are allowed so that
+     * endpoints can be pointed at a local stand-in server.
      */
-    private static UrlValidator urlValidator = new UrlValidator();
+    private static UrlValidator urlValidator = new UrlValidator(UrlValidator.ALLOW_LOCAL_URLS);
+
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("'('hh:mm:ss a') '", Locale.US);
+    private static volatile FormattedTime formattedTime = new FormattedTime(Long.MIN_VALUE, "");
 
     /**
      * Reads a url and responds with the text contained on that web-page.
      *
      * @param url The url that will be read from.
-     * @return Returns the text contained on that url's web-page.
+     * @return Returns the text contained on that url's web-page or an empty {@link String} if it could not be read.
      */
     public static String readURL(String url) {
+        try {
+            return fetchURL(url);
+        } catch (IOException e) {
+            return "";
+        }
+    }
+
+    /**
+     * Reads a url and responds with the text contained on that web-page. Unlike {@link #readURL(String)}, failures are
+     * thrown so that they can be recorded by a {@link CircuitBreaker}.
+     *
+     * @param url The url that will be read from.
+     * @return Returns the text contained on that url's web-page.
+     * @throws IOException Thrown if the url could not be read or if the server responded with a 5XX error.
+     */
+    public static String fetchURL(String url) throws IOException {
         HttpClient httpClient = HttpClients.createMinimal();
 
-        String response = "";
-        try {
-            HttpResponse httpResponse = httpClient.execute(new HttpGet(url));
+        HttpResponse httpResponse = httpClient.execute(new HttpGet(url));
 
-            response = EntityUtils.toString(httpResponse.getEntity(), StandardCharsets.UTF_8);
-            EntityUtils.consume(httpResponse.getEntity());
-        } catch (IOException ignored) {
-        }
+        String response = EntityUtils.toString(httpResponse.getEntity(), StandardCharsets.UTF_8);
+        EntityUtils.consume(httpResponse.getEntity());
+
+        checkServerError(url, httpResponse);
 
         return response;
     }
 
+    /**
+     * Throws if the server responded with a 5XX error, which means that the endpoint itself is unavailable rather than
+     * the request being invalid.
+     *
+     * @param url          The url that was requested.
+     * @param httpResponse The response of the server.
+     * @throws IOException Thrown if the status code is 500 or above.
+     */
+    public static void checkServerError(String url, HttpResponse httpResponse) throws IOException {
+        int status = httpResponse.getStatusLine().getStatusCode();
+
+        if (status >= 500) {
+            throw new IOException(url + " responded with " + status + ".");
+        }
+    }
+
     /**
      * Checks if a url is a valid web address.
      *
@@ -92,20 +129,40 @@ public class Tools {
      * @return Returns the current time formatted.
      */
     public static String getFormattedTime() {
-        Calendar date = Calendar.getInstance();
+        return getFormattedTime(System.currentTimeMillis());
+    }
+
+    /**
+     * Returns a time formatted as '(hh:mm:ss am/pm)'. The text is only formatted again once the second changes, as
+     * every message of {@link Logging} is prefixed with it.
+     *
+     * @param time The time since Unix epoch in milliseconds.
+     * @return Returns the time formatted.
+     * @since 1.2
+     */
+    public static String getFormattedTime(long time) {
+        long second = Math.floorDiv(time, 1000);
+
+        FormattedTime formatted = formattedTime;
+        if (formatted.second != second) {
+            formatted = new FormattedTime(second, TIME_FORMAT.format(Instant.ofEpochMilli(time)
+                    .atZone(ZoneId.systemDefault())));
+            formattedTime = formatted;
+        }
 
-        String hour = Integer.toString(date.get(Calendar.HOUR));
-        String minute = Integer.toString(date.get(Calendar.MINUTE));
-        String second = Integer.toString(date.get(Calendar.SECOND));
-        String AMPM = date.get(Calendar.AM_PM) == Calendar.AM ? "AM" : "PM";
+        return formatted.text;
+    }
 
-        if (Integer.parseInt(hour) < 10)
-            hour = "0" + hour;
-        if (Integer.parseInt(minute) < 10)
-            minute = "0" + minute;
-        if (Integer.parseInt(second) < 10)
-            second = "0" + second;
+    /**
+     * The last time formatted by {@link #getFormattedTime(long)}.
+     */
+    private static class FormattedTime {
+        private final long second;
+        private final String text;
 
-        return "(" + hour + ":" + minute + ":" + second + " " + AMPM + ") ";
+        private FormattedTime(long second, String text) {
+            this.second = second;
+            this.text = text;
+        }
     }
 }
@@ -0,0 +1,336 @@
+package com.sabihismail.DiscordLastFMScrobbler.discord;
+
+import org.json.JSONObject;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.net.ProtocolFamily;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests {@link DiscordIPC} against a scripted Discord client from the command line, so it runs without Discord.
+ * <p>
+ * The {@link FakeDiscord} listens on 'discord-ipc-0' in a temporary folder that is handed to {@link DiscordIPC} through
+ * the 'dlfs.discord.ipc.dir' system property, which is set before {@link DiscordIPC} is loaded. It checks the framing
+ * of the handshake and of activities, answering pings, rejected activities, reconnecting after Discord closed the
+ * connection and giving up on a Discord client that stops answering.
+ * <p>
+ * The stand-in is a Unix domain socket, which requires Java 16 or newer. On older versions every check is skipped.
+ * Exits with 1 if any check failed.
+ *
+ * @since 1.2
+ */
+public class DiscordIPCTest {
+    /**
+     * Time in seconds to wait for a frame or a reconnect.
+     */
+    private static final long TIMEOUT = 10;
+
+    private static final long CLIENT_ID = 1234;
+
+    private static final int OP_HANDSHAKE = 0;
+    private static final int OP_FRAME = 1;
+    private static final int OP_CLOSE = 2;
+    private static final int OP_PING = 3;
+    private static final int OP_PONG = 4;
+
+    private int failures = 0;
+
+    /**
+     * Runs every check.
+     *
+     * @param args Not used.
+     */
+    public static void main(String[] args) {
+        DiscordIPCTest test = new DiscordIPCTest();
+
+        try {
+            Path dir = Files.createTempDirectory("dlfs-discord-ipc");
+            System.setProperty("dlfs.discord.ipc.dir", dir.toString());
+
+            try (FakeDiscord discord = new FakeDiscord(dir.resolve("discord-ipc-0"))) {
+                test.run(discord);
+            } finally {
+                Files.deleteIfExists(dir.resolve("discord-ipc-0"));
+                Files.delete(dir);
+            }
+        } catch (UnsupportedOperationException e) {
+            System.out.println("skipped " + e.getMessage());
+        } catch (IOException | InterruptedException e) {
+            e.printStackTrace();
+            test.failures++;
+        }
+
+        System.out.println(test.failures == 0 ? "All checks passed." : test.failures + " checks failed.");
+        System.exit(test.failures == 0 ? 0 : 1);
+    }
+
+    private void run(FakeDiscord discord) throws InterruptedException {
+        DiscordIPC client = new DiscordIPC(CLIENT_ID);
+
+        checkTrue("an activity is shown", client.setActivity("Artist - Song", 5000), "setActivity returned false");
+
+        Frame handshake = discord.next();
+        checkTrue("the handshake is sent first with the client id", handshake.opcode == OP_HANDSHAKE &&
+                        new JSONObject(handshake.payload).optString("client_id").equals(Long.toString(CLIENT_ID)),
+                "got " + handshake);
+
+        JSONObject activity = activityOf(discord.next());
+        checkTrue("the activity is framed as SET_ACTIVITY with its details and start time",
+                activity.optString("details").equals("Artist - Song") &&
+                        activity.getJSONObject("timestamps").optLong("start") == 5,
+                "got " + activity);
+
+        checkTrue("an unchanged activity is not sent again", client.setActivity("Artist - Song", 5000) &&
+                discord.poll() == null, "the activity was sent again");
+
+        discord.setPingFirst(true);
+        String longTitle = repeat("\u00e9\u266a", 800);
+        checkTrue("a ping before the reply is answered", client.setActivity(longTitle, 5000),
+                "setActivity returned false");
+        checkTrue("a long activity with multi-byte characters arrives intact",
+                activityOf(discord.next()).optString("details").equals(longTitle), "the details were changed");
+        Frame pong = discord.next();
+        checkTrue("the pong echoes the ping", pong.opcode == OP_PONG && pong.payload.equals(FakeDiscord.PING),
+                "got " + pong);
+        discord.setPingFirst(false);
+
+        discord.setRejecting(true);
+        checkTrue("a rejected activity is reported as not shown", !client.setActivity("Rejected", 5000),
+                "setActivity returned true");
+        discord.next();
+        discord.setRejecting(false);
+
+        discord.setClosing(true);
+        checkTrue("a connection closed by Discord is reported", !client.setActivity("Closed", 5000),
+                "setActivity returned true");
+        discord.next();
+        discord.setClosing(false);
+
+        checkTrue("the connection is reopened on the next activity", client.setActivity("Reconnected", 5000),
+                "setActivity returned false");
+        checkTrue("the reopened connection starts with a handshake", discord.next().opcode == OP_HANDSHAKE,
+                "no handshake");
+        checkTrue("the activity is sent on the reopened connection",
+                activityOf(discord.next()).optString("details").equals("Reconnected"), "wrong activity");
+
+        discord.setSilent(true);
+        long start = System.nanoTime();
+        boolean shown = client.setActivity("Silent", 5000);
+        long waited = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start);
+        checkTrue("a Discord client that stops answering is given up on", !shown && waited < TIMEOUT,
+                "setActivity returned " + shown + " after " + waited + " seconds");
+        discord.next();
+        discord.setSilent(false);
+
+        checkTrue("the connection is reopened after Discord stopped answering", client.setActivity("Back", 5000),
+                "setActivity returned false");
+        discord.next();
+        discord.next();
+
+        client.close();
+        checkTrue("closing lets Discord know", discord.next().opcode == OP_CLOSE, "no close frame");
+    }
+
+    private static JSONObject activityOf(Frame frame) {
+        JSONObject command = new JSONObject(frame.payload);
+
+        if (frame.opcode != OP_FRAME || !command.optString("cmd").equals("SET_ACTIVITY")) {
+            return new JSONObject().put("unexpected", frame.toString());
+        }
+
+        return command.getJSONObject("args").getJSONObject("activity");
+    }
+
+    private static String repeat(String text, int times) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < times; i++) {
+            builder.append(text);
+        }
+
+        return builder.toString();
+    }
+
+    private void checkTrue(String name, boolean passed, String failure) {
+        if (passed) {
+            System.out.println("ok      " + name);
+        } else {
+            System.out.println("FAILED  " + name + ": " + failure);
+            failures++;
+        }
+    }
+
+    private static class Frame {
+        private final int opcode;
+        private final String payload;
+
+        private Frame(int opcode, String payload) {
+            this.opcode = opcode;
+            this.payload = payload;
+        }
+
+        @Override
+        public String toString() {
+            return opcode + " " + payload;
+        }
+    }
+
+    /**
+     * A Discord client listening on a Unix domain socket that accepts one connection at a time, replies READY to the
+     * handshake and answers every command according to its current script. Every frame it receives is queued for the
+     * checks.
+     */
+    private static class FakeDiscord implements AutoCloseable {
+        private static final String PING = "{\"ping\":1}";
+
+        private final ServerSocketChannel server;
+        private final Thread thread;
+        private final BlockingQueue<Frame> received = new LinkedBlockingQueue<>();
+
+        private volatile boolean pingFirst = false;
+        private volatile boolean rejecting = false;
+        private volatile boolean closing = false;
+        private volatile boolean silent = false;
+
+        private volatile SocketChannel connection;
+
+        /**
+         * @throws UnsupportedOperationException Thrown if Unix domain sockets are not available before Java 16.
+         */
+        private FakeDiscord(Path path) throws IOException {
+            SocketAddress address;
+            try {
+                ProtocolFamily unix = Enum.valueOf(StandardProtocolFamily.class, "UNIX");
+                server = (ServerSocketChannel) ServerSocketChannel.class.getMethod("open", ProtocolFamily.class)
+                        .invoke(null, unix);
+                address = (SocketAddress) Class.forName("java.net.UnixDomainSocketAddress")
+                        .getMethod("of", Path.class).invoke(null, path);
+            } catch (InvocationTargetException e) {
+                throw new IOException(e.getCause());
+            } catch (ReflectiveOperationException | IllegalArgumentException e) {
+                throw new UnsupportedOperationException("Unix domain sockets require Java 16 or newer.");
+            }
+
+            server.bind(address);
+
+            thread = new Thread(this::serve, "dlfs-fake-discord");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        private void setPingFirst(boolean pingFirst) {
+            this.pingFirst = pingFirst;
+        }
+
+        private void setRejecting(boolean rejecting) {
+            this.rejecting = rejecting;
+        }
+
+        private void setClosing(boolean closing) {
+            this.closing = closing;
+        }
+
+        private void setSilent(boolean silent) {
+            this.silent = silent;
+        }
+
+        private Frame next() throws InterruptedException {
+            Frame frame = received.poll(TIMEOUT, TimeUnit.SECONDS);
+
+            return frame != null ? frame : new Frame(-1, "{}");
+        }
+
+        private Frame poll() {
+            return received.poll();
+        }
+
+        private void serve() {
+            while (server.isOpen()) {
+                try (SocketChannel accepted = server.accept()) {
+                    connection = accepted;
+
+                    DataInputStream in = new DataInputStream(Channels.newInputStream(accepted));
+                    while (true) {
+                        Frame frame = read(in);
+                        received.add(frame);
+
+                        if (frame.opcode == OP_HANDSHAKE) {
+                            write(OP_FRAME, "{\"cmd\":\"DISPATCH\",\"evt\":\"READY\",\"data\":{\"v\":1}}");
+                        } else if (frame.opcode == OP_FRAME) {
+                            String nonce = new JSONObject(frame.payload).optString("nonce");
+
+                            if (closing) {
+                                write(OP_CLOSE, "{\"code\":1000,\"message\":\"closed\"}");
+                                break;
+                            } else if (silent) {
+                                continue;
+                            }
+
+                            if (pingFirst) {
+                                write(OP_PING, PING);
+                            }
+
+                            write(OP_FRAME, new JSONObject()
+                                    .put("cmd", "SET_ACTIVITY")
+                                    .put("evt", rejecting ? "ERROR" : JSONObject.NULL)
+                                    .put("data", new JSONObject().put("message", "scripted"))
+                                    .put("nonce", nonce)
+                                    .toString());
+                        }
+                    }
+                } catch (IOException e) {
+                    // the connection was closed, the next one is accepted
+                }
+            }
+        }
+
+        private static Frame read(DataInputStream in) throws IOException {
+            byte[] header = new byte[8];
+            in.readFully(header);
+
+            ByteBuffer buffer = ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN);
+            int opcode = buffer.getInt(0);
+            byte[] payload = new byte[buffer.getInt(4)];
+            in.readFully(payload);
+
+            return new Frame(opcode, new String(payload, StandardCharsets.UTF_8));
+        }
+
+        private void write(int opcode, String payload) throws IOException {
+            byte[] bytes = payload.getBytes(StandardCharsets.UTF_8);
+
+            ByteBuffer frame = ByteBuffer.allocate(8 + bytes.length).order(ByteOrder.LITTLE_ENDIAN);
+            frame.putInt(opcode).putInt(bytes.length).put(bytes);
+            frame.flip();
+
+            while (frame.hasRemaining()) {
+                connection.write(frame);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            server.close();
+
+            SocketChannel open = connection;
+            if (open != null) {
+                open.close();
+            }
+
+            thread.interrupt();
+        }
+    }
+}
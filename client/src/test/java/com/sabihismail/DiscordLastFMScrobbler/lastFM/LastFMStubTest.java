@@ -0,0 +1,340 @@
+package com.sabihismail.DiscordLastFMScrobbler.lastFM;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.json.JSONException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests {@link LastFMManager} and the circuit breakers of {@link LastFM} against a local Last.FM stand-in from the
+ * command line, so it runs without a Last.FM account or network.
+ * <p>
+ * The {@link StubLastFM} is reached through the 'dlfs.lastfm.endpoint' system property, which is set before
+ * {@link LastFM} is loaded. It answers 'track.getInfo', 'track.updateNowPlaying' and 'track.scrobble', and can be
+ * switched to answer every request with 503 like Last.FM does while it is down. Songs are played in virtual time, while
+ * the circuit breakers run in real time.
+ * <p>
+ * Exits with 1 if any check failed.
+ *
+ * @since 1.2
+ */
+public class LastFMStubTest {
+    /**
+     * Time in seconds to wait for the circuit breakers to allow a trial request after Last.FM is back.
+     */
+    private static final long RECOVERY_TIMEOUT = 15;
+
+    private static final String ARTIST = "Artist";
+
+    private final VirtualClock clock = new VirtualClock();
+    private int failures = 0;
+
+    /**
+     * Runs every check.
+     *
+     * @param args Not used.
+     */
+    public static void main(String[] args) {
+        LastFMStubTest test = new LastFMStubTest();
+
+        try (StubLastFM stub = new StubLastFM()) {
+            System.setProperty("dlfs.lastfm.endpoint", stub.getEndpoint());
+
+            test.run(stub);
+        } catch (IOException | InterruptedException e) {
+            e.printStackTrace();
+            test.failures++;
+        }
+
+        System.out.println(test.failures == 0 ? "All checks passed." : test.failures + " checks failed.");
+        System.exit(test.failures == 0 ? 0 : 1);
+    }
+
+    private void run(StubLastFM stub) throws InterruptedException {
+        stub.addTrack("Song 1", 100);
+        stub.addTrack("Song 2", 100);
+        stub.addTrack("Song 3", 60);
+
+        LastFMManager manager = new LastFMManager(new StubPort(), clock, Runnable::run, Runnable::run, message -> {});
+
+        int song1 = clock.seconds();
+        play(manager, "Song 1", 60);
+        check("a song played for half its length is scrobbled", stub.getScrobbles(), "Song 1@" + song1);
+        checkTrue("Now Playing is updated when a song starts", stub.getNowPlaying().equals(Arrays.asList("Song 1")),
+                "Now Playing was " + stub.getNowPlaying());
+
+        int song2 = clock.seconds();
+        play(manager, "Song 2", 1);
+
+        stub.setDown(true);
+        play(manager, "Song 2", 59);
+
+        int song3 = clock.seconds();
+        play(manager, "Song 3", 40);
+        for (int i = 4; i <= 8; i++) {
+            play(manager, "Song " + i, 1);
+        }
+
+        check("nothing is scrobbled while Last.FM is down", stub.getScrobbles(), "Song 1@" + song1);
+
+        int nowPlayingRequests = stub.getFailedRequests().getOrDefault("track.updateNowPlaying", 0);
+        checkTrue("an open breaker keeps Now Playing updates of later songs from reaching Last.FM",
+                nowPlayingRequests == 3, nowPlayingRequests + " updates reached Last.FM while it was down");
+
+        stub.setDown(false);
+
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(RECOVERY_TIMEOUT);
+        while (stub.getScrobbles().size() < 3 && System.currentTimeMillis() < deadline) {
+            manager.submitQueuedScrobbles();
+
+            Thread.sleep(200);
+        }
+
+        check("queued scrobbles are sent in order with the time they were played once Last.FM is back",
+                stub.getScrobbles(), "Song 1@" + song1, "Song 2@" + song2, "Song 3@" + song3);
+
+        while (!lastNowPlaying(stub).equals("Song 8") && System.currentTimeMillis() < deadline) {
+            play(manager, "Song 8", 30);
+
+            Thread.sleep(200);
+        }
+
+        checkTrue("Now Playing of the song that is playing is sent once Last.FM is back",
+                lastNowPlaying(stub).equals("Song 8"), "Now Playing was " + stub.getNowPlaying());
+    }
+
+    private static String lastNowPlaying(StubLastFM stub) {
+        List<String> nowPlaying = stub.getNowPlaying();
+
+        return nowPlaying.isEmpty() ? "" : nowPlaying.get(nowPlaying.size() - 1);
+    }
+
+    /**
+     * Observes a song once per virtual second, like the process check does.
+     */
+    private void play(LastFMManager manager, String title, int seconds) {
+        for (int i = 0; i < seconds; i++) {
+            manager.processInformation(ARTIST, title, 0);
+
+            clock.advance();
+        }
+    }
+
+    private void check(String name, List<String> actual, String... expected) {
+        checkTrue(name, actual.equals(Arrays.asList(expected)),
+                "expected " + Arrays.asList(expected) + " but got " + actual);
+    }
+
+    private void checkTrue(String name, boolean passed, String failure) {
+        if (passed) {
+            System.out.println("ok      " + name);
+        } else {
+            System.out.println("FAILED  " + name + ": " + failure);
+            failures++;
+        }
+    }
+
+    /**
+     * Sends every request through {@link LastFM} to the {@link StubLastFM}, with a fixed session key instead of the
+     * one in the settings.
+     */
+    private static class StubPort implements LastFMPort {
+        private static final String SESSION_KEY = "session";
+
+        @Override
+        public LastFM.Track getTrackInformation(String artist, String title) throws IOException {
+            return LastFM.getTrackInformation(artist, title);
+        }
+
+        @Override
+        public boolean updateNowPlaying(String artist, String title) throws JSONException {
+            return LastFM.updateNowPlaying(artist, title, SESSION_KEY);
+        }
+
+        @Override
+        public boolean scrobble(String artist, String title, String album, int timeStamp)
+                throws IOException, JSONException {
+            return LastFM.scrobble(artist, title, album, timeStamp, SESSION_KEY);
+        }
+
+        @Override
+        public boolean isScrobbleAvailable() {
+            return LastFM.isScrobbleAvailable();
+        }
+
+        @Override
+        public String getFormattedTrack() {
+            return "";
+        }
+    }
+
+    /**
+     * A Last.FM API on a free port of 127.0.0.1 that knows a fixed set of songs and records every Now Playing update
+     * and scrobble it accepts.
+     */
+    private static class StubLastFM implements AutoCloseable {
+        private final HttpServer server;
+
+        private final Map<String, Integer> lengths = new HashMap<>();
+        private final List<String> nowPlaying = new ArrayList<>();
+        private final List<String> scrobbles = new ArrayList<>();
+        private final Map<String, Integer> failedRequests = new HashMap<>();
+
+        private boolean down = false;
+
+        private StubLastFM() throws IOException {
+            server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            server.createContext("/2.0/", this::handle);
+            server.start();
+        }
+
+        private String getEndpoint() {
+            return "http://127.0.0.1:" + server.getAddress().getPort() + "/2.0/";
+        }
+
+        private synchronized void addTrack(String title, int seconds) {
+            lengths.put(title, seconds);
+        }
+
+        private synchronized void setDown(boolean down) {
+            this.down = down;
+        }
+
+        private synchronized List<String> getNowPlaying() {
+            return new ArrayList<>(nowPlaying);
+        }
+
+        private synchronized List<String> getScrobbles() {
+            return new ArrayList<>(scrobbles);
+        }
+
+        private synchronized Map<String, Integer> getFailedRequests() {
+            return new HashMap<>(failedRequests);
+        }
+
+        private void handle(HttpExchange exchange) throws IOException {
+            Map<String, String> params = parse(exchange.getRequestURI().getRawQuery());
+            params.putAll(parse(new String(readAll(exchange.getRequestBody()), StandardCharsets.UTF_8)));
+
+            String method = params.getOrDefault("method", "");
+            int status = 200;
+            String response;
+
+            synchronized (this) {
+                if (down) {
+                    failedRequests.merge(method, 1, Integer::sum);
+
+                    status = 503;
+                    response = "Service Unavailable";
+                } else if (method.equals("track.getInfo")) {
+                    Integer length = lengths.get(params.get("track"));
+
+                    response = length == null ? "{\"error\": 6, \"message\": \"Track not found\"}" :
+                            "{\"track\": {\"name\": \"" + params.get("track") + "\", \"duration\": " +
+                                    length * 1000 + ", \"artist\": {\"name\": \"" + params.get("artist") + "\"}, " +
+                                    "\"album\": {\"title\": \"Album\"}, \"toptags\": {\"tag\": []}}}";
+                } else if (method.equals("track.updateNowPlaying")) {
+                    nowPlaying.add(params.get("track"));
+
+                    response = "<lfm status=\"ok\"><nowplaying/></lfm>";
+                } else if (method.equals("track.scrobble")) {
+                    scrobbles.add(params.get("track") + "@" + params.get("timestamp"));
+
+                    response = "<lfm status=\"ok\"><scrobbles accepted=\"1\" ignored=\"0\"/></lfm>";
+                } else {
+                    status = 400;
+                    response = "Unknown method " + method;
+                }
+            }
+
+            byte[] bytes = response.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(status, bytes.length);
+
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+
+        private static Map<String, String> parse(String query) throws UnsupportedEncodingException {
+            Map<String, String> params = new HashMap<>();
+            if (query == null || query.isEmpty()) {
+                return params;
+            }
+
+            for (String pair : query.split("&")) {
+                int separator = pair.indexOf('=');
+                if (separator > 0) {
+                    params.put(URLDecoder.decode(pair.substring(0, separator), "UTF-8"),
+                            URLDecoder.decode(pair.substring(separator + 1), "UTF-8"));
+                }
+            }
+
+            return params;
+        }
+
+        private static byte[] readAll(InputStream in) throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                bytes.write(buffer, 0, read);
+            }
+
+            return bytes.toByteArray();
+        }
+
+        @Override
+        public void close() {
+            server.stop(0);
+        }
+    }
+
+    /**
+     * A clock that only moves when {@link #advance()} is called, starting at an arbitrary fixed time.
+     */
+    private static class VirtualClock extends Clock {
+        private long millis = 1500000000000L;
+
+        private void advance() {
+            millis += 1000;
+        }
+
+        private int seconds() {
+            return (int) (millis / 1000);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+    }
+}
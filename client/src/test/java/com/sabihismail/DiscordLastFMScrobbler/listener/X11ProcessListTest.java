@@ -0,0 +1,471 @@
+package com.sabihismail.DiscordLastFMScrobbler.listener;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests {@link X11ProcessList} against a scripted X server from the command line, so it runs without Xvfb or any
+ * desktop.
+ * <p>
+ * The {@link FakeXServer} answers the few requests the process list makes and is scripted to open, rename and close
+ * windows. Every change is checked against the process list reported by {@link X11ProcessList}, including windows
+ * that close before they can be read, a second window of the same process and the X server going away.
+ * <p>
+ * Exits with 1 if any check failed.
+ *
+ * @since 1.2
+ */
+public class X11ProcessListTest {
+    /**
+     * Time in seconds to wait for a reported process list.
+     */
+    private static final long TIMEOUT = 5;
+
+    private static final int WINDOW_OWN_PROCESS = 0x100;
+    private static final int WINDOW_SPOTIFY = 0x200;
+    private static final int WINDOW_VLC = 0x300;
+    private static final int WINDOW_SPOTIFY_SECOND = 0x400;
+    private static final int WINDOW_CLOSED = 0x999;
+
+    private final BlockingQueue<List<CMDProcess>> reported = new LinkedBlockingQueue<>();
+    private int failures = 0;
+
+    /**
+     * Runs every check.
+     *
+     * @param args Not used.
+     */
+    public static void main(String[] args) {
+        X11ProcessListTest test = new X11ProcessListTest();
+
+        try {
+            test.run();
+        } catch (IOException | InterruptedException e) {
+            e.printStackTrace();
+            test.failures++;
+        }
+
+        System.out.println(test.failures == 0 ? "All checks passed." : test.failures + " checks failed.");
+        System.exit(test.failures == 0 ? 0 : 1);
+    }
+
+    private void run() throws IOException, InterruptedException {
+        String ownProcess = ownProcessName();
+
+        try (FakeXServer server = startServer();
+             X11ProcessList processList = new X11ProcessList("127.0.0.1:" + server.getDisplayNumber(),
+                     reported::add)) {
+            check("windows are read on connect", processList.getProcesses(),
+                    ownProcess, "Sleeping - Latin\u00e9", "spotify", "Artist \u2013 Song \u266a");
+            reported.clear();
+
+            server.setProperty(WINDOW_SPOTIFY, "_NET_WM_NAME", "UTF8_STRING", 8, utf8("Other \u2013 Track"));
+            server.notifyChanged(WINDOW_SPOTIFY, "_NET_WM_NAME");
+            check("a title change is reported", next(),
+                    ownProcess, "Sleeping - Latin\u00e9", "spotify", "Other \u2013 Track");
+
+            server.setProperty(WINDOW_VLC, "WM_CLASS", "STRING", 8, latin1("vlc\0VLC\0"));
+            server.setProperty(WINDOW_VLC, "WM_NAME", "STRING", 8, latin1("VLC Title"));
+            server.setClients(WINDOW_OWN_PROCESS, WINDOW_SPOTIFY, WINDOW_VLC);
+            server.notifyChanged(FakeXServer.ROOT, "_NET_CLIENT_LIST");
+            check("an opened window is reported", next(),
+                    ownProcess, "Sleeping - Latin\u00e9", "spotify", "Other \u2013 Track", "vlc", "VLC Title");
+
+            server.setClients(WINDOW_SPOTIFY, WINDOW_VLC);
+            server.notifyChanged(FakeXServer.ROOT, "_NET_CLIENT_LIST");
+            check("a closed window is reported", next(), "spotify", "Other \u2013 Track", "vlc", "VLC Title");
+
+            server.setProperty(WINDOW_SPOTIFY_SECOND, "WM_CLASS", "STRING", 8, latin1("spotify\0Spotify\0"));
+            server.setProperty(WINDOW_SPOTIFY_SECOND, "WM_NAME", "STRING", 8, latin1("Second window"));
+            server.setClients(WINDOW_SPOTIFY, WINDOW_VLC, WINDOW_SPOTIFY_SECOND, WINDOW_CLOSED);
+            server.notifyChanged(FakeXServer.ROOT, "_NET_CLIENT_LIST");
+            server.setProperty(WINDOW_VLC, "WM_NAME", "STRING", 8, latin1("VLC Other"));
+            server.notifyChanged(WINDOW_VLC, "WM_NAME");
+            check("a second window of a process and a window that closed before it was read are skipped", next(),
+                    "spotify", "Other \u2013 Track", "vlc", "VLC Other");
+
+            Set<Integer> subscribed = server.getSubscribed();
+            checkTrue("changes of the root window and every open window are subscribed to",
+                    subscribed.containsAll(Arrays.asList(FakeXServer.ROOT, WINDOW_OWN_PROCESS, WINDOW_SPOTIFY,
+                            WINDOW_VLC, WINDOW_SPOTIFY_SECOND)) && !subscribed.contains(WINDOW_CLOSED),
+                    "subscribed to " + subscribed);
+
+            server.disconnect();
+            check("a lost connection empties the process list", next());
+            checkTrue("the process list stays empty without a connection", processList.getProcesses().isEmpty(),
+                    "still listing " + processList.getProcesses().size() + " processes");
+        }
+    }
+
+    /**
+     * Starts the X server with this JVM and Spotify as the open windows.
+     */
+    private static FakeXServer startServer() throws IOException {
+        FakeXServer server = new FakeXServer();
+
+        server.setProperty(WINDOW_OWN_PROCESS, "_NET_WM_PID", "CARDINAL", 32, littleEndian(ownPid()));
+        server.setProperty(WINDOW_OWN_PROCESS, "WM_CLASS", "STRING", 8, latin1("own\0Own\0"));
+        server.setProperty(WINDOW_OWN_PROCESS, "WM_NAME", "STRING", 8, latin1("Sleeping - Latin\u00e9"));
+        server.setProperty(WINDOW_SPOTIFY, "WM_CLASS", "STRING", 8, latin1("spotify\0Spotify\0"));
+        server.setProperty(WINDOW_SPOTIFY, "_NET_WM_NAME", "UTF8_STRING", 8, utf8("Artist \u2013 Song \u266a"));
+        server.setClients(WINDOW_OWN_PROCESS, WINDOW_SPOTIFY);
+
+        return server;
+    }
+
+    private List<CMDProcess> next() throws InterruptedException {
+        List<CMDProcess> processes = reported.poll(TIMEOUT, TimeUnit.SECONDS);
+
+        return processes != null ? processes : Collections.singletonList(new CMDProcess("<nothing reported>", ""));
+    }
+
+    /**
+     * Compares a process list with the expected process names and window titles.
+     *
+     * @param name     The name of the check.
+     * @param actual   The process list.
+     * @param expected Every process name followed by its window title.
+     */
+    private void check(String name, List<CMDProcess> actual, String... expected) {
+        List<String> values = new ArrayList<>();
+        for (CMDProcess process : actual) {
+            values.add(process.getProcessName());
+            values.add(process.getWindowTitle());
+        }
+
+        checkTrue(name, values.equals(Arrays.asList(expected)),
+                "expected " + Arrays.asList(expected) + " but got " + values);
+    }
+
+    private void checkTrue(String name, boolean passed, String failure) {
+        if (passed) {
+            System.out.println("ok      " + name);
+        } else {
+            System.out.println("FAILED  " + name + ": " + failure);
+            failures++;
+        }
+    }
+
+    private static int ownPid() {
+        String name = ManagementFactory.getRuntimeMXBean().getName();
+
+        return Integer.parseInt(name.substring(0, name.indexOf('@')));
+    }
+
+    /**
+     * Returns the process name {@link X11ProcessList} reads for a window of this JVM, which is the name of the
+     * executable if there is a '/proc' and the instance name of the window class otherwise.
+     */
+    private static String ownProcessName() {
+        try {
+            return Files.readSymbolicLink(Paths.get("/proc/self/exe")).getFileName().toString();
+        } catch (IOException | UnsupportedOperationException e) {
+            return "own";
+        }
+    }
+
+    private static byte[] littleEndian(int value) {
+        return ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(value).array();
+    }
+
+    private static byte[] latin1(String text) {
+        return text.getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    private static byte[] utf8(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * An X server on a TCP port of 127.0.0.1 that accepts a single connection and answers only the requests
+     * {@link X11ProcessList} makes: InternAtom, GetProperty and ChangeWindowAttributes. Windows exist while they are
+     * in the client list, requests for any other window fail with a BadWindow error like they do for a window that
+     * was just closed.
+     */
+    private static class FakeXServer implements AutoCloseable {
+        private static final int ROOT = 0x77;
+
+        private static final int FIRST_DISPLAY = 90;
+        private static final int LAST_DISPLAY = 199;
+
+        private static final int OPCODE_CHANGE_WINDOW_ATTRIBUTES = 2;
+        private static final int OPCODE_INTERN_ATOM = 16;
+        private static final int OPCODE_GET_PROPERTY = 20;
+
+        private static final int PROPERTY_NOTIFY = 28;
+        private static final int BAD_WINDOW = 3;
+
+        private final ServerSocket serverSocket;
+        private final int displayNumber;
+        private final Thread thread;
+
+        private final Map<String, Integer> atoms = new HashMap<>();
+        private final Map<Long, Property> properties = new HashMap<>();
+        private final Set<Integer> subscribed = new LinkedHashSet<>();
+        private List<Integer> clients = new ArrayList<>();
+
+        private Socket socket;
+        private OutputStream out;
+        private int sequence = 0;
+
+        /**
+         * Listens on the first free port of the displays {@link #FIRST_DISPLAY} to {@link #LAST_DISPLAY}.
+         */
+        private FakeXServer() throws IOException {
+            ServerSocket bound = null;
+            int number = FIRST_DISPLAY;
+
+            for (; bound == null && number <= LAST_DISPLAY; number++) {
+                try {
+                    bound = new ServerSocket(6000 + number, 1, InetAddress.getByName("127.0.0.1"));
+                } catch (IOException e) {
+                    // port in use, the next display is tried
+                }
+            }
+
+            if (bound == null) {
+                throw new IOException("No free X11 display port between " + (6000 + FIRST_DISPLAY) + " and " +
+                        (6000 + LAST_DISPLAY) + ".");
+            }
+
+            serverSocket = bound;
+            displayNumber = number - 1;
+
+            atoms.put("CARDINAL", 6);
+            atoms.put("STRING", 31);
+            atoms.put("WINDOW", 33);
+            atoms.put("WM_NAME", 39);
+            atoms.put("WM_CLASS", 67);
+
+            thread = new Thread(this::serve, "dlfs-fake-x-server");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        private int getDisplayNumber() {
+            return displayNumber;
+        }
+
+        private synchronized Set<Integer> getSubscribed() {
+            return new LinkedHashSet<>(subscribed);
+        }
+
+        private synchronized void setProperty(int window, String name, String type, int format, byte[] value) {
+            properties.put(key(window, atom(name)), new Property(atom(type), format, value));
+        }
+
+        /**
+         * Replaces the '_NET_CLIENT_LIST' of the root window.
+         */
+        private synchronized void setClients(Integer... windows) {
+            clients = Arrays.asList(windows);
+
+            ByteBuffer value = ByteBuffer.allocate(4 * windows.length).order(ByteOrder.LITTLE_ENDIAN);
+            for (int window : windows) {
+                value.putInt(window);
+            }
+
+            setProperty(ROOT, "_NET_CLIENT_LIST", "WINDOW", 32, value.array());
+        }
+
+        /**
+         * Sends a 'PropertyNotify' event.
+         */
+        private synchronized void notifyChanged(int window, String property) throws IOException {
+            ByteBuffer event = packet();
+            event.put((byte) PROPERTY_NOTIFY).put((byte) 0).putShort((short) sequence).putInt(window)
+                    .putInt(atom(property));
+
+            write(event.array());
+        }
+
+        private void serve() {
+            try {
+                Socket accepted = serverSocket.accept();
+                DataInputStream in = new DataInputStream(accepted.getInputStream());
+
+                synchronized (this) {
+                    socket = accepted;
+                    out = accepted.getOutputStream();
+                }
+
+                setup(in);
+
+                while (true) {
+                    byte[] header = new byte[4];
+                    in.readFully(header);
+
+                    ByteBuffer body = ByteBuffer.allocate(
+                            (ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN).getShort(2) & 0xFFFF) * 4 - 4)
+                            .order(ByteOrder.LITTLE_ENDIAN);
+                    in.readFully(body.array());
+
+                    handle(header[0] & 0xFF, body);
+                }
+            } catch (IOException e) {
+                // the connection was closed
+            }
+        }
+
+        private void setup(DataInputStream in) throws IOException {
+            byte[] request = new byte[12];
+            in.readFully(request);
+
+            ByteBuffer header = ByteBuffer.wrap(request).order(ByteOrder.LITTLE_ENDIAN);
+            in.readFully(new byte[(header.getShort(6) + 3) & ~3]);
+            in.readFully(new byte[(header.getShort(8) + 3) & ~3]);
+
+            byte[] vendor = latin1("fake");
+
+            ByteBuffer reply = ByteBuffer.allocate(8 + 32 + vendor.length + 40).order(ByteOrder.LITTLE_ENDIAN);
+            reply.put((byte) 1).put((byte) 0).putShort((short) 11).putShort((short) 0)
+                    .putShort((short) ((reply.capacity() - 8) / 4));
+            reply.putInt(1).putInt(0).putInt(0).putInt(0).putShort((short) vendor.length).putShort((short) 0xFFFF)
+                    .put((byte) 1).put((byte) 0).put((byte) 0).put((byte) 0).put((byte) 32).put((byte) 32)
+                    .put((byte) 8).put((byte) 255).putInt(0);
+            reply.put(vendor);
+            reply.putInt(ROOT).putInt(0).putInt(0).putInt(0).putInt(0).putShort((short) 800).putShort((short) 600)
+                    .putShort((short) 0).putShort((short) 0).putShort((short) 1).putShort((short) 1).putInt(0)
+                    .put((byte) 0).put((byte) 0).put((byte) 24).put((byte) 0);
+
+            write(reply.array());
+        }
+
+        private synchronized void handle(int opcode, ByteBuffer body) throws IOException {
+            sequence = (sequence + 1) & 0xFFFF;
+
+            if (opcode == OPCODE_INTERN_ATOM) {
+                int length = body.getShort(0) & 0xFFFF;
+                String name = new String(body.array(), 4, length, StandardCharsets.US_ASCII);
+
+                ByteBuffer reply = packet();
+                reply.put((byte) 1).put((byte) 0).putShort((short) sequence).putInt(0).putInt(atom(name));
+
+                write(reply.array());
+            } else if (opcode == OPCODE_GET_PROPERTY) {
+                int window = body.getInt(0);
+                int property = body.getInt(4);
+                int type = body.getInt(8);
+
+                if (!exists(window)) {
+                    badWindow(window);
+                    return;
+                }
+
+                Property value = properties.get(key(window, property));
+                if (value == null) {
+                    write(packet().put((byte) 1).put((byte) 0).putShort((short) sequence).array());
+                } else if (type != 0 && type != value.type) {
+                    ByteBuffer reply = packet();
+                    reply.put((byte) 1).put((byte) value.format).putShort((short) sequence).putInt(0)
+                            .putInt(value.type).putInt(value.value.length);
+
+                    write(reply.array());
+                } else {
+                    int padded = (value.value.length + 3) & ~3;
+
+                    ByteBuffer reply = ByteBuffer.allocate(32 + padded).order(ByteOrder.LITTLE_ENDIAN);
+                    reply.put((byte) 1).put((byte) value.format).putShort((short) sequence).putInt(padded / 4)
+                            .putInt(value.type).putInt(0).putInt(value.value.length / (value.format / 8));
+                    reply.position(32);
+                    reply.put(value.value);
+
+                    write(reply.array());
+                }
+            } else if (opcode == OPCODE_CHANGE_WINDOW_ATTRIBUTES) {
+                int window = body.getInt(0);
+
+                if (exists(window)) {
+                    subscribed.add(window);
+                } else {
+                    badWindow(window);
+                }
+            }
+        }
+
+        private boolean exists(int window) {
+            return window == ROOT || clients.contains(window) && properties.keySet().stream()
+                    .anyMatch(key -> (int) (key >>> 32) == window);
+        }
+
+        private void badWindow(int window) throws IOException {
+            ByteBuffer error = packet();
+            error.put((byte) 0).put((byte) BAD_WINDOW).putShort((short) sequence).putInt(window);
+
+            write(error.array());
+        }
+
+        private synchronized void write(byte[] bytes) throws IOException {
+            if (out == null) {
+                throw new IOException("No client is connected.");
+            }
+
+            out.write(bytes);
+            out.flush();
+        }
+
+        private int atom(String name) {
+            return atoms.computeIfAbsent(name, n -> 300 + atoms.size());
+        }
+
+        private static long key(int window, int atom) {
+            return (long) window << 32 | atom & 0xFFFFFFFFL;
+        }
+
+        private static ByteBuffer packet() {
+            return ByteBuffer.allocate(32).order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        /**
+         * Closes the connection and stops accepting new ones, which the process list notices as the X server going
+         * away.
+         */
+        private synchronized void disconnect() throws IOException {
+            serverSocket.close();
+
+            if (socket != null) {
+                socket.close();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            disconnect();
+
+            thread.interrupt();
+        }
+
+        private static class Property {
+            private final int type;
+            private final int format;
+            private final byte[] value;
+
+            private Property(int type, int format, byte[] value) {
+                this.type = type;
+                this.format = format;
+                this.value = value;
+            }
+        }
+    }
+}